@@ -1,6 +1,7 @@
 package org.switchyard.admin;
 
 import org.jboss.logging.Messages;
+import org.jboss.logging.annotations.Message;
 import org.jboss.logging.annotations.MessageBundle;
 
 /**
@@ -16,4 +17,29 @@ public interface AdminMessages {
      */
     AdminMessages MESSAGES = Messages.getBundle(AdminMessages.class);
 
+    /**
+     * invalidPercentile method definition.
+     * @param percentile percentile
+     * @return IllegalArgumentException
+     */
+    @Message(id = 10400, value = "Percentile must be between 0 and 100 : %s")
+    IllegalArgumentException invalidPercentile(double percentile);
+
+    /**
+     * invalidMetricsWindow method definition.
+     * @param maxMinutes longest supported window
+     * @param windowMinutes window length
+     * @return IllegalArgumentException
+     */
+    @Message(id = 10401, value = "Metrics window must be between 1 and %s minutes : %s")
+    IllegalArgumentException invalidMetricsWindow(int maxMinutes, int windowMinutes);
+
+    /**
+     * invalidLimitAction method definition.
+     * @param limitAction limit action
+     * @return IllegalArgumentException
+     */
+    @Message(id = 10402, value = "Throttling limit action must be DELAY, REJECT or FAULT : %s")
+    IllegalArgumentException invalidLimitAction(String limitAction);
+
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.admin;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.Exchange;
+import org.switchyard.runtime.event.ExchangeCompletionEvent;
+
+/**
+ * The details of a completed exchange which message metrics are recorded
+ * from.  Taken when the exchange completes, so metrics can be recorded on
+ * another thread while the exchange itself moves on.
+ */
+public final class CompletedExchange {
+
+    private final QName _serviceName;
+    private final QName _referenceName;
+    private final String _operationName;
+    private final String _gatewayName;
+    private final long _duration;
+    private final boolean _fault;
+
+    /**
+     * Create a new CompletedExchange.
+     * @param serviceName provider service name, may be null
+     * @param referenceName consumer reference name, may be null
+     * @param operationName provider operation name, may be null
+     * @param gatewayName name of the gateway the exchange came through, may be null
+     * @param duration duration in nanoseconds, or -1 if not recorded
+     * @param fault true if the exchange ended in a fault
+     */
+    public CompletedExchange(QName serviceName, QName referenceName, String operationName,
+            String gatewayName, long duration, boolean fault) {
+        _serviceName = serviceName;
+        _referenceName = referenceName;
+        _operationName = operationName;
+        _gatewayName = gatewayName;
+        _duration = duration;
+        _fault = fault;
+    }
+
+    /**
+     * Create a CompletedExchange from the snapshot taken by a completion event.
+     * @param event event published when the exchange completed
+     * @return the completed exchange details
+     */
+    public static CompletedExchange of(ExchangeCompletionEvent event) {
+        return new CompletedExchange(event.getServiceName(), event.getReferenceName(),
+                event.getOperationName(), event.getGatewayName(), event.getDuration(), event.isFault());
+    }
+
+    /**
+     * Create a CompletedExchange from the current state of an exchange.  Only
+     * call this on the thread which completed the exchange.
+     * @param exchange the completed exchange
+     * @return the completed exchange details
+     */
+    public static CompletedExchange of(Exchange exchange) {
+        return of(new ExchangeCompletionEvent(exchange));
+    }
+
+    /**
+     * @return provider service name, or null
+     */
+    public QName getServiceName() {
+        return _serviceName;
+    }
+
+    /**
+     * @return consumer reference name, or null
+     */
+    public QName getReferenceName() {
+        return _referenceName;
+    }
+
+    /**
+     * @return provider operation name, or null
+     */
+    public String getOperationName() {
+        return _operationName;
+    }
+
+    /**
+     * @return name of the gateway the exchange came through, or null
+     */
+    public String getGatewayName() {
+        return _gatewayName;
+    }
+
+    /**
+     * @return duration in nanoseconds, or -1 if not recorded
+     */
+    public long getDuration() {
+        return _duration;
+    }
+
+    /**
+     * @return true if the exchange ended in a fault
+     */
+    public boolean isFault() {
+        return _fault;
+    }
+}
@@ -56,4 +56,19 @@ public interface MessageMetrics {
      * @return max processing time
      */
     int getMaxProcessingTime();
+    /**
+     * Processing time at the specified percentile for all messages in
+     * TimeUnit.MILLISECONDS, e.g. getPercentileProcessingTime(99.9).
+     * @param percentile percentile between 0 and 100
+     * @return processing time at the percentile
+     */
+    double getPercentileProcessingTime(double percentile);
+    /**
+     * Processing time at the specified percentile in TimeUnit.MILLISECONDS
+     * for messages completed within the last windowMinutes (1 to 5) minutes.
+     * @param percentile percentile between 0 and 100
+     * @param windowMinutes length of the window in minutes
+     * @return processing time at the percentile
+     */
+    double getPercentileProcessingTime(double percentile, int windowMinutes);
 }
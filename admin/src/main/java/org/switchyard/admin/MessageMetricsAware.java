@@ -36,6 +36,15 @@ public interface MessageMetricsAware {
      * Collect metrics from given exchange.
      * @param exchange Completed exchange.
      */
+    void recordMetrics(CompletedExchange exchange);
+
+    /**
+     * Collect metrics from given exchange.
+     * @param exchange Completed exchange.
+     * @deprecated read the exchange on the thread which completed it and use
+     * {@link #recordMetrics(CompletedExchange)} with {@link CompletedExchange#of(Exchange)}
+     */
+    @Deprecated
     void recordMetrics(Exchange exchange);
 
 }
@@ -18,6 +18,7 @@ import java.util.List;
 
 import javax.xml.namespace.QName;
 
+
 /**
  * Service
  * 
@@ -60,4 +61,10 @@ public interface Service extends MessageMetricsAware {
      * @return throttling details associated with this service.
      */
     Throttling getThrottling();
+
+    /**
+     * @return recent faults sent to or by this service which had no consumer
+     * to return to, oldest first.
+     */
+    List<Fault> getFaults();
 }
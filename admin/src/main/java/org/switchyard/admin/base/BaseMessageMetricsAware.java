@@ -14,6 +14,7 @@
 package org.switchyard.admin.base;
 
 import org.switchyard.Exchange;
+import org.switchyard.admin.CompletedExchange;
 import org.switchyard.admin.MessageMetrics;
 import org.switchyard.admin.MessageMetricsAware;
 
@@ -35,8 +36,14 @@ public class BaseMessageMetricsAware implements MessageMetricsAware {
     }
 
     @Override
-    public void recordMetrics(Exchange exchange) {
+    public void recordMetrics(CompletedExchange exchange) {
         _messageMetrics.recordMetrics(exchange);
     }
 
+    @Override
+    @Deprecated
+    public void recordMetrics(Exchange exchange) {
+        recordMetrics(CompletedExchange.of(exchange));
+    }
+
 }
@@ -24,9 +24,9 @@ import java.util.Map;
 
 import javax.xml.namespace.QName;
 
-import org.switchyard.Exchange;
 import org.switchyard.admin.Application;
 import org.switchyard.admin.Binding;
+import org.switchyard.admin.CompletedExchange;
 import org.switchyard.admin.Reference;
 import org.switchyard.admin.ServiceOperation;
 import org.switchyard.common.type.Classes;
@@ -37,7 +37,6 @@ import org.switchyard.config.model.switchyard.EsbInterfaceModel;
 import org.switchyard.extensions.java.JavaService;
 import org.switchyard.extensions.wsdl.WSDLReaderException;
 import org.switchyard.extensions.wsdl.WSDLService;
-import org.switchyard.runtime.event.ExchangeCompletionEvent;
 
 /**
  * Base implementation for Reference.
@@ -179,12 +178,12 @@ public class BaseReference extends BaseMessageMetricsAware implements Reference
     }
 
     @Override
-    public void recordMetrics(Exchange exchange) {
-        final String gatewayName = exchange.getContext().getPropertyValue(ExchangeCompletionEvent.GATEWAY_NAME);
+    public void recordMetrics(CompletedExchange exchange) {
+        final String gatewayName = exchange.getGatewayName();
         if (gatewayName != null && _gateways.containsKey(gatewayName)) {
             _gateways.get(gatewayName).recordMetrics(exchange);
         }
-        final String operationName = exchange.getContract().getProviderOperation().getName();
+        final String operationName = exchange.getOperationName();
         if (operationName != null) {
             for (final ServiceOperation operation : _operations) {
                 if (operationName.equals(operation.getName())) {
@@ -15,23 +15,26 @@
 package org.switchyard.admin.base;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.xml.namespace.QName;
 
-import org.switchyard.Exchange;
 import org.switchyard.admin.Application;
 import org.switchyard.admin.Binding;
+import org.switchyard.admin.CompletedExchange;
 import org.switchyard.admin.ComponentService;
+import org.switchyard.admin.Fault;
 import org.switchyard.admin.MessageMetrics;
 import org.switchyard.admin.Service;
 import org.switchyard.admin.Throttling;
 import org.switchyard.config.model.composite.BindingModel;
 import org.switchyard.config.model.composite.ComponentServiceModel;
 import org.switchyard.config.model.composite.CompositeServiceModel;
-import org.switchyard.runtime.event.ExchangeCompletionEvent;
+import org.switchyard.internal.DomainImpl;
+import org.switchyard.runtime.fault.FaultRecord;
 
 /**
  * Base implementation for Service.
@@ -132,6 +135,21 @@ public class BaseService implements Service {
         return _throttling;
     }
 
+    @Override
+    public List<Fault> getFaults() {
+        if (_application == null || _application.getDeployment() == null
+                || !(_application.getDeployment().getDomain() instanceof DomainImpl)) {
+            return Collections.emptyList();
+        }
+        List<Fault> faults = new ArrayList<Fault>();
+        for (FaultRecord record : ((DomainImpl)_application.getDeployment().getDomain())
+                .getFaultCapture().getRecentFaults(_name)) {
+            faults.add(new Fault(record.getTimestamp(), record.getService(), record.getProvider(),
+                    record.getOperation(), record.getMessageId(), record.getRelatesTo(), record.getContent()));
+        }
+        return faults;
+    }
+
     private ComponentService getPromotedService(Application application, CompositeServiceModel compositeService) {
         ComponentServiceModel componentServiceModel = compositeService.getComponentService();
         if (componentServiceModel == null) {
@@ -154,8 +172,8 @@ public class BaseService implements Service {
     }
 
     @Override
-    public void recordMetrics(Exchange exchange) {
-        final String gatewayName = exchange.getContext().getPropertyValue(ExchangeCompletionEvent.GATEWAY_NAME);
+    public void recordMetrics(CompletedExchange exchange) {
+        final String gatewayName = exchange.getGatewayName();
         if (gatewayName != null && _gateways.containsKey(gatewayName)) {
             _gateways.get(gatewayName).recordMetrics(exchange);
         }
@@ -48,6 +48,7 @@ public class BaseSwitchYard extends BaseMessageMetricsAware implements SwitchYar
     private List<Reference> _references = Collections.synchronizedList(new LinkedList<Reference>());
     private Set<String> _socketBindingNames = Collections.synchronizedSet(new HashSet<String>());
     private ConcurrentMap<String, String> _properties = new ConcurrentHashMap<String, String>();
+    private volatile MetricsIndex _metricsIndex = MetricsIndex.EMPTY;
 
     /**
      * Create a new BaseSwitchYard.
@@ -72,6 +73,7 @@ public class BaseSwitchYard extends BaseMessageMetricsAware implements SwitchYar
         if (existing == null) {
             _services.addAll(application.getServices());
             _references.addAll(application.getReferences());
+            updateMetricsIndex();
         }
         return this;
     }
@@ -97,6 +99,7 @@ public class BaseSwitchYard extends BaseMessageMetricsAware implements SwitchYar
         if (application != null) {
             _references.removeAll(application.getReferences());
             _services.removeAll(application.getServices());
+            updateMetricsIndex();
         }
         return this;
     }
@@ -141,6 +144,7 @@ public class BaseSwitchYard extends BaseMessageMetricsAware implements SwitchYar
      */
     public BaseSwitchYard addService(Service service) {
         _services.add(service);
+        updateMetricsIndex();
         return this;
     }
 
@@ -152,6 +156,7 @@ public class BaseSwitchYard extends BaseMessageMetricsAware implements SwitchYar
      */
     public BaseSwitchYard removeService(Service service) {
         _services.remove(service);
+        updateMetricsIndex();
         return this;
     }
 
@@ -168,6 +173,7 @@ public class BaseSwitchYard extends BaseMessageMetricsAware implements SwitchYar
      */
     public BaseSwitchYard addReference(Reference reference) {
         _references.add(reference);
+        updateMetricsIndex();
         return this;
     }
 
@@ -179,9 +185,19 @@ public class BaseSwitchYard extends BaseMessageMetricsAware implements SwitchYar
      */
     public BaseSwitchYard removeReference(Reference reference) {
         _references.remove(reference);
+        updateMetricsIndex();
         return this;
     }
 
+    /**
+     * Returns the index used to find the services and references which
+     * record metrics for a completed exchange.
+     * @return the current metrics index
+     */
+    MetricsIndex getMetricsIndex() {
+        return _metricsIndex;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -295,4 +311,7 @@ public class BaseSwitchYard extends BaseMessageMetricsAware implements SwitchYar
         super.resetMessageMetrics();
     }
 
+    private synchronized void updateMetricsIndex() {
+        _metricsIndex = new MetricsIndex(getServices(), getReferences());
+    }
 }
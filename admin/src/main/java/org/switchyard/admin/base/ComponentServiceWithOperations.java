@@ -18,7 +18,7 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.switchyard.Exchange;
+import org.switchyard.admin.CompletedExchange;
 import org.switchyard.admin.Application;
 import org.switchyard.admin.ComponentService;
 import org.switchyard.admin.ServiceOperation;
@@ -86,8 +86,8 @@ public abstract class ComponentServiceWithOperations extends BaseComponentServic
     }
 
     @Override
-    public void recordMetrics(Exchange exchange) {
-        final String operationName = exchange.getContract().getProviderOperation().getName();
+    public void recordMetrics(CompletedExchange exchange) {
+        final String operationName = exchange.getOperationName();
         if (operationName != null) {
             for (final ServiceOperation operation : _operations) {
                 if (operationName.equals(operation.getName())) {
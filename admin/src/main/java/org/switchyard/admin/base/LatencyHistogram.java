@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.admin.base;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram.  Values are
+ * recorded in microseconds with a relative precision of 1/16 (about 6%) from
+ * 1 microsecond up to roughly 71 minutes; larger values are counted in the
+ * highest bucket.  Counts are striped by recording thread so concurrent
+ * recorders rarely contend on the same counter.  A stripe's counters are
+ * allocated the first time a value is recorded from it, after which
+ * recording never allocates.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_BITS = SUB_BUCKET_BITS - 1;
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_HALF_BITS;
+    /** Highest trackable value, in microseconds. */
+    static final long MAX_VALUE = (1L << 32) - 1;
+    /** Number of buckets in a histogram. */
+    static final int BUCKET_COUNT = indexFor(MAX_VALUE) + 1;
+
+    private final AtomicReferenceArray<AtomicLongArray> _stripes;
+    private final int _stripeMask;
+
+    /**
+     * Create a new histogram.
+     * @param stripes number of recording stripes, rounded up to a power of two
+     */
+    LatencyHistogram(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes));
+        if (size < stripes) {
+            size <<= 1;
+        }
+        _stripeMask = size - 1;
+        _stripes = new AtomicReferenceArray<AtomicLongArray>(size);
+    }
+
+    /**
+     * Record a value.
+     * @param micros value in microseconds
+     */
+    void recordValue(long micros) {
+        int stripe = (int) Thread.currentThread().getId() & _stripeMask;
+        AtomicLongArray counts = _stripes.get(stripe);
+        if (counts == null) {
+            // losing the race just means using the winner's counters
+            _stripes.compareAndSet(stripe, null, new AtomicLongArray(BUCKET_COUNT));
+            counts = _stripes.get(stripe);
+        }
+        counts.incrementAndGet(indexFor(micros));
+    }
+
+    /**
+     * Add the counts from all stripes into the specified array.
+     * @param counts array of BUCKET_COUNT length
+     */
+    void addCountsTo(long[] counts) {
+        for (int s = 0; s < _stripes.length(); s++) {
+            AtomicLongArray stripe = _stripes.get(s);
+            if (stripe != null) {
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    counts[i] += stripe.get(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Clear all counts.
+     */
+    void reset() {
+        for (int s = 0; s < _stripes.length(); s++) {
+            AtomicLongArray stripe = _stripes.get(s);
+            if (stripe != null) {
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    stripe.set(i, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of stripes which have had counters allocated.
+     * @return allocated stripe count
+     */
+    int allocatedStripes() {
+        int allocated = 0;
+        for (int s = 0; s < _stripes.length(); s++) {
+            if (_stripes.get(s) != null) {
+                allocated++;
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * Find the value at a percentile of the specified bucket counts.  The
+     * result is the highest value which shares a bucket with the value at
+     * the percentile.
+     * @param counts bucket counts
+     * @param percentile percentile between 0 and 100
+     * @return value in microseconds, or 0 if there are no counts
+     */
+    static long valueAtPercentile(long[] counts, double percentile) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValueFor(i);
+            }
+        }
+        return highestValueFor(counts.length - 1);
+    }
+
+    // buckets [0, SUB_BUCKET_COUNT) are linear, after which each power of two
+    // is split into SUB_BUCKET_HALF buckets
+    static int indexFor(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_HALF_BITS;
+        return (shift << SUB_BUCKET_HALF_BITS) + (int) (value >>> shift);
+    }
+
+    static long highestValueFor(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_HALF_BITS) - 1;
+        long subBucket = (index & (SUB_BUCKET_HALF - 1)) + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
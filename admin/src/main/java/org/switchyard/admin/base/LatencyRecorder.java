@@ -0,0 +1,157 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.admin.base;
+
+import java.util.Arrays;
+
+/**
+ * Records latencies into a cumulative {@link LatencyHistogram} and keeps a
+ * ring of snapshots taken at fixed slice boundaries.  Windowed percentiles
+ * are computed as the difference between the current counts and the snapshot
+ * taken at the start of the window, so a window of N minutes covers between
+ * N minutes and N minutes plus one slice.  A snapshot only holds the buckets
+ * between the lowest and highest with a count, and slices passed over in one
+ * step share a snapshot, so a recorder which sees few or similar latencies
+ * holds little more than the ring itself.
+ */
+final class LatencyRecorder {
+
+    /** Length of a snapshot slice, in milliseconds. */
+    static final long SLICE_MILLIS = 15000L;
+    /** Longest supported window, in minutes. */
+    static final int MAX_WINDOW_MINUTES = 5;
+
+    private static final int SLICES_PER_MINUTE = (int) (60000L / SLICE_MILLIS);
+    private static final int RING_SIZE = MAX_WINDOW_MINUTES * SLICES_PER_MINUTE + 1;
+    private static final int MAX_STRIPES = 4;
+
+    private final LatencyHistogram _histogram;
+    private final long[][] _snapshots = new long[RING_SIZE][];
+    private final int[] _snapshotOffsets = new int[RING_SIZE];
+    private final long[] _snapshotSlices = new long[RING_SIZE];
+    private volatile long _currentSlice;
+
+    /**
+     * Create a new recorder.
+     */
+    LatencyRecorder() {
+        _histogram = new LatencyHistogram(
+                Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors()));
+        clearSnapshots(System.currentTimeMillis() / SLICE_MILLIS);
+    }
+
+    /**
+     * Record a latency.
+     * @param micros latency in microseconds
+     * @param now current time in milliseconds
+     */
+    void record(long micros, long now) {
+        long slice = now / SLICE_MILLIS;
+        if (slice != _currentSlice) {
+            advance(slice);
+        }
+        _histogram.recordValue(micros);
+    }
+
+    /**
+     * Value at the specified percentile for everything recorded since the
+     * last reset.
+     * @param percentile percentile between 0 and 100
+     * @return latency in microseconds
+     */
+    long getValueAtPercentile(double percentile) {
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        _histogram.addCountsTo(counts);
+        return LatencyHistogram.valueAtPercentile(counts, percentile);
+    }
+
+    /**
+     * Value at the specified percentile for latencies recorded within the
+     * last windowMinutes.
+     * @param percentile percentile between 0 and 100
+     * @param windowMinutes window length, 1 to MAX_WINDOW_MINUTES
+     * @param now current time in milliseconds
+     * @return latency in microseconds
+     */
+    long getValueAtPercentile(double percentile, int windowMinutes, long now) {
+        long slice = now / SLICE_MILLIS;
+        if (slice != _currentSlice) {
+            advance(slice);
+        }
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        _histogram.addCountsTo(counts);
+        long startSlice = slice - (long) windowMinutes * SLICES_PER_MINUTE;
+        synchronized (this) {
+            int index = (int) (startSlice % RING_SIZE);
+            // no snapshot means recording started within the window
+            if (_snapshotSlices[index] == startSlice) {
+                long[] baseline = _snapshots[index];
+                int offset = _snapshotOffsets[index];
+                for (int i = 0; i < baseline.length; i++) {
+                    counts[offset + i] = Math.max(0, counts[offset + i] - baseline[i]);
+                }
+            }
+        }
+        return LatencyHistogram.valueAtPercentile(counts, percentile);
+    }
+
+    /**
+     * Clear all recorded latencies.
+     */
+    synchronized void reset() {
+        _histogram.reset();
+        clearSnapshots(System.currentTimeMillis() / SLICE_MILLIS);
+    }
+
+    // snapshot the counts at the start of each slice that has passed since
+    // the last one, skipping those which have already fallen out of the ring
+    private synchronized void advance(long slice) {
+        long current = _currentSlice;
+        if (slice <= current) {
+            return;
+        }
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        _histogram.addCountsTo(counts);
+        int low = 0;
+        while (low < counts.length && counts[low] == 0) {
+            low++;
+        }
+        int high = counts.length;
+        while (high > low && counts[high - 1] == 0) {
+            high--;
+        }
+        // snapshots are never modified, so the passed slices can share one
+        long[] snapshot = Arrays.copyOfRange(counts, low, high);
+        for (long s = Math.max(current + 1, slice - RING_SIZE + 1); s <= slice; s++) {
+            setSnapshot(s, low, snapshot);
+        }
+        _currentSlice = slice;
+    }
+
+    private void clearSnapshots(long slice) {
+        Arrays.fill(_snapshots, null);
+        Arrays.fill(_snapshotSlices, -1);
+        // a fresh recorder has nothing before the current slice
+        setSnapshot(slice, 0, new long[0]);
+        _currentSlice = slice;
+    }
+
+    private void setSnapshot(long slice, int offset, long[] snapshot) {
+        int index = (int) (slice % RING_SIZE);
+        _snapshots[index] = snapshot;
+        _snapshotOffsets[index] = offset;
+        _snapshotSlices[index] = slice;
+    }
+}
@@ -14,18 +14,19 @@
 
 package org.switchyard.admin.base;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
-import org.switchyard.Exchange;
-import org.switchyard.ExchangeState;
-import org.switchyard.Property;
+import org.switchyard.admin.AdminMessages;
+import org.switchyard.admin.CompletedExchange;
 import org.switchyard.admin.MessageMetrics;
-import org.switchyard.runtime.event.ExchangeCompletionEvent;
 
 /**
  * Message metric collection support.  Holds the values of message metrics
- * and provides a method recording metric data from an exchange.
+ * and provides a method recording metric data from an exchange.  Recording is
+ * lock-free and does not allocate; processing time percentiles are tracked in
+ * a latency histogram with microsecond resolution.
  */
 public class MessageMetricsSupport implements MessageMetrics {
     
@@ -35,30 +36,26 @@ public class MessageMetricsSupport implements MessageMetrics {
     private AtomicInteger _minTimeMS = new AtomicInteger();
     private AtomicInteger _maxTimeMS = new AtomicInteger();
     private AtomicLong _totalTimeMS = new AtomicLong();
+    private LatencyRecorder _latencies = new LatencyRecorder();
     
     /**
      * Update metric data based on the specified exchange.
      * @param exchange an exchange with metrics info
      */
-    public synchronized void recordMetrics(Exchange exchange) {
-        if (exchange.getState().equals(ExchangeState.FAULT)) {
+    public void recordMetrics(CompletedExchange exchange) {
+        if (exchange.isFault()) {
             _faultCount.incrementAndGet();
         } else {
             _successCount.incrementAndGet();
         }
         
-        Property prop = exchange.getContext().getProperty(ExchangeCompletionEvent.EXCHANGE_DURATION);
-        if (prop != null) {
-            Long duration = (Long)prop.getValue();
+        long nanos = exchange.getDuration();
+        if (nanos >= 0) {
+            long duration = TimeUnit.NANOSECONDS.toMillis(nanos);
             _totalTimeMS.addAndGet(duration);
-            // check minTime
-            if (_minTimeMS.intValue() == 0 || duration < _minTimeMS.intValue()) {
-                _minTimeMS.set(duration.intValue());
-            }
-            // check maxTime
-            if (_maxTimeMS.intValue() == 0 || duration > _maxTimeMS.intValue()) {
-                _maxTimeMS.set(duration.intValue());
-            }
+            updateMin((int)duration);
+            updateMax((int)duration);
+            _latencies.record(TimeUnit.NANOSECONDS.toMicros(nanos), System.currentTimeMillis());
         }
     }
     
@@ -71,6 +68,7 @@ public class MessageMetricsSupport implements MessageMetrics {
         _minTimeMS.set(0);
         _maxTimeMS.set(0);
         _totalTimeMS.set(0);
+        _latencies.reset();
     }
 
     @Override
@@ -94,7 +92,7 @@ public class MessageMetricsSupport implements MessageMetrics {
     }
 
     @Override
-    public synchronized double getAverageProcessingTime() {
+    public double getAverageProcessingTime() {
         if (getTotalCount() == 0) {
             return 0.0;
         }
@@ -110,6 +108,21 @@ public class MessageMetricsSupport implements MessageMetrics {
     public int getMinProcessingTime() {
         return _minTimeMS.get();
     }
+
+    @Override
+    public double getPercentileProcessingTime(double percentile) {
+        checkPercentile(percentile);
+        return toMillis(_latencies.getValueAtPercentile(percentile));
+    }
+
+    @Override
+    public double getPercentileProcessingTime(double percentile, int windowMinutes) {
+        checkPercentile(percentile);
+        if (windowMinutes < 1 || windowMinutes > LatencyRecorder.MAX_WINDOW_MINUTES) {
+            throw AdminMessages.MESSAGES.invalidMetricsWindow(LatencyRecorder.MAX_WINDOW_MINUTES, windowMinutes);
+        }
+        return toMillis(_latencies.getValueAtPercentile(percentile, windowMinutes, System.currentTimeMillis()));
+    }
     
     @Override
     public String toString() {
@@ -119,9 +132,38 @@ public class MessageMetricsSupport implements MessageMetrics {
                 + "Avg Time MS   : %s%n"
                 + "Min Time MS   : %s%n"
                 + "Max Time MS   : %s%n"
+                + "P99 Time MS   : %s%n"
                 + "Total Time MS : %s%n", getSuccessCount(),
                 getFaultCount(), getTotalCount(), getAverageProcessingTime(),
                 getMinProcessingTime(), getMaxProcessingTime(),
-                getTotalProcessingTime());
+                getPercentileProcessingTime(99), getTotalProcessingTime());
+    }
+
+    private void updateMin(int duration) {
+        while (true) {
+            int current = _minTimeMS.get();
+            if ((current != 0 && duration >= current) || _minTimeMS.compareAndSet(current, duration)) {
+                return;
+            }
+        }
+    }
+
+    private void updateMax(int duration) {
+        while (true) {
+            int current = _maxTimeMS.get();
+            if (duration <= current || _maxTimeMS.compareAndSet(current, duration)) {
+                return;
+            }
+        }
+    }
+
+    private static void checkPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw AdminMessages.MESSAGES.invalidPercentile(percentile);
+        }
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
     }
 }
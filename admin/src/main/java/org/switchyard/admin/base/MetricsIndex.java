@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.admin.base;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.admin.ComponentReference;
+import org.switchyard.admin.Reference;
+import org.switchyard.admin.Service;
+
+/**
+ * Immutable lookup of the metrics targets for a service or reference name.
+ * A new index is built by {@link BaseSwitchYard} whenever its services or
+ * references change, so recording metrics for a completed exchange does not
+ * depend on the number of deployed services.
+ */
+final class MetricsIndex {
+
+    /** Index with no entries. */
+    static final MetricsIndex EMPTY = new MetricsIndex(
+            Collections.<Service>emptyList(), Collections.<Reference>emptyList());
+
+    private static final Service[] NO_SERVICES = new Service[0];
+    private static final BaseComponentReference[] NO_REFERENCES = new BaseComponentReference[0];
+
+    private final Map<QName, Service[]> _services;
+    private final Map<QName, BaseComponentReference[]> _componentReferences;
+    private final Map<QName, Reference> _references;
+
+    /**
+     * Create a new MetricsIndex.
+     * @param services all services, in registration order
+     * @param references all references, in registration order
+     */
+    MetricsIndex(List<Service> services, List<Reference> references) {
+        Map<QName, List<Service>> servicesByName = new HashMap<QName, List<Service>>();
+        Map<QName, List<BaseComponentReference>> referencesByName = new HashMap<QName, List<BaseComponentReference>>();
+        for (Service service : services) {
+            add(servicesByName, service.getName(), service);
+            if (service.getPromotedService() == null) {
+                continue;
+            }
+            // a component reference is listed once for each service promoting its component
+            for (ComponentReference reference : service.getPromotedService().getReferences()) {
+                if (reference instanceof BaseComponentReference) {
+                    add(referencesByName, reference.getName(), (BaseComponentReference) reference);
+                }
+            }
+        }
+        _services = new HashMap<QName, Service[]>();
+        for (Map.Entry<QName, List<Service>> entry : servicesByName.entrySet()) {
+            _services.put(entry.getKey(), entry.getValue().toArray(NO_SERVICES));
+        }
+        _componentReferences = new HashMap<QName, BaseComponentReference[]>();
+        for (Map.Entry<QName, List<BaseComponentReference>> entry : referencesByName.entrySet()) {
+            _componentReferences.put(entry.getKey(), entry.getValue().toArray(NO_REFERENCES));
+        }
+        _references = new HashMap<QName, Reference>();
+        for (Reference reference : references) {
+            if (!_references.containsKey(reference.getName())) {
+                _references.put(reference.getName(), reference);
+            }
+        }
+    }
+
+    /**
+     * Services registered with the specified name.
+     * @param name service name
+     * @return matching services, never null
+     */
+    Service[] getServices(QName name) {
+        Service[] services = _services.get(name);
+        return services != null ? services : NO_SERVICES;
+    }
+
+    /**
+     * Component references of promoted services with the specified name.
+     * @param name unqualified reference name
+     * @return matching component references, never null
+     */
+    BaseComponentReference[] getComponentReferences(QName name) {
+        BaseComponentReference[] references = _componentReferences.get(name);
+        return references != null ? references : NO_REFERENCES;
+    }
+
+    /**
+     * First composite reference registered with the specified name.
+     * @param name reference name
+     * @return matching reference or null
+     */
+    Reference getReference(QName name) {
+        return _references.get(name);
+    }
+
+    private static <T> void add(Map<QName, List<T>> index, QName name, T value) {
+        List<T> values = index.get(name);
+        if (values == null) {
+            values = new ArrayList<T>(1);
+            index.put(name, values);
+        }
+        values.add(value);
+    }
+}
@@ -13,11 +13,21 @@
  */
 package org.switchyard.admin.base;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.switchyard.ServiceReference;
+import org.switchyard.admin.AdminMessages;
 import org.switchyard.admin.Throttling;
 import org.switchyard.config.model.composite.ExtensionsModel;
+import org.switchyard.config.model.switchyard.OperationThrottlingModel;
 import org.switchyard.config.model.switchyard.ThrottlingModel;
+import org.switchyard.internal.ServiceReferenceImpl;
 import org.switchyard.metadata.ServiceMetadataBuilder;
+import org.switchyard.metadata.qos.Throttling.LimitAction;
+import org.switchyard.runtime.limit.AdaptiveConcurrencyLimiter;
+import org.switchyard.runtime.limit.RateLimiter;
 
 /**
  * ServiceThrottling
@@ -30,6 +40,14 @@ public class ServiceThrottling implements Throttling {
     private boolean _enabled = false;
     private int _maxRequests;
     private long _timePeriod = org.switchyard.metadata.qos.Throttling.DEFAULT_TIME_PERIOD;
+    private int _maxConcurrency;
+    private int _minConcurrency = org.switchyard.metadata.qos.Throttling.DEFAULT_MIN_CONCURRENCY;
+    private long _maxWait;
+    private int _burst;
+    private LimitAction _limitAction = LimitAction.DELAY;
+    private long _maxDelay = Long.MAX_VALUE;
+    private Map<String, org.switchyard.metadata.qos.Throttling> _operations = 
+            Collections.<String, org.switchyard.metadata.qos.Throttling>emptyMap();
 
     /**
      * Create a new ServiceThrottling.
@@ -53,6 +71,30 @@ public class ServiceThrottling implements Throttling {
         if (timePeriod != null) {
             _timePeriod = timePeriod;
         }
+        if (throttling.getMaxConcurrency() != null) {
+            _maxConcurrency = throttling.getMaxConcurrency();
+        }
+        if (throttling.getMinConcurrency() != null) {
+            _minConcurrency = throttling.getMinConcurrency();
+        }
+        if (throttling.getMaxWait() != null) {
+            _maxWait = throttling.getMaxWait();
+        }
+        if (throttling.getBurst() != null) {
+            _burst = throttling.getBurst();
+        }
+        if (throttling.getOnLimit() != null) {
+            _limitAction = toLimitAction(throttling.getOnLimit(), _limitAction);
+        }
+        if (throttling.getMaxDelay() != null) {
+            _maxDelay = throttling.getMaxDelay();
+        }
+        for (OperationThrottlingModel operation : throttling.getOperations()) {
+            putOperationLimit(operation.getName(), operation.getMaxRequests(), 
+                    operation.getTimePeriod() != null ? operation.getTimePeriod()
+                            : org.switchyard.metadata.qos.Throttling.DEFAULT_TIME_PERIOD,
+                    operation.getBurst() != null ? operation.getBurst() : 0);
+        }
     }
 
     @Override
@@ -85,6 +127,93 @@ public class ServiceThrottling implements Throttling {
         return _timePeriod;
     }
 
+    @Override
+    public int getMaxConcurrency() {
+        return _maxConcurrency;
+    }
+
+    @Override
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency != _maxConcurrency) {
+            _maxConcurrency = maxConcurrency;
+            if (_enabled) {
+                updateThrottler();
+            }
+        }
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        AdaptiveConcurrencyLimiter limiter = getConcurrencyLimiter();
+        return limiter != null ? limiter.getLimit() : 0;
+    }
+
+    @Override
+    public int getInFlight() {
+        AdaptiveConcurrencyLimiter limiter = getConcurrencyLimiter();
+        return limiter != null ? limiter.getInFlight() : 0;
+    }
+
+    @Override
+    public long getRejectedCount() {
+        AdaptiveConcurrencyLimiter limiter = getConcurrencyLimiter();
+        return limiter != null ? limiter.getRejectedCount() : 0;
+    }
+
+    @Override
+    public int getBurst() {
+        return _burst > 0 ? _burst : _maxRequests;
+    }
+
+    @Override
+    public void setBurst(int burst) {
+        if (burst != _burst) {
+            _burst = burst;
+            if (_enabled) {
+                updateThrottler();
+            }
+        }
+    }
+
+    @Override
+    public String getLimitAction() {
+        return _limitAction.name();
+    }
+
+    @Override
+    public void setLimitAction(String limitAction) {
+        LimitAction action = limitAction != null ? toLimitAction(limitAction, null) : null;
+        if (action == null) {
+            throw AdminMessages.MESSAGES.invalidLimitAction(limitAction);
+        }
+        if (action != _limitAction) {
+            _limitAction = action;
+            if (_enabled) {
+                updateThrottler();
+            }
+        }
+    }
+
+    @Override
+    public void setOperationLimit(String operation, int maxRequests, int burst) {
+        putOperationLimit(operation, maxRequests, _timePeriod, burst);
+        if (_enabled) {
+            updateThrottler();
+        }
+    }
+
+    @Override
+    public long getDelayedCount() {
+        RateLimiter limiter = getRateLimiter();
+        return limiter != null ? limiter.getDelayedCount() : 0;
+    }
+
+    @Override
+    public long getRateLimitedCount() {
+        RateLimiter limiter = getRateLimiter();
+        return limiter != null ? limiter.getRejectedCount() : 0;
+    }
+
     @Override
     public void update(Boolean enabled, Integer maxRequests) {
         boolean doUpdate = false;
@@ -109,11 +238,66 @@ public class ServiceThrottling implements Throttling {
             throttling = new org.switchyard.metadata.qos.Throttling();
             throttling.setMaxRequests(_maxRequests);
             throttling.setTimePeriod(_timePeriod);
+            throttling.setMaxConcurrency(_maxConcurrency);
+            throttling.setMinConcurrency(_minConcurrency);
+            throttling.setMaxWait(_maxWait);
+            throttling.setBurst(_burst);
+            throttling.setLimitAction(_limitAction);
+            throttling.setMaxDelay(_maxDelay);
+            for (Map.Entry<String, org.switchyard.metadata.qos.Throttling> operation : _operations.entrySet()) {
+                throttling.setOperationThrottling(operation.getKey(), operation.getValue());
+            }
         } else {
             throttling = null;
         }
+        ServiceMetadataBuilder.update(getServiceReference().getServiceMetadata()).throttling(throttling);
+    }
+
+    private ServiceReference getServiceReference() {
         final BaseApplication application = (BaseApplication) _service.getApplication();
-        final ServiceReference serviceReference = application.getDeployment().getDomain().getServiceReference(_service.getName());
-        ServiceMetadataBuilder.update(serviceReference.getServiceMetadata()).throttling(throttling);
+        return application.getDeployment().getDomain().getServiceReference(_service.getName());
+    }
+
+    private AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        if (!_enabled || _maxConcurrency <= 0 || _service.getApplication() == null) {
+            return null;
+        }
+        final ServiceReference serviceReference = getServiceReference();
+        if (serviceReference instanceof ServiceReferenceImpl) {
+            return ((ServiceReferenceImpl) serviceReference).getConcurrencyLimiter();
+        }
+        return null;
+    }
+
+    private RateLimiter getRateLimiter() {
+        if (!_enabled || _service.getApplication() == null) {
+            return null;
+        }
+        final ServiceReference serviceReference = getServiceReference();
+        if (serviceReference instanceof ServiceReferenceImpl) {
+            return ((ServiceReferenceImpl) serviceReference).getRateLimiter();
+        }
+        return null;
+    }
+
+    private void putOperationLimit(String operation, int maxRequests, long timePeriod, int burst) {
+        final Map<String, org.switchyard.metadata.qos.Throttling> operations = 
+                new LinkedHashMap<String, org.switchyard.metadata.qos.Throttling>(_operations);
+        if (maxRequests > 0) {
+            operations.put(operation, new org.switchyard.metadata.qos.Throttling()
+                    .setMaxRequests(maxRequests).setTimePeriod(timePeriod).setBurst(burst));
+        } else {
+            operations.remove(operation);
+        }
+        _operations = operations;
+    }
+
+    private static LimitAction toLimitAction(String value, LimitAction defaultValue) {
+        for (LimitAction action : LimitAction.values()) {
+            if (action.name().equalsIgnoreCase(value.trim())) {
+                return action;
+            }
+        }
+        return defaultValue;
     }
 }
@@ -17,9 +17,8 @@ import java.util.EventObject;
 
 import javax.xml.namespace.QName;
 
-import org.switchyard.Exchange;
 import org.switchyard.admin.Application;
-import org.switchyard.admin.ComponentReference;
+import org.switchyard.admin.CompletedExchange;
 import org.switchyard.admin.Reference;
 import org.switchyard.admin.Service;
 import org.switchyard.admin.SwitchYard;
@@ -66,9 +65,9 @@ public class SwitchYardBuilder implements EventObserver {
         LocalManagement lm = new LocalManagement(_domainManager);
         MBeans.registerLocalManagement(lm);
         
-        // Register event hooks
+        // Register event hooks - metrics are recorded off the exchange thread
         _domainManager.getEventManager()
-            .addObserver(this, ExchangeCompletionEvent.class)
+            .addAsyncObserver(this, ExchangeCompletionEvent.class)
             .addObserver(this, ApplicationDeployedEvent.class)
             .addObserver(this, ApplicationUndeployedEvent.class);
     }
@@ -78,7 +77,8 @@ public class SwitchYardBuilder implements EventObserver {
      * to clean up.
      */
     public void destroy() {
-        // Unregister event hooks
+        // Unregister event hooks; asynchronous delivery belongs to the
+        // domain manager, which stops it when it is destroyed
         _domainManager.getEventManager().removeObserver(this);
         // Unregister management mbeans
         MBeans.unregisterLocalManagement();
@@ -133,32 +133,31 @@ public class SwitchYardBuilder implements EventObserver {
     
     void exchangeCompleted(ExchangeCompletionEvent event) {
         // Recording metrics at multiple levels at this point instead of
-        // aggregating them.
-        Exchange exchange = event.getExchange();
-        QName serviceName = exchange.getProvider().getName();
-        QName referenceName = ComponentNames.unqualify(exchange.getConsumer().getName());
-        for (Service service : _switchYard.getServices()) {
-            if (service.getName().equals(serviceName)) {
-                // 1 - the aggregate switchyard stats
-                _switchYard.recordMetrics(exchange);
-                
-                // 2 - service stats
-                service.recordMetrics(exchange);
-            }
-            // 3 - reference stats
-            // XXX: this looks like it lumps the stats into every component reference with a matching name
-            for (ComponentReference reference : service.getPromotedService().getReferences()) {
-                if (reference.getName().equals(referenceName)) {
-                    ((BaseComponentReference)reference).recordMetrics(exchange);
-                }
-            }
+        // aggregating them.  This runs off the exchange thread, so only the
+        // snapshot taken by the event is read, never the exchange itself.
+        CompletedExchange exchange = CompletedExchange.of(event);
+        QName serviceName = exchange.getServiceName();
+        if (serviceName == null || exchange.getReferenceName() == null) {
+            return;
+        }
+        QName referenceName = ComponentNames.unqualify(exchange.getReferenceName());
+        MetricsIndex index = _switchYard.getMetricsIndex();
+        for (Service service : index.getServices(serviceName)) {
+            // 1 - the aggregate switchyard stats
+            _switchYard.recordMetrics(exchange);
+            
+            // 2 - service stats
+            service.recordMetrics(exchange);
+        }
+        // 3 - reference stats
+        // XXX: this looks like it lumps the stats into every component reference with a matching name
+        for (BaseComponentReference reference : index.getComponentReferences(referenceName)) {
+            reference.recordMetrics(exchange);
         }
         // 4 - reference stats
-        for (Reference reference : _switchYard.getReferences()) {
-            if (reference.getName().equals(referenceName)) {
-                reference.recordMetrics(exchange);
-                break;
-            }
+        Reference reference = index.getReference(referenceName);
+        if (reference != null) {
+            reference.recordMetrics(exchange);
         }
     }
 }
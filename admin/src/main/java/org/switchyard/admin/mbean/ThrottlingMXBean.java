@@ -50,4 +50,77 @@ public interface ThrottlingMXBean {
      *         counted.
      */
     long getTimePeriod();
+
+    /**
+     * @return the upper bound of the adaptive concurrency limit; 0 if
+     *         concurrency is not limited.
+     */
+    int getMaxConcurrency();
+
+    /**
+     * @param maxConcurrency the upper bound of the adaptive concurrency limit;
+     *            0 to stop limiting concurrency.
+     */
+    void setMaxConcurrency(int maxConcurrency);
+
+    /**
+     * @return the current adaptive limit on requests in flight; 0 if
+     *         concurrency is not limited.
+     */
+    int getConcurrencyLimit();
+
+    /**
+     * @return the number of requests in flight under the concurrency limit.
+     */
+    int getInFlight();
+
+    /**
+     * @return the number of requests rejected by the concurrency limit.
+     */
+    long getRejectedCount();
+
+    /**
+     * @return the number of requests which can be sent at once after a quiet
+     *         period.
+     */
+    int getBurst();
+
+    /**
+     * @param burst the number of requests which can be sent at once after a
+     *            quiet period; 0 for the same as maxRequests.
+     */
+    void setBurst(int burst);
+
+    /**
+     * @return what happens to a request over the rate limit: DELAY, REJECT
+     *         or FAULT.
+     */
+    String getLimitAction();
+
+    /**
+     * @param limitAction what happens to a request over the rate limit:
+     *            DELAY, REJECT or FAULT.
+     */
+    void setLimitAction(String limitAction);
+
+    /**
+     * Limit the rate of requests for a single operation.
+     * 
+     * @param operation the operation name.
+     * @param maxRequests the maximum number of requests per time period; 0
+     *            to remove the operation's limit.
+     * @param burst the number of requests which can be sent at once; 0 for
+     *            the same as maxRequests.
+     */
+    void setOperationLimit(String operation, int maxRequests, int burst);
+
+    /**
+     * @return the number of requests delayed by the rate limit.
+     */
+    long getDelayedCount();
+
+    /**
+     * @return the number of requests refused by the rate limit.
+     */
+    long getRateLimitedCount();
 }
@@ -96,6 +96,16 @@ public class ManagedBinding implements BindingMXBean {
         return _binding.getMessageMetrics().getMaxProcessingTime();
     }
 
+    @Override
+    public double getPercentileProcessingTime(double percentile) {
+        return _binding.getMessageMetrics().getPercentileProcessingTime(percentile);
+    }
+
+    @Override
+    public double getPercentileProcessingTime(double percentile, int windowMinutes) {
+        return _binding.getMessageMetrics().getPercentileProcessingTime(percentile, windowMinutes);
+    }
+
     @Override
     public void reset() {
         _binding.resetMessageMetrics();
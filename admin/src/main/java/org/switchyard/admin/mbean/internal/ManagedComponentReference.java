@@ -76,6 +76,16 @@ public class ManagedComponentReference implements ComponentReferenceMXBean {
         return _reference.getMessageMetrics().getMaxProcessingTime();
     }
 
+    @Override
+    public double getPercentileProcessingTime(double percentile) {
+        return _reference.getMessageMetrics().getPercentileProcessingTime(percentile);
+    }
+
+    @Override
+    public double getPercentileProcessingTime(double percentile, int windowMinutes) {
+        return _reference.getMessageMetrics().getPercentileProcessingTime(percentile, windowMinutes);
+    }
+
     @Override
     public void reset() {
         _reference.resetMessageMetrics();
@@ -118,6 +118,16 @@ public class ManagedComponentService implements ComponentServiceMXBean {
         return _service.getMessageMetrics().getMaxProcessingTime();
     }
 
+    @Override
+    public double getPercentileProcessingTime(double percentile) {
+        return _service.getMessageMetrics().getPercentileProcessingTime(percentile);
+    }
+
+    @Override
+    public double getPercentileProcessingTime(double percentile, int windowMinutes) {
+        return _service.getMessageMetrics().getPercentileProcessingTime(percentile, windowMinutes);
+    }
+
     @Override
     public void reset() {
         _service.resetMessageMetrics();
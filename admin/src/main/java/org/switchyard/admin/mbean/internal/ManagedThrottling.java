@@ -63,4 +63,64 @@ public class ManagedThrottling implements ThrottlingMXBean {
         return _delegate.getTimePeriod();
     }
 
+    @Override
+    public int getMaxConcurrency() {
+        return _delegate.getMaxConcurrency();
+    }
+
+    @Override
+    public void setMaxConcurrency(int maxConcurrency) {
+        _delegate.setMaxConcurrency(maxConcurrency);
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return _delegate.getConcurrencyLimit();
+    }
+
+    @Override
+    public int getInFlight() {
+        return _delegate.getInFlight();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return _delegate.getRejectedCount();
+    }
+
+    @Override
+    public int getBurst() {
+        return _delegate.getBurst();
+    }
+
+    @Override
+    public void setBurst(int burst) {
+        _delegate.setBurst(burst);
+    }
+
+    @Override
+    public String getLimitAction() {
+        return _delegate.getLimitAction();
+    }
+
+    @Override
+    public void setLimitAction(String limitAction) {
+        _delegate.setLimitAction(limitAction);
+    }
+
+    @Override
+    public void setOperationLimit(String operation, int maxRequests, int burst) {
+        _delegate.setOperationLimit(operation, maxRequests, burst);
+    }
+
+    @Override
+    public long getDelayedCount() {
+        return _delegate.getDelayedCount();
+    }
+
+    @Override
+    public long getRateLimitedCount() {
+        return _delegate.getRateLimitedCount();
+    }
+
 }
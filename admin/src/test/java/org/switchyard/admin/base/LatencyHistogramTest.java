@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.admin.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for LatencyHistogram and LatencyRecorder.
+ */
+public class LatencyHistogramTest {
+
+    private static final long MINUTE = 60000L;
+
+    @Test
+    public void testBucketPrecision() {
+        long previous = -1;
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            long highest = LatencyHistogram.highestValueFor(i);
+            assertTrue(highest > previous);
+            assertEquals(i, LatencyHistogram.indexFor(highest));
+            assertEquals(i, LatencyHistogram.indexFor(previous + 1));
+            // bucket width never exceeds 1/16 of its lowest value
+            assertTrue(highest - previous - 1 <= Math.max(0, (previous + 1) / 16));
+            previous = highest;
+        }
+        assertEquals(LatencyHistogram.MAX_VALUE, previous);
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexFor(Long.MAX_VALUE));
+        assertEquals(0, LatencyHistogram.indexFor(-5));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(3);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordValue(i * 100L);
+        }
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        histogram.addCountsTo(counts);
+        assertWithin(50000, LatencyHistogram.valueAtPercentile(counts, 50));
+        assertWithin(99000, LatencyHistogram.valueAtPercentile(counts, 99));
+        assertWithin(99900, LatencyHistogram.valueAtPercentile(counts, 99.9));
+        assertWithin(100000, LatencyHistogram.valueAtPercentile(counts, 100));
+        assertWithin(100, LatencyHistogram.valueAtPercentile(counts, 0));
+
+        histogram.reset();
+        counts = new long[LatencyHistogram.BUCKET_COUNT];
+        histogram.addCountsTo(counts);
+        assertEquals(0, LatencyHistogram.valueAtPercentile(counts, 99));
+    }
+
+    @Test
+    public void testStripesAllocatedOnFirstRecord() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram(4);
+        assertEquals(0, histogram.allocatedStripes());
+        histogram.recordValue(1000);
+        assertEquals(1, histogram.allocatedStripes());
+        Thread other = new Thread() {
+            public void run() {
+                histogram.recordValue(2000);
+            }
+        };
+        other.start();
+        other.join();
+        assertTrue(histogram.allocatedStripes() >= 1);
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        histogram.addCountsTo(counts);
+        assertWithin(2000, LatencyHistogram.valueAtPercentile(counts, 100));
+        assertWithin(1000, LatencyHistogram.valueAtPercentile(counts, 50));
+    }
+
+    @Test
+    public void testWindowsAfterIdleSlices() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        long start = (System.currentTimeMillis() / LatencyRecorder.SLICE_MILLIS + 1) * LatencyRecorder.SLICE_MILLIS;
+        // nothing recorded for the first two minutes
+        recorder.record(2000, start + 2 * MINUTE);
+        recorder.record(40000, start + 2 * MINUTE + LatencyRecorder.SLICE_MILLIS);
+        long now = start + 2 * MINUTE + 2 * LatencyRecorder.SLICE_MILLIS;
+        assertWithin(40000, recorder.getValueAtPercentile(100, 1, now));
+        assertWithin(2000, recorder.getValueAtPercentile(50, 1, now));
+        // the window starts after the first latency was recorded
+        assertWithin(40000, recorder.getValueAtPercentile(0, 1, now + MINUTE - LatencyRecorder.SLICE_MILLIS));
+    }
+
+    @Test
+    public void testWindows() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        long start = (System.currentTimeMillis() / LatencyRecorder.SLICE_MILLIS + 1) * LatencyRecorder.SLICE_MILLIS;
+        // slow messages early on, fast ones in the last minute
+        for (int i = 0; i < 100; i++) {
+            recorder.record(50000, start);
+        }
+        for (int i = 0; i < 100; i++) {
+            recorder.record(1000, start + 3 * MINUTE);
+        }
+        long now = start + 3 * MINUTE + 1000;
+        assertWithin(1000, recorder.getValueAtPercentile(99, 1, now));
+        assertWithin(50000, recorder.getValueAtPercentile(99, 5, now));
+        assertWithin(50000, recorder.getValueAtPercentile(99));
+
+        // nothing recorded recently
+        assertEquals(0, recorder.getValueAtPercentile(99, 1, now + 10 * MINUTE));
+
+        recorder.reset();
+        assertEquals(0, recorder.getValueAtPercentile(99));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+}
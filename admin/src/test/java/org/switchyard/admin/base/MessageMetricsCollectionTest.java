@@ -27,6 +27,7 @@ import org.switchyard.ExchangeState;
 import org.switchyard.Property;
 import org.switchyard.admin.ComponentService;
 import org.switchyard.deploy.ComponentNames;
+import org.switchyard.deploy.event.ApplicationUndeployedEvent;
 import org.switchyard.runtime.event.ExchangeCompletionEvent;
 
 /**
@@ -72,6 +73,47 @@ public class MessageMetricsCollectionTest extends SwitchYardBuilderTestBase {
         assertEquals(10.0, _switchYard.getApplication(TEST_APP).getService(TEST_SERVICE).getGateway(TEST_GATEWAY).getMessageMetrics().getAverageProcessingTime(), 0);
     }
 
+    @Test
+    public void testRecordedFromSnapshot() {
+        Exchange ex = createMock();
+        defaultExpectations(ex);
+        ExchangeCompletionEvent event = new ExchangeCompletionEvent(ex);
+
+        // the exchange moves on before an asynchronous observer sees the event
+        when(ex.getState()).thenReturn(ExchangeState.FAULT);
+        when(ex.getProvider().getName()).thenReturn(new QName("urn:m1app:example:1.0", "Other"));
+        _builder.notify(event);
+
+        assertEquals(1, _switchYard.getMessageMetrics().getSuccessCount());
+        assertEquals(0, _switchYard.getMessageMetrics().getFaultCount());
+        assertEquals(10.0, _switchYard.getMessageMetrics().getAverageProcessingTime(), 0);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testRecordedFromExchange() {
+        Exchange ex = createMock();
+        defaultExpectations(ex);
+
+        // callers of the old signature still have their metrics recorded
+        _switchYard.recordMetrics(ex);
+
+        assertEquals(1, _switchYard.getMessageMetrics().getSuccessCount());
+        assertEquals(10.0, _switchYard.getMessageMetrics().getAverageProcessingTime(), 0);
+    }
+
+    @Test
+    public void testUndeployedApplicationNotCollected() {
+        _builder.notify(new ApplicationUndeployedEvent(_deployment));
+        Exchange ex = createMock();
+        defaultExpectations(ex);
+
+        _builder.notify(new ExchangeCompletionEvent(ex));
+
+        assertEquals(0, _switchYard.getMessageMetrics().getSuccessCount());
+        assertEquals(0, _switchYard.getReferences().size());
+    }
+
     private Exchange createMock() {
         return mock(Exchange.class, Mockito.RETURNS_DEEP_STUBS);
     }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.admin.base;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.mockito.Mockito;
+import org.switchyard.Exchange;
+import org.switchyard.ExchangeState;
+import org.switchyard.Property;
+import org.switchyard.admin.Application;
+import org.switchyard.admin.Binding;
+import org.switchyard.admin.ComponentReference;
+import org.switchyard.admin.ComponentService;
+import org.switchyard.admin.ServiceOperation;
+import org.switchyard.runtime.event.ExchangeCompletionEvent;
+
+/**
+ * Microbenchmark showing that the cost of recording metrics for a completed
+ * exchange in SwitchYardBuilder does not grow with the number of deployed
+ * services.  This is not run as part of the build; run it from the IDE or
+ * with 'java' against the test classpath.
+ * <p/>
+ * Usage: MetricsRoutingBenchmark [iterations]
+ */
+public final class MetricsRoutingBenchmark {
+
+    private static final int[] SERVICE_COUNTS = {10, 100, 500, 2000};
+
+    private MetricsRoutingBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional iteration count
+     */
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        for (int round = 0; round < 3; round++) {
+            for (int count : SERVICE_COUNTS) {
+                System.out.println(count + " services: " + run(count, iterations) + " ns/event");
+            }
+        }
+    }
+
+    private static long run(int serviceCount, int iterations) {
+        SwitchYardBuilder builder = new SwitchYardBuilder();
+        BaseSwitchYard switchYard = (BaseSwitchYard) builder.getSwitchYard();
+        for (int i = 0; i < serviceCount; i++) {
+            QName name = new QName("urn:benchmark", "Service" + i);
+            BaseComponentReference reference = new BaseComponentReference(
+                    new QName("urn:benchmark", "reference" + i), "Reference" + i);
+            switchYard.addService(new BaseService(name, "Service" + i, null,
+                    new StubComponentService(name, reference), Collections.<String, Binding>emptyMap()));
+            switchYard.addReference(new BaseReference(new QName("urn:benchmark", "reference" + i),
+                    "Reference" + i, null, null, Collections.<String, Binding>emptyMap()));
+        }
+
+        // target a service in the middle of the list
+        int target = serviceCount / 2;
+        Exchange exchange = mock(Exchange.class, Mockito.RETURNS_DEEP_STUBS);
+        when(exchange.getProvider().getName()).thenReturn(new QName("urn:benchmark", "Service" + target));
+        when(exchange.getConsumer().getName()).thenReturn(new QName("urn:benchmark", "reference" + target));
+        when(exchange.getState()).thenReturn(ExchangeState.OK);
+        Property duration = mock(Property.class);
+        when(duration.getValue()).thenReturn(Long.valueOf(5));
+        when(exchange.getContext().getProperty(ExchangeCompletionEvent.EXCHANGE_DURATION)).thenReturn(duration);
+        when(exchange.getContext().getPropertyValue(ExchangeCompletionEvent.GATEWAY_NAME)).thenReturn(null);
+        ExchangeCompletionEvent event = new ExchangeCompletionEvent(exchange);
+
+        for (int i = 0; i < iterations / 10; i++) {
+            builder.exchangeCompleted(event);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            builder.exchangeCompleted(event);
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static class StubComponentService extends BaseMessageMetricsAware implements ComponentService {
+        private final QName _name;
+        private final List<ComponentReference> _references;
+
+        StubComponentService(QName name, ComponentReference reference) {
+            _name = name;
+            _references = Collections.singletonList(reference);
+        }
+
+        @Override
+        public QName getName() {
+            return _name;
+        }
+
+        @Override
+        public String getImplementation() {
+            return "stub";
+        }
+
+        @Override
+        public String getImplementationConfiguration() {
+            return null;
+        }
+
+        @Override
+        public String getInterface() {
+            return null;
+        }
+
+        @Override
+        public List<ServiceOperation> getServiceOperations() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public ServiceOperation getServiceOperation(String operation) {
+            return null;
+        }
+
+        @Override
+        public List<ComponentReference> getReferences() {
+            return _references;
+        }
+
+        @Override
+        public Application getApplication() {
+            return null;
+        }
+    }
+}
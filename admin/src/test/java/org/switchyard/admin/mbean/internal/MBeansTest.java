@@ -72,6 +72,7 @@ public class MBeansTest {
     @After
     public void tearDown() {
         _builder.destroy();
+        _domainManager.destroy();
     }
 
     @Test
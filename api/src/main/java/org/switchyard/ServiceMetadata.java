@@ -17,6 +17,7 @@ package org.switchyard;
 import java.util.List;
 
 import org.switchyard.metadata.Registrant;
+import org.switchyard.metadata.qos.LoadBalancing;
 import org.switchyard.metadata.qos.Throttling;
 import org.switchyard.policy.Policy;
 
@@ -57,4 +58,11 @@ public interface ServiceMetadata {
      * @return throttling config
      */
     Throttling getThrottling();
+    
+    /**
+     * Return the load balancing configuration associated with a service reference.  It
+     * decides which provider is used when several are registered for the target service.
+     * @return load balancing config, or null to always use the first provider
+     */
+    LoadBalancing getLoadBalancing();
 }
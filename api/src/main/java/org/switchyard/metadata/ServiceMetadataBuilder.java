@@ -20,6 +20,7 @@ import java.util.List;
 import org.switchyard.APIMessages;
 import org.switchyard.ServiceMetadata;
 import org.switchyard.ServiceSecurity;
+import org.switchyard.metadata.qos.LoadBalancing;
 import org.switchyard.metadata.qos.Throttling;
 import org.switchyard.policy.Policy;
 
@@ -91,6 +92,17 @@ public final class ServiceMetadataBuilder {
         return this;
     } 
     
+    /**
+     * Specifies how a service reference chooses between the providers of its
+     * target service.  NOTE : this setting is ignored for services.
+     * @param loadBalancing load balancing setting
+     * @return this builder
+     */
+    public ServiceMetadataBuilder loadBalancing(LoadBalancing loadBalancing) {
+        _metadata._loadBalancing = loadBalancing;
+        return this;
+    }
+    
     /**
      * Returns a configured ServiceMetadata instance.
      * @return ServiceMetadata
@@ -132,7 +144,8 @@ public final class ServiceMetadataBuilder {
             .security(metadata.getSecurity())
             .registrant(metadata.getRegistrant())
             .requiredPolicies(metadata.getRequiredPolicies())
-            .providedPolicies(metadata.getProvidedPolicies());
+            .providedPolicies(metadata.getProvidedPolicies())
+            .loadBalancing(metadata.getLoadBalancing());
     }
 
     private class ServiceMetadataImpl implements ServiceMetadata {
@@ -142,6 +155,7 @@ public final class ServiceMetadataBuilder {
         private List<Policy> _providedPolicies = Collections.emptyList();
         private Registrant _registrant;
         private Throttling _throttling;
+        private LoadBalancing _loadBalancing;
 
         @Override
         public ServiceSecurity getSecurity() {
@@ -167,6 +181,11 @@ public final class ServiceMetadataBuilder {
         public Throttling getThrottling() {
             return _throttling;
         }
+
+        @Override
+        public LoadBalancing getLoadBalancing() {
+            return _loadBalancing;
+        }
         
     }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.metadata.qos;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents configuration for choosing between the local providers of the
+ * service a service reference is wired to.
+ */
+public class LoadBalancing {
+
+    /** Send each request to the next provider in turn. */
+    public static final String ROUND_ROBIN = "roundRobin";
+    
+    /** Send requests to providers in proportion to their weights. */
+    public static final String WEIGHTED = "weighted";
+    
+    /** Send each request to the provider with the fewest requests in flight. */
+    public static final String LEAST_IN_FLIGHT = "leastInFlight";
+    
+    /** Send requests carrying the same context property value to the same provider. */
+    public static final String STICKY = "sticky";
+    
+    private String _strategy;
+    private List<Integer> _weights = Collections.emptyList();
+    private String _property;
+
+    /**
+     * Returns the name of the strategy: one of the constants defined by this class
+     * or the name of a class implementing the runtime's provider selector SPI.
+     * @return strategy name
+     */
+    public String getStrategy() {
+        return _strategy;
+    }
+    
+    /**
+     * Returns the weights used by the weighted strategy, in provider registration
+     * order.  Providers without a weight have a weight of 1.
+     * @return provider weights, never null
+     */
+    public List<Integer> getWeights() {
+        return _weights;
+    }
+    
+    /**
+     * Returns the name of the context property used by the sticky strategy.
+     * @return property name
+     */
+    public String getProperty() {
+        return _property;
+    }
+    
+    /**
+     * Specifies the strategy name.
+     * @param strategy strategy name
+     * @return this LoadBalancing instance
+     */
+    public LoadBalancing setStrategy(String strategy) {
+        _strategy = strategy;
+        return this;
+    }
+    
+    /**
+     * Specifies the weights used by the weighted strategy.
+     * @param weights provider weights, in provider registration order
+     * @return this LoadBalancing instance
+     */
+    public LoadBalancing setWeights(List<Integer> weights) {
+        _weights = weights != null ? weights : Collections.<Integer>emptyList();
+        return this;
+    }
+    
+    /**
+     * Specifies the name of the context property used by the sticky strategy.
+     * @param property property name
+     * @return this LoadBalancing instance
+     */
+    public LoadBalancing setProperty(String property) {
+        _property = property;
+        return this;
+    }
+}
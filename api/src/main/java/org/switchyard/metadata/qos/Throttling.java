@@ -14,15 +14,47 @@
 
 package org.switchyard.metadata.qos;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
- * Represents configuration for throttling of service references.
+ * Represents configuration for throttling of service references.  A
+ * reference is throttled to a rate of requests per time period, to an
+ * adaptive number of requests in flight, or both.
+ * <p/>
+ * The rate is enforced by a token bucket which holds up to the burst size
+ * and refills at maxRequests per time period; each operation can have a rate
+ * of its own on top of the one for the service.  What happens to a request
+ * which finds the bucket empty is decided by the {@link LimitAction}.  The
+ * adaptive concurrency limit moves between the minimum and maximum
+ * concurrency as the latency observed for the reference changes.
  */
 public class Throttling {
     
+    /**
+     * What happens to a request which exceeds the rate limit.
+     */
+    public enum LimitAction {
+        /** The send fails at once with an exception to the sender. */
+        REJECT,
+        /**
+         * The request is dispatched once a token is available, up to the maximum
+         * delay.  Unlike the earlier throttle, the sender is not blocked: the
+         * request is dispatched later from a rate limit thread, except for a
+         * transactional request, whose sender waits out the delay.
+         */
+        DELAY,
+        /** The request is answered with a fault. */
+        FAULT
+    }
+    
     /**
      * Message header used to specify the max requests used by the throttler in a given
      * time period.
+     * @deprecated rate limits are applied by the runtime and this header is no longer read.
      */
+    @Deprecated
     public static final String MAX_REQUESTS = "org.switchyard.qos.throttling.maxRequests";
     
     /**
@@ -30,9 +62,21 @@ public class Throttling {
      */
     public static final long DEFAULT_TIME_PERIOD = 1000;
     
+    /**
+     * Default lower bound of the adaptive concurrency limit.
+     */
+    public static final int DEFAULT_MIN_CONCURRENCY = 1;
+    
     
     private int _maxRequests;
     private long _timePeriod = DEFAULT_TIME_PERIOD;
+    private int _maxConcurrency;
+    private int _minConcurrency = DEFAULT_MIN_CONCURRENCY;
+    private long _maxWait;
+    private int _burst;
+    private LimitAction _limitAction = LimitAction.DELAY;
+    private long _maxDelay = Long.MAX_VALUE;
+    private Map<String, Throttling> _operations = Collections.emptyMap();
 
     /**
      * Returns the maximum number of requests allowed in a given time period.
@@ -69,4 +113,142 @@ public class Throttling {
         _timePeriod = timeMS;
         return this;
     }
+
+    /**
+     * Returns the upper bound of the adaptive concurrency limit.  Requests
+     * are only limited by concurrency if this is greater than zero.
+     * @return maximum number of requests in flight
+     */
+    public int getMaxConcurrency() {
+        return _maxConcurrency;
+    }
+    
+    /**
+     * Returns the lower bound of the adaptive concurrency limit.
+     * @return minimum number of requests allowed in flight
+     */
+    public int getMinConcurrency() {
+        return _minConcurrency;
+    }
+    
+    /**
+     * Returns how long a request waits for the number in flight to fall below
+     * the concurrency limit before it is rejected.
+     * @return maximum wait in milliseconds, 0 to reject at once
+     */
+    public long getMaxWait() {
+        return _maxWait;
+    }
+    
+    /**
+     * Specifies the upper bound of the adaptive concurrency limit.
+     * @param max maximum number of requests in flight, 0 for no limit
+     * @return a reference to this Throttling instance
+     */
+    public Throttling setMaxConcurrency(int max) {
+        _maxConcurrency = max;
+        return this;
+    }
+    
+    /**
+     * Specifies the lower bound of the adaptive concurrency limit.
+     * @param min minimum number of requests allowed in flight
+     * @return a reference to this Throttling instance
+     */
+    public Throttling setMinConcurrency(int min) {
+        _minConcurrency = min;
+        return this;
+    }
+    
+    /**
+     * Specifies how long a request waits for capacity before it is rejected.
+     * @param timeMS maximum wait in milliseconds, 0 to reject at once
+     * @return a reference to this Throttling instance
+     */
+    public Throttling setMaxWait(long timeMS) {
+        _maxWait = timeMS;
+        return this;
+    }
+
+    /**
+     * Returns the number of requests which may be sent at once after a quiet
+     * period.  When not set this is the same as maxRequests.
+     * @return burst size
+     */
+    public int getBurst() {
+        return _burst > 0 ? _burst : _maxRequests;
+    }
+    
+    /**
+     * Returns what happens to a request which exceeds the rate limit.
+     * @return limit action
+     */
+    public LimitAction getLimitAction() {
+        return _limitAction;
+    }
+    
+    /**
+     * Returns the longest a request is delayed by {@link LimitAction#DELAY}.
+     * A request which would have to wait longer is answered with a fault.
+     * @return maximum delay in milliseconds
+     */
+    public long getMaxDelay() {
+        return _maxDelay;
+    }
+    
+    /**
+     * Returns the rate limits for individual operations, keyed by operation name.
+     * @return operation rate limits
+     */
+    public Map<String, Throttling> getOperationThrottling() {
+        return _operations;
+    }
+    
+    /**
+     * Specifies the number of requests which may be sent at once after a quiet period.
+     * @param burst burst size, 0 for the same as maxRequests
+     * @return a reference to this Throttling instance
+     */
+    public Throttling setBurst(int burst) {
+        _burst = burst;
+        return this;
+    }
+    
+    /**
+     * Specifies what happens to a request which exceeds the rate limit.
+     * @param action limit action
+     * @return a reference to this Throttling instance
+     */
+    public Throttling setLimitAction(LimitAction action) {
+        _limitAction = action != null ? action : LimitAction.DELAY;
+        return this;
+    }
+    
+    /**
+     * Specifies the longest a request is delayed by {@link LimitAction#DELAY}.
+     * @param timeMS maximum delay in milliseconds
+     * @return a reference to this Throttling instance
+     */
+    public Throttling setMaxDelay(long timeMS) {
+        _maxDelay = timeMS;
+        return this;
+    }
+    
+    /**
+     * Specifies the rate limit for an operation.  Only the maxRequests,
+     * timePeriod and burst of the operation's throttling are used.
+     * @param operation operation name
+     * @param throttling operation rate limit, null to remove it
+     * @return a reference to this Throttling instance
+     */
+    public Throttling setOperationThrottling(String operation, Throttling throttling) {
+        Map<String, Throttling> operations = new LinkedHashMap<String, Throttling>(_operations);
+        if (throttling != null) {
+            operations.put(operation, throttling);
+        } else {
+            operations.remove(operation);
+        }
+        _operations = Collections.unmodifiableMap(operations);
+        return this;
+    }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.policy;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable set of policies, compared by name as {@link PolicyUtil} does.
+ * Every policy name is given a small id the first time it is seen, and a set
+ * records its members as bits indexed by that id, so a membership test is a
+ * bit test which allocates nothing.  Methods which would modify the set
+ * return a new one instead.
+ */
+public final class PolicySet extends AbstractSet<Policy> {
+
+    /** The empty policy set. */
+    public static final PolicySet EMPTY = new PolicySet(new Policy[0], new long[0]);
+
+    // ids of every policy name seen so far; names are few, so this stays small
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<String, Integer>();
+
+    private final Policy[] _policies;
+    private final long[] _bits;
+
+    private PolicySet(Policy[] policies, long[] bits) {
+        _policies = policies;
+        _bits = bits;
+    }
+
+    /**
+     * Create a set containing the specified policies.  Only the first of
+     * several policies with the same name is kept.
+     * @param policies policies to include, may be null
+     * @return policy set
+     */
+    public static PolicySet of(Collection<? extends Policy> policies) {
+        if (policies instanceof PolicySet) {
+            return (PolicySet)policies;
+        }
+        PolicySet set = EMPTY;
+        if (policies != null) {
+            for (Policy policy : policies) {
+                set = set.with(policy);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Indicates whether a policy with the same name is in this set.
+     * @param policy the policy to check
+     * @return true if the policy is in this set
+     */
+    public boolean contains(Policy policy) {
+        Integer id = IDS.get(policy.getName());
+        return id != null && isSet(_bits, id);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Policy && contains((Policy)o);
+    }
+
+    /**
+     * Indicates whether every policy of another set is in this set.
+     * @param policies the policies to check
+     * @return true if all are in this set
+     */
+    public boolean containsAll(PolicySet policies) {
+        long[] bits = policies._bits;
+        for (int i = 0; i < bits.length; i++) {
+            long mine = i < _bits.length ? _bits[i] : 0;
+            if ((bits[i] & ~mine) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether any policy of another set is in this set.
+     * @param policies the policies to check
+     * @return true if at least one is in this set
+     */
+    public boolean containsAny(PolicySet policies) {
+        long[] bits = policies._bits;
+        for (int i = 0; i < bits.length && i < _bits.length; i++) {
+            if ((bits[i] & _bits[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a set which also contains the specified policy.
+     * @param policy the policy to add
+     * @return this set if it already contains the policy, a new set otherwise
+     */
+    public PolicySet with(Policy policy) {
+        int id = idOf(policy);
+        if (isSet(_bits, id)) {
+            return this;
+        }
+        long[] bits = Arrays.copyOf(_bits, Math.max(_bits.length, (id >>> 6) + 1));
+        bits[id >>> 6] |= 1L << id;
+        Policy[] policies = Arrays.copyOf(_policies, _policies.length + 1);
+        policies[_policies.length] = policy;
+        return new PolicySet(policies, bits);
+    }
+
+    /**
+     * Returns a set containing the policies of this set and of another.
+     * @param policies the policies to add
+     * @return this set if it already contains them all, a new set otherwise
+     */
+    public PolicySet union(PolicySet policies) {
+        if (containsAll(policies)) {
+            return this;
+        }
+        PolicySet set = this;
+        for (Policy policy : policies._policies) {
+            set = set.with(policy);
+        }
+        return set;
+    }
+
+    /**
+     * Returns the policies of this set which are not in another.
+     * @param policies the policies to leave out
+     * @return this set if none are left out, a new set otherwise
+     */
+    public PolicySet without(PolicySet policies) {
+        PolicySet set = EMPTY;
+        for (Policy policy : _policies) {
+            if (!policies.contains(policy)) {
+                set = set.with(policy);
+            }
+        }
+        return set.size() == size() ? this : set;
+    }
+
+    @Override
+    public Iterator<Policy> iterator() {
+        return new Iterator<Policy>() {
+            private int _next;
+
+            @Override
+            public boolean hasNext() {
+                return _next < _policies.length;
+            }
+
+            @Override
+            public Policy next() {
+                if (_next >= _policies.length) {
+                    throw new NoSuchElementException();
+                }
+                return _policies[_next++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return _policies.length;
+    }
+
+    private static boolean isSet(long[] bits, int id) {
+        int word = id >>> 6;
+        return word < bits.length && (bits[word] & (1L << id)) != 0;
+    }
+
+    private static int idOf(Policy policy) {
+        String name = policy.getName();
+        Integer id = IDS.get(name);
+        if (id == null) {
+            synchronized (IDS) {
+                id = IDS.get(name);
+                if (id == null) {
+                    id = IDS.size();
+                    IDS.put(name, id);
+                }
+            }
+        }
+        return id;
+    }
+}
@@ -14,6 +14,7 @@
 
 package org.switchyard.policy;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -26,7 +27,8 @@ import org.switchyard.label.BehaviorLabel;
  * Used to set policy details on a message exchange.  Provided policy represents
  * an assertion that a given policy is satisfied.  Required policy represents a
  * requirement that a specific policy must be provided.  The set of required and
- * provided policies is carried as an exchange-scoped context property.
+ * provided policies is carried as an exchange-scoped context property, holding
+ * an immutable {@link PolicySet} which is replaced whenever a policy is added.
  */
 public final class PolicyUtil {
 
@@ -50,9 +52,18 @@ public final class PolicyUtil {
      * @param policy the policy to assert
      */
     public static void provide(Exchange exchange, Policy policy) {
-        Set<Policy> provided = getPolicies(exchange, PROVIDED_PROPERTY);
-        provided.add(policy);
-        exchange.getContext().setProperty(PROVIDED_PROPERTY, provided, Scope.EXCHANGE).addLabels(BehaviorLabel.TRANSIENT.label());
+        PolicySet policySet = getPolicySet(exchange, PROVIDED_PROPERTY);
+        setPolicySet(exchange, PROVIDED_PROPERTY, policySet, policySet.with(policy));
+    }
+    
+    /**
+     * Indicate that a set of policies is satisfied for the exchange.
+     * @param exchange assert policies on this exchange
+     * @param policies the policies to assert
+     */
+    public static void provide(Exchange exchange, PolicySet policies) {
+        PolicySet policySet = getPolicySet(exchange, PROVIDED_PROPERTY);
+        setPolicySet(exchange, PROVIDED_PROPERTY, policySet, policySet.union(policies));
     }
     
     /**
@@ -61,7 +72,16 @@ public final class PolicyUtil {
      * @return set of policies provided; empty set if no policies are provided
      */
     public static Set<Policy> getProvided(Exchange exchange) {
-        return getPolicies(exchange, PROVIDED_PROPERTY);
+        return new HashSet<Policy>(getProvidedPolicies(exchange));
+    }
+    
+    /**
+     * Returns the policies provided for this exchange without copying them.
+     * @param exchange check policy on this exchange
+     * @return immutable set of policies provided
+     */
+    public static PolicySet getProvidedPolicies(Exchange exchange) {
+        return getPolicySet(exchange, PROVIDED_PROPERTY);
     }
     
     /**
@@ -71,7 +91,7 @@ public final class PolicyUtil {
      * @return true if the policy is provided, false otherwise
      */
     public static boolean isProvided(Exchange exchange, Policy policy) {
-        return containsPolicy(getProvided(exchange), policy);
+        return getPolicySet(exchange, PROVIDED_PROPERTY).contains(policy);
     }
     
     /**
@@ -80,9 +100,18 @@ public final class PolicyUtil {
      * @param policy the policy to require
      */
     public static void require(Exchange exchange, Policy policy) {
-        Set<Policy> required = getPolicies(exchange, REQUIRED_PROPERTY);
-        required.add(policy);
-        exchange.getContext().setProperty(REQUIRED_PROPERTY, required, Scope.EXCHANGE).addLabels(BehaviorLabel.TRANSIENT.label());
+        PolicySet policySet = getPolicySet(exchange, REQUIRED_PROPERTY);
+        setPolicySet(exchange, REQUIRED_PROPERTY, policySet, policySet.with(policy));
+    }
+    
+    /**
+     * Indicate that a set of policies is required for the exchange.
+     * @param exchange require policies on this exchange
+     * @param policies the policies to require
+     */
+    public static void require(Exchange exchange, PolicySet policies) {
+        PolicySet policySet = getPolicySet(exchange, REQUIRED_PROPERTY);
+        setPolicySet(exchange, REQUIRED_PROPERTY, policySet, policySet.union(policies));
     }
     
     /**
@@ -91,7 +120,16 @@ public final class PolicyUtil {
      * @return set of policies required; empty set if no policies are required
      */
     public static Set<Policy> getRequired(Exchange exchange) {
-        return getPolicies(exchange, REQUIRED_PROPERTY);
+        return new HashSet<Policy>(getRequiredPolicies(exchange));
+    }
+    
+    /**
+     * Returns the policies required for this exchange without copying them.
+     * @param exchange check policy on this exchange
+     * @return immutable set of policies required
+     */
+    public static PolicySet getRequiredPolicies(Exchange exchange) {
+        return getPolicySet(exchange, REQUIRED_PROPERTY);
     }
     
     /**
@@ -101,30 +139,23 @@ public final class PolicyUtil {
      * @return true if the policy is required, false otherwise
      */
     public static boolean isRequired(Exchange exchange, Policy policy) {
-        return containsPolicy(getRequired(exchange), policy);
+        return getPolicySet(exchange, REQUIRED_PROPERTY).contains(policy);
     }
     
     @SuppressWarnings("unchecked")
-    private static Set<Policy> getPolicies(Exchange exchange, String propertyName) {
+    private static PolicySet getPolicySet(Exchange exchange, String propertyName) {
         Property intentsProperty = exchange.getContext().getProperty(propertyName, Scope.EXCHANGE);
-        Set<Policy> intents = new HashSet<Policy>();
-        if (intentsProperty != null) {
-            intents.addAll((Set<Policy>)intentsProperty.getValue());
+        if (intentsProperty == null) {
+            return PolicySet.EMPTY;
         }
-        
-        return intents;
+        // tolerate a plain set put there by earlier versions or by hand
+        return PolicySet.of((Collection<Policy>)intentsProperty.getValue());
     }
     
-    // Compares policies by name vs. object identity/hashCode
-    private static boolean containsPolicy(Set<Policy> list, Policy target) {
-        boolean contains = false;
-        for (Policy p : list) {
-            if (p.getName().equals(target.getName())) {
-                contains = true;
-                break;
-            }
+    private static void setPolicySet(Exchange exchange, String propertyName, PolicySet previous, PolicySet policies) {
+        if (policies != previous) {
+            exchange.getContext().setProperty(propertyName, policies, Scope.EXCHANGE)
+                .addLabels(BehaviorLabel.TRANSIENT.label());
         }
-        
-        return contains;
     }
 }
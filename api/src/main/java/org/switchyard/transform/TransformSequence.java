@@ -16,6 +16,7 @@ package org.switchyard.transform;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.xml.namespace.QName;
@@ -93,6 +94,14 @@ public final class TransformSequence implements Serializable {
         return this;
     }
 
+    /**
+     * Get the types which remain in this sequence, starting with the current type.
+     * @return unmodifiable list of types
+     */
+    public List<QName> getTypes() {
+        return Collections.unmodifiableList(_sequence);
+    }
+
     /**
      * Apply this {@link TransformSequence} to the supplied {@link Message} instance.
      * @param message Message instance.
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.policy;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.policy.Policy.PolicyType;
+
+public class PolicySetTest {
+
+    @Test
+    public void testEmpty() {
+        Assert.assertTrue(PolicySet.EMPTY.isEmpty());
+        Assert.assertFalse(PolicySet.EMPTY.contains(DummyPolicy.A));
+        Assert.assertSame(PolicySet.EMPTY, PolicySet.of(null));
+        Assert.assertSame(PolicySet.EMPTY, PolicySet.of(Collections.<Policy>emptyList()));
+    }
+
+    @Test
+    public void testWith() {
+        PolicySet a = PolicySet.EMPTY.with(DummyPolicy.A);
+        Assert.assertTrue(a.contains(DummyPolicy.A));
+        Assert.assertFalse(a.contains(DummyPolicy.B));
+        Assert.assertTrue(PolicySet.EMPTY.isEmpty());
+        Assert.assertSame(a, a.with(DummyPolicy.A));
+
+        PolicySet ab = a.with(DummyPolicy.B);
+        Assert.assertEquals(Arrays.asList(DummyPolicy.A, DummyPolicy.B), Arrays.asList(ab.toArray()));
+        Assert.assertFalse(a.contains(DummyPolicy.B));
+    }
+
+    @Test
+    public void testComparedByName() {
+        PolicySet set = PolicySet.of(Arrays.<Policy>asList(DummyPolicy.A, new NamedPolicy("A"), new NamedPolicy("C")));
+        Assert.assertEquals(2, set.size());
+        Assert.assertSame(DummyPolicy.A, set.iterator().next());
+        Assert.assertTrue(set.contains(new NamedPolicy("A")));
+        Assert.assertTrue(set.contains(new NamedPolicy("C")));
+        Assert.assertFalse(set.contains(new NamedPolicy("never.seen")));
+        Assert.assertFalse(set.contains("A"));
+    }
+
+    @Test
+    public void testUnionAndWithout() {
+        PolicySet a = PolicySet.EMPTY.with(DummyPolicy.A);
+        PolicySet ab = a.union(PolicySet.EMPTY.with(DummyPolicy.B));
+        Assert.assertEquals(2, ab.size());
+        Assert.assertSame(ab, ab.union(a));
+        Assert.assertTrue(ab.containsAll(a));
+        Assert.assertFalse(a.containsAll(ab));
+
+        Assert.assertSame(ab, ab.without(PolicySet.EMPTY));
+        PolicySet b = ab.without(a);
+        Assert.assertEquals(1, b.size());
+        Assert.assertTrue(b.contains(DummyPolicy.B));
+        Assert.assertTrue(ab.without(ab).isEmpty());
+    }
+
+    @Test
+    public void testContainsAny() {
+        PolicySet a = PolicySet.EMPTY.with(DummyPolicy.A);
+        PolicySet ab = a.with(DummyPolicy.B);
+        Assert.assertTrue(ab.containsAny(a));
+        Assert.assertTrue(a.containsAny(ab));
+        Assert.assertFalse(a.containsAny(PolicySet.EMPTY.with(DummyPolicy.B)));
+        Assert.assertFalse(ab.containsAny(PolicySet.EMPTY));
+        Assert.assertFalse(PolicySet.EMPTY.containsAny(ab));
+    }
+
+    @Test
+    public void testManyPolicies() {
+        PolicySet set = PolicySet.EMPTY;
+        for (int i = 0; i < 200; i++) {
+            set = set.with(new NamedPolicy("many." + i));
+        }
+        Assert.assertEquals(200, set.size());
+        for (int i = 0; i < 200; i++) {
+            Assert.assertTrue(set.contains(new NamedPolicy("many." + i)));
+        }
+        Assert.assertFalse(set.contains(new NamedPolicy("many.200")));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        PolicySet.EMPTY.add(DummyPolicy.A);
+    }
+
+    private static class NamedPolicy implements Policy {
+        private final String _name;
+
+        NamedPolicy(String name) {
+            _name = name;
+        }
+
+        @Override
+        public String getName() {
+            return _name;
+        }
+
+        @Override
+        public boolean supports(PolicyType type) {
+            return true;
+        }
+
+        @Override
+        public boolean isCompatibleWith(Policy target) {
+            return true;
+        }
+
+        @Override
+        public Policy getPolicyDependency() {
+            return null;
+        }
+    }
+}
@@ -14,11 +14,15 @@
 
 package org.switchyard.policy;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.switchyard.Exchange;
 import org.switchyard.MockContext;
 import org.switchyard.MockExchange;
+import org.switchyard.Scope;
 
 public class PolicyUtilTest {
 
@@ -41,6 +45,41 @@ public class PolicyUtilTest {
         Assert.assertFalse(PolicyUtil.isProvided(ex, DummyPolicy.A));
         Assert.assertEquals(1, PolicyUtil.getRequired(ex).size());
     }
+    
+    @Test
+    public void testPolicySets() {
+        Exchange ex = new MockExchange().setContext(new MockContext());
+        PolicyUtil.require(ex, PolicySet.EMPTY.with(DummyPolicy.A).with(DummyPolicy.B));
+        PolicyUtil.provide(ex, PolicySet.EMPTY.with(DummyPolicy.B));
+        Assert.assertTrue(PolicyUtil.isRequired(ex, DummyPolicy.A));
+        Assert.assertTrue(PolicyUtil.isRequired(ex, DummyPolicy.B));
+        Assert.assertTrue(PolicyUtil.isProvided(ex, DummyPolicy.B));
+        Assert.assertFalse(PolicyUtil.isProvided(ex, DummyPolicy.A));
+        Assert.assertEquals(1, PolicyUtil.getRequiredPolicies(ex).without(PolicyUtil.getProvidedPolicies(ex)).size());
+    }
+    
+    @Test
+    public void testReturnedSetIsCopy() {
+        Exchange ex = new MockExchange().setContext(new MockContext());
+        PolicyUtil.require(ex, DummyPolicy.A);
+        Set<Policy> required = PolicyUtil.getRequired(ex);
+        required.add(DummyPolicy.B);
+        required.remove(DummyPolicy.A);
+        Assert.assertTrue(PolicyUtil.isRequired(ex, DummyPolicy.A));
+        Assert.assertFalse(PolicyUtil.isRequired(ex, DummyPolicy.B));
+    }
+    
+    @Test
+    public void testPlainSetProperty() {
+        Exchange ex = new MockExchange().setContext(new MockContext());
+        Set<Policy> provided = new HashSet<Policy>();
+        provided.add(DummyPolicy.A);
+        ex.getContext().setProperty(PolicyUtil.PROVIDED_PROPERTY, provided, Scope.EXCHANGE);
+        Assert.assertTrue(PolicyUtil.isProvided(ex, DummyPolicy.A));
+        PolicyUtil.provide(ex, DummyPolicy.B);
+        Assert.assertTrue(PolicyUtil.isProvided(ex, DummyPolicy.A));
+        Assert.assertTrue(PolicyUtil.isProvided(ex, DummyPolicy.B));
+    }
 }
 
 enum DummyPolicy implements Policy {
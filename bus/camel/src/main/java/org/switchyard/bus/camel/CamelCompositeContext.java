@@ -13,7 +13,9 @@
  */
 package org.switchyard.bus.camel;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.camel.Exchange;
@@ -26,11 +28,18 @@ import org.switchyard.label.BehaviorLabel;
 
 /**
  * Implementation of {@link Context} specific to Camel Exchange Bus.
+ * <p/>
+ * Properties are views of the exchange properties and message headers they
+ * are named after.  A context hands out the same view every time a property
+ * is asked for, and looks labels up in the {@link CamelPropertyLabels} index
+ * kept with the exchange and message.
  */
 public class CamelCompositeContext implements Context {
 
     private final Exchange _exchange;
     private final Message _message;
+    private Map<String, CamelExchangeProperty> _exchangeProperties;
+    private Map<String, CamelMessageProperty> _messageProperties;
 
     /**
      * Creates new Context with {@link Scope#EXCHANGE} as default scope.
@@ -56,17 +65,42 @@ public class CamelCompositeContext implements Context {
         this._message = message;
     }
 
+    /**
+     * Whether this context maps the specified exchange and message.
+     * 
+     * @param exchange Exchange to check.
+     * @param message Message to check.
+     * @return True if the context uses the same exchange and message.
+     */
+    boolean isBoundTo(Exchange exchange, Message message) {
+        return _exchange == exchange && _message == message;
+    }
+
     @Override
     public void mergeInto(Context context) {
-        for (Property property : getProperties()) {
-            if (ContextPropertyUtil.isReservedProperty(property.getName(), property.getScope())
-                    || property.hasLabel(BehaviorLabel.TRANSIENT.label())) {
-                continue;
+        // names are copied, as the destination may share the exchange or message
+        if (_exchange.hasProperties()) {
+            Set<String> names = _exchange.getProperties().keySet();
+            for (String name : names.toArray(new String[names.size()])) {
+                mergeInto(context, getExchangeProperty(name));
+            }
+        }
+        if (_message.hasHeaders()) {
+            Set<String> names = _message.getHeaders().keySet();
+            for (String name : names.toArray(new String[names.size()])) {
+                mergeInto(context, getMessageProperty(name));
             }
+        }
+    }
 
-            context.setProperty(property.getName(), property.getValue(), property.getScope())
-                .addLabels(property.getLabels());
+    private void mergeInto(Context context, Property property) {
+        if (property == null
+                || ContextPropertyUtil.isReservedProperty(property.getName(), property.getScope())
+                || property.hasLabel(BehaviorLabel.TRANSIENT.label())) {
+            return;
         }
+        context.setProperty(property.getName(), property.getValue(), property.getScope())
+            .addLabels(property.getLabels());
     }
 
     @Override
@@ -87,18 +121,44 @@ public class CamelCompositeContext implements Context {
 
     private Property getMessageProperty(String name) {
         if (_message.hasHeaders() && _message.getHeaders().containsKey(name)) {
-            return new CamelMessageProperty(_message, name);
+            return messageProperty(name);
         }
         return null;
     }
 
     private Property getExchangeProperty(String name) {
         if (_exchange.hasProperties() && _exchange.getProperties().containsKey(name)) {
-            return new CamelExchangeProperty(_exchange, name);
+            return exchangeProperty(name);
         }
         return null;
     }
 
+    // cached view of a header, whether or not it is set
+    private CamelMessageProperty messageProperty(String name) {
+        if (_messageProperties == null) {
+            _messageProperties = new HashMap<String, CamelMessageProperty>();
+        }
+        CamelMessageProperty property = _messageProperties.get(name);
+        if (property == null) {
+            property = new CamelMessageProperty(_message, name);
+            _messageProperties.put(name, property);
+        }
+        return property;
+    }
+
+    // cached view of an exchange property, whether or not it is set
+    private CamelExchangeProperty exchangeProperty(String name) {
+        if (_exchangeProperties == null) {
+            _exchangeProperties = new HashMap<String, CamelExchangeProperty>();
+        }
+        CamelExchangeProperty property = _exchangeProperties.get(name);
+        if (property == null) {
+            property = new CamelExchangeProperty(_exchange, name);
+            _exchangeProperties.put(name, property);
+        }
+        return property;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <T> T getPropertyValue(String name) {
@@ -109,39 +169,56 @@ public class CamelCompositeContext implements Context {
     @Override
     public Set<Property> getProperties() {
         Set<Property> properties = new HashSet<Property>();
-        properties.addAll(getProperties(Scope.EXCHANGE));
-        properties.addAll(getProperties(Scope.MESSAGE));
+        addProperties(Scope.EXCHANGE, properties);
+        addProperties(Scope.MESSAGE, properties);
         return properties;
     }
 
     @Override
     public Set<Property> getProperties(Scope scope) {
         Set<Property> properties = new HashSet<Property>();
+        addProperties(scope, properties);
+        return properties;
+    }
+
+    private void addProperties(Scope scope, Set<Property> properties) {
         switch (scope) {
         case EXCHANGE:
             if (_exchange.hasProperties()) {
                 for (String prop : _exchange.getProperties().keySet()) {
-                    properties.add(new CamelExchangeProperty(_exchange, prop));
+                    properties.add(exchangeProperty(prop));
                 }
             }
             break;
         default:
             if (_message.hasHeaders()) {
                 for (String prop : _message.getHeaders().keySet()) {
-                    properties.add(new CamelMessageProperty(_message, prop));
+                    properties.add(messageProperty(prop));
                 }
             }
             break;
         }
-        return properties;
     }
 
     @Override
     public Set<Property> getProperties(String label) {
         Set<Property> properties = new HashSet<Property>();
-        for (Property property : getProperties()) {
-            if (property.hasLabel(label)) {
-                properties.add(property);
+        CamelPropertyLabels labels = CamelPropertyLabels.find(_exchange);
+        if (labels != null) {
+            for (String name : labels.getNames(label)) {
+                Property property = getExchangeProperty(name);
+                if (property != null) {
+                    properties.add(property);
+                }
+            }
+        }
+        labels = CamelPropertyLabels.find(_message);
+        if (labels != null) {
+            for (String name : labels.getNames(label)) {
+                Property property = getMessageProperty(name);
+                if (property != null) {
+                    properties.add(property);
+                }
             }
         }
         return properties;
@@ -175,10 +252,8 @@ public class CamelCompositeContext implements Context {
 
     @Override
     public void removeProperties(String label) {
-        for (Property property : getProperties()) {
-            if (property.hasLabel(label)) {
-                removeProperty(property);
-            }
+        for (Property property : getProperties(label)) {
+            removeProperty(property);
         }
     }
 
@@ -36,6 +36,7 @@ import org.switchyard.metadata.BaseExchangeContract;
 import org.switchyard.metadata.ServiceOperation;
 import org.switchyard.runtime.event.ExchangeCompletionEvent;
 import org.switchyard.runtime.event.ExchangeInitiatedEvent;
+import org.switchyard.runtime.trace.Tracer;
 import org.switchyard.security.context.DefaultExchangeSecurity;
 
 /**
@@ -65,6 +66,10 @@ public class CamelExchange implements Exchange {
 
     private transient ExchangeSecurity _security = null;
 
+    private boolean _completionDeferred;
+
+    private boolean _deferredCompleted;
+
     /**
      * Creates new CamelExchange.
      * 
@@ -98,7 +103,11 @@ public class CamelExchange implements Exchange {
 
     @Override
     public Context getContext() {
-        return new CamelCompositeContext(_exchange, getMessage());
+        CamelMessage message = getMessage();
+        if (message.getExchange() == _exchange) {
+            return message.getContext();
+        }
+        return new CamelCompositeContext(_exchange, message);
     }
 
     @Override
@@ -230,6 +239,7 @@ public class CamelExchange implements Exchange {
 
         // Publish exchange initiation event
         if (ExchangePhase.IN.equals(getPhase())) {
+            Tracer.forDomain(domain).startExchange(this);
             getContext().setProperty(ExchangeInitiatedEvent.EXCHANGE_INITIATED_TIME, Long.toString(System.nanoTime()), Scope.EXCHANGE)
                 .addLabels(BehaviorLabel.TRANSIENT.label());
             domain.getEventPublisher().publish(new ExchangeInitiatedEvent(this));
@@ -237,13 +247,47 @@ public class CamelExchange implements Exchange {
 
         _exchange.getProperty(DISPATCHER, ExchangeDispatcher.class).dispatch(this);
 
-        if (isDone(sendPhase)) {
-         // Publish exchange completion event
-            long duration = System.nanoTime() - _exchange.getProperty(ExchangeInitiatedEvent.EXCHANGE_INITIATED_TIME, 0, Long.class);
-            getContext().setProperty(ExchangeCompletionEvent.EXCHANGE_DURATION, TimeUnit.NANOSECONDS.toMillis(duration))
-                .addLabels(BehaviorLabel.TRANSIENT.label());
-            domain.getEventPublisher().publish(new ExchangeCompletionEvent(this));
+        // Publish exchange completion event, unless the dispatcher has taken
+        // the request to another thread and will complete the exchange itself
+        if (isDone(sendPhase) && !isCompletionDeferred()) {
+            complete(domain);
+        }
+    }
+
+    /**
+     * Hold back the completion of the in-only exchange being sent until
+     * {@link #completeDeferred()} is called.
+     */
+    synchronized void deferCompletion() {
+        _completionDeferred = true;
+    }
+
+    /**
+     * Complete an exchange whose completion was deferred.  Only the first
+     * call has any effect.
+     */
+    void completeDeferred() {
+        synchronized (this) {
+            if (!_completionDeferred || _deferredCompleted) {
+                return;
+            }
+            _deferredCompleted = true;
         }
+        complete(((SwitchYardCamelContext) _exchange.getContext()).getServiceDomain());
+    }
+
+    private synchronized boolean isCompletionDeferred() {
+        return _completionDeferred;
+    }
+
+    private void complete(ServiceDomain domain) {
+        long duration = System.nanoTime() - _exchange.getProperty(ExchangeInitiatedEvent.EXCHANGE_INITIATED_TIME, 0, Long.class);
+        getContext().setProperty(ExchangeCompletionEvent.EXCHANGE_DURATION, TimeUnit.NANOSECONDS.toMillis(duration))
+            .addLabels(BehaviorLabel.TRANSIENT.label());
+        getContext().setProperty(ExchangeCompletionEvent.EXCHANGE_DURATION_NS, duration)
+            .addLabels(BehaviorLabel.TRANSIENT.label());
+        domain.getEventPublisher().publish(new ExchangeCompletionEvent(this));
+        Tracer.finishExchange(this);
     }
 
     @Override
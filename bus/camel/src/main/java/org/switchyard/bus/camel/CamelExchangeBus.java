@@ -26,6 +26,8 @@ import org.switchyard.ServiceDomain;
 import org.switchyard.ServiceReference;
 import org.switchyard.bus.camel.processors.Processors;
 import org.switchyard.common.camel.SwitchYardCamelContext;
+import org.switchyard.handlers.TransactionHandler;
+import org.switchyard.runtime.limit.RateLimitScheduler;
 import org.switchyard.spi.Dispatcher;
 import org.switchyard.spi.ExchangeBus;
 
@@ -42,6 +44,10 @@ public class CamelExchangeBus implements ExchangeBus {
 
     private SwitchYardCamelContext _camelContext;
 
+    private TransactionHandler _transactionHandler;
+
+    private RateLimitScheduler _scheduler;
+
     /**
      * Create a new Camel exchange bus provider.
      * @param context the CamelContext instance used by this provider
@@ -60,6 +66,8 @@ public class CamelExchangeBus implements ExchangeBus {
         for (Processors processor : Processors.values()) {
             registry.put(processor.name(), processor.create(domain));
         }
+        _transactionHandler = new TransactionHandler();
+        _scheduler = RateLimitScheduler.create(domain);
 
         // CAMEL-7728 introduces an issue on finding BeanManager due to the fact that default
         // applicationContextClassLoader in the CamelContext is not a bundle deployment class loader.
@@ -87,6 +95,9 @@ public class CamelExchangeBus implements ExchangeBus {
     public synchronized void stop() {
         try {
             _dispatchers.clear();
+            if (_scheduler != null) {
+                _scheduler.shutdown();
+            }
             _camelContext.stop();
         } catch (Exception ex) {
             throw BusMessages.MESSAGES.failedToStopBus(ex);
@@ -126,7 +137,8 @@ public class CamelExchangeBus implements ExchangeBus {
             throw BusMessages.MESSAGES.failedToCreateRoute(reference.getName(), ex);
         }
 
-        ExchangeDispatcher dispatcher = new ExchangeDispatcher(_camelContext, reference);
+        ExchangeDispatcher dispatcher = new ExchangeDispatcher(_camelContext, reference, 
+                _transactionHandler, _scheduler);
         _dispatchers.put(reference.getName(), dispatcher);
         return dispatcher;
     }
@@ -14,12 +14,14 @@
 package org.switchyard.bus.camel;
 
 import static org.switchyard.bus.camel.processors.Processors.ADDRESSING;
+import static org.switchyard.bus.camel.processors.Processors.CONCURRENCY_LIMIT;
 import static org.switchyard.bus.camel.processors.Processors.CONSUMER_CALLBACK;
 import static org.switchyard.bus.camel.processors.Processors.CONSUMER_INTERCEPT;
 import static org.switchyard.bus.camel.processors.Processors.ERROR_HANDLING;
 import static org.switchyard.bus.camel.processors.Processors.GENERIC_POLICY;
 import static org.switchyard.bus.camel.processors.Processors.PROVIDER_CALLBACK;
 import static org.switchyard.bus.camel.processors.Processors.PROVIDER_INTERCEPT;
+import static org.switchyard.bus.camel.processors.Processors.RATE_LIMIT;
 import static org.switchyard.bus.camel.processors.Processors.SECURITY_CLEANUP;
 import static org.switchyard.bus.camel.processors.Processors.SECURITY_PROCESS;
 import static org.switchyard.bus.camel.processors.Processors.TRANSACTION_HANDLER;
@@ -46,7 +48,6 @@ import org.switchyard.bus.camel.audit.AuditInterceptStrategy;
 import org.switchyard.bus.camel.audit.FaultInterceptStrategy;
 import org.switchyard.common.camel.SwitchYardCamelContext;
 import org.switchyard.metadata.ServiceOperation;
-import org.switchyard.metadata.qos.Throttling;
 
 /**
  * Route builder which creates mediation necessary to handle communication inside SwitchYard.
@@ -65,17 +66,6 @@ public class CamelExchangeBusRouteBuilder extends RouteBuilder {
         }
     };
     
-    private static final Predicate THROTTLE_CHECK = new Predicate() {
-        @Override
-        public boolean matches(Exchange exchange) {
-            return exchange.getIn().getHeader(Throttling.MAX_REQUESTS) != null;
-        }
-
-        public String toString() {
-            return "THROTTLE_CHECK";
-        }
-    };
-
     private String _endpoint;
     private ServiceReference _reference;
 
@@ -131,10 +121,10 @@ public class CamelExchangeBusRouteBuilder extends RouteBuilder {
         // definition.onException(Throwable.class).processRef(FATAL_ERROR.name());
 
         TryDefinition tryDefinition = definition.doTry();
-        addThrottling(tryDefinition);
-        
         tryDefinition
             .processRef(CONSUMER_INTERCEPT.name())
+            .processRef(RATE_LIMIT.name())
+            .processRef(CONCURRENCY_LIMIT.name())
             .processRef(ADDRESSING.name())
             .processRef(TRANSACTION_HANDLER.name())
             .processRef(SECURITY_PROCESS.name())
@@ -182,16 +172,4 @@ public class CamelExchangeBusRouteBuilder extends RouteBuilder {
         }
         return result;
     }
-    
-    private void addThrottling(TryDefinition route) {
-        Throttling throttling = _reference.getServiceMetadata().getThrottling();
-        long timePeriodMS = throttling != null ? throttling.getTimePeriod() : Throttling.DEFAULT_TIME_PERIOD;
-        route.filter(THROTTLE_CHECK)
-            .throttle(header(Throttling.MAX_REQUESTS)).timePeriodMillis(timePeriodMS)
-            // throttle needs a child process, so we'll just remove the header
-            // using an empty process definition causes some of the interceptors
-            // to blow chunks, specifically audit interceptors
-            .removeHeader(Throttling.MAX_REQUESTS)
-            .end().end();
-    }
 }
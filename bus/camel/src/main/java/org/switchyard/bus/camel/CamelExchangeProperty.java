@@ -13,10 +13,6 @@
  */
 package org.switchyard.bus.camel;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-
 import org.apache.camel.Exchange;
 import org.switchyard.Scope;
 
@@ -40,12 +36,13 @@ public class CamelExchangeProperty extends CamelPropertyBase {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    protected Map<String, Set<String>> getLabelsBag() {
-        if (!_exchange.getProperties().containsKey(CamelExchange.LABELS)) {
-            _exchange.setProperty(CamelExchange.LABELS, new HashMap<String, Set<String>>());
-        }
-        return _exchange.getProperty(CamelExchange.LABELS, Map.class);
+    protected CamelPropertyLabels getPropertyLabels() {
+        return CamelPropertyLabels.of(_exchange);
+    }
+
+    @Override
+    protected CamelPropertyLabels findPropertyLabels() {
+        return CamelPropertyLabels.find(_exchange);
     }
 
     @Override
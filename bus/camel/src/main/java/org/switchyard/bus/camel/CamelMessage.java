@@ -39,6 +39,8 @@ import org.switchyard.transform.TransformerRegistry;
  */
 public class CamelMessage extends SwitchYardMessage implements Message {
 
+    private CamelCompositeContext _context;
+
     /**
      * Creates new Camel message with specified exchange.
      * 
@@ -135,7 +137,13 @@ public class CamelMessage extends SwitchYardMessage implements Message {
 
     @Override
     public Context getContext() {
-        return new CamelCompositeContext(getExchange(), this);
+        // reuse the context, and the property views it caches, while the exchange is the same
+        CamelCompositeContext context = _context;
+        if (context == null || !context.isBoundTo(getExchange(), this)) {
+            context = new CamelCompositeContext(getExchange(), this);
+            _context = context;
+        }
+        return context;
     }
 
     @Override
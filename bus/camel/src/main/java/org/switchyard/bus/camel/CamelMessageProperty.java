@@ -13,10 +13,6 @@
  */
 package org.switchyard.bus.camel;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-
 import org.apache.camel.Message;
 import org.switchyard.Property;
 import org.switchyard.Scope;
@@ -56,11 +52,12 @@ public class CamelMessageProperty extends CamelPropertyBase implements Property
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    protected Map<String, Set<String>> getLabelsBag() {
-        if (!_message.getHeaders().containsKey(CamelExchange.LABELS)) {
-            _message.setHeader(CamelExchange.LABELS, new HashMap<String, Set<String>>());
-        }
-        return _message.getHeader(CamelExchange.LABELS, Map.class);
+    protected CamelPropertyLabels getPropertyLabels() {
+        return CamelPropertyLabels.of(_message);
+    }
+
+    @Override
+    protected CamelPropertyLabels findPropertyLabels() {
+        return CamelPropertyLabels.find(_message);
     }
 }
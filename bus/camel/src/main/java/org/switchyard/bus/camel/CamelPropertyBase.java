@@ -13,65 +13,74 @@
  */
 package org.switchyard.bus.camel;
 
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 import org.switchyard.Property;
 
 /**
  * Base Property class for camel properties - both Message and Exchange scope.
+ * Labels are kept in the {@link CamelPropertyLabels} of the underlying
+ * exchange or message.
  */
 public abstract class CamelPropertyBase implements Property {
 
     @Override
     public Set<String> getLabels() {
-        Set<String> labels = getLabelsBag().get(getName());
-        if (labels == null) {
-            labels = Collections.emptySet();
-        }
-        return labels;
+        CamelPropertyLabels labels = findPropertyLabels();
+        return labels != null ? labels.getLabels(getName()) : Collections.<String>emptySet();
     }
 
     @Override
     public Property addLabels(String... labels) {
-        if (!getLabelsBag().containsKey(getName())) {
-            getLabelsBag().put(getName(), new HashSet<String>());
+        if (labels.length > 0) {
+            CamelPropertyLabels propertyLabels = getPropertyLabels();
+            for (String label : labels) {
+                propertyLabels.addLabel(getName(), label);
+            }
         }
-        getLabelsBag().get(getName()).addAll(Arrays.asList(labels));
         return this;
     }
     
     @Override
     public Property addLabels(Set<String> labels) {
-        if (!getLabelsBag().containsKey(getName())) {
-            getLabelsBag().put(getName(), new HashSet<String>());
+        if (!labels.isEmpty()) {
+            getPropertyLabels().addLabels(getName(), labels);
         }
-        getLabelsBag().get(getName()).addAll(labels);
         return this;
     }
 
     @Override
     public Property removeLabels(String... labels) {
-        if (getLabelsBag().containsKey(getName())) {
-            getLabelsBag().get(getName()).removeAll(Arrays.asList(labels));
+        CamelPropertyLabels propertyLabels = findPropertyLabels();
+        if (propertyLabels != null) {
+            for (String label : labels) {
+                propertyLabels.removeLabel(getName(), label);
+            }
         }
         return this;
     }
 
     @Override
     public boolean hasLabel(String label) {
-        return getLabelsBag().containsKey(getName()) ? getLabelsBag().get(getName()).contains(label) : false;
+        CamelPropertyLabels labels = findPropertyLabels();
+        return labels != null && labels.hasLabel(getName(), label);
     }
 
     /**
-     * Retrieves bag which allows to store map between property names and property labels.
+     * Retrieves the labels of the properties sharing this property's scope,
+     * creating them if needed.
+     * 
+     * @return Labels of the properties.
+     */
+    protected abstract CamelPropertyLabels getPropertyLabels();
+
+    /**
+     * Retrieves the labels of the properties sharing this property's scope.
      * 
-     * @return Map to keep property labels.
+     * @return Labels of the properties, or null if none were labelled.
      */
-    protected abstract Map<String, Set<String>> getLabelsBag();
+    protected abstract CamelPropertyLabels findPropertyLabels();
 
     @Override
     public int hashCode() {
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.bus.camel;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+
+/**
+ * Labels of the properties of a Camel exchange or message, kept in the
+ * {@link CamelExchange#LABELS} property or header for as long as the exchange
+ * or message lives.  Besides the labels of each property it indexes the names
+ * of the properties carrying each label, so label queries do not have to
+ * visit every property.
+ */
+public final class CamelPropertyLabels implements Serializable {
+
+    private static final long serialVersionUID = 5213431628049286337L;
+
+    // property name to labels, and label to property names
+    private final Map<String, Group> _labels = new HashMap<String, Group>();
+    private final Map<String, Group> _names = new HashMap<String, Group>();
+
+    /**
+     * Gets the labels of the properties of an exchange, if any were labelled.
+     * @param exchange the exchange
+     * @return the labels, or null if there are none
+     */
+    public static CamelPropertyLabels find(Exchange exchange) {
+        if (!exchange.hasProperties()) {
+            return null;
+        }
+        Object labels = exchange.getProperty(CamelExchange.LABELS);
+        return labels == null || labels instanceof CamelPropertyLabels ? (CamelPropertyLabels)labels : of(exchange);
+    }
+
+    /**
+     * Gets the labels of the headers of a message, if any were labelled.
+     * @param message the message
+     * @return the labels, or null if there are none
+     */
+    public static CamelPropertyLabels find(Message message) {
+        if (!message.hasHeaders()) {
+            return null;
+        }
+        Object labels = message.getHeader(CamelExchange.LABELS);
+        return labels == null || labels instanceof CamelPropertyLabels ? (CamelPropertyLabels)labels : of(message);
+    }
+
+    /**
+     * Gets the labels of the properties of an exchange, creating them if needed.
+     * @param exchange the exchange
+     * @return the labels
+     */
+    public static CamelPropertyLabels of(Exchange exchange) {
+        Object labels = exchange.getProperty(CamelExchange.LABELS);
+        if (labels instanceof CamelPropertyLabels) {
+            return (CamelPropertyLabels)labels;
+        }
+        CamelPropertyLabels created = create(labels);
+        exchange.setProperty(CamelExchange.LABELS, created);
+        return created;
+    }
+
+    /**
+     * Gets the labels of the headers of a message, creating them if needed.
+     * @param message the message
+     * @return the labels
+     */
+    public static CamelPropertyLabels of(Message message) {
+        Object labels = message.getHeader(CamelExchange.LABELS);
+        if (labels instanceof CamelPropertyLabels) {
+            return (CamelPropertyLabels)labels;
+        }
+        CamelPropertyLabels created = create(labels);
+        message.setHeader(CamelExchange.LABELS, created);
+        return created;
+    }
+
+    /**
+     * Gets the labels of a property.
+     * @param name property name
+     * @return read-only view of the labels
+     */
+    public Set<String> getLabels(String name) {
+        Group labels = _labels.get(name);
+        return labels != null ? labels._view : Collections.<String>emptySet();
+    }
+
+    /**
+     * Whether a property has a label.
+     * @param name property name
+     * @param label the label
+     * @return true if the property has the label
+     */
+    public boolean hasLabel(String name, String label) {
+        Group labels = _labels.get(name);
+        return labels != null && labels._members.contains(label);
+    }
+
+    /**
+     * Gets the names of the properties with a label.  Properties which were
+     * removed since being labelled may be included.
+     * @param label the label
+     * @return read-only view of the property names
+     */
+    public Set<String> getNames(String label) {
+        Group names = _names.get(label);
+        return names != null ? names._view : Collections.<String>emptySet();
+    }
+
+    /**
+     * Adds labels to a property.
+     * @param name property name
+     * @param labels the labels
+     */
+    public void addLabels(String name, Collection<String> labels) {
+        for (String label : labels) {
+            addLabel(name, label);
+        }
+    }
+
+    /**
+     * Adds a label to a property.
+     * @param name property name
+     * @param label the label
+     */
+    public void addLabel(String name, String label) {
+        if (Group.add(_labels, name, label)) {
+            Group.add(_names, label, name);
+        }
+    }
+
+    /**
+     * Removes a label from a property.
+     * @param name property name
+     * @param label the label
+     */
+    public void removeLabel(String name, String label) {
+        if (Group.remove(_labels, name, label)) {
+            Group.remove(_names, label, name);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (Entry<String, Group> entry : _labels.entrySet()) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(entry.getKey()).append('=').append(entry.getValue()._members);
+        }
+        return builder.append('}').toString();
+    }
+
+    // new labels, taking over any kept by earlier versions in a map of property name to labels
+    @SuppressWarnings("unchecked")
+    private static CamelPropertyLabels create(Object previous) {
+        CamelPropertyLabels labels = new CamelPropertyLabels();
+        if (previous instanceof Map) {
+            for (Entry<String, Collection<String>> entry : ((Map<String, Collection<String>>)previous).entrySet()) {
+                labels.addLabels(entry.getKey(), entry.getValue());
+            }
+        }
+        return labels;
+    }
+
+    // a set with a cached read-only view of itself
+    private static final class Group implements Serializable {
+        private static final long serialVersionUID = -2203413540385233924L;
+
+        private final Set<String> _members = new HashSet<String>(4);
+        private final Set<String> _view = Collections.unmodifiableSet(_members);
+
+        static boolean add(Map<String, Group> groups, String key, String member) {
+            Group group = groups.get(key);
+            if (group == null) {
+                group = new Group();
+                groups.put(key, group);
+            }
+            return group._members.add(member);
+        }
+
+        static boolean remove(Map<String, Group> groups, String key, String member) {
+            Group group = groups.get(key);
+            return group != null && group._members.remove(member);
+        }
+    }
+}
@@ -17,13 +17,17 @@ package org.switchyard.bus.camel;
 import org.apache.camel.ProducerTemplate;
 import org.apache.camel.impl.DefaultExchange;
 import org.apache.camel.model.ModelCamelContext;
+import org.apache.camel.spi.Synchronization;
 import org.switchyard.Exchange;
 import org.switchyard.ExchangeHandler;
 import org.switchyard.ExchangePattern;
 import org.switchyard.ExchangePhase;
 import org.switchyard.ServiceReference;
-import org.switchyard.label.BehaviorLabel;
-import org.switchyard.metadata.qos.Throttling;
+import org.switchyard.handlers.AddressingHandler;
+import org.switchyard.handlers.ConcurrencyLimitHandler;
+import org.switchyard.handlers.RateLimitHandler;
+import org.switchyard.handlers.TransactionHandler;
+import org.switchyard.runtime.limit.RateLimitScheduler;
 import org.switchyard.spi.Dispatcher;
 
 /**
@@ -35,6 +39,8 @@ public class ExchangeDispatcher implements Dispatcher {
     private final ModelCamelContext _context;
     private ServiceReference _reference;
     private ProducerTemplate _producer;
+    private TransactionHandler _transactionHandler;
+    private RateLimitScheduler _scheduler;
 
     /**
      * Create a new Dispatcher instance.
@@ -42,9 +48,26 @@ public class ExchangeDispatcher implements Dispatcher {
      * @param reference dispatch for this reference
      */
     public ExchangeDispatcher(ModelCamelContext context, ServiceReference reference) {
+        this(context, reference, null, null);
+    }
+
+    /**
+     * Create a new Dispatcher instance.
+     * @param context Camel context instance
+     * @param reference dispatch for this reference
+     * @param transactionHandler used to keep transactional exchanges on the
+     * caller's thread, or null if no exchange is treated as transactional
+     * @param scheduler hands requests delayed by the rate limit to the
+     * producer template's threads, or null to delay them on the caller's
+     * thread
+     */
+    public ExchangeDispatcher(ModelCamelContext context, ServiceReference reference,
+            TransactionHandler transactionHandler, RateLimitScheduler scheduler) {
         _context = context;
         _reference = reference;
         _producer = context.createProducerTemplate();
+        _transactionHandler = transactionHandler;
+        _scheduler = scheduler;
     }
 
     @Override
@@ -69,7 +92,7 @@ public class ExchangeDispatcher implements Dispatcher {
         if (!CamelExchange.class.isInstance(exchange)) {
             throw BusMessages.MESSAGES.onlyCamelExchanges();
         }
-        CamelExchange camelEx = (CamelExchange)exchange;
+        final CamelExchange camelEx = (CamelExchange)exchange;
         
         // For camel exchanges, the only phase we care about is IN.  The dispatch method can also
         // be called on the OUT path, but that should be handled by the IN_OUT filter in the Camel
@@ -78,14 +101,87 @@ public class ExchangeDispatcher implements Dispatcher {
             return;
         }
 
-        Throttling throttling = _reference.getServiceMetadata().getThrottling();
-        if (throttling != null && throttling.getMaxRequests() > 0) {
-            exchange.getMessage().getContext().setProperty(
-                    Throttling.MAX_REQUESTS, throttling.getMaxRequests())
-                    .addLabels(BehaviorLabel.TRANSIENT.label());
+        long delay = RateLimitHandler.reserve(exchange);
+        if (delay <= 0) {
+            send(camelEx);
+        } else if (_scheduler != null && !isTransactional(exchange)) {
+            dispatchLater(camelEx, delay);
+        } else {
+            // the transaction is bound to the caller, so it waits out the delay
+            RateLimitHandler.await(delay);
+            send(camelEx);
         }
-        _producer.send("direct:" + exchange.getConsumer().getName(), camelEx.getExchange());
-        
+    }
+
+    private boolean isTransactional(Exchange exchange) {
+        return _transactionHandler != null && _transactionHandler.isTransactional(exchange);
+    }
+
+    private void dispatchLater(final CamelExchange exchange, long delay) {
+        // an in-only exchange is done once send() returns, so its completion
+        // is held back until the delayed request has been handled
+        final Runnable done;
+        if (ExchangePattern.IN_ONLY.equals(exchange.getPattern())) {
+            exchange.deferCompletion();
+            done = new Runnable() {
+                public void run() {
+                    exchange.completeDeferred();
+                }
+            };
+        } else {
+            done = null;
+        }
+        RateLimitHandler.dispatchLater(_scheduler, exchange, new Runnable() {
+            public void run() {
+                sendAsync(exchange, done);
+            }
+        }, done, delay);
+    }
+
+    private void send(CamelExchange exchange) {
+        try {
+            _producer.send(endpointFor(exchange), exchange.getExchange());
+        } finally {
+            requestDone(exchange);
+        }
+    }
+
+    // the producer template's threads handle the request, so the scheduler's
+    // thread is free again as soon as the request has been handed off
+    private void sendAsync(final CamelExchange exchange, final Runnable done) {
+        _producer.asyncCallback(endpointFor(exchange), exchange.getExchange(), new Synchronization() {
+            @Override
+            public void onComplete(org.apache.camel.Exchange camelExchange) {
+                sent(exchange, done);
+            }
+
+            @Override
+            public void onFailure(org.apache.camel.Exchange camelExchange) {
+                sent(exchange, done);
+            }
+        });
+    }
+
+    private void sent(CamelExchange exchange, Runnable done) {
+        try {
+            requestDone(exchange);
+        } finally {
+            if (done != null) {
+                done.run();
+            }
+        }
+    }
+
+    // the route is done with the request, so a concurrency permit or in
+    // flight count it still holds is not left to a completion which may
+    // never come
+    private void requestDone(CamelExchange exchange) {
+        ConcurrencyLimitHandler.releasePermit(exchange);
+        AddressingHandler.providerDone(exchange);
+    }
+
+    private String endpointFor(CamelExchange exchange) {
+        return "direct:" + exchange.getConsumer().getName();
     }
 
 }
@@ -21,9 +21,13 @@ import org.apache.camel.Processor;
 import org.switchyard.ExchangeHandler;
 import org.switchyard.ExchangeState;
 import org.switchyard.bus.camel.CamelExchange;
+import org.switchyard.runtime.trace.Span;
+import org.switchyard.runtime.trace.Tracer;
 
 /**
- * Processor wrapping SwitchYard {@link ExchangeHandler} invocation.
+ * Processor wrapping SwitchYard {@link ExchangeHandler} invocation.  When the
+ * exchange is traced, each handler runs in a child span of the exchange span
+ * named after the processor.
  */
 public class HandlerProcessor implements Processor {
 
@@ -32,6 +36,11 @@ public class HandlerProcessor implements Processor {
      */
     private List<ExchangeHandler> _handlers;
 
+    /**
+     * Name of the spans traced for the wrapped handlers.
+     */
+    private String _name;
+
     /**
      * Creates new processor which delegates execution to SwitchYard {@link ExchangeHandler}.
      * 
@@ -47,18 +56,41 @@ public class HandlerProcessor implements Processor {
      * @param handlers Exchange handlers used to process messages during dispatching.
      */
     public HandlerProcessor(List<ExchangeHandler> handlers) {
+        this(null, handlers);
+    }
+
+    /**
+     * Creates new named processor which delegates execution to SwitchYard {@link ExchangeHandler}.
+     * 
+     * @param name Name of the processor, used for tracing; the handler class name if null.
+     * @param handler Handler to wrap.
+     */
+    public HandlerProcessor(String name, ExchangeHandler handler) {
+        this(name, Arrays.asList(handler));
+    }
+
+    /**
+     * Creates new named processor which delegates execution to collection of exchange handlers.
+     * 
+     * @param name Name of the processor, used for tracing; handler class names if null.
+     * @param handlers Exchange handlers used to process messages during dispatching.
+     */
+    public HandlerProcessor(String name, List<ExchangeHandler> handlers) {
+        _name = name;
         _handlers = handlers;
     }
 
     @Override
     public void process(Exchange ex) throws Exception {
         org.switchyard.Exchange exchange = new CamelExchange(ex);
+        Span span = Tracer.getSpan(exchange);
 
         for (ExchangeHandler handler : _handlers) {
+            String name = _name != null ? _name : handler.getClass().getName();
             if (exchange.getState() == ExchangeState.FAULT) {
-                handler.handleFault(exchange);
+                Tracer.handleFault(name, handler, exchange, span);
             } else {
-                handler.handleMessage(exchange);
+                Tracer.handleMessage(name, handler, exchange, span);
             }
         }
     }
@@ -53,7 +53,7 @@ public class InterceptProcessor implements Processor {
         _domain = domain;
         _target = target;
         _property = INTERCEPT_PREFIX + _target;
-        _trace = new MessageTraceHandler();
+        _trace = MessageTraceHandler.forDomain(domain);
     }
 
     @Override
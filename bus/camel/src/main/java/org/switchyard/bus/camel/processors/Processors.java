@@ -19,8 +19,10 @@ import org.switchyard.ExchangeInterceptor;
 import org.switchyard.ServiceDomain;
 import org.switchyard.bus.camel.BusMessages;
 import org.switchyard.handlers.AddressingHandler;
+import org.switchyard.handlers.ConcurrencyLimitHandler;
 import org.switchyard.handlers.PolicyHandler;
 import org.switchyard.handlers.ProviderHandler;
+import org.switchyard.handlers.RateLimitHandler;
 import org.switchyard.handlers.SecurityHandler;
 import org.switchyard.handlers.SecurityHandler.SecurityAction;
 import org.switchyard.handlers.TransactionHandler;
@@ -38,7 +40,25 @@ public enum Processors {
     ADDRESSING {
         @Override
         public Processor create(ServiceDomain domain) {
-            return wrap(new AddressingHandler(domain));
+            return wrap(name(), new AddressingHandler(domain));
+        }
+    },
+    /**
+     * Rate limit handler.
+     */
+    RATE_LIMIT {
+        @Override
+        public Processor create(ServiceDomain domain) {
+            return wrap(name(), new RateLimitHandler());
+        }
+    },
+    /**
+     * Adaptive concurrency limit handler.
+     */
+    CONCURRENCY_LIMIT {
+        @Override
+        public Processor create(ServiceDomain domain) {
+            return wrap(name(), new ConcurrencyLimitHandler());
         }
     },
     /**
@@ -47,7 +67,7 @@ public enum Processors {
     TRANSACTION_HANDLER {
         @Override
         public Processor create(ServiceDomain domain) {
-            return wrap(new TransactionHandler());
+            return wrap(name(), new TransactionHandler());
         }
     },
     /**
@@ -56,7 +76,7 @@ public enum Processors {
     SECURITY_PROCESS {
         @Override
         public Processor create(ServiceDomain domain) {
-            return wrap(new SecurityHandler(domain, SecurityAction.PROCESS));
+            return wrap(name(), new SecurityHandler(domain, SecurityAction.PROCESS));
         }
     },
     /**
@@ -65,7 +85,7 @@ public enum Processors {
     SECURITY_CLEANUP {
         @Override
         public Processor create(ServiceDomain domain) {
-            return wrap(new SecurityHandler(domain, SecurityAction.CLEANUP));
+            return wrap(name(), new SecurityHandler(domain, SecurityAction.CLEANUP));
         }
     },
     /**
@@ -74,7 +94,7 @@ public enum Processors {
     GENERIC_POLICY {
         @Override
         public Processor create(ServiceDomain domain) {
-            return wrap(new PolicyHandler());
+            return wrap(name(), new PolicyHandler());
         }
     },
     /**
@@ -83,7 +103,7 @@ public enum Processors {
     VALIDATION {
         @Override
         public Processor create(ServiceDomain domain) {
-            return wrap(new ValidateHandler(domain.getValidatorRegistry()));
+            return wrap(name(), new ValidateHandler(domain.getValidatorRegistry()));
         }
     },
     /**
@@ -92,7 +112,7 @@ public enum Processors {
     TRANSFORMATION {
         @Override
         public Processor create(ServiceDomain domain) {
-            return wrap(new TransformHandler(domain.getTransformerRegistry()));
+            return wrap(name(), new TransformHandler(domain.getTransformerRegistry()));
         }
     },
     /**
@@ -101,7 +121,7 @@ public enum Processors {
     PROVIDER_CALLBACK {
         @Override
         public Processor create(ServiceDomain domain) {
-            return wrap(new ProviderHandler(domain));
+            return wrap(name(), new ProviderHandler(domain));
         }
     },
     /**
@@ -155,10 +175,11 @@ public enum Processors {
     /**
      * Wraps handler into camel Processor.
      * 
+     * @param name Processor name.
      * @param handler Handler to wrap.
      * @return Wrapping processor.
      */
-    private static Processor wrap(ExchangeHandler handler) {
-        return new HandlerProcessor(handler);
+    private static Processor wrap(String name, ExchangeHandler handler) {
+        return new HandlerProcessor(name, handler);
     }
 }
@@ -11,6 +11,7 @@ import org.switchyard.Context;
 import org.switchyard.Exchange;
 import org.switchyard.ExchangePattern;
 import org.switchyard.MockDomain;
+import org.switchyard.Property;
 import org.switchyard.Scope;
 import org.switchyard.ServiceReference;
 import org.switchyard.common.camel.SwitchYardCamelContextImpl;
@@ -60,4 +61,52 @@ public class CamelCompositeContextTest {
         Assert.assertNotNull(ctx2.getProperty("message-prop", Scope.MESSAGE));
         Assert.assertNull(ctx2.getProperty("exchange-prop", Scope.EXCHANGE));
     }
+
+    @Test
+    public void testStablePropertyViews() throws Exception {
+        Exchange ex = createExchange();
+        Context ctx = ex.getContext();
+        Property property = ctx.setProperty("message-prop", "message-val", Scope.MESSAGE);
+        Assert.assertSame(ctx, ex.getContext());
+        Assert.assertSame(property, ex.getContext().getProperty("message-prop", Scope.MESSAGE));
+        Assert.assertSame(property, ex.getMessage().getContext().getProperty("message-prop"));
+        Assert.assertTrue(ctx.getProperties().contains(property));
+        // views follow the underlying header
+        ctx.setProperty("message-prop", "changed", Scope.MESSAGE);
+        Assert.assertEquals("changed", property.getValue());
+        ctx.removeProperty(property);
+        Assert.assertNull(ctx.getProperty("message-prop", Scope.MESSAGE));
+    }
+
+    @Test
+    public void testLabelIndex() throws Exception {
+        Exchange ex = createExchange();
+        Context ctx = ex.getContext();
+        ctx.setProperty("a", "a", Scope.MESSAGE).addLabels("foo", "bar");
+        ctx.setProperty("b", "b", Scope.EXCHANGE).addLabels("foo");
+        ctx.setProperty("c", "c", Scope.MESSAGE);
+        Assert.assertEquals(2, ctx.getProperties("foo").size());
+        Assert.assertEquals(1, ctx.getProperties("bar").size());
+        Assert.assertEquals(0, ctx.getProperties("baz").size());
+
+        ctx.getProperty("a").removeLabels("foo");
+        Assert.assertEquals(1, ctx.getProperties("foo").size());
+        Assert.assertFalse(ctx.getProperty("a").hasLabel("foo"));
+        Assert.assertTrue(ctx.getProperty("a").getLabels().contains("bar"));
+
+        // labels outlive the context instance they were added through
+        Assert.assertTrue(new CamelCompositeContext(((CamelExchange) ex).getExchange())
+            .getProperty("b", Scope.EXCHANGE).hasLabel("foo"));
+
+        ctx.removeProperties("bar");
+        Assert.assertNull(ctx.getProperty("a"));
+        Assert.assertEquals(0, ctx.getProperties("bar").size());
+        Assert.assertNotNull(ctx.getProperty("c"));
+    }
+
+    private Exchange createExchange() {
+        ServiceReference inOnly = new ServiceReferenceImpl(
+            new QName("exchange-labels"), new InOnlyService(), _domain, null);
+        return _provider.createDispatcher(inOnly).createExchange(null, ExchangePattern.IN_ONLY);
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.bus.camel;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.switchyard.Context;
+import org.switchyard.Exchange;
+import org.switchyard.Property;
+import org.switchyard.Scope;
+import org.switchyard.label.BehaviorLabel;
+
+/**
+ * Microbenchmark of the context work done for a request and reply through
+ * the Camel exchange bus: setting, reading and labelling properties in both
+ * scopes, label queries as made by handlers, and copying the context of the
+ * request to the reply.  It reports time and, where the JVM can measure it,
+ * bytes allocated per exchange.  This is not run as part of the build; run it
+ * from the IDE or with 'java' against the test classpath.
+ * <p/>
+ * Usage: CamelContextBenchmark [iterations]
+ */
+public final class CamelContextBenchmark {
+
+    private static final String TRANSIENT = BehaviorLabel.TRANSIENT.label();
+    private static final String HEADER = "org.switchyard.label.header";
+    private static final String[] NAMES = {
+        Exchange.MESSAGE_ID, Exchange.RELATES_TO, Exchange.CONTENT_TYPE, Exchange.OPERATION_NAME,
+        "org.switchyard.bus.camel.consumer", "org.switchyard.bus.camel.dispatcher",
+        "org.switchyard.transaction.propagated", "CamelFileName", "JMSCorrelationID", "soapAction"
+    };
+
+    private CamelContextBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional iteration count
+     */
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        CamelContext camelContext = new DefaultCamelContext();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean)threads : null;
+        long id = Thread.currentThread().getId();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < iterations / 10; i++) {
+                exchange(camelContext);
+            }
+            long bytes = allocations != null ? allocations.getThreadAllocatedBytes(id) : 0;
+            long start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < iterations; i++) {
+                found += exchange(camelContext);
+            }
+            long time = (System.nanoTime() - start) / iterations;
+            if (found == 0) {
+                throw new IllegalStateException();
+            }
+            String allocated = allocations != null
+                    ? " " + (allocations.getThreadAllocatedBytes(id) - bytes) / iterations + " bytes/exchange" : "";
+            System.out.println(time + " ns/exchange" + allocated);
+        }
+    }
+
+    private static int exchange(CamelContext camelContext) {
+        DefaultExchange exchange = new DefaultExchange(camelContext);
+        CamelMessage request = new CamelMessage(exchange);
+        exchange.setIn(request);
+        for (int i = 0; i < NAMES.length; i++) {
+            Property property = request.getContext().setProperty(NAMES[i], NAMES[i], i < 4 ? Scope.EXCHANGE : Scope.MESSAGE);
+            if (i >= 7) {
+                property.addLabels(HEADER);
+            } else if (i == 1) {
+                property.addLabels(TRANSIENT);
+            }
+        }
+        int found = 0;
+        // each handler of the chain reads a few properties and makes a label query
+        for (int handler = 0; handler < 4; handler++) {
+            Context context = request.getContext();
+            for (String name : NAMES) {
+                if (context.getProperty(name) != null) {
+                    found++;
+                }
+            }
+            found += context.getProperties(TRANSIENT).size();
+        }
+        // the reply carries over the request's context
+        CamelMessage reply = new CamelMessage(exchange);
+        request.getContext().mergeInto(reply.getContext());
+        exchange.setIn(reply);
+        return found + reply.getContext().getProperties(HEADER).size();
+    }
+}
@@ -18,6 +18,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.util.EventObject;
+import java.util.List;
 
 import javax.xml.namespace.QName;
 
@@ -46,6 +47,9 @@ import org.switchyard.metadata.InOutService;
 import org.switchyard.metadata.ServiceInterface;
 import org.switchyard.runtime.event.ExchangeCompletionEvent;
 import org.switchyard.runtime.event.ExchangeInitiatedEvent;
+import org.switchyard.runtime.trace.InMemorySpanExporter;
+import org.switchyard.runtime.trace.Span;
+import org.switchyard.runtime.trace.Tracer;
 import org.switchyard.spi.Dispatcher;
 
 public class ExchangeEventsTest {
@@ -123,6 +127,41 @@ public class ExchangeEventsTest {
         Assert.assertEquals(1, counter.completedCount);
     }
 
+    @Test
+    public void testProcessorSpansForInOut() throws Exception {
+        InMemorySpanExporter exporter = new InMemorySpanExporter();
+        _domain.setProperty(Tracer.EXPORTER, exporter);
+
+        QName name = new QName("testTraceInOut");
+        ExchangeSink inHandler = new ExchangeSink(true);
+        ExchangeSink outHandler = new ExchangeSink();
+
+        Service service = new MockService(name, new InOutService(), inHandler);
+        ServiceReference reference = new ServiceReferenceImpl(name, new InOutService(), null, null);
+        Dispatcher dispatch = _provider.createDispatcher(reference);
+
+        Exchange exchange = dispatch.createExchange(outHandler, ExchangePattern.IN_OUT);
+        exchange.consumer(reference, reference.getInterface().getOperation(ServiceInterface.DEFAULT_OPERATION));
+        exchange.provider(service, service.getInterface().getOperation(ServiceInterface.DEFAULT_OPERATION));
+        exchange.send(exchange.createMessage().setContent(REQUEST));
+        Thread.sleep(400);
+
+        assertNotNull(outHandler.getLastExchange());
+        List<Span> exchanges = exporter.getSpans(Tracer.EXCHANGE_SPAN);
+        Assert.assertEquals(1, exchanges.size());
+        Span root = exchanges.get(0);
+        Assert.assertEquals(name.toString(), root.getAttributes().get("service"));
+        for (String processor : new String[] {"ADDRESSING", "TRANSACTION_HANDLER", "SECURITY_PROCESS",
+                "VALIDATION", "TRANSFORMATION", "PROVIDER_CALLBACK"}) {
+            List<Span> spans = exporter.getSpans(processor);
+            Assert.assertFalse(processor, spans.isEmpty());
+            for (Span span : spans) {
+                Assert.assertEquals(root.getTraceId(), span.getTraceId());
+                Assert.assertEquals(root.getSpanId(), span.getParentId());
+            }
+        }
+    }
+
     class EventCounter implements EventObserver {
         int initiatedCount;
         int completedCount;
@@ -34,6 +34,9 @@ public interface ComponentReferenceModel extends NamedModel {
     /** The "security" name. */
     public static final String SECURITY = "security";
 
+    /** The "loadBalance" name. */
+    public static final String LOAD_BALANCE = "loadBalance";
+
     /**
      * Gets the parent component model.
      * @return the parent component model
@@ -79,6 +82,19 @@ public interface ComponentReferenceModel extends NamedModel {
      */
     public ComponentReferenceModel setSecurity(String security);
     
+    /**
+     * Gets the strategy used to choose between the providers of the target service.
+     * @return the load balancing strategy
+     */
+    public String getLoadBalance();
+    
+    /**
+     * Sets the strategy used to choose between the providers of the target service.
+     * @param loadBalance the load balancing strategy
+     * @return this ComponentReferenceModel (useful for chaining)
+     */
+    public ComponentReferenceModel setLoadBalance(String loadBalance);
+    
     /**
      * Adds the specified policy identifier to the set of required policy 
      * intents for the reference.
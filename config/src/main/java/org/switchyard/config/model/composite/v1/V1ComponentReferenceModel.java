@@ -118,6 +118,23 @@ public class V1ComponentReferenceModel extends BaseNamedModel implements Compone
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getLoadBalance() {
+        return getModelAttribute(new QName(_switchyardNamespace, ComponentReferenceModel.LOAD_BALANCE));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ComponentReferenceModel setLoadBalance(String loadBalance) {
+        setModelAttribute(new QName(_switchyardNamespace, ComponentReferenceModel.LOAD_BALANCE), loadBalance);
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.config.model.switchyard;
+
+import org.switchyard.config.model.Model;
+
+/**
+ * The "operation" configuration model, a rate limit for one operation
+ * within a "throttling" model.
+ */
+public interface OperationThrottlingModel extends Model {
+
+    /** The "operation" name. */
+    public static final String OPERATION = "operation";
+
+    /** The "name" attribute. */
+    public static final String NAME = "name";
+
+    /**
+     * Gets the parent throttling model.
+     * @return the parent throttling model
+     */
+    public ThrottlingModel getThrottling();
+
+    /**
+     * Gets the name attribute.
+     * @return the name attribute
+     */
+    public String getName();
+
+    /**
+     * Sets the name attribute.
+     * @param name the name attribute
+     * @return this OperationThrottlingModel (useful for chaining)
+     */
+    public OperationThrottlingModel setName(String name);
+
+    /**
+     * Gets the timePeriod attribute.
+     * @return the timePeriod attribute
+     */
+    public Long getTimePeriod();
+
+    /**
+     * Sets the timePeriod attribute.
+     * @param timePeriod the timePeriod attribute
+     * @return this OperationThrottlingModel (useful for chaining)
+     */
+    public OperationThrottlingModel setTimePeriod(Long timePeriod);
+
+    /**
+     * Gets the maxRequests attribute.
+     * @return the maxRequests attribute
+     */
+    public int getMaxRequests();
+
+    /**
+     * Sets the maxRequests attribute.
+     * @param maxRequests the maxRequests attribute
+     * @return this OperationThrottlingModel (useful for chaining)
+     */
+    public OperationThrottlingModel setMaxRequests(int maxRequests);
+
+    /**
+     * Gets the burst attribute.
+     * @return the burst attribute
+     */
+    public Integer getBurst();
+
+    /**
+     * Sets the burst attribute.
+     * @param burst the burst attribute
+     * @return this OperationThrottlingModel (useful for chaining)
+     */
+    public OperationThrottlingModel setBurst(Integer burst);
+
+}
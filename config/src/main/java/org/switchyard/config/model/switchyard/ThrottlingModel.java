@@ -13,6 +13,8 @@
  */
 package org.switchyard.config.model.switchyard;
 
+import java.util.List;
+
 import org.switchyard.config.model.Model;
 
 /**
@@ -29,6 +31,24 @@ public interface ThrottlingModel extends Model {
     /** The "maxRequests" attribute. */
     public static final String MAX_REQUESTS = "maxRequests";
 
+    /** The "maxConcurrency" attribute. */
+    public static final String MAX_CONCURRENCY = "maxConcurrency";
+
+    /** The "minConcurrency" attribute. */
+    public static final String MIN_CONCURRENCY = "minConcurrency";
+
+    /** The "maxWait" attribute. */
+    public static final String MAX_WAIT = "maxWait";
+
+    /** The "burst" attribute. */
+    public static final String BURST = "burst";
+
+    /** The "onLimit" attribute. */
+    public static final String ON_LIMIT = "onLimit";
+
+    /** The "maxDelay" attribute. */
+    public static final String MAX_DELAY = "maxDelay";
+
     /**
      * Gets the timePeriod attribute.
      * @return the timePeriod attribute
@@ -55,4 +75,95 @@ public interface ThrottlingModel extends Model {
      */
     public ThrottlingModel setMaxRequests(int maxRequests);
 
+    /**
+     * Gets the maxConcurrency attribute.
+     * @return the maxConcurrency attribute
+     */
+    public Integer getMaxConcurrency();
+
+    /**
+     * Sets the maxConcurrency attribute.
+     * @param maxConcurrency the maxConcurrency attribute
+     * @return this ThrottlingModel (useful for chaining)
+     */
+    public ThrottlingModel setMaxConcurrency(Integer maxConcurrency);
+
+    /**
+     * Gets the minConcurrency attribute.
+     * @return the minConcurrency attribute
+     */
+    public Integer getMinConcurrency();
+
+    /**
+     * Sets the minConcurrency attribute.
+     * @param minConcurrency the minConcurrency attribute
+     * @return this ThrottlingModel (useful for chaining)
+     */
+    public ThrottlingModel setMinConcurrency(Integer minConcurrency);
+
+    /**
+     * Gets the maxWait attribute.
+     * @return the maxWait attribute
+     */
+    public Long getMaxWait();
+
+    /**
+     * Sets the maxWait attribute.
+     * @param maxWait the maxWait attribute
+     * @return this ThrottlingModel (useful for chaining)
+     */
+    public ThrottlingModel setMaxWait(Long maxWait);
+
+    /**
+     * Gets the burst attribute.
+     * @return the burst attribute
+     */
+    public Integer getBurst();
+
+    /**
+     * Sets the burst attribute.
+     * @param burst the burst attribute
+     * @return this ThrottlingModel (useful for chaining)
+     */
+    public ThrottlingModel setBurst(Integer burst);
+
+    /**
+     * Gets the onLimit attribute.
+     * @return the onLimit attribute
+     */
+    public String getOnLimit();
+
+    /**
+     * Sets the onLimit attribute.
+     * @param onLimit the onLimit attribute
+     * @return this ThrottlingModel (useful for chaining)
+     */
+    public ThrottlingModel setOnLimit(String onLimit);
+
+    /**
+     * Gets the maxDelay attribute.
+     * @return the maxDelay attribute
+     */
+    public Long getMaxDelay();
+
+    /**
+     * Sets the maxDelay attribute.
+     * @param maxDelay the maxDelay attribute
+     * @return this ThrottlingModel (useful for chaining)
+     */
+    public ThrottlingModel setMaxDelay(Long maxDelay);
+
+    /**
+     * Gets the child operation throttling models.
+     * @return the child operation throttling models
+     */
+    public List<OperationThrottlingModel> getOperations();
+
+    /**
+     * Adds a child operation throttling model.
+     * @param operation the child operation throttling model
+     * @return this ThrottlingModel (useful for chaining)
+     */
+    public ThrottlingModel addOperation(OperationThrottlingModel operation);
+
 }
@@ -13,11 +13,16 @@
  */
 package org.switchyard.config.model.switchyard.v1;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import javax.xml.namespace.QName;
 
 import org.switchyard.config.Configuration;
 import org.switchyard.config.model.BaseModel;
 import org.switchyard.config.model.Descriptor;
+import org.switchyard.config.model.switchyard.OperationThrottlingModel;
 import org.switchyard.config.model.switchyard.ThrottlingModel;
 
 /**
@@ -25,12 +30,15 @@ import org.switchyard.config.model.switchyard.ThrottlingModel;
  */
 public class V1ThrottlingModel extends BaseModel implements ThrottlingModel {
 
+    private List<OperationThrottlingModel> _operations = new ArrayList<OperationThrottlingModel>();
+
     /**
      * Constructs a new V1ThrottlingModel.
      * @param namespace namespace
      */
     public V1ThrottlingModel(String namespace) {
         super(new QName(namespace, ThrottlingModel.THROTTLING));
+        setModelChildrenOrder(OperationThrottlingModel.OPERATION);
     }
 
     /**
@@ -40,6 +48,13 @@ public class V1ThrottlingModel extends BaseModel implements ThrottlingModel {
      */
     public V1ThrottlingModel(Configuration config, Descriptor desc) {
         super(config, desc);
+        for (Configuration operation_config : config.getChildren(OperationThrottlingModel.OPERATION)) {
+            OperationThrottlingModel operation = (OperationThrottlingModel)readModel(operation_config);
+            if (operation != null) {
+                _operations.add(operation);
+            }
+        }
+        setModelChildrenOrder(OperationThrottlingModel.OPERATION);
     }
 
     /**
@@ -65,7 +80,8 @@ public class V1ThrottlingModel extends BaseModel implements ThrottlingModel {
      */
     @Override
     public int getMaxRequests() {
-        return Integer.valueOf(getModelAttribute(ThrottlingModel.MAX_REQUESTS));
+        final String value = getModelAttribute(ThrottlingModel.MAX_REQUESTS);
+        return value == null ? 0 : Integer.valueOf(value);
     }
 
     /**
@@ -77,4 +93,129 @@ public class V1ThrottlingModel extends BaseModel implements ThrottlingModel {
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Integer getMaxConcurrency() {
+        final String value = getModelAttribute(ThrottlingModel.MAX_CONCURRENCY);
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ThrottlingModel setMaxConcurrency(Integer maxConcurrency) {
+        setModelAttribute(ThrottlingModel.MAX_CONCURRENCY, maxConcurrency == null ? null : maxConcurrency.toString());
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Integer getMinConcurrency() {
+        final String value = getModelAttribute(ThrottlingModel.MIN_CONCURRENCY);
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ThrottlingModel setMinConcurrency(Integer minConcurrency) {
+        setModelAttribute(ThrottlingModel.MIN_CONCURRENCY, minConcurrency == null ? null : minConcurrency.toString());
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getMaxWait() {
+        final String value = getModelAttribute(ThrottlingModel.MAX_WAIT);
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ThrottlingModel setMaxWait(Long maxWait) {
+        setModelAttribute(ThrottlingModel.MAX_WAIT, maxWait == null ? null : maxWait.toString());
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Integer getBurst() {
+        final String value = getModelAttribute(ThrottlingModel.BURST);
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ThrottlingModel setBurst(Integer burst) {
+        setModelAttribute(ThrottlingModel.BURST, burst == null ? null : burst.toString());
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOnLimit() {
+        return getModelAttribute(ThrottlingModel.ON_LIMIT);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ThrottlingModel setOnLimit(String onLimit) {
+        setModelAttribute(ThrottlingModel.ON_LIMIT, onLimit);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getMaxDelay() {
+        final String value = getModelAttribute(ThrottlingModel.MAX_DELAY);
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ThrottlingModel setMaxDelay(Long maxDelay) {
+        setModelAttribute(ThrottlingModel.MAX_DELAY, maxDelay == null ? null : maxDelay.toString());
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<OperationThrottlingModel> getOperations() {
+        return Collections.unmodifiableList(_operations);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized ThrottlingModel addOperation(OperationThrottlingModel operation) {
+        addChildModel(operation);
+        _operations.add(operation);
+        return this;
+    }
+
 }
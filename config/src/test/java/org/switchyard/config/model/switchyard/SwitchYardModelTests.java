@@ -60,6 +60,7 @@ public class SwitchYardModelTests {
     private static final String INCOMPLETE_XML = "/org/switchyard/config/model/switchyard/SwitchYardModelTests-Incomplete.xml";
     private static final String FRAGMENT_XML = "/org/switchyard/config/model/switchyard/SwitchYardModelTests-Fragment.xml";
     private static final String COMPLETE_XML = "/org/switchyard/config/model/switchyard/SwitchYardModelTests-Complete.xml";
+    private static final String LOAD_BALANCE_XML = "/org/switchyard/config/model/switchyard/SwitchYardModelTests-LoadBalance.xml";
 
     private ModelPuller<SwitchYardModel> _puller;
 
@@ -192,6 +193,23 @@ public class SwitchYardModelTests {
         switchyard.assertModelValid();
     }
 
+    @Test
+    public void testLoadBalance() throws Exception {
+        SwitchYardModel switchyard = _puller.pull(LOAD_BALANCE_XML, getClass());
+        switchyard.assertModelValid();
+        ComponentModel component = switchyard.getComposite().getComponents().get(0);
+        ComponentReferenceModel balanced = component.getReferences().get(0);
+        Assert.assertEquals("anotherService", balanced.getName());
+        Assert.assertEquals("leastInFlight", balanced.getLoadBalance());
+        ComponentReferenceModel unbalanced = component.getReferences().get(1);
+        Assert.assertEquals("yetAnotherService", unbalanced.getName());
+        Assert.assertNull(unbalanced.getLoadBalance());
+        unbalanced.setLoadBalance("roundRobin");
+        SwitchYardModel written = _puller.pull(new StringReader(switchyard.toString()));
+        unbalanced = written.getComposite().getComponents().get(0).getReferences().get(1);
+        Assert.assertEquals("roundRobin", unbalanced.getLoadBalance());
+    }
+
     @Test
     public void testTargetNamespace() throws Exception {
         SwitchYardModel switchyard = _puller.pull(COMPLETE_XML, getClass());
@@ -19,6 +19,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.switchyard.config.model.ModelPuller;
 import org.switchyard.config.model.composite.ExtensionsModel;
+import org.switchyard.config.model.switchyard.v1.V1OperationThrottlingModel;
 import org.switchyard.config.model.switchyard.v1.V1ThrottlingModel;
 
 /**
@@ -28,6 +29,8 @@ public class ThrottlingExtensionTests {
 
     private static final String THROTTLING_XML = "/org/switchyard/config/model/switchyard/ThrottlingExtensionTests.xml";
     private static final String THROTTLING_XML2 = "/org/switchyard/config/model/switchyard/ThrottlingExtensionTests2.xml";
+    private static final String THROTTLING_XML3 = "/org/switchyard/config/model/switchyard/ThrottlingExtensionTests3.xml";
+    private static final String THROTTLING_XML4 = "/org/switchyard/config/model/switchyard/ThrottlingExtensionTests4.xml";
     private static final Integer MAX_REQUESTS = 50;
     private static final Long TIME_PERIOD = 2000L;
 
@@ -69,6 +72,56 @@ public class ThrottlingExtensionTests {
         Assert.assertEquals(TIME_PERIOD, throttling.getTimePeriod());
     }
 
+    @Test
+    public void testReadConcurrency() throws Exception {
+        SwitchYardModel switchyard = _puller.pull(THROTTLING_XML3, getClass());
+        switchyard.assertModelValid();
+        ExtensionsModel extensions = switchyard.getComposite().getServices().get(0).getExtensions();
+        ThrottlingModel throttling = extensions.getThrottling();
+
+        Assert.assertEquals(0, throttling.getMaxRequests());
+        Assert.assertNull(throttling.getTimePeriod());
+        Assert.assertEquals(Integer.valueOf(40), throttling.getMaxConcurrency());
+        Assert.assertEquals(Integer.valueOf(2), throttling.getMinConcurrency());
+        Assert.assertEquals(Long.valueOf(250), throttling.getMaxWait());
+    }
+
+    @Test
+    public void testReadRateLimits() throws Exception {
+        SwitchYardModel switchyard = _puller.pull(THROTTLING_XML4, getClass());
+        switchyard.assertModelValid();
+        ExtensionsModel extensions = switchyard.getComposite().getServices().get(0).getExtensions();
+        ThrottlingModel throttling = extensions.getThrottling();
+
+        Assert.assertEquals(100, throttling.getMaxRequests());
+        Assert.assertEquals(Integer.valueOf(20), throttling.getBurst());
+        Assert.assertEquals("FAULT", throttling.getOnLimit());
+        Assert.assertEquals(Long.valueOf(500), throttling.getMaxDelay());
+        Assert.assertEquals(2, throttling.getOperations().size());
+        OperationThrottlingModel lookup = throttling.getOperations().get(0);
+        Assert.assertEquals("lookup", lookup.getName());
+        Assert.assertEquals(10, lookup.getMaxRequests());
+        Assert.assertEquals(Long.valueOf(2000), lookup.getTimePeriod());
+        Assert.assertEquals(Integer.valueOf(5), lookup.getBurst());
+        OperationThrottlingModel update = throttling.getOperations().get(1);
+        Assert.assertEquals("update", update.getName());
+        Assert.assertEquals(1, update.getMaxRequests());
+        Assert.assertNull(update.getTimePeriod());
+        Assert.assertNull(update.getBurst());
+    }
+
+    @Test
+    public void testCreateOperations() throws Exception {
+        ThrottlingModel throttling = new V1ThrottlingModel(SwitchYardNamespace.DEFAULT.uri());
+        throttling.setMaxRequests(MAX_REQUESTS).setOnLimit("REJECT");
+        throttling.addOperation(new V1OperationThrottlingModel(SwitchYardNamespace.DEFAULT.uri())
+                .setName("lookup").setMaxRequests(5));
+
+        Assert.assertEquals("REJECT", throttling.getOnLimit());
+        Assert.assertEquals(1, throttling.getOperations().size());
+        Assert.assertEquals("lookup", throttling.getOperations().get(0).getName());
+    }
+
     @Test
     public void testValidation() throws Exception {
         SwitchYardModel switchyard = _puller.pull(THROTTLING_XML, getClass());
@@ -1,6 +1,8 @@
 package org.switchyard.deploy;
 
+import static org.jboss.logging.Logger.Level.DEBUG;
 import static org.jboss.logging.Logger.Level.ERROR;
+import static org.jboss.logging.Logger.Level.WARN;
 
 import org.jboss.logging.Logger;
 import org.jboss.logging.annotations.MessageLogger;
@@ -70,4 +72,24 @@ public interface BaseDeployLogger {
     @LogMessage(level = ERROR) 
     @Message(id = 10905, value="Error deactivating reference binding.")
     void errorDeactivatingReferenceBinding(@Cause Throwable e);
+
+    /**
+     * deploymentPhaseCompleted method definition.
+     * @param deployment deployment name
+     * @param phase phase name
+     * @param activations number of activations in the phase
+     * @param millis elapsed time in milliseconds
+     */
+    @LogMessage(level = DEBUG)
+    @Message(id = 10906, value="Deployment %s completed %s for %d activation(s) in %d ms.")
+    void deploymentPhaseCompleted(String deployment, String phase, int activations, long millis);
+
+    /**
+     * invalidActivationPoolSize method definition.
+     * @param value configured value
+     * @param poolSize pool size used instead
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 10907, value="Invalid activation pool size '%s', using %d.")
+    void invalidActivationPoolSize(String value, int poolSize);
 }
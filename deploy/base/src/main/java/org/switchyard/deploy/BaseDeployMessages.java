@@ -259,5 +259,22 @@ public interface BaseDeployMessages {
     @Message(id = 12228 , value = "Service registration with name %s hides %s")
     SwitchYardException serviceRegHidesService(String name, String service);
 
+    /**
+     * invalidLoadBalance method definition.
+     * @param loadBalance loadBalance
+     * @param reference reference
+     * @return SwitchYardException
+     */
+    @Message(id = 12229 , value = "Invalid loadBalance '%s' on reference %s")
+    SwitchYardException invalidLoadBalance(String loadBalance, String reference);
+
+    /**
+     * invalidThrottlingLimitAction method definition.
+     * @param onLimit onLimit
+     * @param service service
+     * @return SwitchYardException
+     */
+    @Message(id = 12230 , value = "Invalid throttling onLimit '%s' on service %s")
+    SwitchYardException invalidThrottlingLimitAction(String onLimit, String service);
 
 }
@@ -32,6 +32,7 @@ import org.switchyard.config.model.switchyard.SwitchYardModel;
 import org.switchyard.internal.DefaultServiceRegistry;
 import org.switchyard.internal.DomainImpl;
 import org.switchyard.internal.EventManager;
+import org.switchyard.internal.EventManager.OverflowPolicy;
 import org.switchyard.internal.transform.BaseTransformerRegistry;
 import org.switchyard.internal.validate.BaseValidatorRegistry;
 import org.switchyard.security.service.DefaultServiceDomainSecurity;
@@ -63,10 +64,15 @@ public class ServiceDomainManager {
      */
     public static final QName ROOT_DOMAIN = new QName("org.switchyard.domains.root");
 
+    // how long destroy() waits for events pending delivery, in milliseconds
+    private static final long EVENT_SHUTDOWN_TIMEOUT = 5000;
+
     // Share the same service registry and bus across domains to give visibility 
     // to registered services across application domains
     private ServiceRegistry _registry = new DefaultServiceRegistry();
-    private EventManager _eventManager = new EventManager();
+    // asynchronous observers such as the admin metrics must not lose events
+    // under load, so publishers wait for room in the buffer by default
+    private EventManager _eventManager = new EventManager(EventManager.DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
     private final SystemSecurity _systemSecurity;
 
     /**
@@ -126,6 +132,15 @@ public class ServiceDomainManager {
         return domain;
     }
     
+    /**
+     * Tears down the resources shared by the domains of this manager, which
+     * stops asynchronous event delivery once pending events are delivered.
+     * Call this during system shutdown, after the domains are destroyed.
+     */
+    public void destroy() {
+        _eventManager.shutdown(EVENT_SHUTDOWN_TIMEOUT);
+    }
+
     /**
      * Return the shared EventManager used for all ServiceDomain instances.
      * @return EventManager instance
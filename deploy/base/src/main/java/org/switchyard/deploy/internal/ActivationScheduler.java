@@ -0,0 +1,269 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.deploy.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.switchyard.SwitchYardException;
+
+/**
+ * Runs the activation or deactivation tasks of a deployment phase on a
+ * bounded pool, honouring the dependencies between them.  On start a task
+ * runs once all of its dependencies have completed; on stop the order is
+ * reversed, so a task runs once everything depending on it has stopped.
+ * <p/>
+ * Whenever more than one task is ready, the one added first is started
+ * first, and dependency cycles are broken in the same order.  With a pool
+ * size of 1 the tasks run on the calling thread, one at a time, in a fully
+ * deterministic order.
+ */
+final class ActivationScheduler {
+
+    private final String _name;
+    private final int _poolSize;
+    private final List<Runnable> _tasks = new ArrayList<Runnable>();
+    private final List<Set<Integer>> _dependencies = new ArrayList<Set<Integer>>();
+
+    /**
+     * Create a new ActivationScheduler.
+     * @param name used to name the pool threads
+     * @param poolSize maximum number of tasks run at the same time
+     */
+    ActivationScheduler(String name, int poolSize) {
+        _name = name;
+        _poolSize = Math.max(1, poolSize);
+    }
+
+    /**
+     * Add a task.
+     * @param task the task
+     * @return index used to declare dependencies on the task
+     */
+    int add(Runnable task) {
+        _tasks.add(task);
+        _dependencies.add(new LinkedHashSet<Integer>());
+        return _tasks.size() - 1;
+    }
+
+    /**
+     * Declare that a task must start after, and stop before, another.
+     * @param task index of the dependent task
+     * @param dependency index of the task it depends on
+     */
+    void addDependency(int task, int dependency) {
+        if (task != dependency) {
+            _dependencies.get(task).add(dependency);
+        }
+    }
+
+    /**
+     * @return number of tasks
+     */
+    int size() {
+        return _tasks.size();
+    }
+
+    /**
+     * Run the tasks, dependencies first.  No new tasks are started once one
+     * has failed; the first failure is rethrown after running tasks finish.
+     * @return elapsed time in milliseconds
+     */
+    long start() {
+        return run(false, true);
+    }
+
+    /**
+     * Run the tasks, dependents first.  Every task is run even if some fail;
+     * the first failure is rethrown once all have finished.
+     * @return elapsed time in milliseconds
+     */
+    long stop() {
+        return run(true, false);
+    }
+
+    private long run(boolean reverse, boolean failFast) {
+        long start = System.currentTimeMillis();
+        int count = _tasks.size();
+        // number of unfinished tasks each task waits on, and the tasks released when it finishes
+        int[] waiting = new int[count];
+        List<List<Integer>> released = new ArrayList<List<Integer>>(count);
+        for (int i = 0; i < count; i++) {
+            released.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < count; i++) {
+            for (int dependency : _dependencies.get(i)) {
+                if (reverse) {
+                    waiting[dependency]++;
+                    released.get(i).add(dependency);
+                } else {
+                    waiting[i]++;
+                    released.get(dependency).add(i);
+                }
+            }
+        }
+
+        boolean[] started = new boolean[count];
+        Throwable failure = null;
+        if (_poolSize == 1 || count < 2) {
+            for (int done = 0; done < count && (failure == null || !failFast); done++) {
+                int next = nextTask(waiting, started, true);
+                started[next] = true;
+                try {
+                    _tasks.get(next).run();
+                } catch (RuntimeException e) {
+                    failure = failure != null ? failure : e;
+                }
+                release(next, waiting, released);
+            }
+        } else {
+            failure = runConcurrently(waiting, released, started, failFast);
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException)failure;
+        } else if (failure instanceof Error) {
+            throw (Error)failure;
+        } else if (failure != null) {
+            throw new SwitchYardException(failure);
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private Throwable runConcurrently(int[] waiting, List<List<Integer>> released, boolean[] started, boolean failFast) {
+        int count = _tasks.size();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(_poolSize, count),
+                new ActivationThreadFactory(_name));
+        CompletionService<Outcome> completion = new ExecutorCompletionService<Outcome>(executor);
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        Throwable failure = null;
+        int running = 0;
+        try {
+            for (int done = 0; done < count; done++) {
+                if (failure == null || !failFast) {
+                    int next;
+                    while (running < _poolSize && (next = nextTask(waiting, started, running == 0)) >= 0) {
+                        started[next] = true;
+                        completion.submit(new Task(next, loader));
+                        running++;
+                    }
+                }
+                if (running == 0) {
+                    break;
+                }
+                Outcome outcome = completion.take().get();
+                running--;
+                if (outcome._failure != null && failure == null) {
+                    failure = outcome._failure;
+                }
+                release(outcome._index, waiting, released);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = failure != null ? failure : e;
+        } catch (ExecutionException e) {
+            // tasks catch their own failures
+            failure = failure != null ? failure : e.getCause();
+        } finally {
+            executor.shutdown();
+        }
+        return failure;
+    }
+
+    // lowest index ready to run, or the lowest not yet started if a cycle
+    // has to be broken; -1 if there is nothing to start
+    private int nextTask(int[] waiting, boolean[] started, boolean breakCycle) {
+        int unstarted = -1;
+        for (int i = 0; i < started.length; i++) {
+            if (!started[i]) {
+                if (waiting[i] == 0) {
+                    return i;
+                } else if (unstarted < 0) {
+                    unstarted = i;
+                }
+            }
+        }
+        return breakCycle ? unstarted : -1;
+    }
+
+    private static void release(int task, int[] waiting, List<List<Integer>> released) {
+        for (int next : released.get(task)) {
+            waiting[next]--;
+        }
+    }
+
+    private static final class Outcome {
+        private final int _index;
+        private final Throwable _failure;
+
+        Outcome(int index, Throwable failure) {
+            _index = index;
+            _failure = failure;
+        }
+    }
+
+    // runs a task with the deployment's context classloader
+    private final class Task implements Callable<Outcome> {
+        private final int _index;
+        private final ClassLoader _loader;
+
+        Task(int index, ClassLoader loader) {
+            _index = index;
+            _loader = loader;
+        }
+
+        @Override
+        public Outcome call() {
+            Thread thread = Thread.currentThread();
+            ClassLoader previous = thread.getContextClassLoader();
+            thread.setContextClassLoader(_loader);
+            try {
+                _tasks.get(_index).run();
+                return new Outcome(_index, null);
+            } catch (Throwable t) {
+                return new Outcome(_index, t);
+            } finally {
+                thread.setContextClassLoader(previous);
+            }
+        }
+    }
+
+    // names activation threads after the deployment and marks them as daemons
+    private static final class ActivationThreadFactory implements ThreadFactory {
+        private final AtomicInteger _count = new AtomicInteger();
+        private final String _prefix;
+
+        ActivationThreadFactory(String name) {
+            _prefix = "SwitchYard-Deployment-" + name + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, _prefix + _count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -18,8 +18,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +47,7 @@ import org.switchyard.config.model.composite.CompositeServiceModel;
 import org.switchyard.config.model.composite.ExtensionsModel;
 import org.switchyard.config.model.composite.InterfaceModel;
 import org.switchyard.config.model.switchyard.EsbInterfaceModel;
+import org.switchyard.config.model.switchyard.OperationThrottlingModel;
 import org.switchyard.config.model.switchyard.SwitchYardModel;
 import org.switchyard.config.model.switchyard.ThrottlingModel;
 import org.switchyard.config.model.transform.TransformsModel;
@@ -68,10 +71,12 @@ import org.switchyard.metadata.InOutOperation;
 import org.switchyard.metadata.InOutService;
 import org.switchyard.metadata.ServiceInterface;
 import org.switchyard.metadata.ServiceMetadataBuilder;
+import org.switchyard.metadata.qos.LoadBalancing;
 import org.switchyard.metadata.qos.Throttling;
 import org.switchyard.policy.Policy;
 import org.switchyard.policy.Policy.PolicyType;
 import org.switchyard.policy.PolicyFactory;
+import org.switchyard.serial.graph.ClassMetadata;
 
 /**
  * Deployment is a framework-independent representation of a deployed SwitchYard 
@@ -82,12 +87,20 @@ import org.switchyard.policy.PolicyFactory;
  */
 public class Deployment extends AbstractDeployment {
 
+    /**
+     * Domain property holding the maximum number of components and bindings
+     * activated or deactivated at the same time.
+     */
+    public static final String ACTIVATION_POOL_SIZE = "org.switchyard.deploy.activationPoolSize";
+
     private static Logger _log = Logger.getLogger(Deployment.class);
 
     private Map<String, Activator> _activators = new HashMap<String, Activator>();
     private List<Activation> _components = new LinkedList<Activation>();
     private List<Activation> _serviceBindings = new LinkedList<Activation>();
     private List<Activation> _referenceBindings = new LinkedList<Activation>();
+    private int _activationPoolSize = 1;
+    private Map<String, Long> _phaseTimes = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
     
     /**
      * Create a new instance of Deployer from a configuration stream.
@@ -116,6 +129,14 @@ public class Deployment extends AbstractDeployment {
         // create a new domain and load transformer , validator and activator instances for lifecycle
         registerTransformers();
         registerValidators();
+        Object poolSize = getDomain().getProperty(ACTIVATION_POOL_SIZE);
+        if (poolSize != null) {
+            try {
+                setActivationPoolSize(Integer.parseInt(poolSize.toString().trim()));
+            } catch (NumberFormatException nfe) {
+                BaseDeployLogger.ROOT_LOGGER.invalidActivationPoolSize(poolSize.toString(), _activationPoolSize);
+            }
+        }
         if (activators != null) {
             for (Activator activator : activators) {
                 Collection<String> activationTypes = activator.getActivationTypes();
@@ -184,8 +205,46 @@ public class Deployment extends AbstractDeployment {
 
         getDomain().getEventPublisher().publish(new ApplicationUndeployedEvent(this));
         getDomain().destroy();
+
+        // serialization metadata would otherwise hold the application's classes
+        Object classLoader = getDomain().getProperty(CLASSLOADER_PROPERTY);
+        if (classLoader instanceof ClassLoader) {
+            ClassMetadata.evict((ClassLoader)classLoader);
+        }
     }
     
+    /**
+     * Maximum number of components and bindings activated or deactivated at
+     * the same time.  Activations within a phase which do not depend on each
+     * other may run concurrently; with a size of 1, everything is activated
+     * one at a time in configuration order.
+     * @return activation pool size, 1 by default
+     */
+    public int getActivationPoolSize() {
+        return _activationPoolSize;
+    }
+
+    /**
+     * Set the maximum number of components and bindings activated or
+     * deactivated at the same time.  Defaults to the value of the
+     * {@link #ACTIVATION_POOL_SIZE} domain property, or 1.
+     * @param activationPoolSize activation pool size, values below 1 are treated as 1
+     */
+    public void setActivationPoolSize(int activationPoolSize) {
+        _activationPoolSize = Math.max(1, activationPoolSize);
+    }
+
+    /**
+     * Time taken by each deployment phase the last time it ran, in the order
+     * the phases ran.
+     * @return phase name to elapsed milliseconds
+     */
+    public Map<String, Long> getPhaseTimes() {
+        synchronized (_phaseTimes) {
+            return new LinkedHashMap<String, Long>(_phaseTimes);
+        }
+    }
+
     @Override
     public Lifecycle getGatwayLifecycle(final QName serviceName, final String bindingName) {
         // TODO: look at a more efficient way of doing this
@@ -284,37 +343,47 @@ public class Deployment extends AbstractDeployment {
         if (composite == null) {
             return;
         }
-        for (CompositeReferenceModel reference : composite.getReferences()) {
+        ActivationScheduler scheduler = newScheduler();
+        for (final CompositeReferenceModel reference : composite.getReferences()) {
             int bindingCount = 0;
-            for (BindingModel binding : reference.getBindings()) {
-                QName refQName = reference.getQName();
+            for (final BindingModel binding : reference.getBindings()) {
                 ++bindingCount;
                 if (binding.getName() == null) {
                     _log.debug("Initializing binding name for binding " + bindingCount + " for reference "
                             + reference.getQName() + " for deployment " + getName());
                     binding.setName("_" + reference.getName() + "_" + binding.getType() + "_" + bindingCount);
                 }
-                _log.debug("Deploying binding " + binding.getName() + " for reference " 
-                        + reference.getQName() + " for deployment " + getName());
                 
-                Activator activator = findActivator(binding.getType());
+                final Activator activator = findActivator(binding.getType());
                 if (activator == null) {
                     continue;
                 }
-
-                ServiceHandler handler = activator.activateBinding(reference.getQName(), binding);
-                Activation activation = new Activation(activator, reference.getQName(), binding, handler);
-                ServiceInterface si = getCompositeReferenceInterface(reference);
-                Binding bindingMetadata = new Binding(binding);
-                validateServiceRegistration(refQName);
-                ServiceMetadata metadata = ServiceMetadataBuilder.create().registrant(bindingMetadata).build();
-                Service svc = getDomain().registerService(refQName, si, handler, metadata);
-                activation.addService(svc);
-                _referenceBindings.add(activation);
-
-                handler.start();
+                scheduler.add(new Runnable() {
+                    public void run() {
+                        deployReferenceBinding(reference, binding, activator);
+                    }
+                });
             }
         }
+        runPhase("deployReferenceBindings", scheduler, true);
+    }
+
+    private void deployReferenceBinding(CompositeReferenceModel reference, BindingModel binding, Activator activator) {
+        QName refQName = reference.getQName();
+        _log.debug("Deploying binding " + binding.getName() + " for reference " 
+                + refQName + " for deployment " + getName());
+
+        ServiceHandler handler = activator.activateBinding(refQName, binding);
+        Activation activation = new Activation(activator, refQName, binding, handler);
+        ServiceInterface si = getCompositeReferenceInterface(reference);
+        Binding bindingMetadata = new Binding(binding);
+        validateServiceRegistration(refQName);
+        ServiceMetadata metadata = ServiceMetadataBuilder.create().registrant(bindingMetadata).build();
+        Service svc = getDomain().registerService(refQName, si, handler, metadata);
+        activation.addService(svc);
+        addActivation(_referenceBindings, activation);
+
+        handler.start();
     }
     
     private ServiceInterface getCompositeReferenceInterface(CompositeReferenceModel compositeRefModel) {
@@ -364,9 +433,85 @@ public class Deployment extends AbstractDeployment {
         if (timePeriod != null) {
             retVal.setTimePeriod(timePeriod);
         }
+        if (throttling.getMaxConcurrency() != null) {
+            retVal.setMaxConcurrency(throttling.getMaxConcurrency());
+        }
+        if (throttling.getMinConcurrency() != null) {
+            retVal.setMinConcurrency(throttling.getMinConcurrency());
+        }
+        if (throttling.getMaxWait() != null) {
+            retVal.setMaxWait(throttling.getMaxWait());
+        }
+        if (throttling.getBurst() != null) {
+            retVal.setBurst(throttling.getBurst());
+        }
+        if (throttling.getOnLimit() != null) {
+            try {
+                retVal.setLimitAction(Throttling.LimitAction.valueOf(throttling.getOnLimit().trim().toUpperCase()));
+            } catch (IllegalArgumentException iaEx) {
+                throw BaseDeployMessages.MESSAGES.invalidThrottlingLimitAction(
+                        throttling.getOnLimit(), compositeServiceModel.getName());
+            }
+        }
+        if (throttling.getMaxDelay() != null) {
+            retVal.setMaxDelay(throttling.getMaxDelay());
+        }
+        for (OperationThrottlingModel operation : throttling.getOperations()) {
+            final Throttling operationThrottling = new Throttling().setMaxRequests(operation.getMaxRequests());
+            if (operation.getTimePeriod() != null) {
+                operationThrottling.setTimePeriod(operation.getTimePeriod());
+            }
+            if (operation.getBurst() != null) {
+                operationThrottling.setBurst(operation.getBurst());
+            }
+            retVal.setOperationThrottling(operation.getName(), operationThrottling);
+        }
         return retVal;
     }
 
+    // loadBalance is a strategy name, optionally followed by its arguments in
+    // parentheses: weighted(3,1) or sticky(customerId)
+    private LoadBalancing getComponentReferenceLoadBalancing(ComponentReferenceModel reference) {
+        String loadBalance = reference.getLoadBalance();
+        if (loadBalance == null || loadBalance.trim().length() == 0) {
+            return null;
+        }
+        String strategy = loadBalance.trim();
+        String arguments = null;
+        int open = strategy.indexOf('(');
+        if (open >= 0) {
+            if (!strategy.endsWith(")")) {
+                throw BaseDeployMessages.MESSAGES.invalidLoadBalance(loadBalance, reference.getName());
+            }
+            arguments = strategy.substring(open + 1, strategy.length() - 1).trim();
+            strategy = strategy.substring(0, open).trim();
+        }
+
+        LoadBalancing loadBalancing = new LoadBalancing().setStrategy(strategy);
+        if (LoadBalancing.WEIGHTED.equals(strategy) && arguments != null) {
+            List<Integer> weights = new ArrayList<Integer>();
+            for (String weight : arguments.split(",")) {
+                try {
+                    weights.add(Integer.valueOf(weight.trim()));
+                } catch (NumberFormatException e) {
+                    throw BaseDeployMessages.MESSAGES.invalidLoadBalance(loadBalance, reference.getName());
+                }
+                if (weights.get(weights.size() - 1) < 0) {
+                    throw BaseDeployMessages.MESSAGES.invalidLoadBalance(loadBalance, reference.getName());
+                }
+            }
+            loadBalancing.setWeights(weights);
+        } else if (LoadBalancing.STICKY.equals(strategy)) {
+            if (arguments == null || arguments.length() == 0) {
+                throw BaseDeployMessages.MESSAGES.invalidLoadBalance(loadBalance, reference.getName());
+            }
+            loadBalancing.setProperty(arguments);
+        } else if (arguments != null) {
+            throw BaseDeployMessages.MESSAGES.invalidLoadBalance(loadBalance, reference.getName());
+        }
+        return loadBalancing;
+    }
+
     private boolean hasComponentReferenceInterface(ComponentReferenceModel componentRef) {
         return componentRef != null && componentRef.getInterface() != null; 
     }
@@ -455,143 +600,173 @@ public class Deployment extends AbstractDeployment {
         if (getConfig().getComposite() == null) {
             return;
         }
-        for (ComponentModel component : getConfig().getComposite().getComponents()) {
-            Activator activator = findActivator(component);
+        ActivationScheduler scheduler = newScheduler();
+        // services provided by each component, including their promotions
+        Map<QName, Integer> providers = new HashMap<QName, Integer>();
+        Map<ComponentModel, Integer> tasks = new LinkedHashMap<ComponentModel, Integer>();
+        for (final ComponentModel component : getConfig().getComposite().getComponents()) {
+            final Activator activator = findActivator(component);
             if (activator == null) {
                 continue;
             }
+            int task = scheduler.add(new Runnable() {
+                public void run() {
+                    deployImplementation(component, activator);
+                }
+            });
+            tasks.put(component, task);
+            for (ComponentServiceModel service : component.getServices()) {
+                providers.put(service.getQName(), task);
+                for (CompositeServiceModel compositeService : getConfig().getComposite().getServices()) {
+                    if (service.equals(compositeService.getComponentService())) {
+                        providers.put(compositeService.getQName(), task);
+                    }
+                }
+            }
+        }
+        // start components after the components providing the services they reference
+        for (Map.Entry<ComponentModel, Integer> task : tasks.entrySet()) {
+            ComponentModel component = task.getKey();
+            for (ComponentReferenceModel reference : component.getReferences()) {
+                QName refName = ComponentNames.qualify(component.getQName(), reference.getQName());
+                Integer provider = providers.get(getWiredServiceName(reference, refName));
+                if (provider != null) {
+                    scheduler.addDependency(task.getValue(), provider);
+                }
+            }
+        }
+        runPhase("deployImplementations", scheduler, true);
+    }
 
-            List<Policy> requiresImpl = null;
+    private void deployImplementation(ComponentModel component, Activator activator) {
+        List<Policy> requiresImpl = null;
+        try {
+            requiresImpl = getPolicyRequirements(component.getImplementation());
+        } catch (Exception e) {
+            throw new SwitchYardException(e);
+        }
+        
+        Implementation impl = new Implementation(component.getImplementation());
+        List<ServiceReference> references = new LinkedList<ServiceReference>();
+        
+        // register a reference for each one declared in the component
+        for (ComponentReferenceModel reference : component.getReferences()) {
+            // Create the reference name qualified with component name to ensure uniqueness
+            QName refName = ComponentNames.qualify(component.getQName(),  reference.getQName());
+                           
+            _log.debug("Registering reference " + refName + " for component " 
+                    + component.getImplementation().getType() + " for deployment " + getName());
+        
+            // Component Reference bindings not allowed, check to see if we find one and throw an exception
+            List<Model> models = reference.getModelChildren();
+            for (Model model : models) {
+                if (BindingModel.class.isAssignableFrom(model.getClass())) {
+                    throw BaseDeployMessages.MESSAGES.componentReferenceBindingsNotAllowed(model.toString(), reference.toString());
+                }
+            }
+            
+            List<Policy> requires = null;
             try {
-                requiresImpl = getPolicyRequirements(component.getImplementation());
+                requires = getPolicyRequirements(reference);
             } catch (Exception e) {
-                throw new SwitchYardException(e);
+                throw BaseDeployMessages.MESSAGES.unableCollectRequirements(reference.toString(), e);
             }
+            validatePolicy(requires, requiresImpl);
+
+            ServiceInterface refIntf = getComponentReferenceInterface(reference);
+            ServiceMetadata metadata = ServiceMetadataBuilder.create()
+                    .security(getDomain().getServiceSecurity(reference.getSecurity()))
+                    .requiredPolicies(requires).registrant(impl)
+                    .loadBalancing(getComponentReferenceLoadBalancing(reference))
+                    .build();
+            ServiceReference svcRef = getDomain().registerServiceReference(refName, refIntf, null, metadata);
+            svcRef.wire(getWiredServiceName(reference, refName));
+            references.add(svcRef);
+        }
+        
+        // register a service for each one declared in the component
+        if (component.getServices().size() > 1) {
+            throw BaseDeployMessages.MESSAGES.multipleServicesFound(component.getName());
+        } else if (component.getServices().size() == 1) {
+            ComponentServiceModel service = component.getServices().get(0);
+            _log.debug("Registering service " + service.getQName()
+                   + " for component " + component.getImplementation().getType() + " for deployment " + getName());
+
             
-            Implementation impl = new Implementation(component.getImplementation());
-            List<ServiceReference> references = new LinkedList<ServiceReference>();
+            // Component Service bindings not allowed, check to see if we find one and throw an exception
+            List<Model> models = service.getModelChildren();
+            for (Model model : models) {
+                if (BindingModel.class.isAssignableFrom(model.getClass())) {
+                    throw BaseDeployMessages.MESSAGES.componentServiceBindingsNotAllowed(model.toString(), service.toString());
+                }
+            }
             
-            // register a reference for each one declared in the component
-            for (ComponentReferenceModel reference : component.getReferences()) {
-                // Create the reference name qualified with component name to ensure uniqueness
-                QName refName = ComponentNames.qualify(component.getQName(),  reference.getQName());
-                               
-                _log.debug("Registering reference " + refName + " for component " 
-                        + component.getImplementation().getType() + " for deployment " + getName());
             
-                // Component Reference bindings not allowed, check to see if we find one and throw an exception
-                List<Model> models = reference.getModelChildren();
-                for (Model model : models) {
-                    if (BindingModel.class.isAssignableFrom(model.getClass())) {
-                        throw BaseDeployMessages.MESSAGES.componentReferenceBindingsNotAllowed(model.toString(), reference.toString());
-                    }
-                }
-                
-                List<Policy> requires = null;
-                try {
-                    requires = getPolicyRequirements(reference);
-                } catch (Exception e) {
-                    throw BaseDeployMessages.MESSAGES.unableCollectRequirements(reference.toString(), e);
-                }
+            List<Policy> requires = null;
+            try {
+                requires = getPolicyRequirements(service);
                 validatePolicy(requires, requiresImpl);
+            } catch (Exception e) {
+                throw new SwitchYardException(e);
+            }
+            requires.addAll(requiresImpl);
 
-                ServiceInterface refIntf = getComponentReferenceInterface(reference);
-                ServiceMetadata metadata = ServiceMetadataBuilder.create()
-                        .security(getDomain().getServiceSecurity(reference.getSecurity()))
-                        .requiredPolicies(requires).registrant(impl)
-                        .build();
-                ServiceReference svcRef = getDomain().registerServiceReference(refName, refIntf, null, metadata);
-
-                boolean wired = false;
-                // wire a reference if the name is different from promoted name
-                compositeReferenceLoop: for (CompositeReferenceModel compositeReference : getConfig().getComposite().getReferences()) {
-                    for (ComponentReferenceModel componentReference : compositeReference.getComponentReferences()) {
-                        if (componentReference != null && componentReference.equals(reference)) {
-                            if (!componentReference.getQName().equals(compositeReference.getQName())) {
-                                svcRef.wire(compositeReference.getQName());
-                                wired = true;
-                                break compositeReferenceLoop;
-                            }
-                        }
+            ServiceHandler handler = activator.activateService(service.getQName(), component);
+            Activation activation = new Activation(activator, component.getQName(), null, handler);
+            ServiceInterface serviceIntf = getComponentServiceInterface(service);
+            ServiceMetadata metadata = ServiceMetadataBuilder.create()
+                    .security(getDomain().getServiceSecurity(service.getSecurity()))
+                    .requiredPolicies(requires)
+                    .registrant(impl)
+                    .build();
+            
+            Service svc = getDomain().registerService(service.getQName(), serviceIntf, handler, metadata);
+            activation.addService(svc);
+            activation.addReferences(references);
+            
+            // register any service promotions
+            for (CompositeServiceModel compositeService : getConfig().getComposite().getServices()) {
+                ComponentServiceModel componentService = compositeService.getComponentService();
+                if (componentService != null && componentService.equals(service)) {
+                    // avoid duplicates
+                    if (!service.getQName().equals(compositeService.getQName())) {
+                        validateServiceRegistration(compositeService.getQName());
+                        Service promotedService = getDomain().registerService(
+                                compositeService.getQName(), serviceIntf, handler, metadata);
+                        activation.addPromotion(promotedService);
                     }
                 }
-                
-                // if we didn't wire to a promoted reference, then default to unqualified service name
-                if (!wired) {
-                    svcRef.wire(ComponentNames.unqualify(svcRef));
-                }
-                references.add(svcRef);
             }
             
-            // register a service for each one declared in the component
-            if (component.getServices().size() > 1) {
-                throw BaseDeployMessages.MESSAGES.multipleServicesFound(component.getName());
-            } else if (component.getServices().size() == 1) {
-                ComponentServiceModel service = component.getServices().get(0);
-                _log.debug("Registering service " + service.getQName()
-                       + " for component " + component.getImplementation().getType() + " for deployment " + getName());
+            addActivation(_components, activation);
+            handler.start();
 
-                
-                // Component Service bindings not allowed, check to see if we find one and throw an exception
-                List<Model> models = service.getModelChildren();
-                for (Model model : models) {
-                    if (BindingModel.class.isAssignableFrom(model.getClass())) {
-                        throw BaseDeployMessages.MESSAGES.componentServiceBindingsNotAllowed(model.toString(), service.toString());
-                    }
-                }
-                
-                
-                List<Policy> requires = null;
-                try {
-                    requires = getPolicyRequirements(service);
-                    validatePolicy(requires, requiresImpl);
-                } catch (Exception e) {
-                    throw new SwitchYardException(e);
-                }
-                requires.addAll(requiresImpl);
-
-                ServiceHandler handler = activator.activateService(service.getQName(), component);
-                Activation activation = new Activation(activator, component.getQName(), null, handler);
-                ServiceInterface serviceIntf = getComponentServiceInterface(service);
-                ServiceMetadata metadata = ServiceMetadataBuilder.create()
-                        .security(getDomain().getServiceSecurity(service.getSecurity()))
-                        .requiredPolicies(requires)
-                        .registrant(impl)
-                        .build();
-                
-                Service svc = getDomain().registerService(service.getQName(), serviceIntf, handler, metadata);
-                activation.addService(svc);
-                activation.addReferences(references);
-                
-                // register any service promotions
-                for (CompositeServiceModel compositeService : getConfig().getComposite().getServices()) {
-                    ComponentServiceModel componentService = compositeService.getComponentService();
-                    if (componentService != null && componentService.equals(service)) {
-                        // avoid duplicates
-                        if (!service.getQName().equals(compositeService.getQName())) {
-                            validateServiceRegistration(compositeService.getQName());
-                            Service promotedService = getDomain().registerService(
-                                    compositeService.getQName(), serviceIntf, handler, metadata);
-                            activation.addPromotion(promotedService);
-                        }
+        } else {
+            // we don't have a distinct call for activateReference right now,
+            // so this catches cases where an implementation has one or more
+            // references, but no services.  (this is pretty crappy)
+            _log.debug("Activating component " + component.getQName());
+            activator.activateService(null, component);
+            // while this is not a service, it will ensure that the component is deactivated
+            Activation activation = new Activation(activator, component.getQName(), null, null);
+            activation.addReferences(references);
+            addActivation(_components, activation);
+        }
+    }
+
+    // the service a component reference is wired to: the promoting composite
+    // reference if it was renamed, otherwise the unqualified reference name
+    private QName getWiredServiceName(ComponentReferenceModel reference, QName refName) {
+        for (CompositeReferenceModel compositeReference : getConfig().getComposite().getReferences()) {
+            for (ComponentReferenceModel componentReference : compositeReference.getComponentReferences()) {
+                if (componentReference != null && componentReference.equals(reference)) {
+                    if (!componentReference.getQName().equals(compositeReference.getQName())) {
+                        return compositeReference.getQName();
                     }
                 }
-                
-                _components.add(activation);
-                handler.start();
-
-            } else {
-                // we don't have a distinct call for activateReference right now,
-                // so this catches cases where an implementation has one or more
-                // references, but no services.  (this is pretty crappy)
-                _log.debug("Activating component " + component.getQName());
-                activator.activateService(null, component);
-                // while this is not a service, it will ensure that the component is deactivated
-                Activation activation = new Activation(activator, component.getQName(), null, null);
-                activation.addReferences(references);
-                _components.add(activation);
             }
         }
+        return ComponentNames.unqualify(refName);
     }
 
     private void deployServiceBindings() {
@@ -599,127 +774,203 @@ public class Deployment extends AbstractDeployment {
         if (getConfig().getComposite() == null) {
             return;
         }
+        ActivationScheduler scheduler = newScheduler();
         // activate bindings for each service
-        for (CompositeServiceModel service : getConfig().getComposite().getServices()) {
+        for (final CompositeServiceModel service : getConfig().getComposite().getServices()) {
             // Create the reference for the composite service
             ServiceMetadata metadata = ServiceMetadataBuilder.create()
                     .throttling(getCompositeServiceThrottling(service))
                     .registrant(new Binding(service.getBindings()))
                     .build();
-            ServiceReference reference = getDomain().registerServiceReference(
+            final ServiceReference reference = getDomain().registerServiceReference(
                     service.getQName(), getCompositeServiceInterface(service), null, metadata);
             
             int bindingCount = 0;
-            for (BindingModel binding : service.getBindings()) {
+            for (final BindingModel binding : service.getBindings()) {
                 ++bindingCount;
                 if (binding.getName() == null) {
                     _log.debug("Initializing binding name for binding " + bindingCount + " for service "
                             + service.getQName() + " for deployment " + getName());
                     binding.setName("_" + service.getName() + "_" + binding.getType() + "_" + bindingCount);
                 }
-                _log.debug("Deploying binding " + binding.getName() + " for service " 
-                        + service.getQName() + " for deployment " + getName());
                 
-                Activator activator = findActivator(binding.getType());
+                final Activator activator = findActivator(binding.getType());
                 if (activator == null) {
                     continue;
                 }
-                
-                ServiceHandler handler = activator.activateBinding(service.getQName(), binding);
-                Activation activation = new Activation(activator, service.getQName(), binding, handler);
-                activation.addReference(reference);
-                _serviceBindings.add(activation);
-                
-                handler.start();
+                scheduler.add(new Runnable() {
+                    public void run() {
+                        deployServiceBinding(service, binding, activator, reference);
+                    }
+                });
             }
         }
+        runPhase("deployServiceBindings", scheduler, true);
+    }
+
+    private void deployServiceBinding(CompositeServiceModel service, BindingModel binding,
+            Activator activator, ServiceReference reference) {
+        _log.debug("Deploying binding " + binding.getName() + " for service " 
+                + service.getQName() + " for deployment " + getName());
+
+        ServiceHandler handler = activator.activateBinding(service.getQName(), binding);
+        Activation activation = new Activation(activator, service.getQName(), binding, handler);
+        activation.addReference(reference);
+        addActivation(_serviceBindings, activation);
+        
+        handler.start();
     }
 
     private void undeployServiceBindings() {
        _log.debug("Undeploying service bindings for deployment " + getName());
        try {
-           for (Activation activation : _serviceBindings) {
-                try {
-                    activation.getHandler().stop();
-                } catch (Throwable e) {
-                    BaseDeployLogger.ROOT_LOGGER.errorStoppingServiceBinding(e);
-                }
-                try {
-                    activation.getActivator().deactivateBinding(activation.getName(), activation.getHandler());
-                } catch (Throwable e) {
-                    BaseDeployLogger.ROOT_LOGGER.errorDeactivatingServiceBinding(e);
-                }
-
-               for (ServiceReference reference : activation.getReferences()) {
-                   reference.unregister();
-               }
-               
+           ActivationScheduler scheduler = newScheduler();
+           for (final Activation activation : _serviceBindings) {
+               scheduler.add(new Runnable() {
+                   public void run() {
+                       undeployServiceBinding(activation);
+                   }
+               });
            }
+           runPhase("undeployServiceBindings", scheduler, false);
        } finally {
            _serviceBindings.clear();
        }
     }
 
+    private void undeployServiceBinding(Activation activation) {
+        try {
+            activation.getHandler().stop();
+        } catch (Throwable e) {
+            BaseDeployLogger.ROOT_LOGGER.errorStoppingServiceBinding(e);
+        }
+        try {
+            activation.getActivator().deactivateBinding(activation.getName(), activation.getHandler());
+        } catch (Throwable e) {
+            BaseDeployLogger.ROOT_LOGGER.errorDeactivatingServiceBinding(e);
+        }
+
+        for (ServiceReference reference : activation.getReferences()) {
+            reference.unregister();
+        }
+    }
+
     private void undeployImplementations() {
         _log.debug("Undeploying services for deployment " + getName());
         try {
-            for (Activation activation : _components) {
-                _log.debug("Deactivating " + activation.getName());
-                final ServiceHandler handler = activation.getHandler();
-                if (handler != null) {
-                    try {
-                        handler.stop();
-                    } catch (Throwable e) {
-                        BaseDeployLogger.ROOT_LOGGER.errorStoppingService(e);
+            ActivationScheduler scheduler = newScheduler();
+            Map<QName, Integer> providers = new HashMap<QName, Integer>();
+            for (final Activation activation : _components) {
+                int task = scheduler.add(new Runnable() {
+                    public void run() {
+                        undeployImplementation(activation);
                     }
-                }
-
+                });
                 for (Service service : activation.getServices()) {
-                    try {
-                        activation.getActivator().deactivateService(service.getName(), activation.getHandler());
-                    } catch (Throwable e) {
-                        BaseDeployLogger.ROOT_LOGGER.errorDeactivatingService(e);
-                    }
-                    service.unregister();
+                    providers.put(service.getName(), task);
                 }
-
-                for (ServiceReference reference : activation.getReferences()) {
-                    reference.unregister();
-                }
-
                 for (Service service : activation.getPromotions()) {
-                    service.unregister();
+                    providers.put(service.getName(), task);
+                }
+            }
+            // stop components before the components providing the services they reference
+            int task = 0;
+            for (Activation activation : _components) {
+                for (ServiceReference reference : activation.getReferences()) {
+                    Integer provider = providers.get(reference.getTargetServiceName());
+                    if (provider != null) {
+                        scheduler.addDependency(task, provider);
+                    }
                 }
+                task++;
             }
+            runPhase("undeployImplementations", scheduler, false);
         } finally {
             _components.clear();
         }
     }
 
+    private void undeployImplementation(Activation activation) {
+        _log.debug("Deactivating " + activation.getName());
+        final ServiceHandler handler = activation.getHandler();
+        if (handler != null) {
+            try {
+                handler.stop();
+            } catch (Throwable e) {
+                BaseDeployLogger.ROOT_LOGGER.errorStoppingService(e);
+            }
+        }
+
+        for (Service service : activation.getServices()) {
+            try {
+                activation.getActivator().deactivateService(service.getName(), activation.getHandler());
+            } catch (Throwable e) {
+                BaseDeployLogger.ROOT_LOGGER.errorDeactivatingService(e);
+            }
+            service.unregister();
+        }
+
+        for (ServiceReference reference : activation.getReferences()) {
+            reference.unregister();
+        }
+
+        for (Service service : activation.getPromotions()) {
+            service.unregister();
+        }
+    }
+
     private void undeployReferenceBindings() {
         _log.debug("Undeploying reference bindings for deployment " + getName());
         try {
-            for (Activation activation : _referenceBindings) {
-                try {
-                    activation.getHandler().stop();
-                } catch (Throwable e) {
-                    BaseDeployLogger.ROOT_LOGGER.errorStoppingReferenceBinding(e);
-                }
-                try {
-                    activation.getActivator().deactivateBinding(activation.getName(), activation.getHandler());
-                } catch (Throwable e) {
-                    BaseDeployLogger.ROOT_LOGGER.errorDeactivatingReferenceBinding(e);
-                }
-
-                for (Service service : activation.getServices()) {
-                    service.unregister();
-                }
+            ActivationScheduler scheduler = newScheduler();
+            for (final Activation activation : _referenceBindings) {
+                scheduler.add(new Runnable() {
+                    public void run() {
+                        undeployReferenceBinding(activation);
+                    }
+                });
             }
+            runPhase("undeployReferenceBindings", scheduler, false);
         } finally {
             _referenceBindings.clear();
         }
     }
 
+    private void undeployReferenceBinding(Activation activation) {
+        try {
+            activation.getHandler().stop();
+        } catch (Throwable e) {
+            BaseDeployLogger.ROOT_LOGGER.errorStoppingReferenceBinding(e);
+        }
+        try {
+            activation.getActivator().deactivateBinding(activation.getName(), activation.getHandler());
+        } catch (Throwable e) {
+            BaseDeployLogger.ROOT_LOGGER.errorDeactivatingReferenceBinding(e);
+        }
+
+        for (Service service : activation.getServices()) {
+            service.unregister();
+        }
+    }
+
+    private ActivationScheduler newScheduler() {
+        return new ActivationScheduler(getName() != null ? getName().getLocalPart() : "", _activationPoolSize);
+    }
+
+    private void runPhase(String phase, ActivationScheduler scheduler, boolean start) {
+        long elapsed = start ? scheduler.start() : scheduler.stop();
+        _phaseTimes.put(phase, elapsed);
+        BaseDeployLogger.ROOT_LOGGER.deploymentPhaseCompleted(String.valueOf(getName()), phase,
+                scheduler.size(), elapsed);
+    }
+
+    // activations may be added from several activation threads
+    private static void addActivation(List<Activation> activations, Activation activation) {
+        synchronized (activations) {
+            activations.add(activation);
+        }
+    }
+
     private Class<?> loadClass(String className) {
         return Classes.forName(className, getClass());
     }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.deploy.internal;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ActivationSchedulerTest {
+
+    @Test
+    public void testSequentialOrder() throws Exception {
+        List<String> started = new ArrayList<String>();
+        ActivationScheduler scheduler = new ActivationScheduler("test", 1);
+        int a = scheduler.add(new Record(started, "a"));
+        int b = scheduler.add(new Record(started, "b"));
+        int c = scheduler.add(new Record(started, "c"));
+        int d = scheduler.add(new Record(started, "d"));
+        // a needs c, which needs d
+        scheduler.addDependency(a, c);
+        scheduler.addDependency(c, d);
+        scheduler.start();
+        Assert.assertEquals(Arrays.asList("b", "d", "c", "a"), started);
+
+        started.clear();
+        scheduler.stop();
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d"), started);
+    }
+
+    @Test
+    public void testCycle() throws Exception {
+        List<String> started = new ArrayList<String>();
+        ActivationScheduler scheduler = new ActivationScheduler("test", 1);
+        int a = scheduler.add(new Record(started, "a"));
+        int b = scheduler.add(new Record(started, "b"));
+        scheduler.addDependency(a, b);
+        scheduler.addDependency(b, a);
+        scheduler.start();
+        Assert.assertEquals(Arrays.asList("a", "b"), started);
+    }
+
+    @Test
+    public void testConcurrentStart() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        ActivationScheduler scheduler = new ActivationScheduler("test", 3);
+        for (int i = 0; i < 3; i++) {
+            scheduler.add(new Runnable() {
+                public void run() {
+                    latch.countDown();
+                    try {
+                        // only completes if all three tasks run at the same time
+                        if (!latch.await(10, TimeUnit.SECONDS)) {
+                            throw new IllegalStateException("tasks did not run concurrently");
+                        }
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+        }
+        scheduler.start();
+        scheduler.stop();
+    }
+
+    @Test
+    public void testConcurrentDependencies() throws Exception {
+        List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        ActivationScheduler scheduler = new ActivationScheduler("test", 4);
+        int provider = scheduler.add(new Record(started, "provider", 50));
+        for (int i = 0; i < 5; i++) {
+            scheduler.addDependency(scheduler.add(new Record(started, "consumer" + i)), provider);
+        }
+        scheduler.start();
+        Assert.assertEquals(6, started.size());
+        Assert.assertEquals("provider", started.get(0));
+
+        started.clear();
+        scheduler.stop();
+        Assert.assertEquals(6, started.size());
+        Assert.assertEquals("provider", started.get(5));
+    }
+
+    @Test
+    public void testStartFailure() throws Exception {
+        List<String> started = new ArrayList<String>();
+        ActivationScheduler scheduler = new ActivationScheduler("test", 1);
+        scheduler.add(new Record(started, "a"));
+        scheduler.add(new Runnable() {
+            public void run() {
+                throw new IllegalStateException("fail");
+            }
+        });
+        scheduler.add(new Record(started, "c"));
+        try {
+            scheduler.start();
+            Assert.fail("expected failure");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("fail", e.getMessage());
+        }
+        Assert.assertEquals(Arrays.asList("a"), started);
+
+        // teardown carries on past failures
+        started.clear();
+        try {
+            scheduler.stop();
+            Assert.fail("expected failure");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("fail", e.getMessage());
+        }
+        Assert.assertEquals(Arrays.asList("a", "c"), started);
+    }
+
+    @Test
+    public void testConcurrentFailure() throws Exception {
+        List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        ActivationScheduler scheduler = new ActivationScheduler("test", 2);
+        int failing = scheduler.add(new Runnable() {
+            public void run() {
+                throw new IllegalStateException("fail");
+            }
+        });
+        scheduler.addDependency(scheduler.add(new Record(started, "dependent")), failing);
+        try {
+            scheduler.start();
+            Assert.fail("expected failure");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("fail", e.getMessage());
+        }
+        Assert.assertTrue(started.isEmpty());
+    }
+
+    @Test
+    public void testContextClassLoader() throws Exception {
+        final ClassLoader loader = new URLClassLoader(new URL[0]);
+        final List<ClassLoader> seen = Collections.synchronizedList(new ArrayList<ClassLoader>());
+        ActivationScheduler scheduler = new ActivationScheduler("test", 2);
+        for (int i = 0; i < 2; i++) {
+            scheduler.add(new Runnable() {
+                public void run() {
+                    seen.add(Thread.currentThread().getContextClassLoader());
+                }
+            });
+        }
+        ClassLoader previous = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            scheduler.start();
+        } finally {
+            Thread.currentThread().setContextClassLoader(previous);
+        }
+        Assert.assertEquals(Arrays.asList(loader, loader), seen);
+    }
+
+    private static class Record implements Runnable {
+        private final List<String> _started;
+        private final String _name;
+        private final long _sleep;
+
+        Record(List<String> started, String name) {
+            this(started, name, 0);
+        }
+
+        Record(List<String> started, String name, long sleep) {
+            _started = started;
+            _name = name;
+            _sleep = sleep;
+        }
+
+        public void run() {
+            _started.add(_name);
+            if (_sleep > 0) {
+                try {
+                    Thread.sleep(_sleep);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
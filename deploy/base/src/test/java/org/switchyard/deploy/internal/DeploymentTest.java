@@ -16,6 +16,8 @@ package org.switchyard.deploy.internal;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import javax.xml.namespace.QName;
@@ -195,6 +197,35 @@ public class DeploymentTest {
         Assert.assertTrue(activator.deactivateBindingCalled());
     }
     
+    @Test
+    public void testParallelActivation() throws Exception {
+        InputStream swConfigStream = Classes.getResourceAsStream("/switchyard-config-mock-01.xml", getClass());
+        Deployment deployment = new Deployment(swConfigStream);
+        swConfigStream.close();
+
+        MockDomain serviceDomain = new MockDomain();
+        serviceDomain.setProperty(Deployment.ACTIVATION_POOL_SIZE, "4");
+        deployment.init(serviceDomain, ActivatorLoader.createActivators(serviceDomain));
+        Assert.assertEquals(4, deployment.getActivationPoolSize());
+
+        MockActivator activator = (MockActivator)
+            deployment.findActivator(MockBindingModel.TYPE);
+        deployment.start();
+        Assert.assertFalse(deployment.getDomain().getServices(
+                new QName("urn:test:config-mock-binding:1.0", "TestService")).isEmpty());
+        deployment.stop();
+        deployment.destroy();
+
+        Assert.assertTrue(activator.activateServiceCalled());
+        Assert.assertTrue(activator.activateBindingCalled());
+        Assert.assertTrue(activator.deactivateServiceCalled());
+        Assert.assertTrue(activator.deactivateBindingCalled());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList(
+                "deployReferenceBindings", "deployImplementations", "deployServiceBindings",
+                "undeployServiceBindings", "undeployImplementations", "undeployReferenceBindings")),
+                deployment.getPhaseTimes().keySet());
+    }
+
     @Test
     public void testActivationTypes() throws Exception {
         InputStream swConfigStream = Classes.getResourceAsStream("/switchyard-config-mock-01.xml", getClass());
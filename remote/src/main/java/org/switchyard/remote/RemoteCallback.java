@@ -0,0 +1,33 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote;
+
+/**
+ * Receives the outcome of an asynchronous remote invocation.
+ */
+public interface RemoteCallback {
+
+    /**
+     * Called when a reply has been received.
+     * @param reply reply message or null if the invoked service is in-only
+     */
+    void replied(RemoteMessage reply);
+
+    /**
+     * Called when the invocation could not be completed.
+     * @param cause reason for the failure
+     */
+    void failed(Throwable cause);
+}
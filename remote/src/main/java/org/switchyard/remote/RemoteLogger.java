@@ -40,4 +40,30 @@ public interface RemoteLogger {
     @LogMessage(level = WARN)
     @Message(id = 13601, value="Failed to add remote endpoint %s to registry.")
     void failedAddEndpoint(String cacheKey, @Cause IOException ioEx);
+
+    /**
+     * circuitOpened method definition.
+     * @param endpoint endpoint
+     * @param failures failures
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 13602, value="Circuit opened for remote endpoint %s after %s consecutive failures")
+    void circuitOpened(String endpoint, int failures);
+
+    /**
+     * circuitClosed method definition.
+     * @param endpoint endpoint
+     */
+    @LogMessage(level = INFO)
+    @Message(id = 13603, value="Circuit closed for remote endpoint %s")
+    void circuitClosed(String endpoint);
+
+    /**
+     * endpointEjected method definition.
+     * @param endpoint endpoint
+     * @param reason reason
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 13604, value="Remote endpoint %s ejected from load balancing due to its %s")
+    void endpointEjected(String endpoint, String reason);
 }
@@ -1,5 +1,6 @@
 package org.switchyard.remote;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 
 import org.jboss.logging.Messages;
@@ -38,4 +39,28 @@ public interface RemoteMessages {
      */
     @Message(id = 13401, value = "Invalid URL for remote endpoint: %s")
     IllegalArgumentException invalidURLForEndpoint(String endpoint, @Cause MalformedURLException mue);
+
+    /**
+     * tooManyRequestsInFlight method definition.
+     * @param endpoint endpoint
+     * @param maxInFlight maxInFlight
+     * @return RemoteRejectedException
+     */
+    @Message(id = 13402, value = "Limit of %s requests in flight reached for remote endpoint %s")
+    RemoteRejectedException tooManyRequestsInFlight(int maxInFlight, String endpoint);
+
+    /**
+     * remoteTransportClosed method definition.
+     * @return RemoteRejectedException
+     */
+    @Message(id = 13403, value = "Remote transport has been closed")
+    RemoteRejectedException remoteTransportClosed();
+
+    /**
+     * noAvailableRemoteEndpoint method definition.
+     * @param service service
+     * @return IOException
+     */
+    @Message(id = 13404, value = "No available remote endpoints for service %s")
+    IOException noAvailableRemoteEndpoint(String service);
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request is refused on the sending side before it reaches the
+ * remote endpoint, e.g. because the transport has too many requests in flight
+ * to the endpoint or has been closed.  The endpoint itself is not at fault,
+ * so the request may safely be sent to another endpoint.
+ */
+public class RemoteRejectedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Create a new RemoteRejectedException.
+     * @param message detail message
+     */
+    public RemoteRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.Future;
+
+/**
+ * Transport used to send remote service invocations to an endpoint.
+ * Implementations are shared between invokers and must be thread-safe.
+ */
+public interface RemoteTransport {
+
+    /**
+     * Invoke a remote service and wait for the reply.
+     * @param endpoint the remote endpoint
+     * @param request message
+     * @return reply message or null if the invoked service is in-only
+     * @throws IOException remote communication failure
+     */
+    RemoteMessage invoke(URL endpoint, RemoteMessage request) throws IOException;
+
+    /**
+     * Invoke a remote service without waiting for the reply.
+     * @param endpoint the remote endpoint
+     * @param request message
+     * @param callback notified when the invocation completes, may be null
+     * @return future holding the reply message, or null if the invoked service is in-only
+     */
+    Future<RemoteMessage> invokeAsync(URL endpoint, RemoteMessage request, RemoteCallback callback);
+
+    /**
+     * Release any resources held by the transport.
+     */
+    void close();
+}
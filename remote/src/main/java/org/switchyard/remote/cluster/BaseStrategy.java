@@ -13,14 +13,22 @@
  */
 package org.switchyard.remote.cluster;
 
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.remote.RemoteEndpoint;
 import org.switchyard.remote.RemoteRegistry;
 
 /**
- * Abstract base class for LoadBalanceStrategy implementations.
+ * Abstract base class for LoadBalanceStrategy implementations.  When a
+ * {@link ClusterHealth} is set, endpoints which are unavailable or ejected
+ * as outliers are not offered to the strategy.
  */
 public abstract class BaseStrategy implements LoadBalanceStrategy {
     
     private RemoteRegistry _registry;
+    private ClusterHealth _health;
     
     @Override
     public RemoteRegistry getRegistry() {
@@ -31,4 +39,31 @@ public abstract class BaseStrategy implements LoadBalanceStrategy {
     public void setRegistry(RemoteRegistry registry) {
         _registry = registry;
     }
+
+    /**
+     * Returns the endpoint health used to filter endpoints, if any.
+     * @return endpoint health or null
+     */
+    public ClusterHealth getHealth() {
+        return _health;
+    }
+
+    /**
+     * Specifies the endpoint health used to filter endpoints.
+     * @param health endpoint health
+     */
+    public void setHealth(ClusterHealth health) {
+        _health = health;
+    }
+
+    /**
+     * Returns the registered endpoints for a service which can currently
+     * receive requests.
+     * @param serviceName service name for lookup
+     * @return available endpoints
+     */
+    protected List<RemoteEndpoint> getAvailableEndpoints(QName serviceName) {
+        List<RemoteEndpoint> eps = _registry.getEndpoints(serviceName);
+        return _health != null ? _health.getAvailable(eps) : eps;
+    }
 }
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.switchyard.remote.RemoteEndpoint;
+import org.switchyard.remote.RemoteLogger;
+
+/**
+ * Tracks the {@link EndpointHealth} of remote endpoints and filters the
+ * endpoints offered to a load balance strategy.  Endpoints whose circuit is
+ * open are never offered.  Endpoints ejected as outliers, because of a high
+ * recent error rate or a latency well above their peers, are left out for the
+ * ejection duration as long as at least one other endpoint remains.
+ * <p/>
+ * Endpoints are not told when they leave the registry, so the health of an
+ * endpoint which has not been offered or used for the idle timeout, and has
+ * no requests outstanding, is forgotten.
+ */
+public class ClusterHealth {
+
+    /** Default number of consecutive failures which opens a circuit. */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    /** Default time an open circuit rejects requests, in milliseconds. */
+    public static final long DEFAULT_OPEN_DURATION = 30000;
+    /** Default error rate above which an endpoint is ejected. */
+    public static final double DEFAULT_ERROR_RATE_THRESHOLD = 0.5;
+    /** Default multiple of the median latency above which an endpoint is ejected. */
+    public static final double DEFAULT_LATENCY_THRESHOLD = 3.0;
+    /** Default number of requests needed before an endpoint can be ejected. */
+    public static final int DEFAULT_MINIMUM_REQUESTS = 20;
+    /** Default ejection duration, in milliseconds. */
+    public static final long DEFAULT_EJECTION_DURATION = 30000;
+    /** Default time after which the health of an unused endpoint is forgotten, in milliseconds. */
+    public static final long DEFAULT_IDLE_TIMEOUT = 600000;
+
+    private final ConcurrentMap<String, EndpointHealth> _endpoints = new ConcurrentHashMap<String, EndpointHealth>();
+    private volatile int _failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private volatile long _openDuration = TimeUnit.MILLISECONDS.toNanos(DEFAULT_OPEN_DURATION);
+    private volatile double _errorRateThreshold = DEFAULT_ERROR_RATE_THRESHOLD;
+    private volatile double _latencyThreshold = DEFAULT_LATENCY_THRESHOLD;
+    private volatile int _minimumRequests = DEFAULT_MINIMUM_REQUESTS;
+    private volatile long _ejectionDuration = TimeUnit.MILLISECONDS.toNanos(DEFAULT_EJECTION_DURATION);
+    private volatile long _idleTimeout = TimeUnit.MILLISECONDS.toNanos(DEFAULT_IDLE_TIMEOUT);
+    private final AtomicLong _nextEviction = new AtomicLong(System.nanoTime() + _idleTimeout);
+
+    /**
+     * Returns the health of an endpoint, creating it on first use.
+     * @param endpoint remote endpoint
+     * @return endpoint health
+     */
+    public EndpointHealth getHealth(RemoteEndpoint endpoint) {
+        long now = System.nanoTime();
+        String address = endpoint.getEndpoint();
+        EndpointHealth health = _endpoints.get(address);
+        if (health == null) {
+            EndpointHealth created = new EndpointHealth(address, this);
+            health = _endpoints.putIfAbsent(address, created);
+            if (health == null) {
+                health = created;
+            }
+        }
+        health.touch(now);
+        long next = _nextEviction.get();
+        if (now - next >= 0 && _nextEviction.compareAndSet(next, now + _idleTimeout / 2)) {
+            evictIdle(now);
+        }
+        return health;
+    }
+
+    /**
+     * Returns the endpoints which requests may currently be sent to.
+     * @param endpoints registered endpoints
+     * @return available endpoints, which may be empty if every circuit is open
+     */
+    public List<RemoteEndpoint> getAvailable(List<RemoteEndpoint> endpoints) {
+        long now = System.nanoTime();
+        List<RemoteEndpoint> available = new ArrayList<RemoteEndpoint>(endpoints.size());
+        List<EndpointHealth> healths = new ArrayList<EndpointHealth>(endpoints.size());
+        for (RemoteEndpoint endpoint : endpoints) {
+            EndpointHealth health = getHealth(endpoint);
+            if (health.isAvailable(now)) {
+                available.add(endpoint);
+                healths.add(health);
+            }
+        }
+        ejectSlowest(healths, now);
+
+        List<RemoteEndpoint> healthy = new ArrayList<RemoteEndpoint>(available.size());
+        for (int i = 0; i < available.size(); i++) {
+            if (!healths.get(i).isEjected(now)) {
+                healthy.add(available.get(i));
+            }
+        }
+        // outlier ejection never takes out every endpoint
+        return healthy.isEmpty() ? available : healthy;
+    }
+
+    /**
+     * @return consecutive failures which open a circuit
+     */
+    public int getFailureThreshold() {
+        return _failureThreshold;
+    }
+
+    /**
+     * @param failureThreshold consecutive failures which open a circuit
+     * @return this ClusterHealth
+     */
+    public ClusterHealth setFailureThreshold(int failureThreshold) {
+        _failureThreshold = failureThreshold;
+        return this;
+    }
+
+    /**
+     * @param openDuration time in milliseconds an open circuit rejects requests
+     * @return this ClusterHealth
+     */
+    public ClusterHealth setOpenDuration(long openDuration) {
+        _openDuration = TimeUnit.MILLISECONDS.toNanos(openDuration);
+        return this;
+    }
+
+    /**
+     * @return error rate above which an endpoint is ejected
+     */
+    public double getErrorRateThreshold() {
+        return _errorRateThreshold;
+    }
+
+    /**
+     * @param errorRateThreshold error rate, between 0 and 1, above which an endpoint is ejected
+     * @return this ClusterHealth
+     */
+    public ClusterHealth setErrorRateThreshold(double errorRateThreshold) {
+        _errorRateThreshold = errorRateThreshold;
+        return this;
+    }
+
+    /**
+     * @return multiple of the median latency above which an endpoint is ejected
+     */
+    public double getLatencyThreshold() {
+        return _latencyThreshold;
+    }
+
+    /**
+     * @param latencyThreshold multiple of the median latency above which an endpoint is ejected
+     * @return this ClusterHealth
+     */
+    public ClusterHealth setLatencyThreshold(double latencyThreshold) {
+        _latencyThreshold = latencyThreshold;
+        return this;
+    }
+
+    /**
+     * @return number of requests needed before an endpoint can be ejected
+     */
+    public int getMinimumRequests() {
+        return _minimumRequests;
+    }
+
+    /**
+     * @param minimumRequests number of requests needed before an endpoint can be ejected
+     * @return this ClusterHealth
+     */
+    public ClusterHealth setMinimumRequests(int minimumRequests) {
+        _minimumRequests = minimumRequests;
+        return this;
+    }
+
+    /**
+     * @param ejectionDuration time in milliseconds an outlier is left out of load balancing
+     * @return this ClusterHealth
+     */
+    public ClusterHealth setEjectionDuration(long ejectionDuration) {
+        _ejectionDuration = TimeUnit.MILLISECONDS.toNanos(ejectionDuration);
+        return this;
+    }
+
+    /**
+     * @param idleTimeout time in milliseconds after which the health of an unused endpoint is forgotten
+     * @return this ClusterHealth
+     */
+    public ClusterHealth setIdleTimeout(long idleTimeout) {
+        _idleTimeout = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        return this;
+    }
+
+    /**
+     * Forget the health of endpoints which have been idle for the idle timeout.
+     * @param now current time in nanoseconds
+     * @return number of endpoints forgotten
+     */
+    int evictIdle(long now) {
+        int evicted = 0;
+        for (Iterator<EndpointHealth> i = _endpoints.values().iterator(); i.hasNext();) {
+            if (i.next().isIdle(now, _idleTimeout)) {
+                i.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return number of endpoints whose health is tracked
+     */
+    int size() {
+        return _endpoints.size();
+    }
+
+    long getOpenDurationNanos() {
+        return _openDuration;
+    }
+
+    long getEjectionDurationNanos() {
+        return _ejectionDuration;
+    }
+
+    // ejects endpoints whose latency is far above the median of their peers;
+    // needs at least three endpoints with enough requests to be meaningful
+    private void ejectSlowest(List<EndpointHealth> healths, long now) {
+        List<EndpointHealth> sampled = new ArrayList<EndpointHealth>(healths.size());
+        for (EndpointHealth health : healths) {
+            if (health.getSamples() >= _minimumRequests && !health.isEjected(now)) {
+                sampled.add(health);
+            }
+        }
+        if (sampled.size() < 3) {
+            return;
+        }
+        double[] latencies = new double[sampled.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = sampled.get(i).getLatency();
+        }
+        Arrays.sort(latencies);
+        double limit = latencies[latencies.length / 2] * _latencyThreshold;
+        for (EndpointHealth health : sampled) {
+            if (health.getLatency() > limit && health.eject(now)) {
+                RemoteLogger.ROOT_LOGGER.endpointEjected(health.getAddress(), "latency");
+            }
+        }
+    }
+}
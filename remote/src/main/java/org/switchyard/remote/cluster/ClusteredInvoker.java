@@ -14,21 +14,51 @@
 package org.switchyard.remote.cluster;
 
 import java.io.IOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
 
+import org.jboss.logging.Logger;
 import org.switchyard.remote.RemoteEndpoint;
 import org.switchyard.remote.RemoteInvoker;
 import org.switchyard.remote.RemoteMessage;
 import org.switchyard.remote.RemoteMessages;
 import org.switchyard.remote.RemoteRegistry;
+import org.switchyard.remote.RemoteRejectedException;
+import org.switchyard.remote.RemoteTransport;
 import org.switchyard.remote.http.HttpInvoker;
 
 /**
  * Cluster-aware implementation of RemoteInvoker which uses a load balance strategy in 
  * combination with a remote registry to invoke remote services.
+ * <p/>
+ * Each endpoint has a circuit breaker tracked in a {@link ClusterHealth}: calls
+ * to an endpoint whose circuit is open are not attempted.  When a call fails
+ * it is retried on another endpoint, up to the configured number of retries,
+ * if the request never reached the failed endpoint or the request is marked
+ * as idempotent with the {@link #IDEMPOTENT} context property.  A request the
+ * transport refuses locally ({@link RemoteRejectedException}) goes to the next
+ * endpoint without counting against the health of the one it was meant for.
  */
 public class ClusteredInvoker implements RemoteInvoker {
     
+    /**
+     * Context property which marks a request as safe to send more than once.
+     */
+    public static final String IDEMPOTENT = "org.switchyard.remote.idempotent";
+    /**
+     * Default number of times a failed call is retried on another endpoint.
+     */
+    public static final int DEFAULT_MAX_RETRIES = 2;
+
+    private static Logger _log = Logger.getLogger(ClusteredInvoker.class);
     private LoadBalanceStrategy _loadBalancer;
+    private RemoteRegistry _registry;
+    private ClusterHealth _health = new ClusterHealth();
+    private RemoteTransport _transport = HttpInvoker.getDefaultTransport();
+    private int _maxRetries = DEFAULT_MAX_RETRIES;
     
     /**
      * Create a new ClusteredInvoker with the default load balance strategy (RoundRobin).
@@ -44,17 +74,135 @@ public class ClusteredInvoker implements RemoteInvoker {
      * @param loadBalancer load balance strategy
      */
     public ClusteredInvoker(RemoteRegistry registry, LoadBalanceStrategy loadBalancer) {
+        _registry = registry;
         _loadBalancer = loadBalancer;
         _loadBalancer.setRegistry(registry);
+        if (_loadBalancer instanceof BaseStrategy) {
+            ((BaseStrategy)_loadBalancer).setHealth(_health);
+        }
+    }
+
+    /**
+     * Returns the health of the endpoints used by this invoker.
+     * @return endpoint health
+     */
+    public ClusterHealth getHealth() {
+        return _health;
+    }
+
+    /**
+     * Specifies the transport used to send requests.
+     * @param transport remote transport
+     * @return reference to this ClusteredInvoker
+     */
+    public ClusteredInvoker setTransport(RemoteTransport transport) {
+        _transport = transport;
+        return this;
+    }
+
+    /**
+     * Specifies the number of times a failed call is retried on another endpoint.
+     * @param maxRetries maximum number of retries
+     * @return reference to this ClusteredInvoker
+     */
+    public ClusteredInvoker setMaxRetries(int maxRetries) {
+        _maxRetries = maxRetries;
+        return this;
     }
     
     @Override
     public RemoteMessage invoke(RemoteMessage request) throws IOException {
-        RemoteEndpoint ep = _loadBalancer.selectEndpoint(request.getService());
-        if (ep == null) {
-            throw RemoteMessages.MESSAGES.noRemoteEndpointFound(request.getService().toString());
+        boolean idempotent = isIdempotent(request);
+        Set<String> attempted = new HashSet<String>();
+        IOException failure = null;
+        int retries = 0;
+        while (true) {
+            RemoteEndpoint ep = selectEndpoint(request, attempted);
+            if (ep == null) {
+                break;
+            }
+            attempted.add(ep.getEndpoint());
+            // a bad address fails before the endpoint is reserved
+            URL url = toURL(ep);
+            EndpointHealth health = _health.getHealth(ep);
+            if (!health.tryAcquire(System.nanoTime())) {
+                // circuit opened since the endpoint was selected; nothing was sent
+                continue;
+            }
+            long start = System.nanoTime();
+            // every way out of the call gives the reservation back, so an
+            // unexpected exception cannot leave a half-open circuit probing
+            boolean settled = false;
+            try {
+                RemoteMessage reply = _transport.invoke(url, request);
+                long now = System.nanoTime();
+                settled = true;
+                health.completed(now - start, now);
+                return reply;
+            } catch (RemoteRejectedException rejectedEx) {
+                // refused before it was sent, so the endpoint is not at fault
+                settled = true;
+                health.release();
+                failure = rejectedEx;
+                if (retries++ >= _maxRetries) {
+                    throw rejectedEx;
+                }
+                if (_log.isDebugEnabled()) {
+                    _log.debug("Request for " + request.getService() + " refused locally for " + ep.getEndpoint(), rejectedEx);
+                }
+            } catch (IOException ioEx) {
+                settled = true;
+                health.failed(System.nanoTime());
+                failure = ioEx;
+                if (!(idempotent || ioEx instanceof ConnectException) || retries++ >= _maxRetries) {
+                    throw ioEx;
+                }
+                if (_log.isDebugEnabled()) {
+                    _log.debug("Retrying " + request.getService() + " after failure at " + ep.getEndpoint(), ioEx);
+                }
+            } finally {
+                if (!settled) {
+                    health.failed(System.nanoTime());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (!attempted.isEmpty() || !_registry.getEndpoints(request.getService()).isEmpty()) {
+            throw RemoteMessages.MESSAGES.noAvailableRemoteEndpoint(request.getService().toString());
+        }
+        throw RemoteMessages.MESSAGES.noRemoteEndpointFound(request.getService().toString());
+    }
+
+    // asks the strategy for an endpoint which has not been tried for this request
+    private RemoteEndpoint selectEndpoint(RemoteMessage request, Set<String> attempted) {
+        int candidates = _registry.getEndpoints(request.getService()).size();
+        for (int i = 0; i <= candidates * 2; i++) {
+            RemoteEndpoint ep = _loadBalancer.selectEndpoint(request.getService());
+            if (ep == null) {
+                return null;
+            }
+            if (!attempted.contains(ep.getEndpoint())) {
+                return ep;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIdempotent(RemoteMessage request) {
+        if (request.getContext() == null) {
+            return false;
+        }
+        Object value = request.getContext().getPropertyValue(IDEMPOTENT);
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    private static URL toURL(RemoteEndpoint ep) {
+        try {
+            return new URL(ep.getEndpoint());
+        } catch (MalformedURLException badURL) {
+            throw RemoteMessages.MESSAGES.invalidURLForEndpoint(ep.getEndpoint(), badURL);
         }
-        return new HttpInvoker(ep.getEndpoint()).invoke(request);
     }
-    
 }
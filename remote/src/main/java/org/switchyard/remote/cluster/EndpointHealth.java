@@ -0,0 +1,248 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote.cluster;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.switchyard.remote.RemoteLogger;
+
+/**
+ * Health of a single remote endpoint, as seen by this node.  Tracks a circuit
+ * breaker, the number of requests outstanding, and exponentially weighted
+ * averages of the recent error rate and latency which are used for outlier
+ * ejection and latency-aware load balancing.
+ */
+public class EndpointHealth {
+
+    /**
+     * States of the endpoint's circuit breaker.
+     */
+    public enum CircuitState {
+        /** Requests flow normally. */
+        CLOSED,
+        /** Requests are rejected until the open duration has passed. */
+        OPEN,
+        /** A single probe request is allowed to test the endpoint. */
+        HALF_OPEN
+    }
+
+    // weight of the newest sample in the moving averages
+    private static final double ALPHA = 0.2;
+
+    private final String _address;
+    private final ClusterHealth _cluster;
+    private final AtomicInteger _outstanding = new AtomicInteger();
+    private CircuitState _state = CircuitState.CLOSED;
+    private int _consecutiveFailures;
+    private long _openedAt;
+    private boolean _probing;
+    private long _ejectedUntil;
+    private volatile long _lastUsed;
+    private long _samples;
+    private double _errorRate;
+    private double _latency;
+
+    EndpointHealth(String address, ClusterHealth cluster) {
+        _address = address;
+        _cluster = cluster;
+        _lastUsed = System.nanoTime();
+    }
+
+    /**
+     * @return the endpoint address
+     */
+    public String getAddress() {
+        return _address;
+    }
+
+    /**
+     * @return the current state of the circuit breaker
+     */
+    public synchronized CircuitState getState() {
+        return _state;
+    }
+
+    /**
+     * @return the number of requests which have been sent and not yet completed
+     */
+    public int getOutstanding() {
+        return _outstanding.get();
+    }
+
+    /**
+     * @return moving average of request latency in nanoseconds
+     */
+    public synchronized double getLatency() {
+        return _latency;
+    }
+
+    /**
+     * @return moving average of the fraction of requests which failed
+     */
+    public synchronized double getErrorRate() {
+        return _errorRate;
+    }
+
+    /**
+     * Whether requests may be sent to this endpoint.  Does not change state.
+     * @param now current time in nanoseconds
+     * @return true if the endpoint can be selected
+     */
+    public synchronized boolean isAvailable(long now) {
+        switch (_state) {
+        case OPEN:
+            return now - _openedAt >= _cluster.getOpenDurationNanos();
+        case HALF_OPEN:
+            return !_probing;
+        default:
+            return true;
+        }
+    }
+
+    /**
+     * Whether the endpoint is currently ejected as an outlier.
+     * @param now current time in nanoseconds
+     * @return true if ejected
+     */
+    public synchronized boolean isEjected(long now) {
+        return _ejectedUntil != 0 && now - _ejectedUntil < 0;
+    }
+
+    /**
+     * Reserve the endpoint for a request.  An open circuit moves to half-open
+     * once its open duration has passed, letting one probe request through.
+     * @param now current time in nanoseconds
+     * @return true if the request may be sent, in which case completed() or
+     * failed() must be called when it finishes, or release() if it was not
+     * sent after all
+     */
+    public boolean tryAcquire(long now) {
+        synchronized (this) {
+            if (_state == CircuitState.OPEN) {
+                if (now - _openedAt < _cluster.getOpenDurationNanos()) {
+                    return false;
+                }
+                _state = CircuitState.HALF_OPEN;
+            }
+            if (_state == CircuitState.HALF_OPEN) {
+                if (_probing) {
+                    return false;
+                }
+                _probing = true;
+            }
+        }
+        _outstanding.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Record a request which completed.
+     * @param latency time taken in nanoseconds
+     * @param now current time in nanoseconds
+     */
+    public void completed(long latency, long now) {
+        _outstanding.decrementAndGet();
+        boolean closed;
+        synchronized (this) {
+            closed = _state != CircuitState.CLOSED;
+            _state = CircuitState.CLOSED;
+            _probing = false;
+            _consecutiveFailures = 0;
+            _latency = _samples == 0 ? latency : _latency + ALPHA * (latency - _latency);
+            sample(0, now);
+        }
+        if (closed) {
+            RemoteLogger.ROOT_LOGGER.circuitClosed(_address);
+        }
+    }
+
+    /**
+     * Give back a reservation for a request which was never sent, e.g.
+     * because it was refused locally.  Nothing is recorded against the
+     * endpoint, and a half-open circuit may be probed by the next request.
+     */
+    public void release() {
+        _outstanding.decrementAndGet();
+        synchronized (this) {
+            _probing = false;
+        }
+    }
+
+    /**
+     * Record a request which failed.
+     * @param now current time in nanoseconds
+     */
+    public void failed(long now) {
+        _outstanding.decrementAndGet();
+        boolean opened = false;
+        synchronized (this) {
+            _consecutiveFailures++;
+            if (_state == CircuitState.HALF_OPEN
+                    || (_state == CircuitState.CLOSED && _consecutiveFailures >= _cluster.getFailureThreshold())) {
+                opened = _state == CircuitState.CLOSED;
+                _state = CircuitState.OPEN;
+                _openedAt = now;
+            }
+            _probing = false;
+            sample(1, now);
+        }
+        if (opened) {
+            RemoteLogger.ROOT_LOGGER.circuitOpened(_address, _cluster.getFailureThreshold());
+        }
+    }
+
+    // an endpoint is in use while it is offered to a strategy or reserved
+    void touch(long now) {
+        _lastUsed = now;
+    }
+
+    // idle endpoints with nothing outstanding may be forgotten
+    boolean isIdle(long now, long idleTimeout) {
+        return _outstanding.get() == 0 && now - _lastUsed >= idleTimeout;
+    }
+
+    /**
+     * Eject the endpoint from load balancing for the cluster's ejection duration.
+     * @param now current time in nanoseconds
+     * @return true if the endpoint was ejected, false if it already was
+     */
+    synchronized boolean eject(long now) {
+        if (isEjected(now)) {
+            return false;
+        }
+        _ejectedUntil = now + _cluster.getEjectionDurationNanos();
+        // start over once the ejection ends
+        _samples = 0;
+        _errorRate = 0;
+        _latency = 0;
+        return true;
+    }
+
+    /**
+     * @return the number of requests in the moving averages
+     */
+    synchronized long getSamples() {
+        return _samples;
+    }
+
+    private void sample(double error, long now) {
+        _errorRate = _samples == 0 ? error : _errorRate + ALPHA * (error - _errorRate);
+        _samples++;
+        if (_samples >= _cluster.getMinimumRequests()
+                && _errorRate > _cluster.getErrorRateThreshold() && eject(now)) {
+            RemoteLogger.ROOT_LOGGER.endpointEjected(_address, "error rate");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote.cluster;
+
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.remote.RemoteEndpoint;
+
+/**
+ * Least outstanding requests load balancing strategy.  Selects the available
+ * endpoint with the fewest requests in flight from this node, choosing at
+ * random between endpoints which are tied.  Requires a {@link ClusterHealth}
+ * to track outstanding requests; without one it behaves like RandomStrategy.
+ */
+public class LeastOutstandingStrategy extends BaseStrategy {
+
+    private Random _random = new Random();
+
+    /**
+     * Create a new LeastOutstandingStrategy.
+     */
+    public LeastOutstandingStrategy() {
+        super();
+    }
+
+    @Override
+    public RemoteEndpoint selectEndpoint(QName serviceName) {
+        if (getRegistry() == null) {
+            return null;
+        }
+
+        RemoteEndpoint selectedEp = null;
+        List<RemoteEndpoint> eps = getAvailableEndpoints(serviceName);
+        int least = Integer.MAX_VALUE;
+        int ties = 0;
+        for (RemoteEndpoint ep : eps) {
+            int outstanding = getHealth() != null ? getHealth().getHealth(ep).getOutstanding() : 0;
+            if (outstanding < least) {
+                least = outstanding;
+                selectedEp = ep;
+                ties = 1;
+            } else if (outstanding == least && _random.nextInt(++ties) == 0) {
+                // reservoir sampling keeps the choice among ties uniform
+                selectedEp = ep;
+            }
+        }
+
+        return selectedEp;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote.cluster;
+
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.remote.RemoteEndpoint;
+
+/**
+ * Power of two choices load balancing strategy.  Picks two available
+ * endpoints at random and selects the one with the lower load, where load is
+ * the endpoint's average latency weighted by its outstanding requests.  This
+ * steers traffic away from slow endpoints without the herd behaviour of
+ * always choosing the least loaded one.  Requires a {@link ClusterHealth} to
+ * track load; without one it behaves like RandomStrategy.
+ */
+public class PowerOfTwoChoicesStrategy extends BaseStrategy {
+
+    private Random _random = new Random();
+
+    /**
+     * Create a new PowerOfTwoChoicesStrategy.
+     */
+    public PowerOfTwoChoicesStrategy() {
+        super();
+    }
+
+    @Override
+    public RemoteEndpoint selectEndpoint(QName serviceName) {
+        if (getRegistry() == null) {
+            return null;
+        }
+
+        List<RemoteEndpoint> eps = getAvailableEndpoints(serviceName);
+        if (eps.isEmpty()) {
+            return null;
+        } else if (eps.size() == 1) {
+            return eps.get(0);
+        }
+        int first = _random.nextInt(eps.size());
+        int second = _random.nextInt(eps.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        RemoteEndpoint a = eps.get(first);
+        RemoteEndpoint b = eps.get(second);
+        return load(b) < load(a) ? b : a;
+    }
+
+    private double load(RemoteEndpoint ep) {
+        if (getHealth() == null) {
+            return 0;
+        }
+        EndpointHealth health = getHealth().getHealth(ep);
+        // endpoints without samples yet are treated as fast so they get traffic
+        return (health.getLatency() + 1) * (health.getOutstanding() + 1);
+    }
+}
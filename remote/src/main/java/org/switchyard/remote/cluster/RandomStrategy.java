@@ -42,7 +42,7 @@ public class RandomStrategy extends BaseStrategy {
         }
         
         RemoteEndpoint selectedEp = null;
-        List<RemoteEndpoint> eps = getRegistry().getEndpoints(serviceName);
+        List<RemoteEndpoint> eps = getAvailableEndpoints(serviceName);
         if (!eps.isEmpty()) {
             int idx = _random.nextInt(Integer.MAX_VALUE) % eps.size();
             selectedEp = eps.get(idx);
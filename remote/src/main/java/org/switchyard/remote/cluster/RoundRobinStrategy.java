@@ -46,7 +46,7 @@ public class RoundRobinStrategy extends BaseStrategy {
             return null;
         }
         RemoteEndpoint selectedEp = null;
-        List<RemoteEndpoint> eps = getRegistry().getEndpoints(serviceName);
+        List<RemoteEndpoint> eps = getAvailableEndpoints(serviceName);
         if (!eps.isEmpty()) {
             _endpointIdxs.putIfAbsent(serviceName, new AtomicInteger(0));
             AtomicInteger idx = _endpointIdxs.get(serviceName);
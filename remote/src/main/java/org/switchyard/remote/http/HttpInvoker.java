@@ -13,23 +13,21 @@
  */
 package org.switchyard.remote.http;
 
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.concurrent.Future;
 
 import org.jboss.logging.Logger;
-import org.switchyard.Property;
+import org.switchyard.remote.RemoteCallback;
 import org.switchyard.remote.RemoteInvoker;
 import org.switchyard.remote.RemoteMessage;
 import org.switchyard.remote.RemoteMessages;
-import org.switchyard.serial.FormatType;
-import org.switchyard.serial.Serializer;
-import org.switchyard.serial.SerializerFactory;
+import org.switchyard.remote.RemoteTransport;
 
 /**
- * Remote service invoker which uses HTTP as a transport.
+ * Remote service invoker which uses HTTP as a transport.  Unless a transport
+ * is specified, all invokers share a single {@link HttpTransport} so that
+ * connections and in-flight limits are shared per endpoint.
  */
 public class HttpInvoker implements RemoteInvoker {
     
@@ -39,7 +37,8 @@ public class HttpInvoker implements RemoteInvoker {
     public static final String SERVICE_HEADER = "switchyard-service";
 
     private static Logger _log = Logger.getLogger(HttpInvoker.class);
-    private Serializer _serializer = SerializerFactory.create(FormatType.JSON, null, true);
+    private static RemoteTransport _defaultTransport;
+    private RemoteTransport _transport;
     private URL _endpoint;
     
     /**
@@ -47,11 +46,7 @@ public class HttpInvoker implements RemoteInvoker {
      * @param endpoint url string
      */
     public HttpInvoker(String endpoint) {
-        try {
-            _endpoint = new URL(endpoint);
-        } catch (MalformedURLException badURL) {
-            throw RemoteMessages.MESSAGES.invalidURLForEndpoint(endpoint, badURL);
-        }
+        this(toURL(endpoint), getDefaultTransport());
     }
     
     /**
@@ -59,49 +54,56 @@ public class HttpInvoker implements RemoteInvoker {
      * @param endpoint the endpoint URL
      */
     public HttpInvoker(URL endpoint) {
+        this(endpoint, getDefaultTransport());
+    }
+
+    /**
+     * Create a new HttpInvoker with the specified URL and transport.
+     * @param endpoint the endpoint URL
+     * @param transport transport used to send requests
+     */
+    public HttpInvoker(URL endpoint, RemoteTransport transport) {
         _endpoint = endpoint;
+        _transport = transport;
     }
 
     @Override
     public RemoteMessage invoke(RemoteMessage request) throws java.io.IOException {
-        RemoteMessage reply = null;
-        HttpURLConnection conn = null;
-        
         if (_log.isDebugEnabled()) {
             _log.debug("Invoking " + request.getService() + " at endpoint " + _endpoint.toString());
         }
-        
-        // Initialize HTTP connection
-        conn = (HttpURLConnection)_endpoint.openConnection();
-        conn.setDoOutput(true);
-        conn.addRequestProperty(SERVICE_HEADER, request.getService().toString());
-        for (Property prop : request.getContext().getProperties(HttpInvokerLabel.HEADER.label())) {
-            conn.addRequestProperty(prop.getName(), prop.getValue().toString());
+        return _transport.invoke(_endpoint, request);
+    }
+
+    /**
+     * Invoke a remote service without waiting for the reply.
+     * @param request message
+     * @param callback notified when the invocation completes, may be null
+     * @return future holding the reply message, or null if the invoked service is in-only
+     */
+    public Future<RemoteMessage> invokeAsync(RemoteMessage request, RemoteCallback callback) {
+        if (_log.isDebugEnabled()) {
+            _log.debug("Invoking " + request.getService() + " asynchronously at endpoint " + _endpoint.toString());
+        }
+        return _transport.invokeAsync(_endpoint, request, callback);
+    }
+
+    /**
+     * Returns the transport shared by invokers created without one.
+     * @return the default transport
+     */
+    public static synchronized RemoteTransport getDefaultTransport() {
+        if (_defaultTransport == null) {
+            _defaultTransport = new HttpTransport();
         }
-        
-        conn.connect();
-        OutputStream os = conn.getOutputStream();
+        return _defaultTransport;
+    }
+
+    private static URL toURL(String endpoint) {
         try {
-        // Write the request message
-            _serializer.serialize(request, RemoteMessage.class, os);
-            os.flush();
-        } finally { 
-            os.close();
-        }
-        
-        // Check for response and process accordingly
-        if (conn.getResponseCode() == 200) {
-            if (_log.isDebugEnabled()) {
-                _log.debug("Processing reply for service " + request.getService());
-            }
-            InputStream is = conn.getInputStream();
-            try {
-                reply = _serializer.deserialize(is, RemoteMessage.class);
-            } finally {
-                is.close();
-            }
+            return new URL(endpoint);
+        } catch (MalformedURLException badURL) {
+            throw RemoteMessages.MESSAGES.invalidURLForEndpoint(endpoint, badURL);
         }
-        
-        return reply;
     }
 }
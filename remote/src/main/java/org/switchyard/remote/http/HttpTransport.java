@@ -0,0 +1,405 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.switchyard.Property;
+import org.switchyard.remote.RemoteCallback;
+import org.switchyard.remote.RemoteMessage;
+import org.switchyard.remote.RemoteMessages;
+import org.switchyard.remote.RemoteTransport;
+import org.switchyard.runtime.trace.Span;
+import org.switchyard.runtime.trace.Tracer;
+import org.switchyard.serial.FormatType;
+import org.switchyard.serial.Serializer;
+import org.switchyard.serial.SerializerFactory;
+
+/**
+ * Default RemoteTransport, which sends invocations as HTTP POST requests.
+ * <p/>
+ * Connections are kept alive and reused through the JVM's per-destination
+ * HTTP keep-alive cache; every response is read to the end so the connection
+ * can go back to the cache.  Connect and read timeouts apply to every request,
+ * and the number of requests in flight to a single endpoint is bounded.
+ * Asynchronous invocations run on a pool of daemon threads owned by the
+ * transport.
+ * <p/>
+ * When the invoking thread is traced, each invocation is timed in a "remote"
+ * child span, and the request carries that span in its
+ * {@link Tracer#TRACE_PARENT} context property so the remote exchange joins
+ * the trace.  Every invoker using the transport is traced this way.
+ */
+public class HttpTransport implements RemoteTransport {
+
+    /**
+     * System property for the connect timeout in milliseconds.
+     */
+    public static final String CONNECT_TIMEOUT = "org.switchyard.remote.http.connectTimeout";
+    /**
+     * System property for the read timeout in milliseconds.
+     */
+    public static final String READ_TIMEOUT = "org.switchyard.remote.http.readTimeout";
+    /**
+     * System property for the maximum number of requests in flight per endpoint.
+     */
+    public static final String MAX_IN_FLIGHT = "org.switchyard.remote.http.maxInFlight";
+    /**
+     * Default connect timeout in milliseconds.
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    /**
+     * Default read timeout in milliseconds.
+     */
+    public static final int DEFAULT_READ_TIMEOUT = 120000;
+    /**
+     * Default maximum number of requests in flight per endpoint.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 50;
+
+    private static Logger _log = Logger.getLogger(HttpTransport.class);
+    private Serializer _serializer = SerializerFactory.create(FormatType.JSON, null, true);
+    private final int _connectTimeout;
+    private final int _readTimeout;
+    private final int _maxInFlight;
+    private final ConcurrentMap<String, Semaphore> _inFlight = new ConcurrentHashMap<String, Semaphore>();
+    private ExecutorService _executor;
+    private volatile boolean _closed;
+
+    /**
+     * Create a new HttpTransport with settings taken from system properties,
+     * or the defaults if they are not set.
+     */
+    public HttpTransport() {
+        this(Integer.getInteger(CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT),
+                Integer.getInteger(READ_TIMEOUT, DEFAULT_READ_TIMEOUT),
+                Integer.getInteger(MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT));
+    }
+
+    /**
+     * Create a new HttpTransport.
+     * @param connectTimeout connect timeout in milliseconds, 0 waits indefinitely
+     * @param readTimeout read timeout in milliseconds, 0 waits indefinitely
+     * @param maxInFlight maximum number of requests in flight per endpoint
+     */
+    public HttpTransport(int connectTimeout, int readTimeout, int maxInFlight) {
+        _connectTimeout = connectTimeout;
+        _readTimeout = readTimeout;
+        _maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * @return the connect timeout in milliseconds
+     */
+    public int getConnectTimeout() {
+        return _connectTimeout;
+    }
+
+    /**
+     * @return the read timeout in milliseconds
+     */
+    public int getReadTimeout() {
+        return _readTimeout;
+    }
+
+    /**
+     * @return the maximum number of requests in flight per endpoint
+     */
+    public int getMaxInFlight() {
+        return _maxInFlight;
+    }
+
+    @Override
+    public RemoteMessage invoke(URL endpoint, RemoteMessage request) throws IOException {
+        Span span = startSpan(endpoint, request);
+        if (span == null) {
+            return invokeUntraced(endpoint, request);
+        }
+        try {
+            RemoteMessage reply = invokeUntraced(endpoint, request);
+            span.setFault(reply != null && reply.isFault());
+            return reply;
+        } catch (IOException ioEx) {
+            span.setFault(true).setAttribute("error", ioEx.getClass().getName());
+            throw ioEx;
+        } finally {
+            span.finish();
+        }
+    }
+
+    private RemoteMessage invokeUntraced(URL endpoint, RemoteMessage request) throws IOException {
+        if (_closed) {
+            throw RemoteMessages.MESSAGES.remoteTransportClosed();
+        }
+        // callers wait for a free slot as long as they would wait to connect
+        Semaphore inFlight = getInFlight(endpoint);
+        boolean acquired;
+        try {
+            acquired = _connectTimeout > 0
+                    ? inFlight.tryAcquire(_connectTimeout, TimeUnit.MILLISECONDS)
+                    : acquire(inFlight);
+        } catch (InterruptedException iEx) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw RemoteMessages.MESSAGES.tooManyRequestsInFlight(_maxInFlight, endpoint.toString());
+        }
+        try {
+            return send(endpoint, request);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    @Override
+    public Future<RemoteMessage> invokeAsync(final URL endpoint, final RemoteMessage request, RemoteCallback callback) {
+        // the span is started on the invoking thread and finished by the
+        // invocation once the reply or failure arrives
+        Span span = startSpan(endpoint, request);
+        final Semaphore inFlight = getInFlight(endpoint);
+        if (_closed) {
+            return failed(RemoteMessages.MESSAGES.remoteTransportClosed(), callback, span);
+        }
+        // asynchronous callers never wait for a slot
+        if (!inFlight.tryAcquire()) {
+            return failed(RemoteMessages.MESSAGES.tooManyRequestsInFlight(_maxInFlight, endpoint.toString()), 
+                    callback, span);
+        }
+        Invocation invocation = new Invocation(new Callable<RemoteMessage>() {
+            @Override
+            public RemoteMessage call() throws Exception {
+                try {
+                    return send(endpoint, request);
+                } finally {
+                    inFlight.release();
+                }
+            }
+        }, callback, span);
+        try {
+            getExecutor().execute(invocation);
+        } catch (RejectedExecutionException reEx) {
+            inFlight.release();
+            return failed(RemoteMessages.MESSAGES.remoteTransportClosed(), callback, span);
+        }
+        return invocation;
+    }
+
+    @Override
+    public synchronized void close() {
+        _closed = true;
+        if (_executor != null) {
+            _executor.shutdown();
+        }
+    }
+
+    // starts a span for the invocation if the invoking thread is traced
+    private static Span startSpan(URL endpoint, RemoteMessage request) {
+        Span span = Tracer.startChild("remote");
+        if (span != null) {
+            span.setAttribute("service", request.getService()).setAttribute("endpoint", endpoint);
+            if (request.getContext() != null) {
+                request.getContext().setProperty(Tracer.TRACE_PARENT, span.getTraceParent());
+            }
+        }
+        return span;
+    }
+
+    private RemoteMessage send(URL endpoint, RemoteMessage request) throws IOException {
+        byte[] body = _serializer.serialize(request, RemoteMessage.class);
+
+        // Initialize HTTP connection
+        HttpURLConnection conn = (HttpURLConnection)endpoint.openConnection();
+        conn.setConnectTimeout(_connectTimeout);
+        conn.setReadTimeout(_readTimeout);
+        conn.setUseCaches(false);
+        conn.setDoOutput(true);
+        conn.setRequestMethod("POST");
+        conn.setFixedLengthStreamingMode(body.length);
+        conn.addRequestProperty(HttpInvoker.SERVICE_HEADER, request.getService().toString());
+        for (Property prop : request.getContext().getProperties(HttpInvokerLabel.HEADER.label())) {
+            conn.addRequestProperty(prop.getName(), prop.getValue().toString());
+        }
+
+        try {
+            OutputStream os = conn.getOutputStream();
+            try {
+                // Write the request message
+                os.write(body);
+                os.flush();
+            } finally {
+                os.close();
+            }
+
+            // Check for response and process accordingly
+            int responseCode = conn.getResponseCode();
+            if (responseCode != 200) {
+                drain(responseCode >= 400 ? conn.getErrorStream() : conn.getInputStream());
+                return null;
+            }
+            if (_log.isDebugEnabled()) {
+                _log.debug("Processing reply for service " + request.getService());
+            }
+            InputStream is = conn.getInputStream();
+            try {
+                return _serializer.deserialize(is, RemoteMessage.class);
+            } finally {
+                drain(is);
+            }
+        } catch (IOException ioEx) {
+            // reading the error body lets the connection be reused
+            drain(conn.getErrorStream());
+            throw ioEx;
+        }
+    }
+
+    private Semaphore getInFlight(URL endpoint) {
+        String key = endpoint.getProtocol() + "://" + endpoint.getAuthority();
+        Semaphore inFlight = _inFlight.get(key);
+        if (inFlight == null) {
+            Semaphore created = new Semaphore(_maxInFlight);
+            inFlight = _inFlight.putIfAbsent(key, created);
+            if (inFlight == null) {
+                inFlight = created;
+            }
+        }
+        return inFlight;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (_closed) {
+            throw new RejectedExecutionException();
+        }
+        if (_executor == null) {
+            _executor = Executors.newCachedThreadPool(new InvokerThreadFactory());
+        }
+        return _executor;
+    }
+
+    private static boolean acquire(Semaphore semaphore) throws InterruptedException {
+        semaphore.acquire();
+        return true;
+    }
+
+    private static Future<RemoteMessage> failed(final IOException cause, RemoteCallback callback, Span span) {
+        Invocation invocation = new Invocation(new Callable<RemoteMessage>() {
+            @Override
+            public RemoteMessage call() throws Exception {
+                throw cause;
+            }
+        }, callback, span);
+        invocation.run();
+        return invocation;
+    }
+
+    private static void drain(InputStream is) {
+        if (is == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[1024];
+            while (is.read(buffer) >= 0) {
+                continue;
+            }
+        } catch (IOException ioEx) {
+            _log.debug("Failed to read remaining response", ioEx);
+        } finally {
+            try {
+                is.close();
+            } catch (IOException ioEx) {
+                _log.debug("Failed to close response stream", ioEx);
+            }
+        }
+    }
+
+    // finishes the span and notifies the callback, if any, once the
+    // invocation is done
+    private static class Invocation extends FutureTask<RemoteMessage> {
+        private final RemoteCallback _callback;
+        private final Span _span;
+
+        Invocation(Callable<RemoteMessage> call, RemoteCallback callback, Span span) {
+            super(call);
+            _callback = callback;
+            _span = span;
+        }
+
+        @Override
+        protected void done() {
+            if (_callback == null && _span == null) {
+                return;
+            }
+            RemoteMessage reply = null;
+            Throwable failure = null;
+            try {
+                reply = get();
+            } catch (ExecutionException eEx) {
+                failure = eEx.getCause();
+            } catch (Exception ex) {
+                // cancelled or interrupted
+                failure = ex;
+            }
+            if (_span != null) {
+                if (failure != null) {
+                    _span.setFault(true).setAttribute("error", failure.getClass().getName());
+                } else {
+                    _span.setFault(reply != null && reply.isFault());
+                }
+                _span.finish();
+            }
+            if (_callback == null) {
+                return;
+            }
+            try {
+                if (failure == null) {
+                    _callback.replied(reply);
+                } else {
+                    _callback.failed(failure);
+                }
+            } catch (RuntimeException rtEx) {
+                _log.debug("Remote invocation callback threw exception", rtEx);
+            }
+        }
+    }
+
+    private static class InvokerThreadFactory implements ThreadFactory {
+        private final AtomicInteger _count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "SwitchYard-HttpTransport-" + _count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -14,15 +14,27 @@
 package org.switchyard.remote.infinispan;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.namespace.QName;
 
 import org.jboss.logging.Logger;
 import org.infinispan.Cache;
 import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntriesEvicted;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntriesEvictedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
 import org.infinispan.notifications.cachemanagerlistener.annotation.ViewChanged;
 import org.infinispan.notifications.cachemanagerlistener.event.ViewChangedEvent;
 import org.infinispan.remoting.transport.Address;
@@ -37,6 +49,10 @@ import org.switchyard.serial.SerializerFactory;
  * Implementation of a distributed registry based on a replicated cache in Infinispan.
  * This class provides an implementation of the RemoteRegistry contract as well as a group
  * membership listener to detect node failures and remove endpoint registrations from that node.
+ * <p/>
+ * Endpoints are deserialized once, when their cache entry is written, and kept in a local
+ * index by service name which is updated by a cache listener.  Lookups return the pre-built,
+ * unmodifiable endpoint list for the service without touching the cache.
  */
 public class InfinispanRegistry implements RemoteRegistry {
 
@@ -47,6 +63,13 @@ public class InfinispanRegistry implements RemoteRegistry {
     private String _nodeName;
     private Cache<String, String> _serviceCache;
     private Serializer _serializer;
+    // endpoint lists by service name, replaced whenever a registration for the service changes
+    private final ConcurrentMap<QName, List<RemoteEndpoint>> _endpoints =
+            new ConcurrentHashMap<QName, List<RemoteEndpoint>>();
+    // cached registrations by cache key and by service, guarded by _entries
+    private final Map<String, CachedEndpoint> _entries = new HashMap<String, CachedEndpoint>();
+    private final Map<QName, Map<String, RemoteEndpoint>> _entriesByService = 
+            new HashMap<QName, Map<String, RemoteEndpoint>>();
     
     /**
      * Create a new InfinispanRegistry using the specified replicated cache.
@@ -58,6 +81,16 @@ public class InfinispanRegistry implements RemoteRegistry {
     
         serviceCache.getCacheManager().addListener(new MemberDropListener());
         _nodeName = serviceCache.getCacheManager().getAddress().toString();
+        
+        // listen before loading so no registration is missed in between
+        serviceCache.addListener(new EndpointListener());
+        for (String key : serviceCache.keySet()) {
+            String epStr = serviceCache.get(key);
+            // Catch a race condition where entry has been removed since keySet list was built
+            if (epStr != null) {
+                entryWritten(key, epStr);
+            }
+        }
     }
     
     @Override
@@ -86,27 +119,60 @@ public class InfinispanRegistry implements RemoteRegistry {
 
     @Override
     public List<RemoteEndpoint> getEndpoints(QName serviceName) {
-        List<RemoteEndpoint> services = new LinkedList<RemoteEndpoint>();
-        // add remotes and prune the local entry
-        String serviceKey = createServiceKey(ROOT_DOMAIN, serviceName);
-        Set<String> nodes = _serviceCache.keySet();
-        if (nodes != null) {
-            for (String node : nodes) {
-                if (node.startsWith(serviceKey)) {
-                    String epStr = _serviceCache.get(node);
-                    // Catch a race condition where entry has been removed since keySet list was built
-                    if (epStr != null) {
-                        try {
-                            RemoteEndpoint ep = _serializer.deserialize(epStr.getBytes(), RemoteEndpoint.class);
-                            services.add(ep);
-                        } catch (java.io.IOException ioEx) {
-                            _log.warn("Failed to deserialize remote endpoint: " + epStr, ioEx);
-                        }
-                    }
-                }
+        List<RemoteEndpoint> services = _endpoints.get(serviceName);
+        return services != null ? services : Collections.<RemoteEndpoint>emptyList();
+    }
+    
+    void entryWritten(String key, String epStr) {
+        synchronized (_entries) {
+            CachedEndpoint cached = _entries.get(key);
+            if (cached != null && cached.getValue().equals(epStr)) {
+                return;
+            }
+            RemoteEndpoint ep;
+            try {
+                ep = _serializer.deserialize(epStr.getBytes(), RemoteEndpoint.class);
+            } catch (java.io.IOException ioEx) {
+                _log.warn("Failed to deserialize remote endpoint: " + epStr, ioEx);
+                return;
             }
+            if (cached != null && !cached.getEndpoint().getServiceName().equals(ep.getServiceName())) {
+                entryRemoved(key);
+            }
+            _entries.put(key, new CachedEndpoint(epStr, ep));
+            Map<String, RemoteEndpoint> serviceEntries = _entriesByService.get(ep.getServiceName());
+            if (serviceEntries == null) {
+                serviceEntries = new LinkedHashMap<String, RemoteEndpoint>();
+                _entriesByService.put(ep.getServiceName(), serviceEntries);
+            }
+            serviceEntries.put(key, ep);
+            publish(ep.getServiceName(), serviceEntries);
+        }
+    }
+    
+    void entryRemoved(String key) {
+        synchronized (_entries) {
+            CachedEndpoint cached = _entries.remove(key);
+            if (cached == null) {
+                return;
+            }
+            QName serviceName = cached.getEndpoint().getServiceName();
+            Map<String, RemoteEndpoint> serviceEntries = _entriesByService.get(serviceName);
+            serviceEntries.remove(key);
+            if (serviceEntries.isEmpty()) {
+                _entriesByService.remove(serviceName);
+            }
+            publish(serviceName, serviceEntries);
+        }
+    }
+    
+    private void publish(QName serviceName, Map<String, RemoteEndpoint> serviceEntries) {
+        if (serviceEntries.isEmpty()) {
+            _endpoints.remove(serviceName);
+        } else {
+            _endpoints.put(serviceName, Collections.unmodifiableList(
+                    new ArrayList<RemoteEndpoint>(serviceEntries.values())));
         }
-        return services;
     }
     
     private String createServiceKey(QName domain, QName service) {
@@ -144,4 +210,76 @@ public class InfinispanRegistry implements RemoteRegistry {
             }
         }
     }
+    
+    /**
+     * Keeps the local endpoint index in step with registrations added, changed, removed 
+     * or evicted on any node in the cluster.
+     */
+    @Listener
+    public class EndpointListener {
+        /**
+         * Triggered when a registration is added to the cache.
+         * @param event entry details
+         */
+        @CacheEntryCreated
+        public void entryCreated(CacheEntryCreatedEvent<String, String> event) {
+            if (!event.isPre()) {
+                String epStr = _serviceCache.get(event.getKey());
+                if (epStr != null) {
+                    entryWritten(event.getKey(), epStr);
+                }
+            }
+        }
+        
+        /**
+         * Triggered when a registration is written to the cache.
+         * @param event entry details
+         */
+        @CacheEntryModified
+        public void entryModified(CacheEntryModifiedEvent<String, String> event) {
+            if (!event.isPre() && event.getValue() != null) {
+                entryWritten(event.getKey(), event.getValue());
+            }
+        }
+        
+        /**
+         * Triggered when a registration is removed from the cache.
+         * @param event entry details
+         */
+        @CacheEntryRemoved
+        public void entryRemoved(CacheEntryRemovedEvent<String, String> event) {
+            if (!event.isPre()) {
+                InfinispanRegistry.this.entryRemoved(event.getKey());
+            }
+        }
+        
+        /**
+         * Triggered when registrations are evicted from the cache.
+         * @param event evicted entries
+         */
+        @CacheEntriesEvicted
+        public void entriesEvicted(CacheEntriesEvictedEvent<String, String> event) {
+            for (String key : event.getEntries().keySet()) {
+                InfinispanRegistry.this.entryRemoved(key);
+            }
+        }
+    }
+    
+    private static class CachedEndpoint {
+        private final String _value;
+        private final RemoteEndpoint _endpoint;
+        
+        CachedEndpoint(String value, RemoteEndpoint endpoint) {
+            _value = value;
+            _endpoint = endpoint;
+        }
+        
+        String getValue() {
+            return _value;
+        }
+        
+        RemoteEndpoint getEndpoint() {
+            return _endpoint;
+        }
+    }
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.Scope;
+import org.switchyard.serial.FormatType;
+import org.switchyard.serial.Serializer;
+import org.switchyard.serial.SerializerFactory;
+import org.switchyard.serial.graph.Graph;
+
+/**
+ * Microbenchmark for RemoteMessage graph serialization throughput.  This is
+ * not run as part of the build; run it from the IDE or with 'java' against
+ * the test classpath.  Formats without a serialization provider on the
+ * classpath are skipped.
+ * <p/>
+ * Usage: RemoteMessageSerializationBenchmark [iterations [format...]]
+ */
+public final class RemoteMessageSerializationBenchmark {
+
+    private RemoteMessageSerializationBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional iteration count followed by format names
+     * @throws Exception on serialization failure
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        List<FormatType> formats = new ArrayList<FormatType>();
+        for (int i = 1; i < args.length; i++) {
+            formats.add(FormatType.valueOf(args[i]));
+        }
+        if (formats.isEmpty()) {
+            formats.add(FormatType.JSON);
+            formats.add(FormatType.GRAPH_PROTOSTUFF);
+        }
+        RemoteMessage msg = createMessage();
+        // graph walk alone, which is the part independent of the format
+        for (int round = 0; round < 3; round++) {
+            runGraph(msg, iterations / 5);
+            long[] nanos = runGraph(msg, iterations);
+            System.out.println("graph: compose " + nanos[0] / iterations 
+                    + " ns/msg, decompose " + nanos[1] / iterations + " ns/msg");
+        }
+        for (FormatType format : formats) {
+            Serializer ser = SerializerFactory.create(format, null, true);
+            if (ser == null) {
+                System.out.println(format + ": no serialization provider");
+                continue;
+            }
+            for (int round = 0; round < 3; round++) {
+                run(ser, msg, iterations / 5);
+                long[] nanos = run(ser, msg, iterations);
+                System.out.println(format + ": serialize " + nanos[0] / iterations 
+                        + " ns/msg, deserialize " + nanos[1] / iterations + " ns/msg");
+            }
+        }
+    }
+
+    private static long[] run(Serializer ser, RemoteMessage msg, int iterations) throws Exception {
+        long[] nanos = new long[2];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            byte[] bytes = ser.serialize(msg, RemoteMessage.class);
+            long mid = System.nanoTime();
+            ser.deserialize(bytes, RemoteMessage.class);
+            nanos[0] += mid - start;
+            nanos[1] += System.nanoTime() - mid;
+        }
+        return nanos;
+    }
+
+    private static long[] runGraph(RemoteMessage msg, int iterations) {
+        long[] nanos = new long[2];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            Graph graph = new Graph(msg);
+            long mid = System.nanoTime();
+            Graph copy = new Graph();
+            copy.setRoot(graph.getRoot());
+            copy.setReferences(new LinkedHashMap<Integer, Object>(graph.getReferences()));
+            long copied = System.nanoTime();
+            copy.decomposeRoot();
+            nanos[0] += mid - start;
+            nanos[1] += System.nanoTime() - copied;
+        }
+        return nanos;
+    }
+
+    private static RemoteMessage createMessage() {
+        RemoteMessage msg = new RemoteMessage()
+            .setDomain(new QName("urn:benchmark", "domain"))
+            .setService(new QName("urn:benchmark", "OrderService"))
+            .setOperation("submitOrder");
+        for (int i = 0; i < 8; i++) {
+            msg.getContext().setProperty("property" + i, "value" + i, Scope.EXCHANGE).addLabels("benchmark");
+        }
+        Order order = new Order();
+        order.setId("order-1");
+        order.setCustomer("customer-1");
+        for (int i = 0; i < 10; i++) {
+            OrderItem item = new OrderItem();
+            item.setSku("sku-" + i);
+            item.setQuantity(i + 1);
+            item.setPrice(9.99 * i);
+            order.getItems().add(item);
+        }
+        msg.setContent(order);
+        return msg;
+    }
+
+    /**
+     * Bean content for the benchmark message.
+     */
+    public static class Order {
+        private String _id;
+        private String _customer;
+        private List<OrderItem> _items = new ArrayList<OrderItem>();
+
+        /**
+         * @return the id
+         */
+        public String getId() {
+            return _id;
+        }
+
+        /**
+         * @param id the id
+         */
+        public void setId(String id) {
+            _id = id;
+        }
+
+        /**
+         * @return the customer
+         */
+        public String getCustomer() {
+            return _customer;
+        }
+
+        /**
+         * @param customer the customer
+         */
+        public void setCustomer(String customer) {
+            _customer = customer;
+        }
+
+        /**
+         * @return the items
+         */
+        public List<OrderItem> getItems() {
+            return _items;
+        }
+
+        /**
+         * @param items the items
+         */
+        public void setItems(List<OrderItem> items) {
+            _items = items;
+        }
+    }
+
+    /**
+     * Bean content for the benchmark message.
+     */
+    public static class OrderItem {
+        private String _sku;
+        private int _quantity;
+        private double _price;
+
+        /**
+         * @return the sku
+         */
+        public String getSku() {
+            return _sku;
+        }
+
+        /**
+         * @param sku the sku
+         */
+        public void setSku(String sku) {
+            _sku = sku;
+        }
+
+        /**
+         * @return the quantity
+         */
+        public int getQuantity() {
+            return _quantity;
+        }
+
+        /**
+         * @param quantity the quantity
+         */
+        public void setQuantity(int quantity) {
+            _quantity = quantity;
+        }
+
+        /**
+         * @return the price
+         */
+        public double getPrice() {
+            return _price;
+        }
+
+        /**
+         * @param price the price
+         */
+        public void setPrice(double price) {
+            _price = price;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote.cluster;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.switchyard.remote.RemoteEndpoint;
+import org.switchyard.remote.cluster.EndpointHealth.CircuitState;
+
+public class ClusterHealthTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private ClusterHealth health = new ClusterHealth()
+        .setFailureThreshold(3)
+        .setOpenDuration(100)
+        .setMinimumRequests(5)
+        .setEjectionDuration(1000);
+    
+    @Test
+    public void circuitBreaker() {
+        RemoteEndpoint ep = new RemoteEndpoint().setEndpoint("http://node1/sy");
+        EndpointHealth eh = health.getHealth(ep);
+        long now = System.nanoTime();
+        
+        // failures below the threshold leave the circuit closed
+        for (int i = 0; i < 2; i++) {
+            Assert.assertTrue(eh.tryAcquire(now));
+            eh.failed(now);
+        }
+        Assert.assertEquals(CircuitState.CLOSED, eh.getState());
+        Assert.assertTrue(eh.tryAcquire(now));
+        eh.failed(now);
+        Assert.assertEquals(CircuitState.OPEN, eh.getState());
+        Assert.assertFalse(eh.isAvailable(now + 50 * MS));
+        Assert.assertFalse(eh.tryAcquire(now + 50 * MS));
+        
+        // one probe is let through once the open duration has passed
+        Assert.assertTrue(eh.isAvailable(now + 100 * MS));
+        Assert.assertTrue(eh.tryAcquire(now + 100 * MS));
+        Assert.assertEquals(CircuitState.HALF_OPEN, eh.getState());
+        Assert.assertFalse(eh.tryAcquire(now + 100 * MS));
+        eh.failed(now + 110 * MS);
+        Assert.assertEquals(CircuitState.OPEN, eh.getState());
+        
+        Assert.assertTrue(eh.tryAcquire(now + 210 * MS));
+        eh.completed(MS, now + 220 * MS);
+        Assert.assertEquals(CircuitState.CLOSED, eh.getState());
+        Assert.assertEquals(0, eh.getOutstanding());
+    }
+    
+    @Test
+    public void idleEndpointsForgotten() {
+        health.setIdleTimeout(1000);
+        RemoteEndpoint ep1 = new RemoteEndpoint().setEndpoint("http://node1/sy");
+        RemoteEndpoint ep2 = new RemoteEndpoint().setEndpoint("http://node2/sy");
+        long start = System.nanoTime();
+        EndpointHealth busy = health.getHealth(ep1);
+        Assert.assertTrue(busy.tryAcquire(start));
+        health.getHealth(ep2);
+        Assert.assertEquals(2, health.size());
+        
+        // node2 left the registry, node1 still has a request outstanding
+        Assert.assertEquals(1, health.evictIdle(start + 2000 * MS));
+        Assert.assertEquals(1, health.size());
+        busy.completed(MS, start + 2000 * MS);
+        Assert.assertEquals(1, health.evictIdle(start + 2000 * MS));
+        Assert.assertEquals(0, health.size());
+    }
+    
+    @Test
+    public void openCircuitNotAvailable() {
+        RemoteEndpoint ep1 = new RemoteEndpoint().setEndpoint("http://node1/sy");
+        RemoteEndpoint ep2 = new RemoteEndpoint().setEndpoint("http://node2/sy");
+        long now = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            health.getHealth(ep1).tryAcquire(now);
+            health.getHealth(ep1).failed(now);
+        }
+        Assert.assertEquals(Arrays.asList(ep2), health.getAvailable(Arrays.asList(ep1, ep2)));
+        
+        for (int i = 0; i < 3; i++) {
+            health.getHealth(ep2).tryAcquire(now);
+            health.getHealth(ep2).failed(now);
+        }
+        Assert.assertTrue(health.getAvailable(Arrays.asList(ep1, ep2)).isEmpty());
+    }
+    
+    @Test
+    public void errorRateEjection() {
+        // failures never reach the breaker threshold, but the error rate is high
+        health.setFailureThreshold(100);
+        RemoteEndpoint ep1 = new RemoteEndpoint().setEndpoint("http://node1/sy");
+        RemoteEndpoint ep2 = new RemoteEndpoint().setEndpoint("http://node2/sy");
+        long now = System.nanoTime();
+        EndpointHealth eh = health.getHealth(ep1);
+        for (int i = 0; i < 10; i++) {
+            eh.tryAcquire(now);
+            if (i % 4 == 0) {
+                eh.completed(MS, now);
+            } else {
+                eh.failed(now);
+            }
+        }
+        Assert.assertTrue(eh.isEjected(now));
+        List<RemoteEndpoint> eps = Arrays.asList(ep1, ep2);
+        Assert.assertEquals(Arrays.asList(ep2), health.getAvailable(eps));
+        
+        // ejection never removes every endpoint
+        Assert.assertEquals(Arrays.asList(ep1), health.getAvailable(Arrays.asList(ep1)));
+    }
+    
+    @Test
+    public void latencyEjection() {
+        RemoteEndpoint[] eps = new RemoteEndpoint[4];
+        long now = System.nanoTime();
+        for (int i = 0; i < eps.length; i++) {
+            eps[i] = new RemoteEndpoint().setEndpoint("http://node" + i + "/sy");
+            EndpointHealth eh = health.getHealth(eps[i]);
+            // the last endpoint is ten times slower than the others
+            long latency = i == eps.length - 1 ? 100 * MS : 10 * MS;
+            for (int j = 0; j < 5; j++) {
+                eh.tryAcquire(now);
+                eh.completed(latency, now);
+            }
+        }
+        List<RemoteEndpoint> available = health.getAvailable(Arrays.asList(eps));
+        Assert.assertEquals(3, available.size());
+        Assert.assertFalse(available.contains(eps[3]));
+    }
+}
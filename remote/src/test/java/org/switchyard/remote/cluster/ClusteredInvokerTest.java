@@ -0,0 +1,266 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote.cluster;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.SwitchYardException;
+import org.switchyard.remote.RemoteCallback;
+import org.switchyard.remote.RemoteEndpoint;
+import org.switchyard.remote.RemoteMessage;
+import org.switchyard.remote.RemoteMessages;
+import org.switchyard.remote.RemoteRegistry;
+import org.switchyard.remote.RemoteRejectedException;
+import org.switchyard.remote.RemoteTransport;
+
+public class ClusteredInvokerTest {
+    
+    private static final QName TEST_SERVICE = new QName("ClusteredInvoker");
+    
+    private RemoteRegistry registry = new MockRegistry();
+    private MockTransport transport = new MockTransport();
+    private ClusteredInvoker invoker;
+    
+    @Before
+    public void setUp() throws Exception {
+        invoker = new ClusteredInvoker(registry).setTransport(transport);
+        invoker.getHealth().setFailureThreshold(2);
+        registry.addEndpoint(new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("http://node1/sy"));
+        registry.addEndpoint(new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("http://node2/sy"));
+    }
+    
+    @Test
+    public void noEndpoints() throws Exception {
+        try {
+            invoker.invoke(new RemoteMessage().setService(new QName("NotRegistered")));
+            Assert.fail("Expected SwitchYardException");
+        } catch (SwitchYardException syEx) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void failoverOnConnectFailure() throws Exception {
+        transport.fail("http://node1/sy", new ConnectException("refused"));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertNotNull(invoker.invoke(request()));
+        }
+        // node2 served every request, node1 was skipped once its circuit opened
+        Assert.assertEquals(4, transport.count("http://node2/sy"));
+        Assert.assertEquals(2, transport.count("http://node1/sy"));
+        Assert.assertEquals(EndpointHealth.CircuitState.OPEN, 
+                invoker.getHealth().getHealth(registry.getEndpoints(TEST_SERVICE).get(0)).getState());
+    }
+    
+    @Test
+    public void localRejectionDoesNotOpenCircuit() throws Exception {
+        // node1 is saturated on the sending side; the request is not idempotent
+        transport.fail("http://node1/sy", RemoteMessages.MESSAGES.tooManyRequestsInFlight(1, "http://node1/sy"));
+        for (int i = 0; i < 6; i++) {
+            Assert.assertNotNull(invoker.invoke(request()));
+        }
+        Assert.assertEquals(6, transport.count("http://node2/sy"));
+        EndpointHealth node1 = invoker.getHealth().getHealth(registry.getEndpoints(TEST_SERVICE).get(0));
+        Assert.assertEquals(EndpointHealth.CircuitState.CLOSED, node1.getState());
+        Assert.assertEquals(0, node1.getOutstanding());
+
+        // with every endpoint saturated the rejection reaches the caller
+        transport.fail("http://node2/sy", RemoteMessages.MESSAGES.tooManyRequestsInFlight(1, "http://node2/sy"));
+        try {
+            invoker.invoke(request());
+            Assert.fail("Expected RemoteRejectedException");
+        } catch (RemoteRejectedException rejectedEx) {
+            // expected
+        }
+        for (RemoteEndpoint ep : registry.getEndpoints(TEST_SERVICE)) {
+            Assert.assertEquals(EndpointHealth.CircuitState.CLOSED, invoker.getHealth().getHealth(ep).getState());
+        }
+    }
+    
+    @Test
+    public void noRetryWhenNotIdempotent() throws Exception {
+        IOException readFailure = new IOException("read timed out");
+        transport.fail("http://node1/sy", readFailure);
+        transport.fail("http://node2/sy", readFailure);
+        try {
+            invoker.invoke(request());
+            Assert.fail("Expected IOException");
+        } catch (IOException ioEx) {
+            Assert.assertSame(readFailure, ioEx);
+        }
+        Assert.assertEquals(1, transport.total());
+    }
+    
+    @Test
+    public void retryWhenIdempotent() throws Exception {
+        transport.fail("http://node1/sy", new IOException("read timed out"));
+        RemoteMessage request = request();
+        request.getContext().setProperty(ClusteredInvoker.IDEMPOTENT, Boolean.TRUE);
+        for (int i = 0; i < 2; i++) {
+            Assert.assertNotNull(invoker.invoke(request));
+        }
+        Assert.assertEquals(2, transport.count("http://node2/sy"));
+    }
+    
+    @Test
+    public void retriesAreBounded() throws Exception {
+        invoker.setMaxRetries(0);
+        transport.fail("http://node1/sy", new ConnectException("refused"));
+        transport.fail("http://node2/sy", new ConnectException("refused"));
+        try {
+            invoker.invoke(request());
+            Assert.fail("Expected IOException");
+        } catch (ConnectException connectEx) {
+            // expected
+        }
+        Assert.assertEquals(1, transport.total());
+    }
+    
+    @Test
+    public void allCircuitsOpen() throws Exception {
+        transport.fail("http://node1/sy", new ConnectException("refused"));
+        transport.fail("http://node2/sy", new ConnectException("refused"));
+        for (int i = 0; i < 2; i++) {
+            try {
+                invoker.invoke(request());
+                Assert.fail("Expected IOException");
+            } catch (ConnectException connectEx) {
+                // expected
+            }
+        }
+        try {
+            invoker.invoke(request());
+            Assert.fail("Expected IOException");
+        } catch (IOException ioEx) {
+            Assert.assertFalse(ioEx instanceof ConnectException);
+        }
+        Assert.assertEquals(4, transport.total());
+    }
+    
+    @Test
+    public void unexpectedFailureReleasesEndpoint() throws Exception {
+        IllegalStateException broken = new IllegalStateException("broken transport");
+        transport.error("http://node1/sy", broken);
+        RemoteEndpoint node1 = registry.getEndpoints(TEST_SERVICE).get(0);
+        for (int i = 0; i < 4; i++) {
+            try {
+                invoker.invoke(request());
+            } catch (IllegalStateException stateEx) {
+                Assert.assertSame(broken, stateEx);
+            }
+            Assert.assertEquals(0, invoker.getHealth().getHealth(node1).getOutstanding());
+        }
+        EndpointHealth health = invoker.getHealth().getHealth(node1);
+        Assert.assertEquals(EndpointHealth.CircuitState.OPEN, health.getState());
+        
+        // the failed probe reopens the circuit rather than leaving it half-open
+        invoker.getHealth().setOpenDuration(0);
+        for (int i = 0; i < 2; i++) {
+            try {
+                invoker.invoke(request());
+            } catch (IllegalStateException stateEx) {
+                Assert.assertSame(broken, stateEx);
+            }
+        }
+        Assert.assertEquals(EndpointHealth.CircuitState.OPEN, health.getState());
+        Assert.assertTrue(health.isAvailable(System.nanoTime()));
+        Assert.assertEquals(0, health.getOutstanding());
+    }
+    
+    @Test
+    public void invalidAddressNotReserved() throws Exception {
+        MockRegistry invalidRegistry = new MockRegistry();
+        RemoteEndpoint invalid = new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("not a url");
+        invalidRegistry.addEndpoint(invalid);
+        ClusteredInvoker invalidInvoker = new ClusteredInvoker(invalidRegistry).setTransport(transport);
+        try {
+            invalidInvoker.invoke(request());
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException iaEx) {
+            // expected
+        }
+        Assert.assertEquals(0, invalidInvoker.getHealth().getHealth(invalid).getOutstanding());
+        Assert.assertEquals(0, transport.total());
+    }
+    
+    private RemoteMessage request() {
+        return new RemoteMessage().setService(TEST_SERVICE).setContent("request");
+    }
+}
+
+class MockTransport implements RemoteTransport {
+    
+    private Map<String, IOException> _failures = new HashMap<String, IOException>();
+    private Map<String, RuntimeException> _errors = new HashMap<String, RuntimeException>();
+    private List<String> _calls = new ArrayList<String>();
+    
+    void fail(String endpoint, IOException failure) {
+        _failures.put(endpoint, failure);
+    }
+    
+    void error(String endpoint, RuntimeException error) {
+        _errors.put(endpoint, error);
+    }
+    
+    int count(String endpoint) {
+        int count = 0;
+        for (String call : _calls) {
+            if (call.equals(endpoint)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    int total() {
+        return _calls.size();
+    }
+
+    @Override
+    public RemoteMessage invoke(URL endpoint, RemoteMessage request) throws IOException {
+        _calls.add(endpoint.toString());
+        IOException failure = _failures.get(endpoint.toString());
+        if (failure != null) {
+            throw failure;
+        }
+        RuntimeException error = _errors.get(endpoint.toString());
+        if (error != null) {
+            throw error;
+        }
+        return new RemoteMessage().setService(request.getService()).setContent("reply");
+    }
+
+    @Override
+    public Future<RemoteMessage> invokeAsync(URL endpoint, RemoteMessage request, RemoteCallback callback) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+    }
+}
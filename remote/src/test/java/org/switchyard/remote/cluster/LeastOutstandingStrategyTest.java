@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote.cluster;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.remote.RemoteEndpoint;
+import org.switchyard.remote.RemoteRegistry;
+
+public class LeastOutstandingStrategyTest {
+    
+    private static final QName TEST_SERVICE = new QName("LeastOutstandingStrategy");
+    private RemoteRegistry registry = new MockRegistry();
+    private ClusterHealth health = new ClusterHealth();
+    private LeastOutstandingStrategy strategy = new LeastOutstandingStrategy();
+    
+    @Before
+    public void setUp() throws Exception {
+        strategy.setRegistry(registry);
+        strategy.setHealth(health);
+    }
+
+    @Test
+    public void noEndpoints() {
+        Assert.assertNull(strategy.selectEndpoint(TEST_SERVICE));
+    }
+    
+    @Test
+    public void leastOutstanding() {
+        RemoteEndpoint ep1 = new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("http://ep1");
+        RemoteEndpoint ep2 = new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("http://ep2");
+        RemoteEndpoint ep3 = new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("http://ep3");
+        registry.addEndpoint(ep1);
+        registry.addEndpoint(ep2);
+        registry.addEndpoint(ep3);
+        
+        long now = System.nanoTime();
+        health.getHealth(ep1).tryAcquire(now);
+        health.getHealth(ep1).tryAcquire(now);
+        health.getHealth(ep3).tryAcquire(now);
+        Assert.assertEquals(ep2, strategy.selectEndpoint(TEST_SERVICE));
+        
+        health.getHealth(ep2).tryAcquire(now);
+        health.getHealth(ep2).tryAcquire(now);
+        Assert.assertEquals(ep3, strategy.selectEndpoint(TEST_SERVICE));
+    }
+    
+    @Test
+    public void tiesAreSpread() {
+        RemoteEndpoint ep1 = new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("http://ep1");
+        RemoteEndpoint ep2 = new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("http://ep2");
+        registry.addEndpoint(ep1);
+        registry.addEndpoint(ep2);
+        
+        Map<String, AtomicInteger> epCounts = new HashMap<String, AtomicInteger>();
+        epCounts.put(ep1.getEndpoint(), new AtomicInteger());
+        epCounts.put(ep2.getEndpoint(), new AtomicInteger());
+        for (int i = 0; i < 1000; i++) {
+            RemoteEndpoint ep = strategy.selectEndpoint(TEST_SERVICE);
+            epCounts.get(ep.getEndpoint()).incrementAndGet();
+        }
+        
+        Assert.assertTrue(epCounts.get(ep1.getEndpoint()).get() > 0);
+        Assert.assertTrue(epCounts.get(ep2.getEndpoint()).get() > 0);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote.cluster;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.remote.RemoteEndpoint;
+import org.switchyard.remote.RemoteRegistry;
+
+public class PowerOfTwoChoicesStrategyTest {
+    
+    private static final QName TEST_SERVICE = new QName("PowerOfTwoChoicesStrategy");
+    private RemoteRegistry registry = new MockRegistry();
+    private ClusterHealth health = new ClusterHealth();
+    private PowerOfTwoChoicesStrategy strategy = new PowerOfTwoChoicesStrategy();
+    
+    @Before
+    public void setUp() throws Exception {
+        strategy.setRegistry(registry);
+        strategy.setHealth(health);
+    }
+
+    @Test
+    public void noEndpoints() {
+        Assert.assertNull(strategy.selectEndpoint(TEST_SERVICE));
+    }
+    
+    @Test
+    public void oneEndpoint() {
+        registry.addEndpoint(new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("http://ep1"));
+        Assert.assertNotNull(strategy.selectEndpoint(TEST_SERVICE));
+    }
+    
+    @Test
+    public void prefersFasterEndpoint() {
+        RemoteEndpoint fast = new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("http://fast");
+        RemoteEndpoint slow = new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("http://slow");
+        registry.addEndpoint(fast);
+        registry.addEndpoint(slow);
+        
+        long now = System.nanoTime();
+        record(health.getHealth(fast), 1, now);
+        record(health.getHealth(slow), 50, now);
+        // with two endpoints both are always compared
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(fast, strategy.selectEndpoint(TEST_SERVICE));
+        }
+    }
+    
+    @Test
+    public void slowEndpointGetsLessTraffic() {
+        RemoteEndpoint[] eps = new RemoteEndpoint[4];
+        long now = System.nanoTime();
+        for (int i = 0; i < eps.length; i++) {
+            eps[i] = new RemoteEndpoint().setServiceName(TEST_SERVICE).setEndpoint("http://ep" + i);
+            registry.addEndpoint(eps[i]);
+            record(health.getHealth(eps[i]), i == 0 ? 50 : 1, now);
+        }
+        int slowCount = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (strategy.selectEndpoint(TEST_SERVICE) == eps[0]) {
+                slowCount++;
+            }
+        }
+        // the slow endpoint only wins when it's paired with itself, which never happens
+        Assert.assertEquals(0, slowCount);
+    }
+    
+    private void record(EndpointHealth eh, long latencyMs, long now) {
+        eh.tryAcquire(now);
+        eh.completed(TimeUnit.MILLISECONDS.toNanos(latencyMs), now);
+    }
+}
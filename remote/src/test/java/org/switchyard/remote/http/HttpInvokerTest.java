@@ -0,0 +1,205 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.BaseHandler;
+import org.switchyard.Exchange;
+import org.switchyard.HandlerException;
+import org.switchyard.ServiceReference;
+import org.switchyard.internal.DefaultServiceRegistry;
+import org.switchyard.internal.DomainImpl;
+import org.switchyard.internal.EventManager;
+import org.switchyard.internal.LocalExchangeBus;
+import org.switchyard.internal.transform.BaseTransformerRegistry;
+import org.switchyard.internal.validate.BaseValidatorRegistry;
+import org.switchyard.metadata.InOnlyService;
+import org.switchyard.remote.RemoteEndpoint;
+import org.switchyard.remote.RemoteInvoker;
+import org.switchyard.remote.RemoteMessage;
+import org.switchyard.remote.cluster.ClusteredInvoker;
+import org.switchyard.remote.cluster.MockRegistry;
+import org.switchyard.runtime.trace.InMemorySpanExporter;
+import org.switchyard.runtime.trace.Span;
+import org.switchyard.runtime.trace.Tracer;
+import org.switchyard.security.service.DefaultServiceDomainSecurity;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for trace propagation by the HTTP transport, whichever invoker
+ * sends the request.
+ */
+public class HttpInvokerTest {
+
+    private static final QName SERVICE = new QName("urn:test", "Caller");
+    private static final QName REMOTE = new QName("urn:test", "RemoteService");
+
+    private HttpServer _server;
+    private URL _echo;
+    private HttpTransport _transport;
+    private DomainImpl _domain;
+
+    @Before
+    public void setUp() throws Exception {
+        _server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        _server.createContext("/echo", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = readFully(exchange.getRequestBody());
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        _server.start();
+        _echo = new URL("http://127.0.0.1:" + _server.getAddress().getPort() + "/echo");
+        _transport = new HttpTransport(1000, 5000, 10);
+        _domain = new DomainImpl(new QName("urn:test", "HttpInvokerTest"),
+                new DefaultServiceRegistry(),
+                new LocalExchangeBus(),
+                new BaseTransformerRegistry(),
+                new BaseValidatorRegistry(),
+                new EventManager(),
+                new DefaultServiceDomainSecurity());
+        _domain.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _domain.destroy();
+        _transport.close();
+        _server.stop(0);
+    }
+
+    @Test
+    public void testUntracedInvoke() throws Exception {
+        RemoteMessage reply = new HttpInvoker(_echo, _transport).invoke(createRequest("hello"));
+        Assert.assertEquals("hello", reply.getContent());
+        Assert.assertNull(reply.getContext().getProperty(Tracer.TRACE_PARENT));
+    }
+
+    @Test
+    public void testTraceParentSentWithRequest() throws Exception {
+        InMemorySpanExporter exporter = new InMemorySpanExporter();
+        _domain.setProperty(Tracer.EXPORTER, exporter);
+        RemoteMessage reply = invokeFromProvider(new HttpInvoker(_echo, _transport));
+        assertRemoteSpan(exporter, reply);
+    }
+
+    @Test
+    public void testClusteredInvokeTraced() throws Exception {
+        InMemorySpanExporter exporter = new InMemorySpanExporter();
+        _domain.setProperty(Tracer.EXPORTER, exporter);
+        MockRegistry registry = new MockRegistry();
+        registry.addEndpoint(new RemoteEndpoint().setServiceName(REMOTE).setEndpoint(_echo.toString()));
+        RemoteMessage reply = invokeFromProvider(new ClusteredInvoker(registry).setTransport(_transport));
+        assertRemoteSpan(exporter, reply);
+    }
+
+    @Test
+    public void testAsyncInvokeTraced() throws Exception {
+        InMemorySpanExporter exporter = new InMemorySpanExporter();
+        _domain.setProperty(Tracer.EXPORTER, exporter);
+        final HttpInvoker invoker = new HttpInvoker(_echo, _transport);
+        RemoteMessage reply = invokeFromProvider(new RemoteInvoker() {
+            @Override
+            public RemoteMessage invoke(RemoteMessage request) throws IOException {
+                try {
+                    return invoker.invokeAsync(request, null).get(5, TimeUnit.SECONDS);
+                } catch (Exception ex) {
+                    throw new IOException(ex);
+                }
+            }
+        });
+        // the span is finished by the transport thread once the reply is in
+        long deadline = System.currentTimeMillis() + 5000;
+        while (exporter.getSpans("remote").isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertRemoteSpan(exporter, reply);
+    }
+
+    // invokes the remote service from inside a traced provider
+    private RemoteMessage invokeFromProvider(final RemoteInvoker invoker) {
+        final AtomicReference<RemoteMessage> replied = new AtomicReference<RemoteMessage>();
+        _domain.registerService(SERVICE, new InOnlyService(), new BaseHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                try {
+                    replied.set(invoker.invoke(createRequest("hello")));
+                } catch (IOException ioEx) {
+                    throw new HandlerException(ioEx);
+                }
+            }
+        });
+        ServiceReference reference = _domain.registerServiceReference(SERVICE, new InOnlyService());
+        Exchange exchange = reference.createExchange();
+        exchange.send(exchange.createMessage().setContent("call"));
+        Assert.assertNotNull(replied.get());
+        return replied.get();
+    }
+
+    private void assertRemoteSpan(InMemorySpanExporter exporter, RemoteMessage reply) {
+        List<Span> remote = exporter.getSpans("remote");
+        Assert.assertEquals(1, remote.size());
+        Assert.assertTrue(remote.get(0).isFinished());
+        Assert.assertFalse(remote.get(0).isFault());
+        Span provider = exporter.getSpans("provider").get(0);
+        Assert.assertEquals(provider.getTraceId(), remote.get(0).getTraceId());
+        Assert.assertEquals(provider.getSpanId(), remote.get(0).getParentId());
+        Assert.assertEquals(REMOTE.toString(), remote.get(0).getAttributes().get("service"));
+        // the echo server returns the request, so the reply shows what went over the wire
+        Assert.assertEquals(remote.get(0).getTraceParent(), 
+                reply.getContext().getPropertyValue(Tracer.TRACE_PARENT));
+    }
+
+    private RemoteMessage createRequest(String content) {
+        RemoteMessage request = new RemoteMessage();
+        request.setService(REMOTE);
+        request.setContent(content);
+        return request;
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = is.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, count);
+        }
+        is.close();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.remote.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.remote.RemoteCallback;
+import org.switchyard.remote.RemoteMessage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for HttpTransport against an embedded loopback HTTP server.
+ */
+public class HttpTransportTest {
+
+    private static final QName SERVICE = new QName("urn:test", "EchoService");
+
+    private HttpServer _server;
+    private ExecutorService _serverExecutor;
+    private URL _echo;
+    private URL _slow;
+    private URL _inOnly;
+    private HttpTransport _transport;
+    private final Set<Integer> _clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+    private final CountDownLatch _release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        _server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        _serverExecutor = Executors.newCachedThreadPool();
+        _server.setExecutor(_serverExecutor);
+        _server.createContext("/echo", new EchoHandler(null));
+        _server.createContext("/slow", new EchoHandler(_release));
+        _server.createContext("/inonly", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                readFully(exchange.getRequestBody());
+                exchange.sendResponseHeaders(202, -1);
+                exchange.close();
+            }
+        });
+        _server.start();
+        String base = "http://127.0.0.1:" + _server.getAddress().getPort();
+        _echo = new URL(base + "/echo");
+        _slow = new URL(base + "/slow");
+        _inOnly = new URL(base + "/inonly");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _release.countDown();
+        if (_transport != null) {
+            _transport.close();
+        }
+        _server.stop(0);
+        _serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        _transport = new HttpTransport(1000, 5000, 10);
+        RemoteMessage reply = _transport.invoke(_echo, createRequest("hello"));
+        Assert.assertEquals("hello", reply.getContent());
+        Assert.assertEquals(SERVICE, reply.getService());
+        Assert.assertNull(_transport.invoke(_inOnly, createRequest("one way")));
+    }
+
+    @Test
+    public void testConnectionReuse() throws Exception {
+        _transport = new HttpTransport(1000, 5000, 10);
+        for (int i = 0; i < 20; i++) {
+            _transport.invoke(_echo, createRequest("hello " + i));
+            _transport.invoke(_inOnly, createRequest("one way " + i));
+        }
+        // sequential requests go over the same kept-alive connection
+        Assert.assertEquals(1, _clientPorts.size());
+    }
+
+    @Test
+    public void testInvokeAsync() throws Exception {
+        _transport = new HttpTransport(1000, 5000, 10);
+        final AtomicReference<RemoteMessage> replied = new AtomicReference<RemoteMessage>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Future<RemoteMessage> future = _transport.invokeAsync(_slow, createRequest("later"), new RemoteCallback() {
+            @Override
+            public void replied(RemoteMessage reply) {
+                replied.set(reply);
+                done.countDown();
+            }
+            @Override
+            public void failed(Throwable cause) {
+                done.countDown();
+            }
+        });
+        // the server has not answered yet, so the call must not have blocked
+        Assert.assertFalse(future.isDone());
+        _release.countDown();
+        Assert.assertEquals("later", future.get(5, TimeUnit.SECONDS).getContent());
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals("later", replied.get().getContent());
+    }
+
+    @Test
+    public void testReadTimeout() throws Exception {
+        _transport = new HttpTransport(1000, 200, 10);
+        try {
+            _transport.invoke(_slow, createRequest("stalled"));
+            Assert.fail("Expected the read to time out");
+        } catch (SocketTimeoutException stEx) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testMaxInFlight() throws Exception {
+        _transport = new HttpTransport(200, 5000, 1);
+        Future<RemoteMessage> first = _transport.invokeAsync(_slow, createRequest("first"), null);
+
+        // the only slot for the endpoint is taken by the first request
+        Future<RemoteMessage> second = _transport.invokeAsync(_slow, createRequest("second"), null);
+        try {
+            second.get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected the in-flight limit to be reached");
+        } catch (ExecutionException eEx) {
+            Assert.assertTrue(eEx.getCause() instanceof IOException);
+        }
+        try {
+            _transport.invoke(_slow, createRequest("third"));
+            Assert.fail("Expected the in-flight limit to be reached");
+        } catch (IOException ioEx) {
+            // expected
+        }
+
+        _release.countDown();
+        Assert.assertEquals("first", first.get(5, TimeUnit.SECONDS).getContent());
+        Assert.assertEquals("fourth", _transport.invoke(_slow, createRequest("fourth")).getContent());
+    }
+
+    @Test
+    public void testClosed() throws Exception {
+        _transport = new HttpTransport(1000, 5000, 10);
+        _transport.close();
+        try {
+            _transport.invoke(_echo, createRequest("closed"));
+            Assert.fail("Expected closed transport to fail");
+        } catch (IOException ioEx) {
+            // expected
+        }
+        Future<RemoteMessage> future = _transport.invokeAsync(_echo, createRequest("closed"), null);
+        Assert.assertTrue(future.isDone());
+    }
+
+    private RemoteMessage createRequest(String content) {
+        RemoteMessage request = new RemoteMessage();
+        request.setService(SERVICE);
+        request.setContent(content);
+        return request;
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = is.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, count);
+        }
+        is.close();
+        return bytes.toByteArray();
+    }
+
+    // replies with the request message, optionally waiting to be released first
+    private class EchoHandler implements HttpHandler {
+        private final CountDownLatch _wait;
+
+        EchoHandler(CountDownLatch wait) {
+            _wait = wait;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            _clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = readFully(exchange.getRequestBody());
+            if (_wait != null) {
+                try {
+                    _wait.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException iEx) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream os = exchange.getResponseBody();
+            os.write(body);
+            os.close();
+        }
+    }
+}
@@ -13,6 +13,8 @@
  */
 package org.switchyard.remote.infinispan;
 
+import java.util.List;
+
 import javax.xml.namespace.QName;
 
 import junit.framework.Assert;
@@ -26,11 +28,14 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.switchyard.remote.RemoteEndpoint;
+import org.switchyard.serial.FormatType;
+import org.switchyard.serial.SerializerFactory;
 
 public class InfinispanRegistryTest {
 
     private InfinispanRegistry _registry;
     private DefaultCacheManager _cacheMgr;
+    private Cache<String, String> _cache;
     
     @Before
     public void setUp() {
@@ -39,8 +44,8 @@ public class InfinispanRegistryTest {
         
         _cacheMgr.defineConfiguration("test-cache", 
                 new ConfigurationBuilder().invocationBatching().enable().build());
-        Cache<String, String> cache = _cacheMgr.getCache("test-cache");
-        _registry = new InfinispanRegistry(cache);
+        _cache = _cacheMgr.getCache("test-cache");
+        _registry = new InfinispanRegistry(_cache);
     }
     
     @After
@@ -106,6 +111,64 @@ public class InfinispanRegistryTest {
         // still just one in the registry
         Assert.assertEquals(1, _registry.getEndpoints(ep1.getServiceName()).size());
     }
+    
+    @Test
+    public void lookupReturnsSameList() throws Exception {
+        RemoteEndpoint ep1 = new RemoteEndpoint()
+            .setDomainName(new QName("domain1"))
+            .setServiceName(new QName("service1"));
+        
+        _registry.addEndpoint(ep1);
+        List<RemoteEndpoint> eps = _registry.getEndpoints(ep1.getServiceName());
+        Assert.assertSame(eps, _registry.getEndpoints(ep1.getServiceName()));
+        try {
+            eps.clear();
+            Assert.fail("Endpoint list should not be modifiable");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void registrationFromOtherNode() throws Exception {
+        QName service = new QName("urn:test/registry", "service1");
+        RemoteEndpoint ep1 = new RemoteEndpoint()
+            .setDomainName(new QName("domain1"))
+            .setServiceName(service)
+            .setEndpoint("http://node2:8080/switchyard-remote")
+            .setNode("node2");
+        String key = "/all-domains/" + service + "/node2";
+        
+        // written straight to the cache, as a replicated entry would be
+        _cache.put(key, new String(SerializerFactory.create(FormatType.JSON, null, true)
+                .serialize(ep1, RemoteEndpoint.class)));
+        List<RemoteEndpoint> eps = _registry.getEndpoints(service);
+        Assert.assertEquals(1, eps.size());
+        Assert.assertEquals("http://node2:8080/switchyard-remote", eps.get(0).getEndpoint());
+        
+        _cache.remove(key);
+        Assert.assertEquals(0, _registry.getEndpoints(service).size());
+    }
+    
+    @Test
+    public void existingRegistrationsLoaded() throws Exception {
+        RemoteEndpoint ep1 = new RemoteEndpoint()
+            .setDomainName(new QName("domain1"))
+            .setServiceName(new QName("service1"));
+        RemoteEndpoint ep2 = new RemoteEndpoint()
+            .setDomainName(new QName("domain1"))
+            .setServiceName(new QName("service2"));
+        _registry.addEndpoint(ep1);
+        _registry.addEndpoint(ep2);
+        
+        // a registry created later sees the entries already in the cache
+        InfinispanRegistry registry = new InfinispanRegistry(_cache);
+        Assert.assertEquals(1, registry.getEndpoints(ep1.getServiceName()).size());
+        Assert.assertEquals(1, registry.getEndpoints(ep2.getServiceName()).size());
+        
+        _registry.removeEndpoint(ep2);
+        Assert.assertEquals(0, registry.getEndpoints(ep2.getServiceName()).size());
+    }
 }
 
 class FakeAddress implements Address {
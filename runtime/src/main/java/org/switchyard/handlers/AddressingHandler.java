@@ -21,13 +21,19 @@ import org.switchyard.ExchangePhase;
 import org.switchyard.HandlerException;
 import org.switchyard.Service;
 import org.switchyard.ServiceDomain;
+import org.switchyard.internal.ServiceImpl;
+import org.switchyard.internal.ServiceReferenceImpl;
 import org.switchyard.metadata.ServiceOperation;
-import org.switchyard.policy.Policy;
+import org.switchyard.policy.PolicySet;
 import org.switchyard.policy.PolicyUtil;
 import org.switchyard.runtime.RuntimeMessages;
+import org.switchyard.spi.ProviderSelector;
 
 /**
  * The AddressingHandler resolves service instances based on a service reference.
+ * When more than one provider is registered for the target service, the
+ * reference's {@link ProviderSelector} chooses between them; without one the
+ * first provider is used.
  */
 public class AddressingHandler extends BaseHandler {
     
@@ -58,9 +64,7 @@ public class AddressingHandler extends BaseHandler {
             throw RuntimeMessages.MESSAGES.noRegisteredService(exchange.getConsumer().getName().toString());
         }
 
-        // At this stage, just pick the first service implementation we find and go with
-        // it.  In the future, it would be nice if we could make this pluggable.
-        Service service = services.get(0);
+        Service service = selectProvider(exchange, services);
         ServiceOperation consumerOp = exchange.getContract().getConsumerOperation();
         ServiceOperation providerOp = service.getInterface().getOperation(consumerOp.getName());
         
@@ -76,8 +80,39 @@ public class AddressingHandler extends BaseHandler {
         
         // set provider contract and details on exchange
         exchange.provider(service, providerOp);
-        for (Policy policy : service.getServiceMetadata().getRequiredPolicies()) {
-            PolicyUtil.require(exchange, policy);
+        if (service instanceof ServiceImpl) {
+            PolicyUtil.require(exchange, ((ServiceImpl)service).getRequiredPolicies());
+        } else {
+            PolicyUtil.require(exchange, PolicySet.of(service.getServiceMetadata().getRequiredPolicies()));
+        }
+    }
+
+    private Service selectProvider(Exchange exchange, List<Service> services) {
+        if (services.size() > 1 && exchange.getConsumer() instanceof ServiceReferenceImpl) {
+            ProviderSelector selector = ((ServiceReferenceImpl)exchange.getConsumer()).getProviderSelector();
+            if (selector != null) {
+                Service service = selector.select(exchange, services);
+                if (service != null) {
+                    return service;
+                }
+            }
+        }
+        return services.get(0);
+    }
+
+    /**
+     * Tell the provider selector of the exchange's consumer that the provider
+     * is done with the exchange.  Dispatchers call this once the request
+     * chain has finished with the exchange, whether or not the exchange ever
+     * completes.
+     * @param exchange exchange the request chain has finished with
+     */
+    public static void providerDone(Exchange exchange) {
+        if (exchange.getConsumer() instanceof ServiceReferenceImpl) {
+            ProviderSelector selector = ((ServiceReferenceImpl)exchange.getConsumer()).getProviderSelector();
+            if (selector != null) {
+                selector.completed(exchange);
+            }
         }
     }
 
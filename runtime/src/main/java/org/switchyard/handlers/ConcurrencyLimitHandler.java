@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.handlers;
+
+import org.switchyard.BaseHandler;
+import org.switchyard.Exchange;
+import org.switchyard.ExchangePhase;
+import org.switchyard.HandlerException;
+import org.switchyard.Property;
+import org.switchyard.Scope;
+import org.switchyard.internal.ServiceReferenceImpl;
+import org.switchyard.label.BehaviorLabel;
+import org.switchyard.runtime.RuntimeMessages;
+import org.switchyard.runtime.limit.AdaptiveConcurrencyLimiter;
+import org.switchyard.runtime.limit.AdaptiveConcurrencyLimiter.Permit;
+
+/**
+ * Holds each exchange sent through a service reference with a concurrency
+ * limit until the reference's {@link AdaptiveConcurrencyLimiter} grants it a
+ * permit, and rejects it with a fault if none is granted in time.  The permit
+ * is released, and the exchange's latency recorded, by the dispatcher once it
+ * is done handling the request, so a request which fails or is never answered
+ * does not hold its permit.
+ */
+public class ConcurrencyLimitHandler extends BaseHandler {
+
+    /**
+     * Exchange property holding the permit granted to an exchange.
+     */
+    public static final String CONCURRENCY_PERMIT = "org.switchyard.qos.throttling.permit";
+
+    @Override
+    public void handleMessage(Exchange exchange) throws HandlerException {
+        if (ExchangePhase.IN != exchange.getPhase()
+                || !(exchange.getConsumer() instanceof ServiceReferenceImpl)) {
+            return;
+        }
+        AdaptiveConcurrencyLimiter limiter = ((ServiceReferenceImpl)exchange.getConsumer()).getConcurrencyLimiter();
+        if (limiter == null || exchange.getContext().getProperty(CONCURRENCY_PERMIT, Scope.EXCHANGE) != null) {
+            return;
+        }
+
+        Permit permit = limiter.acquire();
+        if (permit == null) {
+            throw RuntimeMessages.MESSAGES.concurrencyLimitReached(
+                    exchange.getConsumer().getName().toString(), limiter.getLimit());
+        }
+        exchange.getContext().setProperty(CONCURRENCY_PERMIT, permit, Scope.EXCHANGE)
+                .addLabels(BehaviorLabel.TRANSIENT.label());
+    }
+
+    /**
+     * Release the permit held by an exchange, if it holds one.  Dispatchers
+     * call this once the request chain has finished with the exchange.
+     * @param exchange exchange which may hold a permit
+     */
+    public static void releasePermit(Exchange exchange) {
+        Property property = exchange.getContext().getProperty(CONCURRENCY_PERMIT, Scope.EXCHANGE);
+        if (property != null) {
+            exchange.getContext().removeProperty(property);
+            ((Permit)property.getValue()).release();
+        }
+    }
+
+}
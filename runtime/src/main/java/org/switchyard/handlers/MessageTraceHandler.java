@@ -14,14 +14,44 @@
 
 package org.switchyard.handlers;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.jboss.logging.Logger;
 import org.switchyard.Exchange;
 import org.switchyard.ExchangeHandler;
 import org.switchyard.HandlerException;
+import org.switchyard.Property;
+import org.switchyard.Scope;
+import org.switchyard.ServiceDomain;
+import org.switchyard.internal.DomainImpl;
+import org.switchyard.label.BehaviorLabel;
+import org.switchyard.runtime.RuntimeLogger;
 import org.switchyard.runtime.util.ExchangeFormatter;
 
 /**
- * Half-baked message tracing implementation.
+ * Logs a trace of each message passing a trace point.
+ * <p/>
+ * Tracing can be tuned through domain properties so it is safe to leave on
+ * under load:
+ * <ul>
+ * <li>{@link #SAMPLE_RATE} traces one exchange in N, with every trace point
+ * of a sampled exchange traced;</li>
+ * <li>{@link #MAX_BODY_SIZE} caps the amount of each message body printed,
+ * and stream or Reader content is only read as far as the cap;</li>
+ * <li>{@link #ASYNC} hands traces to a background thread through a buffer
+ * of {@link #BUFFER_SIZE} traces, and drops traces when the buffer is full
+ * rather than slowing the exchange down.  Dropped traces are counted and
+ * reported in the log, at most once a minute.</li>
+ * </ul>
+ * All trace points of a domain share the handler returned by
+ * {@link #forDomain(ServiceDomain)}, and with it a single writer thread and
+ * buffer, which the domain closes when it is destroyed.
  */
 public class MessageTraceHandler implements ExchangeHandler {
     
@@ -30,20 +60,253 @@ public class MessageTraceHandler implements ExchangeHandler {
      */
     public static final String TRACE_ENABLED = 
             "org.switchyard.handlers.messageTrace.enabled";
+    /**
+     * Domain property specifying that one exchange in N is traced.
+     */
+    public static final String SAMPLE_RATE = 
+            "org.switchyard.handlers.messageTrace.sampleRate";
+    /**
+     * Domain property specifying the most bytes, or characters for text
+     * content, of a message body printed in a trace; a negative value
+     * prints the whole body.
+     */
+    public static final String MAX_BODY_SIZE = 
+            "org.switchyard.handlers.messageTrace.maxBodySize";
+    /**
+     * Domain property used to enable asynchronous trace output.
+     */
+    public static final String ASYNC = 
+            "org.switchyard.handlers.messageTrace.async";
+    /**
+     * Domain property specifying the number of traces buffered for
+     * asynchronous output.
+     */
+    public static final String BUFFER_SIZE = 
+            "org.switchyard.handlers.messageTrace.bufferSize";
+    /**
+     * Exchange property recording whether an exchange is sampled for tracing.
+     */
+    public static final String SAMPLED = 
+            "org.switchyard.handlers.messageTrace.sampled";
+
+    /**
+     * Default body size cap.
+     */
+    public static final int DEFAULT_MAX_BODY_SIZE = 64 * 1024;
+    /**
+     * Default number of traces buffered for asynchronous output.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1000;
     
     private static Logger _log = Logger.getLogger(MessageTraceHandler.class);
 
+    // dropped traces are reported at most this often, in milliseconds
+    private static final long REPORT_INTERVAL = 60000;
+
+    private final ServiceDomain _domain;
+    private final AtomicLong _count = new AtomicLong();
+    private final AtomicLong _dropped = new AtomicLong();
+    private volatile ThreadPoolExecutor _writer;
+    private volatile boolean _closed;
+    private int _bufferSize;
+    private long _reportedDrops;
+    private long _lastReport;
+
+    /**
+     * Create a new MessageTraceHandler which traces every message in full.
+     */
+    public MessageTraceHandler() {
+        this(null);
+    }
+
+    /**
+     * Create a new MessageTraceHandler configured by the properties of the
+     * specified domain.
+     * @param domain service domain, or null for the defaults
+     */
+    public MessageTraceHandler(ServiceDomain domain) {
+        _domain = domain;
+    }
+
+    /**
+     * The handler shared by the trace points of a domain.
+     * @param domain service domain
+     * @return the domain's handler, or a new handler if the domain does not
+     * keep one
+     */
+    public static MessageTraceHandler forDomain(ServiceDomain domain) {
+        if (domain instanceof DomainImpl) {
+            return ((DomainImpl)domain).getMessageTraceHandler();
+        }
+        return new MessageTraceHandler(domain);
+    }
+
     @Override
     public void handleFault(Exchange exchange) {
-        if (_log.isInfoEnabled()) {
-            _log.info(ExchangeFormatter.format(exchange, true));
-        }
+        trace(exchange);
     }
 
     @Override
     public void handleMessage(Exchange exchange) throws HandlerException {
-        if (_log.isInfoEnabled()) {
-            _log.info(ExchangeFormatter.format(exchange, true));
+        trace(exchange);
+    }
+
+    /**
+     * Number of traces dropped because the output buffer was full.
+     * @return dropped trace count
+     */
+    public long getDroppedCount() {
+        return _dropped.get();
+    }
+
+    /**
+     * Stop the background writer once the traces already buffered have been
+     * written, and report any dropped traces not yet reported.  Traces made
+     * after this are written on the calling thread.
+     */
+    public void close() {
+        ThreadPoolExecutor writer;
+        synchronized (this) {
+            _closed = true;
+            writer = _writer;
+            _writer = null;
+        }
+        if (writer != null) {
+            writer.shutdown();
+            reportDrops(true);
+        }
+    }
+
+    /**
+     * Whether traces are written at all.
+     * @return true if the trace log is enabled
+     */
+    protected boolean isEnabled() {
+        return _log.isInfoEnabled();
+    }
+
+    /**
+     * Writes a trace.  Called on the background thread when output is
+     * asynchronous.
+     * @param trace the formatted trace
+     */
+    protected void write(String trace) {
+        _log.info(trace);
+    }
+
+    private void trace(Exchange exchange) {
+        if (!isEnabled() || !isSampled(exchange)) {
+            return;
+        }
+        final String trace = ExchangeFormatter.format(exchange, true, 
+                _domain == null ? ExchangeFormatter.UNLIMITED 
+                        : (int)getLongProperty(MAX_BODY_SIZE, DEFAULT_MAX_BODY_SIZE));
+        ThreadPoolExecutor writer = _domain != null && getBooleanProperty(ASYNC) ? getWriter() : null;
+        if (writer != null) {
+            writer.execute(new Runnable() {
+                public void run() {
+                    write(trace);
+                    reportDrops(false);
+                }
+            });
+        } else {
+            write(trace);
+        }
+    }
+
+    // runs on the writer thread, so exchanges never pay for the logging
+    private synchronized void reportDrops(boolean force) {
+        long dropped = _dropped.get();
+        if (dropped == _reportedDrops) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (force || _reportedDrops == 0 || now - _lastReport >= REPORT_INTERVAL) {
+            RuntimeLogger.ROOT_LOGGER.tracesDropped(dropped - _reportedDrops, dropped, _bufferSize);
+            _reportedDrops = dropped;
+            _lastReport = now;
+        }
+    }
+
+    // every trace point of an exchange follows the decision made at the first
+    private boolean isSampled(Exchange exchange) {
+        long rate = _domain == null ? 1 : getLongProperty(SAMPLE_RATE, 1);
+        if (rate == 1) {
+            return true;
+        }
+        Property property = exchange.getContext().getProperty(SAMPLED, Scope.EXCHANGE);
+        if (property != null) {
+            return Boolean.TRUE.equals(property.getValue());
+        }
+        boolean sampled = rate > 1 && _count.getAndIncrement() % rate == 0;
+        exchange.getContext().setProperty(SAMPLED, sampled, Scope.EXCHANGE)
+                .addLabels(BehaviorLabel.TRANSIENT.label());
+        return sampled;
+    }
+
+    // null once the handler is closed
+    private ThreadPoolExecutor getWriter() {
+        ThreadPoolExecutor writer = _writer;
+        if (writer == null && !_closed) {
+            synchronized (this) {
+                if (_writer == null && !_closed) {
+                    _bufferSize = (int)Math.max(1, getLongProperty(BUFFER_SIZE, DEFAULT_BUFFER_SIZE));
+                    ThreadPoolExecutor created = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, 
+                            new ArrayBlockingQueue<Runnable>(_bufferSize),
+                            new TraceThreadFactory(), new DropPolicy());
+                    created.allowCoreThreadTimeOut(true);
+                    _writer = created;
+                }
+                writer = _writer;
+            }
+        }
+        return writer;
+    }
+
+    private boolean getBooleanProperty(String name) {
+        Object value = _domain.getProperty(name);
+        if (value instanceof Boolean) {
+            return ((Boolean)value).booleanValue();
+        }
+        return value != null && Boolean.valueOf(value.toString().trim());
+    }
+
+    private long getLongProperty(String name, long defaultValue) {
+        Object value = _domain.getProperty(name);
+        if (value instanceof Number) {
+            return ((Number)value).longValue();
+        } else if (value != null) {
+            try {
+                return Long.parseLong(value.toString().trim());
+            } catch (NumberFormatException nfEx) {
+                RuntimeLogger.ROOT_LOGGER.invalidDomainProperty(name, value.toString(), String.valueOf(defaultValue));
+            }
+        }
+        return defaultValue;
+    }
+
+    // counts traces which find the buffer full instead of blocking the
+    // exchange; a trace racing with close() is written on the calling thread
+    private final class DropPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                task.run();
+            } else {
+                _dropped.incrementAndGet();
+            }
+        }
+    }
+
+    // names the trace output thread and marks it as a daemon
+    private static final class TraceThreadFactory implements ThreadFactory {
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "SwitchYard-MessageTrace-" + COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
     }
 
@@ -14,13 +14,13 @@
 package org.switchyard.handlers;
 
 import java.util.Iterator;
-import java.util.Set;
 
 import org.switchyard.BaseHandler;
 import org.switchyard.Exchange;
 import org.switchyard.ExchangePhase;
 import org.switchyard.HandlerException;
 import org.switchyard.policy.Policy;
+import org.switchyard.policy.PolicySet;
 import org.switchyard.policy.PolicyUtil;
 import org.switchyard.runtime.RuntimeMessages;
 
@@ -44,19 +44,14 @@ public class PolicyHandler extends BaseHandler {
     public void handleMessage(Exchange exchange) throws HandlerException {
         // only execute on the IN phase
         if (ExchangePhase.IN.equals(exchange.getPhase())) {
-            Set<Policy> required = PolicyUtil.getRequired(exchange);
-            Iterator<Policy> reqIt = required.iterator();
-            while (reqIt.hasNext()) {
-                if (PolicyUtil.isProvided(exchange, reqIt.next())) {
-                    reqIt.remove();
-                }
-            }
-            if (!required.isEmpty()) {
+            PolicySet missing = PolicyUtil.getRequiredPolicies(exchange)
+                    .without(PolicyUtil.getProvidedPolicies(exchange));
+            if (!missing.isEmpty()) {
                 // Required policies are missing.  Format the list for fault message.
-                Iterator<Policy> missing = required.iterator();
-                StringBuilder requires = new StringBuilder(missing.next().getName());
-                while (missing.hasNext()) {
-                    requires.append(" " + missing.next().getName());
+                Iterator<Policy> policies = missing.iterator();
+                StringBuilder requires = new StringBuilder(policies.next().getName());
+                while (policies.hasNext()) {
+                    requires.append(" " + policies.next().getName());
                 }
                 throw RuntimeMessages.MESSAGES.requiredPolicesNeeded(requires.toString());
             }
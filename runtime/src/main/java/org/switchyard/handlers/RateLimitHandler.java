@@ -0,0 +1,159 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.handlers;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.switchyard.BaseHandler;
+import org.switchyard.Exchange;
+import org.switchyard.ExchangePhase;
+import org.switchyard.ExchangeState;
+import org.switchyard.HandlerException;
+import org.switchyard.Property;
+import org.switchyard.Scope;
+import org.switchyard.internal.ServiceReferenceImpl;
+import org.switchyard.label.BehaviorLabel;
+import org.switchyard.metadata.qos.Throttling.LimitAction;
+import org.switchyard.runtime.RuntimeLogger;
+import org.switchyard.runtime.RuntimeMessages;
+import org.switchyard.runtime.limit.RateLimitScheduler;
+import org.switchyard.runtime.limit.RateLimiter;
+
+/**
+ * Applies the rate limit of a service reference to the exchanges sent
+ * through it.  Dispatchers call {@link #reserve} before a request enters the
+ * handler chain, so a request can be delayed without holding a thread or
+ * refused before any handler runs.  A delayed request is handed to the bus's
+ * {@link RateLimitScheduler}, which passes it on to the bus's dispatch
+ * threads once the delay has passed.  If the bus has no dispatch threads, or
+ * the request is transactional, the caller waits out the delay instead, since
+ * the request is handled on that thread anyway.  A request answered with a fault is marked
+ * instead, and the handler, which runs first in the chain, raises the fault.
+ */
+public class RateLimitHandler extends BaseHandler {
+
+    /**
+     * Exchange property marking an exchange which is over the rate limit.
+     */
+    public static final String RATE_LIMITED = "org.switchyard.qos.throttling.rateLimited";
+
+    /**
+     * Take the tokens needed to dispatch an exchange.  Exchanges which are
+     * not rate limited, or are not in the IN phase, are admitted at once.
+     * @param exchange the exchange being dispatched
+     * @return 0 to dispatch now, or the number of nanoseconds to delay the
+     * dispatch by
+     * @throws org.switchyard.SwitchYardException the exchange is over the
+     * limit and the limit action is REJECT
+     */
+    public static long reserve(Exchange exchange) {
+        if (ExchangePhase.IN != exchange.getPhase()
+                || !(exchange.getConsumer() instanceof ServiceReferenceImpl)) {
+            return 0;
+        }
+        RateLimiter limiter = ((ServiceReferenceImpl)exchange.getConsumer()).getRateLimiter();
+        if (limiter == null) {
+            return 0;
+        }
+        String operation = exchange.getContract() != null 
+                ? exchange.getContract().getConsumerOperation().getName() : null;
+        long delay = limiter.reserve(operation);
+        if (delay >= 0) {
+            return delay;
+        }
+        if (limiter.getLimitAction() == LimitAction.REJECT) {
+            throw RuntimeMessages.MESSAGES.rateLimitRejected(exchange.getConsumer().getName().toString());
+        }
+        exchange.getContext().setProperty(RATE_LIMITED, Boolean.TRUE, Scope.EXCHANGE)
+                .addLabels(BehaviorLabel.TRANSIENT.label());
+        return 0;
+    }
+
+    /**
+     * Hand an exchange back to its dispatcher once its delay has passed.  The
+     * scheduler's thread only runs the hand off, which passes the exchange on
+     * to the dispatch threads of the bus.  If the hand off fails the failure
+     * is returned to the consumer as a fault.  If the scheduler has been shut
+     * down, or already has as many requests delayed as it allows, the caller
+     * waits out the delay and hands the exchange off itself.
+     * @param scheduler scheduler owned by the bus
+     * @param exchange the exchange
+     * @param handOff passes the exchange on to the dispatch threads
+     * @param failed run if the hand off fails, may be null
+     * @param delay delay returned by {@link #reserve}
+     */
+    public static void dispatchLater(RateLimitScheduler scheduler, final Exchange exchange, 
+            final Runnable handOff, final Runnable failed, long delay) {
+        Runnable task = new Runnable() {
+            public void run() {
+                try {
+                    handOff.run();
+                } catch (RuntimeException rtEx) {
+                    RuntimeLogger.ROOT_LOGGER.asyncDispatchFailed(exchange.getConsumer().getName().toString(), rtEx);
+                    if (ExchangePhase.IN.equals(exchange.getPhase()) 
+                            && ExchangeState.OK.equals(exchange.getState())) {
+                        exchange.sendFault(exchange.createMessage().setContent(new HandlerException(rtEx)));
+                    }
+                    if (failed != null) {
+                        failed.run();
+                    }
+                }
+            }
+        };
+        try {
+            scheduler.schedule(task, delay);
+        } catch (RejectedExecutionException reEx) {
+            await(delay);
+            task.run();
+        }
+    }
+
+    /**
+     * Wait out the delay of a request on the caller's thread.  Used for
+     * requests which have to stay on that thread, such as transactional ones.
+     * @param delay delay returned by {@link #reserve}
+     */
+    public static void await(long delay) {
+        long deadline = System.nanoTime() + delay;
+        boolean interrupted = false;
+        try {
+            for (long left = delay; left > 0; left = deadline - System.nanoTime()) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(left);
+                } catch (InterruptedException iEx) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void handleMessage(Exchange exchange) throws HandlerException {
+        if (ExchangePhase.IN != exchange.getPhase()) {
+            return;
+        }
+        Property property = exchange.getContext().getProperty(RATE_LIMITED, Scope.EXCHANGE);
+        if (property != null) {
+            exchange.getContext().removeProperty(property);
+            throw RuntimeMessages.MESSAGES.rateLimitReached(exchange.getConsumer().getName().toString());
+        }
+    }
+
+}
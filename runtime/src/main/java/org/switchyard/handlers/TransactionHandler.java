@@ -14,6 +14,9 @@
 
 package org.switchyard.handlers;
 
+import java.util.Collection;
+import java.util.EnumSet;
+
 import javax.transaction.Status;
 import javax.transaction.SystemException;
 import javax.transaction.Transaction;
@@ -25,7 +28,12 @@ import org.switchyard.ExchangeHandler;
 import org.switchyard.HandlerException;
 import org.switchyard.Property;
 import org.switchyard.Scope;
+import org.switchyard.Service;
+import org.switchyard.ServiceReference;
+import org.switchyard.internal.ServiceReferenceImpl;
 import org.switchyard.label.BehaviorLabel;
+import org.switchyard.policy.Policy;
+import org.switchyard.policy.PolicySet;
 import org.switchyard.policy.PolicyUtil;
 import org.switchyard.policy.TransactionPolicy;
 import org.switchyard.runtime.RuntimeLogger;
@@ -45,6 +53,8 @@ public class TransactionHandler implements ExchangeHandler {
             "org.switchyard.exchange.transaction.initiated";
     private static final String BEFORE_INVOKED_PROPERTY =
             "org.switchyard.exchange.transaction.beforeInvoked";
+    // every transaction policy, so a policy set can be checked for any of them without iterating it
+    private static final PolicySet TRANSACTION_POLICIES = PolicySet.of(EnumSet.allOf(TransactionPolicy.class));
     
     private static Logger _log = Logger.getLogger(TransactionHandler.class);
     
@@ -99,6 +109,44 @@ public class TransactionHandler implements ExchangeHandler {
         }
     }
     
+    /**
+     * Indicates whether the request chain for an exchange has to run on the
+     * thread which sent it.  Transactions are bound to the sending thread, so
+     * this is the case when the exchange or its target service carries
+     * transaction policy, or when the sender has an active transaction.
+     * @param exchange exchange being sent
+     * @return true if the exchange must not be handed to another thread
+     */
+    public boolean isTransactional(Exchange exchange) {
+        if (PolicyUtil.getRequiredPolicies(exchange).containsAny(TRANSACTION_POLICIES)
+                || PolicyUtil.getProvidedPolicies(exchange).containsAny(TRANSACTION_POLICIES)) {
+            return true;
+        }
+        ServiceReference consumer = exchange.getConsumer();
+        if (consumer instanceof ServiceReferenceImpl) {
+            // worked out once per reference rather than for every exchange
+            if (((ServiceReferenceImpl)consumer).getTargetRequiredPolicies().containsAny(TRANSACTION_POLICIES)) {
+                return true;
+            }
+        } else if (consumer != null && consumer.getDomain() != null && consumer.getTargetServiceName() != null) {
+            for (Service service : consumer.getDomain().getServices(consumer.getTargetServiceName())) {
+                if (service.getServiceMetadata() != null
+                        && hasTransactionPolicy(service.getServiceMetadata().getRequiredPolicies())) {
+                    return true;
+                }
+            }
+        }
+        if (_transactionManager != null) {
+            try {
+                return _transactionManager.getStatus() != Status.STATUS_NO_TRANSACTION;
+            } catch (SystemException sEx) {
+                // can't tell, so keep the exchange on the sender's thread
+                return true;
+            }
+        }
+        return false;
+    }
+
     void setTransactionManager(TransactionManager transactionManager) {
         _transactionManager = transactionManager;
     }
@@ -363,6 +411,17 @@ public class TransactionHandler implements ExchangeHandler {
         }
     }
 
+    private static boolean hasTransactionPolicy(Collection<Policy> policies) {
+        if (policies != null) {
+            for (Policy policy : policies) {
+                if (policy instanceof TransactionPolicy) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private void printDebugInfo(String message) {
         StringBuilder buf = new StringBuilder(message);
         buf.append(" - [Thread: ");
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.internal;
+
+import java.util.EventObject;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jboss.logging.Logger;
+import org.switchyard.event.EventObserver;
+import org.switchyard.internal.EventManager.OverflowPolicy;
+import org.switchyard.runtime.RuntimeLogger;
+
+/**
+ * Delivers events to asynchronous observers.  Publishers place events in a
+ * bounded ring buffer and a single daemon thread drains the buffer in batches,
+ * notifying each observer outside of the publisher's thread.  Events which do
+ * not fit in the buffer are counted and reported in the log, at most once a
+ * minute.
+ */
+class AsyncEventDispatcher implements Runnable {
+
+    private static Logger _logger = Logger.getLogger(AsyncEventDispatcher.class);
+
+    private static final int MAX_BATCH = 64;
+
+    // dropped events are reported at most this often, in milliseconds
+    private static final long REPORT_INTERVAL = 60000;
+
+    private final Pending[] _ring;
+    private final OverflowPolicy _overflowPolicy;
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Condition _notEmpty = _lock.newCondition();
+    private final Condition _notFull = _lock.newCondition();
+    private final AtomicLong _dropped = new AtomicLong();
+    private int _head;
+    private int _count;
+    private volatile boolean _running = true;
+    private final Thread _thread;
+    private long _reportedDrops;
+    private long _lastReport;
+
+    /**
+     * Create and start a new dispatcher.
+     * @param capacity number of events which may be pending delivery
+     * @param overflowPolicy what to do when the buffer is full
+     */
+    AsyncEventDispatcher(int capacity, OverflowPolicy overflowPolicy) {
+        _ring = new Pending[capacity];
+        _overflowPolicy = overflowPolicy;
+        _thread = new Thread(this, "SwitchYard-EventDispatcher");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    /**
+     * Queue an event for delivery to the specified observers.  Once the
+     * dispatcher has been shut down events are rejected and counted as
+     * dropped, as nothing would ever deliver them.
+     * @param event event to deliver
+     * @param observers observers to notify
+     * @return true if the event was queued or coalesced with a pending one
+     */
+    boolean enqueue(EventObject event, EventObserver[] observers) {
+        _lock.lock();
+        try {
+            while (_running && _count == _ring.length) {
+                switch (_overflowPolicy) {
+                case BLOCK:
+                    _notFull.awaitUninterruptibly();
+                    continue;
+                case COALESCE:
+                    if (coalesce(event, observers)) {
+                        return true;
+                    }
+                    _dropped.incrementAndGet();
+                    return false;
+                default:
+                    _dropped.incrementAndGet();
+                    return false;
+                }
+            }
+            if (!_running) {
+                _dropped.incrementAndGet();
+                return false;
+            }
+            _ring[(_head + _count) % _ring.length] = new Pending(event, observers);
+            _count++;
+            _notEmpty.signal();
+            return true;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Number of events which were discarded because the buffer was full.
+     * @return dropped event count
+     */
+    long getDroppedCount() {
+        return _dropped.get();
+    }
+
+    /**
+     * Number of events waiting to be delivered.
+     * @return pending event count
+     */
+    int getPendingCount() {
+        _lock.lock();
+        try {
+            return _count;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Stop the dispatch thread once the events already queued are delivered.
+     * @param timeout maximum time to wait, in milliseconds
+     */
+    void shutdown(long timeout) {
+        _lock.lock();
+        try {
+            _running = false;
+            _notEmpty.signalAll();
+            _notFull.signalAll();
+        } finally {
+            _lock.unlock();
+        }
+        try {
+            _thread.join(timeout);
+        } catch (InterruptedException iEx) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        Pending[] batch = new Pending[Math.min(MAX_BATCH, _ring.length)];
+        while (true) {
+            int size = drain(batch);
+            if (size < 0) {
+                reportDrops(true);
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                deliver(batch[i]);
+                batch[i] = null;
+            }
+            reportDrops(false);
+        }
+    }
+
+    // runs on the dispatch thread, so publishers never pay for the logging
+    private void reportDrops(boolean force) {
+        long dropped = _dropped.get();
+        if (dropped == _reportedDrops) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (force || _reportedDrops == 0 || now - _lastReport >= REPORT_INTERVAL) {
+            RuntimeLogger.ROOT_LOGGER.eventsDropped(dropped - _reportedDrops, dropped, _ring.length);
+            _reportedDrops = dropped;
+            _lastReport = now;
+        }
+    }
+
+    // a pending event with the same type and source is replaced by the newer event
+    private boolean coalesce(EventObject event, EventObserver[] observers) {
+        for (int i = 0; i < _count; i++) {
+            int index = (_head + i) % _ring.length;
+            EventObject pending = _ring[index]._event;
+            if (pending.getClass() == event.getClass() && pending.getSource() == event.getSource()) {
+                _ring[index] = new Pending(event, observers);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // blocks until events are available; returns -1 once stopped and empty
+    private int drain(Pending[] batch) {
+        _lock.lock();
+        try {
+            while (_count == 0) {
+                if (!_running) {
+                    return -1;
+                }
+                try {
+                    _notEmpty.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException iEx) {
+                    // keep draining until shut down
+                    continue;
+                }
+            }
+            int size = Math.min(_count, batch.length);
+            for (int i = 0; i < size; i++) {
+                batch[i] = _ring[_head];
+                _ring[_head] = null;
+                _head = (_head + 1) % _ring.length;
+            }
+            _count -= size;
+            _notFull.signalAll();
+            return size;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private void deliver(Pending pending) {
+        for (EventObserver observer : pending._observers) {
+            try {
+                observer.notify(pending._event);
+            } catch (Throwable t) {
+                // do not propagate errors on event notifications
+                _logger.debug("Observer threw exception on event " + pending._event.getClass(), t);
+            }
+        }
+    }
+
+    private static final class Pending {
+        private final EventObject _event;
+        private final EventObserver[] _observers;
+
+        Pending(EventObject event, EventObserver[] observers) {
+            _event = event;
+            _observers = observers;
+        }
+    }
+}
@@ -13,7 +13,7 @@
  */
 package org.switchyard.internal;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -31,7 +31,7 @@ import org.switchyard.serial.graph.Strategy;
 @Strategy(access=AccessType.FIELD)
 public class CompositeContext implements Context {
 
-    private Map<Scope, Context> _contexts = new HashMap<Scope, Context>();
+    private Map<Scope, Context> _contexts = new EnumMap<Scope, Context>(Scope.class);
     
     /**
      * Create a new composite context with empty EXCHANGE and MESSAGE contexts.
@@ -66,10 +66,8 @@ public class CompositeContext implements Context {
 
     @Override
     public Property getProperty(String name, Scope scope) {
-        if (!_contexts.containsKey(scope)) {
-            return null;
-        }
-        return _contexts.get(scope).getProperty(name);
+        Context context = _contexts.get(scope);
+        return context != null ? context.getProperty(name) : null;
     }
 
     @Override
@@ -14,7 +14,9 @@
 
 package org.switchyard.internal;
 
+import java.util.AbstractSet;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -30,6 +32,10 @@ import org.switchyard.serial.graph.node.Node;
 
 /**
  * Serializable implementation of <code>Context</code>.
+ * <p/>
+ * Labels are copy-on-write: the label set is never modified once published,
+ * so copying a property's labels to another property shares the set, and
+ * the copies only diverge when one of them is relabelled.
  */
 @Strategy(access=AccessType.FIELD, factory=ContextPropertyFactory.class)
 public class ContextProperty implements Property {
@@ -37,11 +43,14 @@ public class ContextProperty implements Property {
     private String _name;
     private Scope _scope;
     private Object _value;
-    private Set<String> _labels = Collections.synchronizedSet(new TreeSet<String>());
+    private volatile Set<String> _labels;
+    // table notified of label changes, so it can keep its label index current
+    private transient PropertyTable _owner;
     
     // Private ctor used for internal serialization only
     private ContextProperty() {
-        
+        // filled in place by the serializer, and never modified after that
+        _labels = new TreeSet<String>();
     }
     
     ContextProperty(String name, Scope scope, Object value) {
@@ -52,6 +61,7 @@ public class ContextProperty implements Property {
         _name = name;
         _scope = scope;
         _value = value;
+        _labels = Collections.emptySet();
     }
 
     @Override
@@ -82,7 +92,7 @@ public class ContextProperty implements Property {
      */
     @Override
     public Set<String> getLabels() {
-        return Collections.unmodifiableSet(_labels);
+        return new LabelView();
     }
 
     /**
@@ -91,10 +101,7 @@ public class ContextProperty implements Property {
     @Override
     public Property addLabels(String... labels) {
         for (String label : labels) {
-            label = normalizeLabel(label);
-            if (label != null) {
-                _labels.add(label);
-            }
+            addLabel(label);
         }
         return this;
     }
@@ -105,10 +112,7 @@ public class ContextProperty implements Property {
     @Override
     public Property addLabels(Set<String> labels) {
         for (String label : labels) {
-            label = normalizeLabel(label);
-            if (label != null) {
-                _labels.add(label);
-            }
+            addLabel(label);
         }
         return this;
     }
@@ -121,7 +125,7 @@ public class ContextProperty implements Property {
         for (String label : labels) {
             label = normalizeLabel(label);
             if (label != null) {
-                _labels.remove(label);
+                removeLabel(label);
             }
         }
         return this;
@@ -136,7 +140,76 @@ public class ContextProperty implements Property {
         return label != null && _labels.contains(label);
     }
 
-    private String normalizeLabel(String label) {
+    /**
+     * Whether the property has a label, which is already normalized.
+     * @param label the normalized label
+     * @return true if the property has the label
+     */
+    boolean hasNormalizedLabel(String label) {
+        return _labels.contains(label);
+    }
+
+    /**
+     * Adds the labels of another property, sharing its label set when this
+     * property has none of its own.
+     * @param source property to copy labels from
+     */
+    void copyLabels(ContextProperty source) {
+        Set<String> labels = source._labels;
+        PropertyTable owner;
+        synchronized (this) {
+            if (!_labels.isEmpty()) {
+                addLabels(labels);
+                return;
+            }
+            _labels = labels;
+            owner = _owner;
+        }
+        if (owner != null) {
+            for (String label : labels) {
+                owner.labelAdded(this, label);
+            }
+        }
+    }
+
+    /**
+     * Makes the specified table the one notified of label changes.
+     * @param owner the table
+     * @return false if the property already belongs to another table
+     */
+    synchronized boolean adopt(PropertyTable owner) {
+        if (_owner != null && _owner != owner) {
+            return false;
+        }
+        _owner = owner;
+        return true;
+    }
+
+    /**
+     * Stops notifying the specified table of label changes.
+     * @param owner the table
+     */
+    synchronized void release(PropertyTable owner) {
+        if (_owner == owner) {
+            _owner = null;
+        }
+    }
+
+    /**
+     * Whether the specified table is notified of label changes.
+     * @param owner the table
+     * @return true if the property belongs to the table
+     */
+    synchronized boolean isOwnedBy(PropertyTable owner) {
+        return _owner == owner;
+    }
+
+    /**
+     * Normalizes a label the way it is stored.
+     * @param label the label
+     * @return the trimmed, lower case label, or null if it is blank
+     */
+    static String normalizeLabel(String label) {
         label = Strings.trimToNull(label);
         if (label != null) {
             label = label.toLowerCase();
@@ -144,6 +217,46 @@ public class ContextProperty implements Property {
         return label;
     }
 
+    private void addLabel(String label) {
+        label = normalizeLabel(label);
+        if (label == null) {
+            return;
+        }
+        PropertyTable owner;
+        synchronized (this) {
+            if (_labels.contains(label)) {
+                return;
+            }
+            if (_labels.isEmpty()) {
+                _labels = Collections.singleton(label);
+            } else {
+                Set<String> labels = new TreeSet<String>(_labels);
+                labels.add(label);
+                _labels = labels;
+            }
+            owner = _owner;
+        }
+        if (owner != null) {
+            owner.labelAdded(this, label);
+        }
+    }
+
+    private void removeLabel(String label) {
+        PropertyTable owner;
+        synchronized (this) {
+            if (!_labels.contains(label)) {
+                return;
+            }
+            Set<String> labels = new TreeSet<String>(_labels);
+            labels.remove(label);
+            _labels = labels;
+            owner = _owner;
+        }
+        if (owner != null) {
+            owner.labelRemoved(this, label);
+        }
+    }
+
     // NOTE: Labels are intentionally not part of equals(Object) or hashCode().
     @Override
     public boolean equals(Object obj) {
@@ -171,11 +284,30 @@ public class ContextProperty implements Property {
 
     @Override
     public String toString() {
-        String labels = Strings.concat(", ", _labels.toArray(new String[_labels.size()]));
+        Set<String> current = _labels;
+        String labels = Strings.concat(", ", current.toArray(new String[current.size()]));
         labels = "{" + (labels != null ? labels : "") + "}";
         return ("[name=" + _name + ", scope=" + _scope + ", value=" + _value + ", labels=" + labels + "]");
     }
     
+    // read-only view of the current labels, which follows later relabelling
+    private final class LabelView extends AbstractSet<String> {
+        @Override
+        public Iterator<String> iterator() {
+            return Collections.unmodifiableSet(_labels).iterator();
+        }
+
+        @Override
+        public int size() {
+            return _labels.size();
+        }
+
+        @Override
+        public boolean contains(Object label) {
+            return _labels.contains(label);
+        }
+    }
+
     /**
      * The serialization factory for context properties.
      */
@@ -13,6 +13,8 @@
  */
 package org.switchyard.internal;
 
+import java.util.Collection;
+
 import org.switchyard.Context;
 import org.switchyard.Property;
 import org.switchyard.Scope;
@@ -24,21 +26,40 @@ import org.switchyard.runtime.RuntimeMessages;
  */
 public final class ContextUtil {
 
+    private static final String TRANSIENT = BehaviorLabel.TRANSIENT.label();
+
     private ContextUtil() { }
 
     /**
      * Copy properties from source context to destination context. Properties with
-     * TRANSIENT label will be skipped.
+     * TRANSIENT label will be skipped.  Copies of {@link ContextProperty} labels
+     * share the source's label set until either property is relabelled.
      * 
      * @param source Source context.
      * @param destination Destination context.
      * @return Destination context.
      */
     public static Context copy(Context source, Context destination) {
-        for (Property property : source.getProperties()) {
-            if (!property.hasLabel(BehaviorLabel.TRANSIENT.label())) {
-                destination.setProperty(property.getName(), property.getValue())
-                    .addLabels(property.getLabels());
+        if (source == destination) {
+            return destination;
+        }
+        Collection<Property> properties;
+        if (source instanceof DefaultContext) {
+            properties = ((DefaultContext)source).values();
+        } else {
+            properties = source.getProperties();
+        }
+        if (destination instanceof DefaultContext) {
+            ((DefaultContext)destination).ensureCapacity(properties.size());
+        }
+        for (Property property : properties) {
+            if (!property.hasLabel(TRANSIENT)) {
+                Property copy = destination.setProperty(property.getName(), property.getValue());
+                if (copy instanceof ContextProperty && property instanceof ContextProperty) {
+                    ((ContextProperty)copy).copyLabels((ContextProperty)property);
+                } else {
+                    copy.addLabels(property.getLabels());
+                }
             }
         }
         return destination;
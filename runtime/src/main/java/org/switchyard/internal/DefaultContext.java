@@ -16,7 +16,7 @@ package org.switchyard.internal;
 
 import static org.switchyard.internal.ContextUtil.checkScope;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -28,7 +28,8 @@ import org.switchyard.serial.graph.AccessType;
 import org.switchyard.serial.graph.Strategy;
 
 /**
- * Base context implementation.
+ * Base context implementation.  Unless a property map is supplied, properties
+ * are held in a {@link PropertyTable}, which indexes them by label.
  */
 @Strategy(access=AccessType.FIELD)
 public class DefaultContext implements Context {
@@ -52,7 +53,7 @@ public class DefaultContext implements Context {
      * @param defaultScope Scope handled by context.
      */
     public DefaultContext(Scope defaultScope) {
-        this(defaultScope, new HashMap<String, Property>());
+        this(defaultScope, new PropertyTable());
     }
 
     /**
@@ -115,8 +116,11 @@ public class DefaultContext implements Context {
 
     @Override
     public Set<Property> getProperties(String label) {
+        if (_properties instanceof PropertyTable) {
+            return ((PropertyTable)_properties).getProperties(label);
+        }
         Set<Property> props = new HashSet<Property>();
-        for (Property p : getProperties()) {
+        for (Property p : _properties.values()) {
             if (p.hasLabel(label)) {
                 props.add(p);
             }
@@ -126,10 +130,8 @@ public class DefaultContext implements Context {
 
     @Override
     public void removeProperties(String label) {
-        for (Property p : getProperties()) {
-            if (p.hasLabel(label)) {
-                removeProperty(p);
-            }
+        for (Property p : getProperties(label)) {
+            removeProperty(p);
         }
     }
 
@@ -159,6 +161,25 @@ public class DefaultContext implements Context {
         return value;
     }
 
+    /**
+     * Gets the properties of this context without copying them.
+     * @return live view of the properties
+     */
+    Collection<Property> values() {
+        return _properties.values();
+    }
+
+    /**
+     * Prepares this context to hold the specified number of additional properties.
+     * @param count number of properties about to be set
+     */
+    void ensureCapacity(int count) {
+        if (_properties instanceof PropertyTable) {
+            PropertyTable table = (PropertyTable)_properties;
+            table.ensureCapacity(table.size() + count);
+        }
+    }
+
     /**
      * Allows to specify default scope of this context.
      * 
@@ -14,8 +14,8 @@
 
 package org.switchyard.internal;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.jboss.logging.Logger;
@@ -25,13 +25,22 @@ import org.switchyard.ExchangeState;
 import org.switchyard.HandlerException;
 import org.switchyard.Message;
 import org.switchyard.runtime.RuntimeLogger;
+import org.switchyard.runtime.trace.Span;
+import org.switchyard.runtime.trace.Tracer;
 
 /**
  * Default handler chain.
+ * <p/>
+ * The chain is copy-on-write: every add/replace/remove builds a new array of
+ * handler references and publishes it atomically, so handle() walks a stable
+ * snapshot without taking a lock or copying the chain for each exchange.
+ * When the exchange is traced, each handler runs in a child span of the
+ * exchange span named after the handler.
  */
 public class DefaultHandlerChain implements HandlerChain {
     private static Logger _logger = Logger.getLogger(DefaultHandlerChain.class);
-    private final LinkedList<HandlerRef> _chain = new LinkedList<HandlerRef>();
+    private static final HandlerRef[] EMPTY_CHAIN = new HandlerRef[0];
+    private volatile HandlerRef[] _chain = EMPTY_CHAIN;
     
     /**
      * Create a new handler chain with no handlers in it.
@@ -44,8 +53,9 @@ public class DefaultHandlerChain implements HandlerChain {
      * is not intended for external use - it's used by the clone() method.
      * @param handlers
      */
-    private DefaultHandlerChain(List<HandlerRef> handlers) {
-        _chain.addAll(handlers);
+    private DefaultHandlerChain(HandlerRef[] handlers) {
+        // the array is never modified after publication, so it can be shared
+        _chain = handlers;
     }
 
     /**
@@ -67,7 +77,10 @@ public class DefaultHandlerChain implements HandlerChain {
             ExchangeHandler handler) {
         HandlerRef handlerRef = new HandlerRef(handlerName, handler);
 
-        _chain.addFirst(handlerRef);
+        HandlerRef[] chain = new HandlerRef[_chain.length + 1];
+        chain[0] = handlerRef;
+        System.arraycopy(_chain, 0, chain, 1, _chain.length);
+        _chain = chain;
         if (_logger.isDebugEnabled()) {
             _logger.debug("Added ExchangeHandler instance at start of Handler Chain: " + handlerRef);
         }
@@ -78,7 +91,9 @@ public class DefaultHandlerChain implements HandlerChain {
             ExchangeHandler handler) {
         HandlerRef handlerRef = new HandlerRef(handlerName, handler);
 
-        _chain.addLast(handlerRef);
+        HandlerRef[] chain = Arrays.copyOf(_chain, _chain.length + 1);
+        chain[_chain.length] = handlerRef;
+        _chain = chain;
         if (_logger.isDebugEnabled()) {
             _logger.debug("Added ExchangeHandler instance at end of Handler Chain: " + handlerRef);
         }
@@ -86,30 +101,30 @@ public class DefaultHandlerChain implements HandlerChain {
     
     @Override
     public synchronized boolean replace(String handlerName, ExchangeHandler handler) {
-        for (int i = 0; i < _chain.size(); i++) {
-            if (_chain.get(i).getName().equals(handlerName)) {
-                _chain.remove(i);
-                _chain.add(i, new HandlerRef(handlerName, handler));
-                return true;
-            }
+        int index = indexOf(handlerName);
+        if (index < 0) {
+            // no handler with the specified name found
+            return false;
         }
         
-        // no handler with the specified name found
-        return false;
+        HandlerRef[] chain = _chain.clone();
+        chain[index] = new HandlerRef(handlerName, handler);
+        _chain = chain;
+        return true;
     }
 
     @Override
     public synchronized ExchangeHandler remove(String handlerName) {
-        ExchangeHandler handler = null;
-
-        for (HandlerRef ref : _chain) {
-            if (ref.getName().equals(handlerName)) {
-                handler = ref.getHandler();
-                _chain.remove(ref);
-                break;
-            }
+        int index = indexOf(handlerName);
+        if (index < 0) {
+            return null;
         }
 
+        ExchangeHandler handler = _chain[index].getHandler();
+        HandlerRef[] chain = new HandlerRef[_chain.length - 1];
+        System.arraycopy(_chain, 0, chain, 0, index);
+        System.arraycopy(_chain, index + 1, chain, index, chain.length - index);
+        _chain = chain;
         return handler;
     }
 
@@ -124,12 +139,13 @@ public class DefaultHandlerChain implements HandlerChain {
 
     @Override
     public void handleFault(Exchange exchange) {
-        for (HandlerRef ref : listHandlers()) {
+        Span span = Tracer.getSpan(exchange);
+        for (HandlerRef ref : _chain) {
             try {
                 if (_logger.isDebugEnabled()) {
                     _logger.debug("Executing Fault ExchangeHandler (" + ref + ") on message Exchange instance (" + System.identityHashCode(exchange) + ").");
                 }
-                ref.getHandler().handleFault(exchange);
+                Tracer.handleFault(ref.getName(), ref.getHandler(), exchange, span);
             } catch (Exception e) {
                 RuntimeLogger.ROOT_LOGGER.handlerFailedHandleFault(ref.getName(), e);
             }
@@ -139,13 +155,14 @@ public class DefaultHandlerChain implements HandlerChain {
     @Override
     public void handleMessage(Exchange exchange) {
         HandlerRef handlerRef = null;
+        Span span = Tracer.getSpan(exchange);
         try {
-            for (HandlerRef ref : listHandlers()) {
+            for (HandlerRef ref : _chain) {
                 handlerRef = ref;
                 if (_logger.isDebugEnabled()) {
                     _logger.debug("Executing ExchangeHandler (" + ref + ") on message Exchange instance (" + System.identityHashCode(exchange) + ").");
                 }
-                ref.getHandler().handleMessage(exchange);
+                Tracer.handleMessage(ref.getName(), ref.getHandler(), exchange, span);
 
                 if (exchange.getState() == ExchangeState.FAULT) {
                     // Exchange state has changed to FAULT.
@@ -169,11 +186,12 @@ public class DefaultHandlerChain implements HandlerChain {
     
     @Override
     public List<ExchangeHandler> getHandlers() {
-        List<ExchangeHandler> handlers = new LinkedList<ExchangeHandler>();
-        for (HandlerRef hr : listHandlers()) {
-            handlers.add(hr.getHandler());
+        HandlerRef[] chain = _chain;
+        ExchangeHandler[] handlers = new ExchangeHandler[chain.length];
+        for (int i = 0; i < chain.length; i++) {
+            handlers[i] = chain[i].getHandler();
         }
-        return Collections.unmodifiableList(handlers);
+        return Collections.unmodifiableList(Arrays.asList(handlers));
     }
     
     /**
@@ -181,19 +199,25 @@ public class DefaultHandlerChain implements HandlerChain {
      * @return copy of the default chain.
      */
     public DefaultHandlerChain copy() {
+        HandlerRef[] chain = _chain;
         if (_logger.isDebugEnabled()) {
-            _logger.debug("Cloning DefaultHandlerChain from a its list of Handlers: " + listHandlers());
+            _logger.debug("Cloning DefaultHandlerChain from a its list of Handlers: " + Arrays.toString(chain));
         }
-        return new DefaultHandlerChain(listHandlers());
+        return new DefaultHandlerChain(chain);
     }
 
     @Override
     public String toString() {
-        return _chain.toString();
+        return Arrays.toString(_chain);
     }
 
-    private synchronized List<HandlerRef> listHandlers() {
-        return new LinkedList<HandlerRef>(_chain);
+    private int indexOf(String handlerName) {
+        for (int i = 0; i < _chain.length; i++) {
+            if (_chain[i].getName().equals(handlerName)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     // sweet little struct
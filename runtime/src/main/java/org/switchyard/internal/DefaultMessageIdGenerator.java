@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.internal;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.switchyard.spi.MessageIdGenerator;
+
+/**
+ * Generates IDs made of a random 64-bit prefix, chosen once per generator,
+ * and a 64-bit sequence number, both in fixed-width hex.  Each thread
+ * reserves a block of sequence numbers at a time, so generating an ID
+ * neither contends with other threads nor draws on SecureRandom, and IDs
+ * from the same thread are increasing.
+ */
+public class DefaultMessageIdGenerator implements MessageIdGenerator {
+
+    private static final int BLOCK_SIZE = 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int LENGTH = 33;
+
+    private final char[] _prefix = new char[17];
+    private final AtomicLong _blocks = new AtomicLong();
+    private final ThreadLocal<long[]> _sequence = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            // next sequence number and the end of the reserved block
+            return new long[2];
+        }
+    };
+
+    /**
+     * Create a new generator with a random prefix.
+     */
+    public DefaultMessageIdGenerator() {
+        this(UUID.randomUUID().getLeastSignificantBits());
+    }
+
+    /**
+     * Create a new generator with the specified prefix.
+     * @param prefix prefix shared by all IDs from this generator
+     */
+    public DefaultMessageIdGenerator(long prefix) {
+        writeHex(prefix, _prefix, 0);
+        _prefix[16] = '-';
+    }
+
+    @Override
+    public String generate() {
+        long[] sequence = _sequence.get();
+        if (sequence[0] == sequence[1]) {
+            sequence[0] = _blocks.getAndIncrement() * BLOCK_SIZE;
+            sequence[1] = sequence[0] + BLOCK_SIZE;
+        }
+        char[] id = new char[LENGTH];
+        System.arraycopy(_prefix, 0, id, 0, _prefix.length);
+        writeHex(sequence[0]++, id, _prefix.length);
+        return new String(id);
+    }
+
+    private static void writeHex(long value, char[] chars, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int)value & 0xf];
+            value >>>= 4;
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.util.EventObject;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.namespace.QName;
 
@@ -30,21 +31,27 @@ import org.switchyard.ServiceDomain;
 import org.switchyard.ServiceMetadata;
 import org.switchyard.ServiceReference;
 import org.switchyard.ServiceSecurity;
+import org.switchyard.common.type.Classes;
 import org.switchyard.event.DomainShutdownEvent;
 import org.switchyard.event.DomainStartupEvent;
 import org.switchyard.event.EventObserver;
 import org.switchyard.event.EventPublisher;
 import org.switchyard.event.ReferenceRegistrationEvent;
 import org.switchyard.event.ServiceRegistrationEvent;
+import org.switchyard.handlers.MessageTraceHandler;
 import org.switchyard.internal.transform.BaseTransformerRegistry;
 import org.switchyard.internal.validate.BaseValidatorRegistry;
 import org.switchyard.metadata.InOutService;
 import org.switchyard.metadata.ServiceInterface;
+import org.switchyard.runtime.RuntimeLogger;
+import org.switchyard.runtime.fault.FaultCapture;
+import org.switchyard.runtime.trace.Tracer;
 import org.switchyard.security.service.DefaultServiceDomainSecurity;
 import org.switchyard.security.service.SecureServiceDomain;
 import org.switchyard.security.service.ServiceDomainSecurity;
 import org.switchyard.spi.Dispatcher;
 import org.switchyard.spi.ExchangeBus;
+import org.switchyard.spi.MessageIdGenerator;
 import org.switchyard.spi.ServiceRegistry;
 import org.switchyard.transform.TransformerRegistry;
 import org.switchyard.validate.ValidatorRegistry;
@@ -54,16 +61,32 @@ import org.switchyard.validate.ValidatorRegistry;
  */
 public class DomainImpl implements SecureServiceDomain {
 
+    /** Generator used unless the domain is configured otherwise. */
+    static final MessageIdGenerator DEFAULT_MESSAGE_ID_GENERATOR = new DefaultMessageIdGenerator();
+
+    private static final String FAULT_PROPERTY_PREFIX = "org.switchyard.faults.";
+
+    // how long to wait for events pending delivery when a buffer is retired, in milliseconds
+    private static final long EVENT_SHUTDOWN_TIMEOUT = 5000;
+
     private static Logger _logger = Logger.getLogger(DomainImpl.class);
 
     private final QName _name;
     private EventManager _eventManager;
+    // only a manager created by this domain is shut down with it
+    private boolean _ownsEventManager;
     private ServiceRegistry _serviceRegistry;
     private ExchangeBus _exchangeBus;
     private TransformerRegistry _transformerRegistry;
     private ValidatorRegistry _validatorRegistry;
     private Map<String, Object> _properties = new ConcurrentHashMap<String, Object>();
     private ServiceDomainSecurity _serviceDomainSecurity;
+    private volatile MessageIdGenerator _messageIdGenerator;
+    private volatile Tracer _tracer;
+    private volatile FaultCapture _faultCapture;
+    private MessageTraceHandler _messageTrace;
+    // changed whenever a service is registered or unregistered through the domain
+    private final AtomicInteger _servicesVersion = new AtomicInteger();
     
     /**
      * Create a new ServiceDomain.  This is a convenience constructor which uses default
@@ -79,6 +102,7 @@ public class DomainImpl implements SecureServiceDomain {
             new BaseValidatorRegistry(),
             new EventManager(),
             new DefaultServiceDomainSecurity());
+        _ownsEventManager = true;
         init();
     }
     
@@ -134,6 +158,7 @@ public class DomainImpl implements SecureServiceDomain {
         Service service = new ServiceImpl(serviceName, contract, this, handler, metadata);
         // register the service
         _serviceRegistry.registerService(service);
+        _servicesVersion.incrementAndGet();
         _eventManager.publish(new ServiceRegistrationEvent(service));
         return service;
     }
@@ -193,6 +218,25 @@ public class DomainImpl implements SecureServiceDomain {
         return _serviceRegistry.getServices(serviceName);
     }
     
+    /**
+     * Changed whenever a service is registered or unregistered through this
+     * domain, so anything derived from the registered services can tell when
+     * it has to be worked out again.
+     * @return services version
+     */
+    int getServicesVersion() {
+        return _servicesVersion.get();
+    }
+
+    /**
+     * Removes a service from the registry.
+     * @param service service to unregister
+     */
+    void unregisterService(Service service) {
+        _serviceRegistry.unregisterService(service);
+        _servicesVersion.incrementAndGet();
+    }
+
     /**
      * Convenient access to the domain's service registry.
      * @return service registry
@@ -211,6 +255,7 @@ public class DomainImpl implements SecureServiceDomain {
     
     @Override
     public void init() {
+        configureEvents();
         _eventManager.publish(new DomainStartupEvent(this));
         _exchangeBus.init(this);
         _exchangeBus.start();
@@ -220,6 +265,13 @@ public class DomainImpl implements SecureServiceDomain {
     public void destroy() {
         _exchangeBus.stop();
         _eventManager.publish(new DomainShutdownEvent(this));
+        if (_ownsEventManager) {
+            // a shared manager keeps delivering events for the other domains
+            _eventManager.shutdown(EVENT_SHUTDOWN_TIMEOUT);
+        }
+        closeFaultCapture();
+        closeMessageTrace();
+        closeTracer();
     }
 
     @Override
@@ -250,9 +302,168 @@ public class DomainImpl implements SecureServiceDomain {
         } else {
             _properties.remove(name);
         }
+        if (MessageIdGenerator.MESSAGE_ID_GENERATOR.equals(name)) {
+            _messageIdGenerator = null;
+        } else if (name.startsWith(FAULT_PROPERTY_PREFIX)) {
+            closeFaultCapture();
+        } else if (Tracer.EXPORTER.equals(name)) {
+            closeTracer();
+        }
         return this;
     }
 
+    /**
+     * Where faults which have no reply handler are sent, as configured by the
+     * org.switchyard.faults.* domain properties.  The capture is created on
+     * first use and recreated when one of those properties changes.
+     * @return fault capture
+     */
+    public FaultCapture getFaultCapture() {
+        FaultCapture capture = _faultCapture;
+        if (capture == null) {
+            // a capture owns a drain thread, so only one is ever created
+            synchronized (this) {
+                capture = _faultCapture;
+                if (capture == null) {
+                    capture = FaultCapture.create(this);
+                    _faultCapture = capture;
+                }
+            }
+        }
+        return capture;
+    }
+
+    private void closeFaultCapture() {
+        FaultCapture capture;
+        synchronized (this) {
+            capture = _faultCapture;
+            _faultCapture = null;
+        }
+        if (capture != null) {
+            capture.close();
+        }
+    }
+
+    /**
+     * The message trace handler shared by the trace points of this domain,
+     * created on first use.
+     * @return message trace handler
+     */
+    public synchronized MessageTraceHandler getMessageTraceHandler() {
+        if (_messageTrace == null) {
+            _messageTrace = new MessageTraceHandler(this);
+        }
+        return _messageTrace;
+    }
+
+    private void closeMessageTrace() {
+        MessageTraceHandler trace;
+        synchronized (this) {
+            trace = _messageTrace;
+            _messageTrace = null;
+        }
+        if (trace != null) {
+            trace.close();
+        }
+    }
+
+    /**
+     * The tracer for exchanges in this domain, as set by the
+     * {@link Tracer#EXPORTER} domain property.
+     * @return tracer
+     */
+    public Tracer getTracer() {
+        Tracer tracer = _tracer;
+        if (tracer == null) {
+            // an enabled tracer is counted until closed, so only one is ever created
+            synchronized (this) {
+                tracer = _tracer;
+                if (tracer == null) {
+                    tracer = Tracer.create(this);
+                    _tracer = tracer;
+                }
+            }
+        }
+        return tracer;
+    }
+
+    private void closeTracer() {
+        Tracer tracer;
+        synchronized (this) {
+            tracer = _tracer;
+            _tracer = null;
+        }
+        if (tracer != null) {
+            tracer.close();
+        }
+    }
+
+    /**
+     * The generator for the IDs of messages sent in this domain, as set by
+     * the {@link MessageIdGenerator#MESSAGE_ID_GENERATOR} domain property.
+     * @return message ID generator
+     */
+    public MessageIdGenerator getMessageIdGenerator() {
+        MessageIdGenerator generator = _messageIdGenerator;
+        if (generator == null) {
+            generator = createMessageIdGenerator(_properties.get(MessageIdGenerator.MESSAGE_ID_GENERATOR));
+            _messageIdGenerator = generator;
+        }
+        return generator;
+    }
+
+    private MessageIdGenerator createMessageIdGenerator(Object value) {
+        if (value == null || "default".equals(value)) {
+            return DEFAULT_MESSAGE_ID_GENERATOR;
+        } else if (value instanceof MessageIdGenerator) {
+            return (MessageIdGenerator)value;
+        } else if ("uuid".equals(value)) {
+            return new UUIDMessageIdGenerator();
+        }
+        try {
+            Class<?> type = Classes.forName(value.toString().trim(), getClass());
+            if (type != null && MessageIdGenerator.class.isAssignableFrom(type)) {
+                return (MessageIdGenerator)type.newInstance();
+            }
+        } catch (Exception e) {
+            _logger.debug("Failed to create message ID generator " + value, e);
+        }
+        RuntimeLogger.ROOT_LOGGER.invalidDomainProperty(
+                MessageIdGenerator.MESSAGE_ID_GENERATOR, value.toString(), "default");
+        return DEFAULT_MESSAGE_ID_GENERATOR;
+    }
+
+    private void configureEvents() {
+        Object capacity = _properties.get(EventManager.CAPACITY);
+        Object overflow = _properties.get(EventManager.OVERFLOW);
+        if (capacity == null && overflow == null) {
+            return;
+        }
+        int bufferCapacity = _eventManager.getCapacity();
+        if (capacity != null) {
+            try {
+                bufferCapacity = Integer.parseInt(capacity.toString().trim());
+            } catch (NumberFormatException nfEx) {
+                bufferCapacity = -1;
+            }
+            if (bufferCapacity < 1) {
+                bufferCapacity = _eventManager.getCapacity();
+                RuntimeLogger.ROOT_LOGGER.invalidDomainProperty(
+                        EventManager.CAPACITY, capacity.toString(), String.valueOf(bufferCapacity));
+            }
+        }
+        EventManager.OverflowPolicy overflowPolicy = _eventManager.getOverflowPolicy();
+        if (overflow != null) {
+            try {
+                overflowPolicy = EventManager.OverflowPolicy.valueOf(overflow.toString().trim().toUpperCase());
+            } catch (IllegalArgumentException iaEx) {
+                RuntimeLogger.ROOT_LOGGER.invalidDomainProperty(
+                        EventManager.OVERFLOW, overflow.toString(), overflowPolicy.name());
+            }
+        }
+        _eventManager.setAsyncDelivery(bufferCapacity, overflowPolicy, EVENT_SHUTDOWN_TIMEOUT);
+    }
+
     private void setEventPublisher(Object target) {
         if (target == null) {
             return;
@@ -14,31 +14,110 @@
 
 package org.switchyard.internal;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EventObject;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.logging.Logger;
 import org.switchyard.event.EventObserver;
 import org.switchyard.event.EventPublisher;
+import org.switchyard.runtime.RuntimeMessages;
 
 /**
  * Handles registration and publication of events in a ServiceDomain.
+ * <p/>
+ * Observers are registered either as synchronous, in which case they are 
+ * notified on the publishing thread, or asynchronous, in which case the 
+ * publisher only queues the event and a dedicated thread delivers it in 
+ * batches.  An observer registered for an event type is notified of events of
+ * that type and of any subtype.  The set of observers for each concrete event 
+ * class is computed once and cached until the registrations change.
+ * <p/>
+ * An EventManager may be shared by several domains, so asynchronous delivery
+ * is only stopped by {@link #shutdown(long)} when the owner of the manager is
+ * torn down.  The capacity and overflow policy of the asynchronous event
+ * buffer can be set with the {@link #CAPACITY} and {@link #OVERFLOW} domain
+ * properties; as the settings belong to the manager, the domain initialized
+ * last decides them for every domain sharing it.
  */
 public class EventManager implements EventPublisher {
 
+    /**
+     * What to do with an event for asynchronous observers when the event 
+     * buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** Discard the new event. */
+        DROP,
+        /** Block the publisher until space is available. */
+        BLOCK,
+        /** 
+         * Replace a pending event with the same type and source, or discard
+         * the new event if there is none.
+         */
+        COALESCE
+    }
+
+    /**
+     * Default capacity of the asynchronous event buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Domain property naming the capacity of the asynchronous event buffer.
+     */
+    public static final String CAPACITY = "org.switchyard.events.capacity";
+
+    /**
+     * Domain property naming the {@link OverflowPolicy} of the asynchronous
+     * event buffer.
+     */
+    public static final String OVERFLOW = "org.switchyard.events.overflow";
+
     private static Logger _logger = Logger.getLogger(EventManager.class);
+    private static final EventObserver[] NO_OBSERVERS = new EventObserver[0];
     
     private Map<Class<? extends EventObject>, List<EventObserver>> _observers;
+    private Map<Class<? extends EventObject>, List<EventObserver>> _asyncObservers;
+    private final ConcurrentHashMap<Class<?>, DispatchTable> _dispatchTables = 
+            new ConcurrentHashMap<Class<?>, DispatchTable>();
+    private int _capacity;
+    private OverflowPolicy _overflowPolicy;
+    private volatile AsyncEventDispatcher _asyncDispatcher;
+    // dispatchers replaced by new settings, which still count late rejections
+    private final List<AsyncEventDispatcher> _retired = new CopyOnWriteArrayList<AsyncEventDispatcher>();
+    private final AtomicLong _rejected = new AtomicLong();
+    private volatile boolean _shutdown;
     
     /**
      * Creates a new instance of EventManager.
      */
     public EventManager() {
+        this(DEFAULT_CAPACITY, OverflowPolicy.DROP);
+    }
+    
+    /**
+     * Creates a new instance of EventManager with the specified settings for
+     * asynchronous event delivery.
+     * @param capacity number of events which may be pending delivery to asynchronous observers
+     * @param overflowPolicy what to do when the buffer of pending events is full
+     */
+    public EventManager(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw RuntimeMessages.MESSAGES.invalidEventBufferCapacity(capacity);
+        }
+        _capacity = capacity;
+        _overflowPolicy = overflowPolicy;
         _observers = new ConcurrentHashMap<Class<? extends EventObject>, List<EventObserver>>();
+        _asyncObservers = new ConcurrentHashMap<Class<? extends EventObject>, List<EventObserver>>();
     }
     
     @Override
@@ -47,7 +126,8 @@ public class EventManager implements EventPublisher {
            _logger.trace("Publishing event " + event);
        }
 
-       for (EventObserver observer : getObserversForEvent(event.getClass())) {
+       DispatchTable table = getDispatchTable(event.getClass());
+       for (EventObserver observer : table._sync) {
            try {
                observer.notify(event);
            } catch (Throwable t) {
@@ -55,19 +135,32 @@ public class EventManager implements EventPublisher {
                _logger.debug("Observer threw exception on event " + event.getClass(), t);
            }
        }
+       if (table._async.length > 0) {
+           AsyncEventDispatcher dispatcher = _asyncDispatcher;
+           if (dispatcher == null) {
+               dispatcher = startAsyncDispatcher();
+           }
+           if (dispatcher != null) {
+               dispatcher.enqueue(event, table._async);
+           } else {
+               // shut down before any event needed asynchronous delivery
+               _rejected.incrementAndGet();
+           }
+       }
     }
     
     /**
-     * Returns a list of EventObserver instances for a given event type.
+     * Returns a list of EventObserver instances for a given event type.  This 
+     * includes synchronous and asynchronous observers registered for the type 
+     * or any of its supertypes.
      * @param event event type to query for observers
      * @return list of EventObservers for the type or an empty list if none are registered
      */
     public List<EventObserver> getObserversForEvent(Class<? extends EventObject> event) {
-        if (_observers.containsKey(event)) {
-            return _observers.get(event);
-        } else {
-            return Collections.emptyList();
-        }
+        DispatchTable table = getDispatchTable(event);
+        List<EventObserver> observers = new ArrayList<EventObserver>(Arrays.asList(table._sync));
+        observers.addAll(Arrays.asList(table._async));
+        return observers;
     }
     
     /**
@@ -80,15 +173,23 @@ public class EventManager implements EventPublisher {
      */
     public synchronized EventManager addObserver(
             EventObserver observer, Class<? extends EventObject> event) {
-        
-        List<EventObserver> observerList = _observers.get(event);
-        if (observerList == null) {
-            observerList = new LinkedList<EventObserver>();
-            _observers.put(event, observerList);
-        }
-        
-        observerList.add(observer);
-        _logger.debug("Observer added for event " + event.getCanonicalName());
+        register(_observers, observer, event);
+        return this;
+    }
+    
+    /**
+     * Register an observer which is notified on the event dispatch thread
+     * rather than on the thread which published the event.  Events which 
+     * reference mutable state (e.g. an Exchange) may have moved on by the time
+     * the observer sees them.
+     * @param observer observer instance to add
+     * @param event the event to register against
+     * @return a reference to this EventManger for chaining calls
+     */
+    public synchronized EventManager addAsyncObserver(
+            EventObserver observer, Class<? extends EventObject> event) {
+        startAsyncDispatcher();
+        register(_asyncObservers, observer, event);
         return this;
     }
     
@@ -100,6 +201,10 @@ public class EventManager implements EventPublisher {
         for (List<EventObserver> observers : _observers.values()) {
             observers.remove(observer);
         }
+        for (List<EventObserver> observers : _asyncObservers.values()) {
+            observers.remove(observer);
+        }
+        _dispatchTables.clear();
     }
 
     /**
@@ -114,5 +219,172 @@ public class EventManager implements EventPublisher {
         if (observers != null) {
             observers.remove(observer);
         }
+        observers = _asyncObservers.get(event);
+        if (observers != null) {
+            observers.remove(observer);
+        }
+        _dispatchTables.clear();
+    }
+
+    /**
+     * Number of events which could not be queued for asynchronous observers 
+     * because the event buffer was full.
+     * @return dropped event count
+     */
+    public long getDroppedEventCount() {
+        long dropped = _rejected.get();
+        for (AsyncEventDispatcher retired : _retired) {
+            dropped += retired.getDroppedCount();
+        }
+        AsyncEventDispatcher dispatcher = _asyncDispatcher;
+        return dropped + (dispatcher != null ? dispatcher.getDroppedCount() : 0);
+    }
+
+    /**
+     * Number of events waiting to be delivered to asynchronous observers.
+     * @return pending event count
+     */
+    public int getPendingEventCount() {
+        AsyncEventDispatcher dispatcher = _asyncDispatcher;
+        return dispatcher != null ? dispatcher.getPendingCount() : 0;
+    }
+
+    /**
+     * Capacity of the asynchronous event buffer.
+     * @return number of events which may be pending delivery
+     */
+    public synchronized int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * What happens to events for asynchronous observers when the buffer is full.
+     * @return overflow policy
+     */
+    public synchronized OverflowPolicy getOverflowPolicy() {
+        return _overflowPolicy;
+    }
+
+    /**
+     * Change the settings for asynchronous event delivery.  If events are
+     * already being delivered, a new buffer takes over and the events pending
+     * in the old one are delivered before its thread stops.
+     * @param capacity number of events which may be pending delivery to asynchronous observers
+     * @param overflowPolicy what to do when the buffer of pending events is full
+     * @param timeout maximum time to wait for events pending in the old buffer, in milliseconds
+     */
+    public void setAsyncDelivery(int capacity, OverflowPolicy overflowPolicy, long timeout) {
+        if (capacity < 1) {
+            throw RuntimeMessages.MESSAGES.invalidEventBufferCapacity(capacity);
+        }
+        AsyncEventDispatcher replaced;
+        synchronized (this) {
+            if (capacity == _capacity && overflowPolicy == _overflowPolicy) {
+                return;
+            }
+            _capacity = capacity;
+            _overflowPolicy = overflowPolicy;
+            replaced = _asyncDispatcher;
+            if (replaced == null || _shutdown) {
+                return;
+            }
+            _retired.add(replaced);
+            _asyncDispatcher = new AsyncEventDispatcher(_capacity, _overflowPolicy);
+        }
+        replaced.shutdown(timeout);
+    }
+
+    /**
+     * Stops asynchronous event delivery after delivering events which have
+     * already been published.  Events published for asynchronous observers
+     * after this are counted as dropped, so only the owner of a shared
+     * EventManager should call this, once every domain using it is destroyed.
+     * @param timeout maximum time to wait for pending events, in milliseconds
+     */
+    public void shutdown(long timeout) {
+        AsyncEventDispatcher dispatcher;
+        synchronized (this) {
+            _shutdown = true;
+            dispatcher = _asyncDispatcher;
+        }
+        if (dispatcher != null) {
+            dispatcher.shutdown(timeout);
+        }
+    }
+
+    private synchronized AsyncEventDispatcher startAsyncDispatcher() {
+        if (_asyncDispatcher == null && !_shutdown) {
+            _asyncDispatcher = new AsyncEventDispatcher(_capacity, _overflowPolicy);
+        }
+        return _asyncDispatcher;
+    }
+
+    private void register(Map<Class<? extends EventObject>, List<EventObserver>> registry, 
+            EventObserver observer, Class<? extends EventObject> event) {
+        List<EventObserver> observerList = registry.get(event);
+        if (observerList == null) {
+            observerList = new LinkedList<EventObserver>();
+            registry.put(event, observerList);
+        }
+        
+        observerList.add(observer);
+        _dispatchTables.clear();
+        _logger.debug("Observer added for event " + event.getCanonicalName());
+    }
+
+    private DispatchTable getDispatchTable(Class<?> eventType) {
+        DispatchTable table = _dispatchTables.get(eventType);
+        if (table == null) {
+            table = buildDispatchTable(eventType);
+        }
+        return table;
+    }
+
+    // holding the lock keeps a concurrent (un)registration from clearing the
+    // tables between building this one and caching it
+    private synchronized DispatchTable buildDispatchTable(Class<?> eventType) {
+        Set<Class<?>> types = new LinkedHashSet<Class<?>>();
+        collectTypes(eventType, types);
+        
+        Set<EventObserver> sync = new LinkedHashSet<EventObserver>();
+        Set<EventObserver> async = new LinkedHashSet<EventObserver>();
+        for (Class<?> type : types) {
+            List<EventObserver> observers = _observers.get(type);
+            if (observers != null) {
+                sync.addAll(observers);
+            }
+            observers = _asyncObservers.get(type);
+            if (observers != null) {
+                async.addAll(observers);
+            }
+        }
+        
+        DispatchTable table = new DispatchTable(
+                sync.isEmpty() ? NO_OBSERVERS : sync.toArray(new EventObserver[sync.size()]),
+                async.isEmpty() ? NO_OBSERVERS : async.toArray(new EventObserver[async.size()]));
+        _dispatchTables.put(eventType, table);
+        return table;
+    }
+
+    // the event class first, then its superclasses and interfaces
+    private static void collectTypes(Class<?> type, Set<Class<?>> types) {
+        if (type == null || !types.add(type)) {
+            return;
+        }
+        collectTypes(type.getSuperclass(), types);
+        for (Class<?> iface : type.getInterfaces()) {
+            collectTypes(iface, types);
+        }
+    }
+
+    // observers for a concrete event class
+    private static final class DispatchTable {
+        private final EventObserver[] _sync;
+        private final EventObserver[] _async;
+
+        DispatchTable(EventObserver[] sync, EventObserver[] async) {
+            _sync = sync;
+            _async = async;
+        }
     }
 }
@@ -14,7 +14,6 @@
 
 package org.switchyard.internal;
 
-import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import javax.xml.namespace.QName;
@@ -40,6 +39,8 @@ import org.switchyard.runtime.RuntimeLogger;
 import org.switchyard.runtime.RuntimeMessages;
 import org.switchyard.runtime.event.ExchangeCompletionEvent;
 import org.switchyard.runtime.event.ExchangeInitiatedEvent;
+import org.switchyard.runtime.fault.FaultCapture;
+import org.switchyard.runtime.trace.Tracer;
 import org.switchyard.security.context.DefaultExchangeSecurity;
 import org.switchyard.spi.Dispatcher;
 
@@ -63,6 +64,8 @@ public class ExchangeImpl implements Exchange {
     private Service                    _provider;
     private BaseExchangeContract       _contract = new BaseExchangeContract();
     private transient ExchangeSecurity _security = null;
+    private boolean                    _completionDeferred;
+    private boolean                    _deferredCompleted;
 
     /**
      * Create a new exchange with no endpoints initialized.  At a minimum, the 
@@ -184,6 +187,13 @@ public class ExchangeImpl implements Exchange {
         return _security;
     }
 
+    private String nextMessageId() {
+        if (_domain instanceof DomainImpl) {
+            return ((DomainImpl)_domain).getMessageIdGenerator().generate();
+        }
+        return DomainImpl.DEFAULT_MESSAGE_ID_GENERATOR.generate();
+    }
+
     /**
      * Internal send method common to sendFault and sendMessage.  This method
      * assumes that the exchange phase has been assigned for the send and that
@@ -198,7 +208,7 @@ public class ExchangeImpl implements Exchange {
         
         _message = message;
         // assign messageId
-        _message.getContext().setProperty(MESSAGE_ID, UUID.randomUUID().toString())
+        _message.getContext().setProperty(MESSAGE_ID, nextMessageId())
             .addLabels(BehaviorLabel.TRANSIENT.label());
         _compositeContext.setContext(Scope.MESSAGE, _message.getContext());
 
@@ -210,21 +220,13 @@ public class ExchangeImpl implements Exchange {
         }
         
         // if a fault was thrown by the handler chain and there's no reply chain
-        // we need to log.
-        // TODO : stick this in a central fault/error queue
+        // it goes to the domain's fault capture.
         if (ExchangeState.FAULT.equals(_state) && _replyHandler == null) {
-            // Attempt to convert content to String
-            String faultContent;
-            try {
-                faultContent = _message.getContent(String.class);
-            } catch (Exception ex) {
-                // Well, that didn't work.  Try the next best thing.
-                faultContent = _message.getContent().toString();
-            }
-            RuntimeLogger.ROOT_LOGGER.faultGeneratedDuringExchange(faultContent);
+            captureFault();
         } else {
             // Publish exchange initiation event
             if (ExchangePhase.IN.equals(getPhase())) {
+                Tracer.forDomain(_domain).startExchange(this);
                 getContext().setProperty(ExchangeInitiatedEvent.EXCHANGE_INITIATED_TIME + ".start", Long.toString(System.nanoTime()));
                 _domain.getEventPublisher().publish(new ExchangeInitiatedEvent(this));
             }
@@ -232,12 +234,66 @@ public class ExchangeImpl implements Exchange {
             _dispatch.dispatch(this);
         }
         
-        // Publish exchange completion event
-        if (isDone(sendPhase)) {
-            long duration = System.nanoTime() - _startTime;
-            getContext().setProperty(ExchangeCompletionEvent.EXCHANGE_DURATION, 
-                    TimeUnit.MILLISECONDS.convert(duration, TimeUnit.NANOSECONDS)).addLabels(BehaviorLabel.TRANSIENT.label());
-            _domain.getEventPublisher().publish(new ExchangeCompletionEvent(this));
+        // Publish exchange completion event, unless the dispatcher has taken
+        // the request to another thread and will complete the exchange itself
+        if (isDone(sendPhase) && !isCompletionDeferred()) {
+            complete();
+        }
+    }
+
+    /**
+     * Hold back the completion of the in-only exchange being sent until
+     * {@link #completeDeferred()} is called.  Used by dispatchers which hand
+     * the request to another thread, so the exchange completes when its
+     * request has been handled rather than when it was handed off.
+     */
+    synchronized void deferCompletion() {
+        _completionDeferred = true;
+    }
+
+    /**
+     * Complete an exchange whose completion was deferred.  Called once the
+     * request handler chain has finished with the exchange; only the first
+     * call has any effect.
+     */
+    void completeDeferred() {
+        synchronized (this) {
+            if (!_completionDeferred || _deferredCompleted) {
+                return;
+            }
+            _deferredCompleted = true;
+        }
+        complete();
+    }
+
+    private synchronized boolean isCompletionDeferred() {
+        return _completionDeferred;
+    }
+
+    private void complete() {
+        long duration = System.nanoTime() - _startTime;
+        getContext().setProperty(ExchangeCompletionEvent.EXCHANGE_DURATION, 
+                TimeUnit.MILLISECONDS.convert(duration, TimeUnit.NANOSECONDS)).addLabels(BehaviorLabel.TRANSIENT.label());
+        getContext().setProperty(ExchangeCompletionEvent.EXCHANGE_DURATION_NS, duration)
+                .addLabels(BehaviorLabel.TRANSIENT.label());
+        _domain.getEventPublisher().publish(new ExchangeCompletionEvent(this));
+        Tracer.finishExchange(this);
+    }
+
+    private void captureFault() {
+        if (_domain instanceof DomainImpl) {
+            ServiceOperation operation = _contract.getProviderOperation();
+            Object messageId = _message.getContext().getPropertyValue(MESSAGE_ID);
+            Object relatesTo = _message.getContext().getPropertyValue(RELATES_TO);
+            ((DomainImpl)_domain).getFaultCapture().capture(
+                    _consumer != null ? _consumer.getName() : null,
+                    _provider != null ? _provider.getName() : null,
+                    operation != null ? operation.getName() : null,
+                    messageId != null ? messageId.toString() : null,
+                    relatesTo != null ? relatesTo.toString() : null,
+                    _message);
+        } else {
+            RuntimeLogger.ROOT_LOGGER.faultGeneratedDuringExchange(FaultCapture.toText(_message));
         }
     }
 
@@ -14,39 +14,87 @@
 
 package org.switchyard.internal;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.namespace.QName;
 
-import org.switchyard.BaseHandler;
 import org.switchyard.Exchange;
 import org.switchyard.ExchangeHandler;
 import org.switchyard.ExchangePattern;
+import org.switchyard.ExchangePhase;
+import org.switchyard.ExchangeState;
+import org.switchyard.HandlerException;
 import org.switchyard.ServiceDomain;
 import org.switchyard.ServiceReference;
 import org.switchyard.handlers.AddressingHandler;
+import org.switchyard.handlers.ConcurrencyLimitHandler;
 import org.switchyard.handlers.PolicyHandler;
 import org.switchyard.handlers.ProviderHandler;
+import org.switchyard.handlers.RateLimitHandler;
 import org.switchyard.handlers.SecurityHandler;
 import org.switchyard.handlers.SecurityHandler.SecurityAction;
 import org.switchyard.handlers.TransactionHandler;
 import org.switchyard.handlers.TransformHandler;
 import org.switchyard.handlers.ValidateHandler;
+import org.switchyard.runtime.RuntimeLogger;
 import org.switchyard.runtime.RuntimeMessages;
+import org.switchyard.runtime.limit.RateLimitScheduler;
 import org.switchyard.spi.Dispatcher;
 import org.switchyard.spi.ExchangeBus;
 
 /**
  * Default endpoint provider.
+ * <p/>
+ * By default the request and reply handler chains run on the thread which
+ * sends the message.  Setting the {@link #ASYNC_ENABLED} domain property (or
+ * supplying an executor through {@link #LocalExchangeBus(ExecutorService)})
+ * hands each request off to a worker thread instead, so the consumer's send()
+ * returns as soon as the exchange is queued and the reply is delivered to the
+ * consumer's ExchangeHandler from the worker thread.  Exchanges which carry
+ * transaction policy, or are sent within an active transaction, are always
+ * handled on the sending thread since the transaction is bound to it.
  */
 public class LocalExchangeBus implements ExchangeBus {
 
+    /**
+     * Domain property used to enable asynchronous request dispatch.
+     */
+    public static final String ASYNC_ENABLED = "org.switchyard.bus.local.async.enabled";
+    /**
+     * Domain property specifying the number of dispatch threads.
+     */
+    public static final String ASYNC_THREADS = "org.switchyard.bus.local.async.threads";
+    /**
+     * Domain property specifying the capacity of the dispatch queue.
+     */
+    public static final String ASYNC_QUEUE_SIZE = "org.switchyard.bus.local.async.queueSize";
+
+    /**
+     * Default number of dispatch threads.
+     */
+    public static final int DEFAULT_ASYNC_THREADS = 10;
+    /**
+     * Default capacity of the dispatch queue.
+     */
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 1000;
+
     private ConcurrentHashMap<QName, Dispatcher> _dispatchers = 
         new ConcurrentHashMap<QName, Dispatcher>();
     
     private HandlerChain _requestChain;
     private HandlerChain _replyChain;
     private ServiceDomain _domain;
+    private ExecutorService _executor;
+    private boolean _managedExecutor;
+    private TransactionHandler _transactionHandler;
+    private RateLimitScheduler _scheduler;
     
     /**
      * Create a new LocalExchangeBus.
@@ -54,15 +102,39 @@ public class LocalExchangeBus implements ExchangeBus {
     public LocalExchangeBus() {
     }
 
+    /**
+     * Create a new LocalExchangeBus which dispatches requests asynchronously
+     * using the specified executor.  The executor is owned by the caller and
+     * is not shut down when the bus is stopped.
+     * @param executor executor used to run the request handler chain
+     */
+    public LocalExchangeBus(ExecutorService executor) {
+        _executor = executor;
+    }
+
     @Override
     public void init(ServiceDomain domain) {
         _domain = domain;
+        if (_executor == null && getBooleanProperty(ASYNC_ENABLED)) {
+            _executor = createExecutor(
+                    getIntProperty(ASYNC_THREADS, DEFAULT_ASYNC_THREADS),
+                    getIntProperty(ASYNC_QUEUE_SIZE, DEFAULT_ASYNC_QUEUE_SIZE));
+            _managedExecutor = true;
+        }
+        // delayed requests are handed to the executor, so without one the
+        // caller waits out the delay
+        if (_executor != null) {
+            _scheduler = RateLimitScheduler.create(domain);
+        }
         TransactionHandler transactionHandler = new TransactionHandler();
+        _transactionHandler = transactionHandler;
         TransformHandler transformHandler = new TransformHandler(domain.getTransformerRegistry());
         ValidateHandler validateHandler = new ValidateHandler(domain.getValidatorRegistry());
         
         // Build out the request and reply handler chains.
         _requestChain = new DefaultHandlerChain();
+        _requestChain.addLast("rate-limit", new RateLimitHandler());
+        _requestChain.addLast("concurrency-limit", new ConcurrencyLimitHandler());
         _requestChain.addLast("addressing", new AddressingHandler(_domain));
         _requestChain.addLast("transaction-pre-invoke", transactionHandler);
         _requestChain.addLast("security-process", new SecurityHandler(_domain, SecurityAction.PROCESS));
@@ -78,7 +150,7 @@ public class LocalExchangeBus implements ExchangeBus {
         _replyChain.addLast("validation-before-transform", validateHandler);
         _replyChain.addLast("transformation", transformHandler);
         _replyChain.addLast("validation-after-transform", validateHandler);
-        _replyChain.addLast(HandlerChain.CONSUMER_HANDLER, new BaseHandler());
+        _replyChain.addLast(HandlerChain.CONSUMER_HANDLER, new ConsumerHandler());
     }
 
     @Override
@@ -89,6 +161,15 @@ public class LocalExchangeBus implements ExchangeBus {
     @Override
     public void stop() {
         _dispatchers.clear();
+        if (_scheduler != null) {
+            _scheduler.shutdown();
+            _scheduler = null;
+        }
+        if (_managedExecutor) {
+            _executor.shutdown();
+            _executor = null;
+            _managedExecutor = false;
+        }
     }
 
     @Override
@@ -96,7 +177,8 @@ public class LocalExchangeBus implements ExchangeBus {
         HandlerChain requestChain = _requestChain.copy();
         HandlerChain replyChain = _replyChain.copy();
         
-        Dispatcher dispatcher = new LocalDispatcher(_domain, reference, requestChain, replyChain);
+        Dispatcher dispatcher = new LocalDispatcher(_domain, reference, requestChain, replyChain, 
+                _executor, _transactionHandler, _scheduler);
         _dispatchers.put(reference.getName(), dispatcher);
         
         return dispatcher;
@@ -107,6 +189,80 @@ public class LocalExchangeBus implements ExchangeBus {
         return _dispatchers.get(reference.getName());
     }
 
+    /**
+     * Indicates whether requests are dispatched on a worker thread.
+     * @return true if dispatch is asynchronous
+     */
+    public boolean isAsync() {
+        return _executor != null;
+    }
+
+    private ExecutorService createExecutor(int threads, int queueSize) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize),
+                new DispatchThreadFactory(_domain.getName().getLocalPart()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private boolean getBooleanProperty(String name) {
+        Object value = _domain.getProperty(name);
+        if (value instanceof Boolean) {
+            return ((Boolean)value).booleanValue();
+        }
+        return value != null && Boolean.valueOf(value.toString().trim());
+    }
+
+    private int getIntProperty(String name, int defaultValue) {
+        Object value = _domain.getProperty(name);
+        if (value instanceof Number) {
+            return ((Number)value).intValue();
+        } else if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException nfEx) {
+                RuntimeLogger.ROOT_LOGGER.invalidDomainProperty(name, value.toString(), String.valueOf(defaultValue));
+            }
+        }
+        return defaultValue;
+    }
+
+    // delivers replies to the reply handler carried by each exchange
+    private static final class ConsumerHandler implements ExchangeHandler {
+        @Override
+        public void handleMessage(Exchange exchange) throws HandlerException {
+            ExchangeHandler replyHandler = exchange.getReplyHandler();
+            if (replyHandler != null) {
+                replyHandler.handleMessage(exchange);
+            }
+        }
+
+        @Override
+        public void handleFault(Exchange exchange) {
+            ExchangeHandler replyHandler = exchange.getReplyHandler();
+            if (replyHandler != null) {
+                replyHandler.handleFault(exchange);
+            }
+        }
+    }
+
+    // names dispatch threads after the domain and marks them as daemons
+    private static final class DispatchThreadFactory implements ThreadFactory {
+        private final AtomicInteger _count = new AtomicInteger();
+        private final String _prefix;
+
+        DispatchThreadFactory(String domainName) {
+            _prefix = "SwitchYard-LocalExchangeBus-" + domainName + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, _prefix + _count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
 
 class LocalDispatcher implements Dispatcher {
@@ -114,6 +270,9 @@ class LocalDispatcher implements Dispatcher {
     private HandlerChain _replyChain;
     private ServiceReference _reference;
     private ServiceDomain _domain;
+    private ExecutorService _executor;
+    private TransactionHandler _transactionHandler;
+    private RateLimitScheduler _scheduler;
 
     /**
      * Constructor.
@@ -121,23 +280,51 @@ class LocalDispatcher implements Dispatcher {
      * @param handlerChain handler chain
      */
     LocalDispatcher(ServiceDomain domain, final ServiceReference reference, final HandlerChain requestChain, final HandlerChain replyChain) {
+        this(domain, reference, requestChain, replyChain, null, null, null);
+    }
+
+    /**
+     * Constructor.
+     * @param domain service domain
+     * @param reference service reference
+     * @param requestChain request handler chain
+     * @param replyChain reply handler chain
+     * @param executor executor used for request dispatch, or null to dispatch
+     * on the caller's thread
+     * @param transactionHandler used to keep transactional exchanges on the
+     * caller's thread, or null if no exchange is treated as transactional
+     * @param scheduler hands requests delayed by the rate limit to the
+     * executor, or null to delay them on the caller's thread
+     */
+    LocalDispatcher(ServiceDomain domain, final ServiceReference reference, final HandlerChain requestChain, 
+            final HandlerChain replyChain, final ExecutorService executor, 
+            final TransactionHandler transactionHandler, final RateLimitScheduler scheduler) {
         this._domain = domain;
         _reference = reference;
         _requestChain = requestChain;
         _replyChain = replyChain;
+        _executor = executor;
+        _transactionHandler = transactionHandler;
+        _scheduler = scheduler;
     }
 
     @Override
     public void dispatch(final Exchange exchange) {
         switch (exchange.getPhase()) {
         case IN:
-            _requestChain.handle(exchange);
+            long delay = RateLimitHandler.reserve(exchange);
+            if (delay <= 0) {
+                dispatchRequest(exchange);
+            } else if (_scheduler != null && _executor != null && !isTransactional(exchange)) {
+                dispatchLater(exchange, delay);
+            } else {
+                RateLimitHandler.await(delay);
+                dispatchRequest(exchange);
+            }
             break;
         case OUT:
-            ExchangeHandler replyHandler = ((ExchangeImpl)exchange).getReplyHandler();
-            if (replyHandler != null) {
-                _replyChain.replace(HandlerChain.CONSUMER_HANDLER, replyHandler);
-            }
+            // the consumer's reply handler travels with the exchange, so the
+            // shared reply chain is never modified during dispatch
             _replyChain.handle(exchange);
             break;
         default:
@@ -150,6 +337,89 @@ class LocalDispatcher implements Dispatcher {
         return _reference;
     }
 
+    private void dispatchRequest(final Exchange exchange) {
+        if (_executor != null && !isTransactional(exchange)) {
+            dispatchAsync(exchange);
+        } else {
+            handleRequest(exchange);
+        }
+    }
+
+    // the request chain is done with the exchange once handle() returns or
+    // throws, so a concurrency permit or in flight count it still holds is
+    // released here rather than left to a completion which may never come
+    private void handleRequest(Exchange exchange) {
+        try {
+            _requestChain.handle(exchange);
+        } finally {
+            ConcurrencyLimitHandler.releasePermit(exchange);
+            AddressingHandler.providerDone(exchange);
+        }
+    }
+
+    private boolean isTransactional(Exchange exchange) {
+        return _transactionHandler != null && _transactionHandler.isTransactional(exchange);
+    }
+
+    // the scheduler's thread only hands the request to the executor
+    private void dispatchLater(final Exchange exchange, long delay) {
+        final ExchangeImpl deferred = deferCompletion(exchange);
+        final Runnable task = asyncRequest(exchange, deferred);
+        RateLimitHandler.dispatchLater(_scheduler, exchange, new Runnable() {
+            public void run() {
+                _executor.execute(task);
+            }
+        }, deferred == null ? null : new Runnable() {
+            public void run() {
+                deferred.completeDeferred();
+            }
+        }, delay);
+    }
+
+    // an in-only exchange is done once send() returns, so when its request is
+    // handled on another thread its completion is held back until then
+    private ExchangeImpl deferCompletion(Exchange exchange) {
+        if (exchange instanceof ExchangeImpl && ExchangePattern.IN_ONLY.equals(exchange.getPattern())) {
+            ExchangeImpl deferred = (ExchangeImpl)exchange;
+            deferred.deferCompletion();
+            return deferred;
+        }
+        return null;
+    }
+
+    private void dispatchAsync(final Exchange exchange) {
+        Runnable task = asyncRequest(exchange, deferCompletion(exchange));
+        try {
+            _executor.execute(task);
+        } catch (RejectedExecutionException reEx) {
+            // dispatch queue is full (or the executor is shutting down), so
+            // the caller pays for the dispatch itself
+            task.run();
+        }
+    }
+
+    private Runnable asyncRequest(final Exchange exchange, final ExchangeImpl deferred) {
+        return new Runnable() {
+            public void run() {
+                try {
+                    handleRequest(exchange);
+                } catch (RuntimeException rtEx) {
+                    // nobody is waiting on this thread, so route the failure
+                    // back to the consumer as a fault
+                    RuntimeLogger.ROOT_LOGGER.asyncDispatchFailed(_reference.getName().toString(), rtEx);
+                    if (ExchangePhase.IN.equals(exchange.getPhase()) 
+                            && ExchangeState.OK.equals(exchange.getState())) {
+                        exchange.sendFault(exchange.createMessage().setContent(new HandlerException(rtEx)));
+                    }
+                } finally {
+                    if (deferred != null) {
+                        deferred.completeDeferred();
+                    }
+                }
+            }
+        };
+    }
+
     @Override
     public Exchange createExchange(ExchangeHandler handler, ExchangePattern pattern) {
         ExchangeImpl exchangeImpl = new ExchangeImpl(_domain, this, handler);
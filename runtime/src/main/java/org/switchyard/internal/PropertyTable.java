@@ -0,0 +1,391 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.internal;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.switchyard.Property;
+
+/**
+ * Open-addressed map of context properties keyed by name, which is the
+ * default storage of {@link DefaultContext}.  Names and properties are kept
+ * in two parallel arrays probed linearly, so no entry object is allocated per
+ * property.  Names are compared by identity before equality; the names used
+ * by the runtime and by components are constants, which the JVM interns.
+ * <p/>
+ * Once a table holds more than a few properties, it also keeps an index from
+ * label to properties, built by the put which grows it past that size so
+ * label queries only ever read the table.  The
+ * {@link ContextProperty} instances it holds report their label changes to
+ * it, so the index stays current.  Any other property put into the table
+ * cannot, and while it holds one, label queries scan every property instead.
+ */
+final class PropertyTable extends AbstractMap<String, Property> {
+
+    private static final int MIN_CAPACITY = 8;
+    // below this size, scanning for a label is cheaper than building the index
+    private static final int INDEX_THRESHOLD = 16;
+
+    private String[] _names;
+    private Property[] _properties;
+    private int _size;
+    // number of held properties which do not report label changes
+    private int _untracked;
+    private Map<String, List<Property>> _labelIndex;
+
+    /**
+     * Create a new, empty PropertyTable.
+     */
+    PropertyTable() {
+        _names = new String[MIN_CAPACITY];
+        _properties = new Property[MIN_CAPACITY];
+    }
+
+    @Override
+    public int size() {
+        return _size;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return name instanceof String && indexOf((String)name) >= 0;
+    }
+
+    @Override
+    public Property get(Object name) {
+        if (!(name instanceof String)) {
+            return null;
+        }
+        int index = indexOf((String)name);
+        return index >= 0 ? _properties[index] : null;
+    }
+
+    @Override
+    public Property put(String name, Property property) {
+        if (name == null) {
+            throw new NullPointerException();
+        }
+        int index = slotOf(name, _names);
+        Property previous = _properties[index];
+        if (_names[index] != null) {
+            release(previous);
+        } else {
+            _names[index] = name;
+            _size++;
+        }
+        _properties[index] = property;
+        adopt(property);
+        if (_size * 4 > _names.length * 3) {
+            resize(_names.length * 2);
+        }
+        if (_labelIndex == null && _size > INDEX_THRESHOLD) {
+            buildIndex();
+        }
+        return previous;
+    }
+
+    @Override
+    public Property remove(Object name) {
+        if (!(name instanceof String)) {
+            return null;
+        }
+        int index = indexOf((String)name);
+        if (index < 0) {
+            return null;
+        }
+        Property previous = _properties[index];
+        release(previous);
+        delete(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        _labelIndex = null;
+        for (int i = 0; i < _names.length; i++) {
+            if (_names[i] != null) {
+                release(_properties[i]);
+                _names[i] = null;
+                _properties[i] = null;
+            }
+        }
+        _size = 0;
+    }
+
+    /**
+     * Grows the table so it holds the specified number of properties without
+     * being resized again.
+     * @param expected number of properties
+     */
+    void ensureCapacity(int expected) {
+        int capacity = _names.length;
+        while (expected * 4 > capacity * 3) {
+            capacity *= 2;
+        }
+        if (capacity != _names.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Gets the properties with the specified label.
+     * @param label the label
+     * @return a new set of the properties
+     */
+    Set<Property> getProperties(String label) {
+        Set<Property> properties = new HashSet<Property>();
+        label = ContextProperty.normalizeLabel(label);
+        if (label == null) {
+            return properties;
+        }
+        if (_untracked > 0 || _labelIndex == null) {
+            for (Property property : _properties) {
+                if (property instanceof ContextProperty
+                        ? ((ContextProperty)property).hasNormalizedLabel(label)
+                        : property != null && property.hasLabel(label)) {
+                    properties.add(property);
+                }
+            }
+            return properties;
+        }
+        List<Property> labelled = _labelIndex.get(label);
+        if (labelled != null) {
+            properties.addAll(labelled);
+        }
+        return properties;
+    }
+
+    /**
+     * Called by a property of this table when a label is added to it.
+     * @param property the property
+     * @param label the normalized label
+     */
+    void labelAdded(Property property, String label) {
+        if (_labelIndex != null) {
+            List<Property> labelled = _labelIndex.get(label);
+            if (labelled == null) {
+                labelled = new ArrayList<Property>(4);
+                _labelIndex.put(label, labelled);
+            }
+            labelled.add(property);
+        }
+    }
+
+    /**
+     * Called by a property of this table when a label is removed from it.
+     * @param property the property
+     * @param label the normalized label
+     */
+    void labelRemoved(Property property, String label) {
+        if (_labelIndex != null) {
+            List<Property> labelled = _labelIndex.get(label);
+            if (labelled != null) {
+                for (int i = labelled.size() - 1; i >= 0; i--) {
+                    if (labelled.get(i) == property) {
+                        labelled.remove(i);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public Collection<Property> values() {
+        return new AbstractCollection<Property>() {
+            @Override
+            public Iterator<Property> iterator() {
+                return new SlotIterator<Property>() {
+                    @Override
+                    Property get(int index) {
+                        return _properties[index];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return _size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, Property>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Property>>() {
+            @Override
+            public Iterator<Map.Entry<String, Property>> iterator() {
+                return new SlotIterator<Map.Entry<String, Property>>() {
+                    @Override
+                    Map.Entry<String, Property> get(int index) {
+                        return new SimpleImmutableEntry<String, Property>(_names[index], _properties[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return _size;
+            }
+        };
+    }
+
+    private int indexOf(String name) {
+        int hash = name.hashCode();
+        int mask = _names.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            String candidate = _names[i];
+            if (candidate == name) {
+                return i;
+            } else if (candidate == null) {
+                return -1;
+            } else if (candidate.hashCode() == hash && candidate.equals(name)) {
+                return i;
+            }
+        }
+    }
+
+    // slot holding the name, or the empty slot where it belongs
+    private static int slotOf(String name, String[] names) {
+        int hash = name.hashCode();
+        int mask = names.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            String candidate = names[i];
+            if (candidate == null || candidate == name
+                    || (candidate.hashCode() == hash && candidate.equals(name))) {
+                return i;
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // empties a slot, shifting back later entries of the probe sequence
+    // so that no lookup stops short at the new gap
+    private void delete(int index) {
+        int mask = _names.length - 1;
+        int gap = index;
+        for (int i = (index + 1) & mask; _names[i] != null; i = (i + 1) & mask) {
+            int home = spread(_names[i].hashCode()) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                _names[gap] = _names[i];
+                _properties[gap] = _properties[i];
+                gap = i;
+            }
+        }
+        _names[gap] = null;
+        _properties[gap] = null;
+        _size--;
+    }
+
+    private void resize(int capacity) {
+        String[] names = new String[capacity];
+        Property[] properties = new Property[capacity];
+        for (int i = 0; i < _names.length; i++) {
+            if (_names[i] != null) {
+                int index = slotOf(_names[i], names);
+                names[index] = _names[i];
+                properties[index] = _properties[i];
+            }
+        }
+        _names = names;
+        _properties = properties;
+    }
+
+    private void adopt(Property property) {
+        if (property instanceof ContextProperty && ((ContextProperty)property).adopt(this)) {
+            if (_labelIndex != null) {
+                index(property);
+            }
+        } else if (property != null) {
+            _untracked++;
+        }
+    }
+
+    private void release(Property property) {
+        if (property instanceof ContextProperty && ((ContextProperty)property).isOwnedBy(this)) {
+            ((ContextProperty)property).release(this);
+            if (_labelIndex != null) {
+                for (String label : property.getLabels()) {
+                    labelRemoved(property, label);
+                }
+            }
+        } else if (property != null) {
+            _untracked--;
+        }
+    }
+
+    private void buildIndex() {
+        _labelIndex = new HashMap<String, List<Property>>();
+        for (Property property : _properties) {
+            if (property != null) {
+                index(property);
+            }
+        }
+    }
+
+    private void index(Property property) {
+        for (String label : property.getLabels()) {
+            labelAdded(property, label);
+        }
+    }
+
+    // iterates the occupied slots in table order
+    private abstract class SlotIterator<T> implements Iterator<T> {
+        private int _next = advance(0);
+
+        @Override
+        public boolean hasNext() {
+            return _next < _names.length;
+        }
+
+        @Override
+        public T next() {
+            if (_next >= _names.length) {
+                throw new NoSuchElementException();
+            }
+            T next = get(_next);
+            _next = advance(_next + 1);
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        abstract T get(int index);
+
+        private int advance(int index) {
+            while (index < _names.length && _names[index] == null) {
+                index++;
+            }
+            return index;
+        }
+    }
+}
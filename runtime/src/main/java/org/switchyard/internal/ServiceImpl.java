@@ -23,6 +23,7 @@ import org.switchyard.ServiceMetadata;
 import org.switchyard.event.ServiceUnregistrationEvent;
 import org.switchyard.metadata.ServiceInterface;
 import org.switchyard.metadata.ServiceMetadataBuilder;
+import org.switchyard.policy.PolicySet;
 
 /**
  * A service registered in a SwitchYard domain.  This is an instance of the 
@@ -36,6 +37,7 @@ public class ServiceImpl implements Service {
     private DomainImpl _domain;
     private ExchangeHandler _providerHandler;
     private ServiceMetadata _metadata;
+    private PolicySet _requiredPolicies;
     
     /**
      * Creates a new Service instance representing a service provider.
@@ -70,6 +72,7 @@ public class ServiceImpl implements Service {
         _domain = domain;
         _providerHandler = providerHandler;
         _metadata = metadata != null ? metadata : ServiceMetadataBuilder.create().build();
+        _requiredPolicies = PolicySet.of(_metadata.getRequiredPolicies());
     }
 
     @Override
@@ -89,7 +92,7 @@ public class ServiceImpl implements Service {
     
     @Override
     public void unregister() {
-        _domain.getServiceRegistry().unregisterService(this);
+        _domain.unregisterService(this);
         _domain.getEventPublisher().publish(new ServiceUnregistrationEvent(this));
     }
     
@@ -110,4 +113,12 @@ public class ServiceImpl implements Service {
         return _metadata;
     }
 
+    /**
+     * The policies required by this service, as they were when it was registered.
+     * @return required policies
+     */
+    public PolicySet getRequiredPolicies() {
+        return _requiredPolicies;
+    }
+
 }
@@ -20,6 +20,7 @@ import javax.xml.namespace.QName;
 
 import org.switchyard.Exchange;
 import org.switchyard.ExchangeHandler;
+import org.switchyard.Service;
 import org.switchyard.ServiceDomain;
 import org.switchyard.ServiceMetadata;
 import org.switchyard.ServiceReference;
@@ -27,11 +28,16 @@ import org.switchyard.event.ReferenceUnregistrationEvent;
 import org.switchyard.metadata.ServiceInterface;
 import org.switchyard.metadata.ServiceMetadataBuilder;
 import org.switchyard.metadata.ServiceOperation;
-import org.switchyard.policy.Policy;
+import org.switchyard.metadata.qos.Throttling;
+import org.switchyard.policy.PolicySet;
 import org.switchyard.policy.PolicyUtil;
 import org.switchyard.runtime.RuntimeMessages;
+import org.switchyard.runtime.limit.AdaptiveConcurrencyLimiter;
+import org.switchyard.runtime.limit.RateLimiter;
+import org.switchyard.runtime.selector.ProviderSelectors;
 import org.switchyard.security.context.SecurityContextManager;
 import org.switchyard.spi.Dispatcher;
+import org.switchyard.spi.ProviderSelector;
 
 /**
  * A reference to a service registered in a SwitchYard domain.  The reference
@@ -48,6 +54,13 @@ public class ServiceReferenceImpl implements ServiceReference {
     private QName _targetServiceName;
     private ServiceMetadata _metadata;
     private SecurityContextManager _securityContextManager;
+    private PolicySet _requiredPolicies;
+    private PolicySet _providedPolicies;
+    private volatile ProviderSelector _providerSelector;
+    private volatile boolean _providerSelectorCreated;
+    private volatile AdaptiveConcurrencyLimiter _concurrencyLimiter;
+    private volatile RateLimiter _rateLimiter;
+    private volatile TargetPolicies _targetPolicies;
     
     /**
      * Creates a new reference to a service.
@@ -83,6 +96,8 @@ public class ServiceReferenceImpl implements ServiceReference {
         _domain = domain;
         _targetServiceName = name;
         _metadata = metadata != null ? metadata : ServiceMetadataBuilder.create().build();
+        _requiredPolicies = PolicySet.of(_metadata.getRequiredPolicies());
+        _providedPolicies = PolicySet.of(_metadata.getProvidedPolicies());
         _securityContextManager = new SecurityContextManager(_domain);
     }
     
@@ -126,12 +141,8 @@ public class ServiceReferenceImpl implements ServiceReference {
         // propagate the security context
         _securityContextManager.propagateContext(ex);
 
-        for (Policy policy : _metadata.getRequiredPolicies()) {
-            PolicyUtil.require(ex, policy);
-        }
-        for (Policy policy : _metadata.getProvidedPolicies()) {
-            PolicyUtil.provide(ex, policy);
-        }
+        PolicyUtil.require(ex, _requiredPolicies);
+        PolicyUtil.provide(ex, _providedPolicies);
         return ex;
     }
 
@@ -196,9 +207,128 @@ public class ServiceReferenceImpl implements ServiceReference {
         return _metadata;
     }
     
+    /**
+     * The selector choosing between the providers of the target service,
+     * created from the load balancing metadata when first requested.
+     * @return provider selector, or null if the first provider is always used
+     */
+    public ProviderSelector getProviderSelector() {
+        if (!_providerSelectorCreated) {
+            synchronized (this) {
+                if (!_providerSelectorCreated) {
+                    _providerSelector = ProviderSelectors.create(this);
+                    _providerSelectorCreated = true;
+                }
+            }
+        }
+        return _providerSelector;
+    }
+    
+    /**
+     * The limiter on exchanges in flight through this reference, created from
+     * the throttling metadata when first requested.  The limiter is replaced
+     * when the concurrency settings change.
+     * @return concurrency limiter, or null if concurrency is not limited
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        Throttling throttling = _metadata.getThrottling();
+        if (throttling == null || throttling.getMaxConcurrency() <= 0) {
+            return null;
+        }
+        AdaptiveConcurrencyLimiter limiter = _concurrencyLimiter;
+        if (limiter == null || !limiter.hasSettings(throttling.getMinConcurrency(),
+                throttling.getMaxConcurrency(), throttling.getMaxWait())) {
+            synchronized (this) {
+                limiter = _concurrencyLimiter;
+                if (limiter == null || !limiter.hasSettings(throttling.getMinConcurrency(),
+                        throttling.getMaxConcurrency(), throttling.getMaxWait())) {
+                    limiter = new AdaptiveConcurrencyLimiter(throttling.getMinConcurrency(),
+                            throttling.getMaxConcurrency(), throttling.getMaxWait());
+                    _concurrencyLimiter = limiter;
+                }
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * The limiter on the rate of exchanges sent through this reference,
+     * created from the throttling metadata when first requested.  The limiter
+     * is replaced when the throttling metadata is replaced.
+     * @return rate limiter, or null if the rate is not limited
+     */
+    public RateLimiter getRateLimiter() {
+        Throttling throttling = _metadata.getThrottling();
+        if (!RateLimiter.isRateLimited(throttling)) {
+            return null;
+        }
+        RateLimiter limiter = _rateLimiter;
+        if (limiter == null || limiter.getThrottling() != throttling) {
+            synchronized (this) {
+                limiter = _rateLimiter;
+                if (limiter == null || limiter.getThrottling() != throttling) {
+                    limiter = new RateLimiter(throttling);
+                    _rateLimiter = limiter;
+                }
+            }
+        }
+        return limiter;
+    }
+    
+    /**
+     * The policies required by any of the providers of the target service.
+     * These are worked out again only when the reference is wired to another
+     * service or services are registered or unregistered in the domain.
+     * @return policies required by the target service's providers
+     */
+    public PolicySet getTargetRequiredPolicies() {
+        if (_domain == null) {
+            return PolicySet.EMPTY;
+        }
+        QName target = _targetServiceName;
+        int version = _domain.getServicesVersion();
+        TargetPolicies policies = _targetPolicies;
+        if (policies == null || !policies.isFor(target, version)) {
+            PolicySet required = PolicySet.EMPTY;
+            if (target != null) {
+                for (Service service : _domain.getServices(target)) {
+                    if (service instanceof ServiceImpl) {
+                        required = required.union(((ServiceImpl)service).getRequiredPolicies());
+                    } else if (service.getServiceMetadata() != null) {
+                        required = required.union(PolicySet.of(service.getServiceMetadata().getRequiredPolicies()));
+                    }
+                }
+            }
+            policies = new TargetPolicies(target, version, required);
+            _targetPolicies = policies;
+        }
+        return policies.getRequired();
+    }
+    
     @Override
     public String toString() {
         return "ServiceReference [name=" + _name + ", interface=" + _interface + ", domain=" + _domain + "]";
     }
 
+    // the target service's required policies, along with what they were worked out for
+    private static final class TargetPolicies {
+        private final QName _target;
+        private final int _version;
+        private final PolicySet _required;
+
+        TargetPolicies(QName target, int version, PolicySet required) {
+            _target = target;
+            _version = version;
+            _required = required;
+        }
+
+        boolean isFor(QName target, int version) {
+            return _version == version && (_target == null ? target == null : _target.equals(target));
+        }
+
+        PolicySet getRequired() {
+            return _required;
+        }
+    }
+
 }
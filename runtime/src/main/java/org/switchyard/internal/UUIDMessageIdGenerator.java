@@ -0,0 +1,33 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.internal;
+
+import java.util.UUID;
+
+import org.switchyard.spi.MessageIdGenerator;
+
+/**
+ * Generates random (type 4) UUIDs as message IDs.  This was the only
+ * behaviour before MessageIdGenerator was introduced; it is selected by
+ * setting the {@link MessageIdGenerator#MESSAGE_ID_GENERATOR} domain
+ * property to "uuid".
+ */
+public class UUIDMessageIdGenerator implements MessageIdGenerator {
+
+    @Override
+    public String generate() {
+        return UUID.randomUUID().toString();
+    }
+}
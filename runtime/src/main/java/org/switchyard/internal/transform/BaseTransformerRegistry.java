@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EventObject;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +42,12 @@ import org.switchyard.transform.TransformerRegistry;
 /**
  * Maintains a local collection of transformation instances and provides
  * facilities to add, query, and remove transforms.
+ * <p/>
+ * Transformers are indexed by their from and to types so that graph walks
+ * performed by the TransformResolver only touch adjacent edges.  Resolved
+ * transform sequences are cached per from/to pair, as are the most recently
+ * used pairs for which resolution failed, and the cache is discarded whenever
+ * a transformer is added or removed or the resolver is replaced.
  */
 public class BaseTransformerRegistry implements TransformerRegistry {
 
@@ -51,10 +58,24 @@ public class BaseTransformerRegistry implements TransformerRegistry {
      */
     private static final int DEFAULT_HASHCODE = 32;
 
+    /**
+     * Most from/to pairs remembered as having no transform sequence.
+     */
+    static final int MAX_UNRESOLVED_SEQUENCES = 1000;
+
     private final ConcurrentHashMap<NameKey, Transformer<?,?>> _transformers =
         new ConcurrentHashMap<NameKey, Transformer<?,?>>();
     private final ConcurrentHashMap<NameKey, Transformer<?,?>> _fallbackTransformers =
         new ConcurrentHashMap<NameKey, Transformer<?,?>>();
+    // from type -> (to type -> transformer)
+    private final ConcurrentHashMap<QName, Map<QName, Transformer<?,?>>> _fromIndex =
+        new ConcurrentHashMap<QName, Map<QName, Transformer<?,?>>>();
+    // to type -> (from type -> transformer)
+    private final ConcurrentHashMap<QName, Map<QName, Transformer<?,?>>> _toIndex =
+        new ConcurrentHashMap<QName, Map<QName, Transformer<?,?>>>();
+    // replaced wholesale on invalidation so that a resolution racing with an
+    // add or remove can only populate a cache which has already been dropped
+    private volatile SequenceCache _sequenceCache = new SequenceCache();
 
     private EventPublisher _eventPublisher;
     private TransformResolver _transformResolver = new BaseTransformResolver(this);
@@ -78,17 +99,14 @@ public class BaseTransformerRegistry implements TransformerRegistry {
 
     @Override
     public BaseTransformerRegistry addTransformer(Transformer<?, ?> transformer) {
-        _fallbackTransformers.clear();
-        _transformers.put(new NameKey(transformer.getFrom(),
-                transformer.getTo()), transformer);
+        putTransformer(new NameKey(transformer.getFrom(), transformer.getTo()), transformer);
         publishEvent(new TransformerAddedEvent(transformer));
         return this;
     }
 
     @Override
     public TransformerRegistry addTransformer(Transformer<?, ?> transformer, QName from, QName to) {
-        _fallbackTransformers.clear();
-        _transformers.put(new NameKey(from, to), transformer);
+        putTransformer(new NameKey(from, to), transformer);
         publishEvent(new TransformerAddedEvent(transformer));
         return null;
     }
@@ -124,8 +142,33 @@ public class BaseTransformerRegistry implements TransformerRegistry {
     }
 
     @Override
-    public TransformSequence getTransformSequence(QName from, QName to) {        
-        return _transformResolver.resolveSequence(from, to);
+    public TransformSequence getTransformSequence(QName from, QName to) {
+        if (from == null || to == null) {
+            return _transformResolver.resolveSequence(from, to);
+        }
+        
+        NameKey nameKey = new NameKey(from, to);
+        SequenceCache cache = _sequenceCache;
+        QName[] path = cache.get(nameKey);
+        if (path == null) {
+            TransformSequence sequence = _transformResolver.resolveSequence(from, to);
+            if (sequence != null) {
+                cache.put(nameKey, sequence.getTypes().toArray(new QName[0]));
+            } else {
+                cache.putUnresolved(nameKey);
+            }
+            // callers consume the sequence as it is applied, so it can't be shared
+            return sequence;
+        }
+        
+        if (path == SequenceCache.UNRESOLVED) {
+            return null;
+        }
+        TransformSequence sequence = TransformSequence.from(path[0]);
+        for (int i = 1; i < path.length; i++) {
+            sequence.to(path[i]);
+        }
+        return sequence;
     }
 
     @Override
@@ -194,8 +237,7 @@ public class BaseTransformerRegistry implements TransformerRegistry {
 
     @Override
     public boolean removeTransformer(Transformer<?, ?> transformer) {
-        _fallbackTransformers.clear();
-        boolean removed = _transformers.remove(
+        boolean removed = removeTransformer(
                 new NameKey(transformer.getFrom(), transformer.getTo())) != null;
         if (removed) {
             publishEvent(new TransformerRemovedEvent(transformer));
@@ -211,33 +253,77 @@ public class BaseTransformerRegistry implements TransformerRegistry {
     
     @Override
     public List<Transformer<?,?>> getTransformersFrom(QName type) {
-        List<Transformer<?,?>> transforms = new LinkedList<Transformer<?,?>>();
-        
-        for (NameKey key : _transformers.keySet()) {
-            if (key.getFrom() != null && key.getFrom().equals(type)) {
-                transforms.add(_transformers.get(key));
-            }
-        }
-        
-        return transforms;
+        return getIndexed(_fromIndex, type);
     }
 
     @Override
     public List<Transformer<?,?>> getTransformersTo(QName type) {
-        List<Transformer<?,?>> transforms = new LinkedList<Transformer<?,?>>();
-        
-        for (NameKey key : _transformers.keySet()) {
-            if (key.getTo() != null && key.getTo().equals(type)) {
-                transforms.add(_transformers.get(key));
-            }
-        }
-        
-        return transforms;
+        return getIndexed(_toIndex, type);
     }
 
     @Override
     public void setTransfomResolver(TransformResolver resolver) {
-        this._transformResolver = resolver;        
+        this._transformResolver = resolver;
+        invalidateSequences();
+    }
+
+    private synchronized void putTransformer(NameKey nameKey, Transformer<?,?> transformer) {
+        _transformers.put(nameKey, transformer);
+        index(_fromIndex, nameKey.getFrom(), nameKey.getTo(), transformer);
+        index(_toIndex, nameKey.getTo(), nameKey.getFrom(), transformer);
+        _fallbackTransformers.clear();
+        invalidateSequences();
+    }
+
+    private synchronized Transformer<?,?> removeTransformer(NameKey nameKey) {
+        Transformer<?,?> removed = _transformers.remove(nameKey);
+        if (removed != null) {
+            unindex(_fromIndex, nameKey.getFrom(), nameKey.getTo());
+            unindex(_toIndex, nameKey.getTo(), nameKey.getFrom());
+        }
+        _fallbackTransformers.clear();
+        invalidateSequences();
+        return removed;
+    }
+
+    private void invalidateSequences() {
+        _sequenceCache = new SequenceCache();
+    }
+
+    private static void index(ConcurrentHashMap<QName, Map<QName, Transformer<?,?>>> index, 
+            QName type, QName otherType, Transformer<?,?> transformer) {
+        if (type == null || otherType == null) {
+            return;
+        }
+        Map<QName, Transformer<?,?>> edges = index.get(type);
+        if (edges == null) {
+            edges = new ConcurrentHashMap<QName, Transformer<?,?>>();
+            index.put(type, edges);
+        }
+        edges.put(otherType, transformer);
+    }
+
+    private static void unindex(ConcurrentHashMap<QName, Map<QName, Transformer<?,?>>> index, 
+            QName type, QName otherType) {
+        if (type == null || otherType == null) {
+            return;
+        }
+        Map<QName, Transformer<?,?>> edges = index.get(type);
+        if (edges != null) {
+            edges.remove(otherType);
+            if (edges.isEmpty()) {
+                index.remove(type);
+            }
+        }
+    }
+
+    private static List<Transformer<?,?>> getIndexed(
+            ConcurrentHashMap<QName, Map<QName, Transformer<?,?>>> index, QName type) {
+        Map<QName, Transformer<?,?>> edges = type != null ? index.get(type) : null;
+        if (edges == null) {
+            return new LinkedList<Transformer<?,?>>();
+        }
+        return new LinkedList<Transformer<?,?>>(edges.values());
     }
 
     // Convenience method to guard against cases when an event publisher has 
@@ -254,6 +340,48 @@ public class BaseTransformerRegistry implements TransformerRegistry {
         }
     }
 
+    // Resolved paths only run between registered types, so there are only so
+    // many of them, but lookups for unresolvable pairs can name any type at
+    // all, so only the most recently used of those are remembered.
+    private static final class SequenceCache {
+        /** Marker for a from/to pair which is known to have no transform sequence. */
+        static final QName[] UNRESOLVED = new QName[0];
+
+        private final ConcurrentHashMap<NameKey, QName[]> _paths =
+            new ConcurrentHashMap<NameKey, QName[]>();
+        private final Map<NameKey, Boolean> _unresolved =
+            new LinkedHashMap<NameKey, Boolean>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<NameKey, Boolean> eldest) {
+                    return size() > MAX_UNRESOLVED_SEQUENCES;
+                }
+            };
+
+        QName[] get(NameKey nameKey) {
+            QName[] path = _paths.get(nameKey);
+            if (path == null) {
+                synchronized (_unresolved) {
+                    if (_unresolved.get(nameKey) != null) {
+                        path = UNRESOLVED;
+                    }
+                }
+            }
+            return path;
+        }
+
+        void put(NameKey nameKey, QName[] path) {
+            _paths.put(nameKey, path);
+        }
+
+        void putUnresolved(NameKey nameKey) {
+            synchronized (_unresolved) {
+                _unresolved.put(nameKey, Boolean.TRUE);
+            }
+        }
+    }
+
     private class Key<F, T> {
         private final F _from;
         private final T _to;
@@ -65,4 +65,70 @@ public interface RuntimeLogger {
     @Message(id = 13804, value = "Handler '%s' failed to handle fault.")
     void handlerFailedHandleFault(String refName, @Cause Exception e);
 
+    /**
+     * invalidDomainProperty method definition.
+     * @param name name
+     * @param value value
+     * @param defaultValue defaultValue
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 13805, value = "Domain property '%s' has invalid value '%s', using default '%s'.")
+    void invalidDomainProperty(String name, String value, String defaultValue);
+
+    /**
+     * asyncDispatchFailed method definition.
+     * @param serviceName serviceName
+     * @param e e
+     */
+    @LogMessage(level = ERROR)
+    @Message(id = 13806, value = "Asynchronous dispatch to service '%s' failed.")
+    void asyncDispatchFailed(String serviceName, @Cause Exception e);
+
+    /**
+     * invalidLoadBalancing method definition.
+     * @param refName refName
+     * @param strategy strategy
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 13807, value = "Reference '%s' has invalid load balancing strategy '%s', using the first provider.")
+    void invalidLoadBalancing(String refName, String strategy);
+
+    /**
+     * faultJournalFailed method definition.
+     * @param directory journal directory
+     * @param e exception
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 13808, value = "Unable to write to fault journal in '%s', journaling disabled.")
+    void faultJournalFailed(String directory, @Cause Exception e);
+
+    /**
+     * spanExportFailed method definition.
+     * @param spanName span name
+     * @param e exception
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 13809, value = "Span exporter failed to export span '%s'.")
+    void spanExportFailed(String spanName, @Cause Exception e);
+
+    /**
+     * eventsDropped method definition.
+     * @param dropped events dropped since the last report
+     * @param total events dropped in all
+     * @param capacity capacity of the event buffer
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 13810, value = "Dropped %d events for asynchronous observers (%d in all) because the event buffer of %d events was full.")
+    void eventsDropped(long dropped, long total, int capacity);
+
+    /**
+     * tracesDropped method definition.
+     * @param dropped traces dropped since the last report
+     * @param total traces dropped in all
+     * @param capacity capacity of the trace buffer
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 13811, value = "Dropped %d message traces (%d in all) because the trace buffer of %d traces was full.")
+    void tracesDropped(long dropped, long total, int capacity);
+
 }
@@ -324,6 +324,39 @@ public interface RuntimeMessages {
      * @return IllegalStateException
      */
     @Message(id = 14037, value = "Scope %s is different than expected %s")
-    IllegalArgumentException scopeDifferent(String scope, String source);    
-    
+    IllegalArgumentException scopeDifferent(String scope, String source);
+
+    /**
+     * invalidEventBufferCapacity method definition.
+     * @param capacity capacity
+     * @return IllegalArgumentException
+     */
+    @Message(id = 14038, value = "Event buffer capacity must be greater than zero: %s")
+    IllegalArgumentException invalidEventBufferCapacity(int capacity);
+
+    /**
+     * concurrencyLimitReached method definition.
+     * @param refName refName
+     * @param limit limit
+     * @return HandlerException
+     */
+    @Message(id = 14039, value = "Service reference '%s' is at its concurrency limit of %d, request rejected.")
+    HandlerException concurrencyLimitReached(String refName, int limit);
+
+    /**
+     * rateLimitReached method definition.
+     * @param refName refName
+     * @return HandlerException
+     */
+    @Message(id = 14040, value = "Service reference '%s' is over its rate limit, request rejected.")
+    HandlerException rateLimitReached(String refName);
+
+    /**
+     * rateLimitRejected method definition.
+     * @param refName refName
+     * @return SwitchYardException
+     */
+    @Message(id = 14041, value = "Service reference '%s' is over its rate limit, request rejected.")
+    SwitchYardException rateLimitRejected(String refName);
+
 }
@@ -15,13 +15,25 @@
 package org.switchyard.runtime.event;
 
 import java.util.EventObject;
+import java.util.concurrent.TimeUnit;
 
+import javax.xml.namespace.QName;
+
+import org.switchyard.Context;
 import org.switchyard.Exchange;
+import org.switchyard.ExchangeState;
+import org.switchyard.Property;
+import org.switchyard.metadata.ServiceOperation;
 
 /**
  * Fired when an exchange has completed.  For InOnly exchanges, this fires after
  * the in message has been processed.  For InOut exchanges, this fires after the
  * out message has been sent. 
+ * <p/>
+ * The exchange carries on after the event is published, so the event takes a
+ * snapshot of the service, reference, operation, gateway, duration and fault
+ * state when it is created.  Asynchronous observers should read those rather
+ * than the exchange itself.
  */
 public class ExchangeCompletionEvent extends EventObject {
 
@@ -29,6 +41,11 @@ public class ExchangeCompletionEvent extends EventObject {
      * Exchange property name used to record the duration of a completed exchange.
      */
     public static final String EXCHANGE_DURATION = "org.switchyard.exchangeDurationMS";
+    /**
+     * Exchange property name used to record the duration of a completed exchange
+     * in nanoseconds.
+     */
+    public static final String EXCHANGE_DURATION_NS = "org.switchyard.exchangeDurationNS";
     /**
      * Exchange property name used to record the name of the gateway being
      * invoked, if any.
@@ -36,6 +53,13 @@ public class ExchangeCompletionEvent extends EventObject {
     public static final String GATEWAY_NAME = "org.switchyard.exchangeGatewayName";
 
     private static final long serialVersionUID = 1L;
+
+    private final QName _serviceName;
+    private final QName _referenceName;
+    private final String _operationName;
+    private final String _gatewayName;
+    private final long _duration;
+    private final boolean _fault;
     
     /**
      * Create a new ExchangeCompletionEvent.
@@ -43,6 +67,16 @@ public class ExchangeCompletionEvent extends EventObject {
      */
     public ExchangeCompletionEvent(Exchange exchange) {
         super(exchange);
+        _serviceName = exchange.getProvider() != null ? exchange.getProvider().getName() : null;
+        _referenceName = exchange.getConsumer() != null ? exchange.getConsumer().getName() : null;
+        ServiceOperation operation = exchange.getContract() != null 
+                ? exchange.getContract().getProviderOperation() : null;
+        _operationName = operation != null ? operation.getName() : null;
+        Context context = exchange.getContext();
+        Object gateway = context != null ? context.getPropertyValue(GATEWAY_NAME) : null;
+        _gatewayName = gateway != null ? gateway.toString() : null;
+        _duration = context != null ? getDuration(context) : -1;
+        _fault = ExchangeState.FAULT.equals(exchange.getState());
     }
 
     /**
@@ -52,4 +86,64 @@ public class ExchangeCompletionEvent extends EventObject {
     public Exchange getExchange() {
         return (Exchange)getSource();
     }
+
+    /**
+     * The service which provided the exchange.
+     * @return provider service name, or null if the exchange was not addressed
+     */
+    public QName getServiceName() {
+        return _serviceName;
+    }
+
+    /**
+     * The reference which consumed the exchange.
+     * @return consumer reference name
+     */
+    public QName getReferenceName() {
+        return _referenceName;
+    }
+
+    /**
+     * The provider operation invoked.
+     * @return operation name, or null if none was selected
+     */
+    public String getOperationName() {
+        return _operationName;
+    }
+
+    /**
+     * The gateway the exchange came through.
+     * @return gateway name, or null if none
+     */
+    public String getGatewayName() {
+        return _gatewayName;
+    }
+
+    /**
+     * How long the exchange took.
+     * @return duration in nanoseconds, or -1 if it was not recorded
+     */
+    public long getDuration() {
+        return _duration;
+    }
+
+    /**
+     * Whether the exchange ended in a fault.
+     * @return true if the exchange faulted
+     */
+    public boolean isFault() {
+        return _fault;
+    }
+
+    private static long getDuration(Context context) {
+        Property nanos = context.getProperty(EXCHANGE_DURATION_NS);
+        if (nanos != null && nanos.getValue() instanceof Long) {
+            return (Long)nanos.getValue();
+        }
+        Property millis = context.getProperty(EXCHANGE_DURATION);
+        if (millis != null && millis.getValue() instanceof Long) {
+            return TimeUnit.MILLISECONDS.toNanos((Long)millis.getValue());
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,529 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.fault;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.xml.namespace.QName;
+
+import org.jboss.logging.Logger;
+import org.switchyard.Message;
+import org.switchyard.ServiceDomain;
+import org.switchyard.runtime.RuntimeLogger;
+
+/**
+ * Central collection point for faults which have no reply handler to go to.
+ * <p/>
+ * The exchange thread decides whether the fault is sampled and offers it to a
+ * bounded, lock-free queue.  Text content is copied, up to a bounded length,
+ * when the fault is queued; any other content is converted to text by the
+ * drain thread, so the exchange thread never pays for a transformation.  A
+ * single daemon thread drains the queue, logs each fault, keeps the most
+ * recent records in memory and appends them to an optional rolling journal on
+ * disk.  When
+ * the queue is full the {@link OverflowPolicy} decides what happens to the
+ * fault; the exchange thread never waits on the drain thread.
+ */
+public final class FaultCapture {
+
+    /**
+     * What to do with a fault when the capture queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Count the fault and discard it. */
+        DROP,
+        /** Log the fault on the exchange thread, as if there were no queue. */
+        LOG
+    }
+
+    /** Domain property holding the number of faults which may be queued. */
+    public static final String CAPACITY = "org.switchyard.faults.capacity";
+    /** Domain property holding the {@link OverflowPolicy} name. */
+    public static final String OVERFLOW = "org.switchyard.faults.overflow";
+    /**
+     * Domain property holding the default sample rate: 1 captures every fault,
+     * N captures one in N and 0 captures none.  The rate for a single service
+     * reference is set by a property named after this one, followed by '.'
+     * and the reference name, e.g. org.switchyard.faults.sample.{urn:ns}Name.
+     */
+    public static final String SAMPLE = "org.switchyard.faults.sample";
+    /** Domain property holding the journal directory; faults are not journaled unless set. */
+    public static final String JOURNAL = "org.switchyard.faults.journal";
+    /** Domain property holding the size in bytes after which a new journal file is started. */
+    public static final String JOURNAL_FILE_SIZE = "org.switchyard.faults.journal.fileSize";
+    /** Domain property holding the number of journal files kept. */
+    public static final String JOURNAL_FILES = "org.switchyard.faults.journal.files";
+    /** Domain property holding the number of recent faults kept in memory. */
+    public static final String HISTORY = "org.switchyard.faults.history";
+
+    /** Default capacity of the capture queue. */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /** Default number of recent faults kept in memory. */
+    public static final int DEFAULT_HISTORY = 256;
+    /** Default journal file size. */
+    public static final long DEFAULT_JOURNAL_FILE_SIZE = 4 * 1024 * 1024;
+    /** Default number of journal files. */
+    public static final int DEFAULT_JOURNAL_FILES = 4;
+
+    /** Longest fault content kept, in characters. */
+    static final int MAX_CONTENT_LENGTH = 8192;
+
+    private static Logger _logger = Logger.getLogger(FaultCapture.class);
+
+    private final FaultQueue<Pending> _queue;
+    private final OverflowPolicy _overflowPolicy;
+    private final int _defaultSampleRate;
+    private final ConcurrentHashMap<QName, Sampler> _samplers = new ConcurrentHashMap<QName, Sampler>();
+    private final ArrayDeque<FaultRecord> _history;
+    private final int _historySize;
+    private volatile FaultJournal _journal;
+
+    private final AtomicLong _captured = new AtomicLong();
+    private final AtomicLong _sampledOut = new AtomicLong();
+    private final AtomicLong _overflowed = new AtomicLong();
+    private final AtomicLong _drained = new AtomicLong();
+
+    private final Object _lifecycle = new Object();
+    private volatile Thread _drainer;
+    private volatile boolean _idle;
+    private volatile boolean _closed;
+
+    /**
+     * Create a new FaultCapture.
+     * @param capacity number of faults which may be queued
+     * @param overflowPolicy what to do when the queue is full
+     * @param sampleRate default sample rate, see {@link #SAMPLE}
+     * @param historySize number of recent faults kept in memory
+     * @param journal journal the faults are appended to, may be null
+     */
+    public FaultCapture(int capacity, OverflowPolicy overflowPolicy, int sampleRate,
+            int historySize, FaultJournal journal) {
+        _queue = new FaultQueue<Pending>(capacity);
+        _overflowPolicy = overflowPolicy;
+        _defaultSampleRate = Math.max(0, sampleRate);
+        _historySize = Math.max(0, historySize);
+        _history = new ArrayDeque<FaultRecord>(Math.min(_historySize, 1024) + 1);
+        _journal = journal;
+    }
+
+    /**
+     * Create a FaultCapture configured from the domain properties.
+     * @param domain the service domain
+     * @return fault capture
+     */
+    public static FaultCapture create(ServiceDomain domain) {
+        OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+        Object overflow = domain.getProperty(OVERFLOW);
+        if (overflow != null) {
+            try {
+                overflowPolicy = OverflowPolicy.valueOf(overflow.toString().trim().toUpperCase());
+            } catch (IllegalArgumentException iaEx) {
+                RuntimeLogger.ROOT_LOGGER.invalidDomainProperty(OVERFLOW, overflow.toString(), overflowPolicy.name());
+            }
+        }
+        FaultJournal journal = null;
+        Object directory = domain.getProperty(JOURNAL);
+        if (directory != null && directory.toString().trim().length() > 0) {
+            journal = new FaultJournal(new File(directory.toString().trim()),
+                    getLongProperty(domain, JOURNAL_FILE_SIZE, DEFAULT_JOURNAL_FILE_SIZE),
+                    (int)getLongProperty(domain, JOURNAL_FILES, DEFAULT_JOURNAL_FILES));
+        }
+        FaultCapture capture = new FaultCapture(
+                (int)getLongProperty(domain, CAPACITY, DEFAULT_CAPACITY),
+                overflowPolicy,
+                (int)getLongProperty(domain, SAMPLE, 1),
+                (int)getLongProperty(domain, HISTORY, DEFAULT_HISTORY),
+                journal);
+        String prefix = SAMPLE + ".";
+        for (String name : domain.getProperties().keySet()) {
+            if (name.startsWith(prefix)) {
+                capture.setSampleRate(QName.valueOf(name.substring(prefix.length())),
+                        (int)getLongProperty(domain, name, capture._defaultSampleRate));
+            }
+        }
+        return capture;
+    }
+
+    /**
+     * Set the sample rate for faults sent to a service reference.
+     * @param service service reference name
+     * @param sampleRate sample rate, see {@link #SAMPLE}
+     */
+    public void setSampleRate(QName service, int sampleRate) {
+        _samplers.put(service, new Sampler(Math.max(0, sampleRate)));
+    }
+
+    /**
+     * Capture a fault.  This does not block: the fault is either sampled out,
+     * queued, or handled according to the overflow policy.  Text content is
+     * copied before this returns; otherwise the message is kept until the
+     * drain thread has converted its content to text, so it should not be
+     * changed once it has been captured.
+     * @param service name of the service reference which sent the exchange
+     * @param provider name of the service which sent the fault, may be null
+     * @param operation name of the invoked operation, may be null
+     * @param messageId ID of the fault message, may be null
+     * @param relatesTo ID of the message the fault replies to, may be null
+     * @param fault the fault message
+     * @return true if the fault was queued
+     */
+    public boolean capture(QName service, QName provider, String operation,
+            String messageId, String relatesTo, Message fault) {
+        _captured.incrementAndGet();
+        if (!sample(service)) {
+            _sampledOut.incrementAndGet();
+            return false;
+        }
+        Object content = fault.getContent();
+        String text = content instanceof CharSequence ? truncate((CharSequence)content) : null;
+        if (_closed || !_queue.offer(new Pending(System.currentTimeMillis(),
+                service, provider, operation, messageId, relatesTo, text == null ? fault : null, text))) {
+            _overflowed.incrementAndGet();
+            if (_overflowPolicy == OverflowPolicy.LOG) {
+                RuntimeLogger.ROOT_LOGGER.faultGeneratedDuringExchange(text != null ? text : toText(fault));
+            }
+            return false;
+        }
+        wakeDrainer();
+        return true;
+    }
+
+    /**
+     * @return most recent faults, oldest first
+     */
+    public List<FaultRecord> getRecentFaults() {
+        synchronized (_history) {
+            return new ArrayList<FaultRecord>(_history);
+        }
+    }
+
+    /**
+     * Most recent faults sent to or by a service.
+     * @param name service reference or service name
+     * @return matching faults, oldest first
+     */
+    public List<FaultRecord> getRecentFaults(QName name) {
+        List<FaultRecord> faults = new ArrayList<FaultRecord>();
+        synchronized (_history) {
+            for (FaultRecord record : _history) {
+                if (name.equals(record.getService()) || name.equals(record.getProvider())) {
+                    faults.add(record);
+                }
+            }
+        }
+        return faults;
+    }
+
+    /**
+     * Read every fault in the journal, oldest first.
+     * @return journaled faults, empty if there is no journal
+     * @throws IOException the journal could not be read
+     */
+    public List<FaultRecord> readJournal() throws IOException {
+        FaultJournal journal = _journal;
+        if (journal == null) {
+            return Collections.emptyList();
+        }
+        return journal.read();
+    }
+
+    /**
+     * @return number of faults passed to {@link #capture}
+     */
+    public long getCapturedCount() {
+        return _captured.get();
+    }
+
+    /**
+     * @return number of faults skipped by sampling
+     */
+    public long getSampledOutCount() {
+        return _sampledOut.get();
+    }
+
+    /**
+     * @return number of faults which found the queue full
+     */
+    public long getOverflowCount() {
+        return _overflowed.get();
+    }
+
+    /**
+     * @return number of faults taken off the queue and recorded
+     */
+    public long getRecordedCount() {
+        return _drained.get();
+    }
+
+    /**
+     * @return number of faults waiting in the queue
+     */
+    public int getPendingCount() {
+        return _queue.size();
+    }
+
+    /**
+     * Wait until the queue is empty and every queued fault has been recorded.
+     * @param timeout maximum time to wait, in milliseconds
+     * @return true if the queue was drained in time
+     * @throws InterruptedException interrupted while waiting
+     */
+    public boolean awaitDrained(long timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (!_idle || _queue.size() > 0) {
+            if (_drainer == null && _queue.size() == 0) {
+                return true;
+            }
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            wakeDrainer();
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /**
+     * Stop accepting faults, record those still queued and close the journal.
+     */
+    public void close() {
+        Thread drainer;
+        synchronized (_lifecycle) {
+            _closed = true;
+            drainer = _drainer;
+        }
+        if (drainer != null) {
+            LockSupport.unpark(drainer);
+            try {
+                drainer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        FaultJournal journal = _journal;
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ioEx) {
+                _logger.debug("Failed to close fault journal", ioEx);
+            }
+        }
+    }
+
+    /**
+     * Convert fault content to text, preferring a registered transformer.
+     * @param fault the fault message
+     * @return fault content as text, truncated to a bounded length
+     */
+    public static String toText(Message fault) {
+        Object content = fault.getContent();
+        if (content instanceof CharSequence) {
+            return truncate((CharSequence)content);
+        }
+        String text;
+        try {
+            text = fault.getContent(String.class);
+        } catch (Exception ex) {
+            // Well, that didn't work.  Try the next best thing.
+            text = content != null ? content.toString() : null;
+        }
+        if (text != null && text.length() > MAX_CONTENT_LENGTH) {
+            text = text.substring(0, MAX_CONTENT_LENGTH);
+        }
+        return text;
+    }
+
+    // only the kept part of large text content is copied
+    private static String truncate(CharSequence chars) {
+        return chars.length() > MAX_CONTENT_LENGTH 
+                ? chars.subSequence(0, MAX_CONTENT_LENGTH).toString() : chars.toString();
+    }
+
+    private static long getLongProperty(ServiceDomain domain, String name, long defaultValue) {
+        Object value = domain.getProperty(name);
+        if (value instanceof Number) {
+            return ((Number)value).longValue();
+        } else if (value != null) {
+            try {
+                return Long.parseLong(value.toString().trim());
+            } catch (NumberFormatException nfEx) {
+                RuntimeLogger.ROOT_LOGGER.invalidDomainProperty(name, value.toString(), String.valueOf(defaultValue));
+            }
+        }
+        return defaultValue;
+    }
+
+    private boolean sample(QName service) {
+        Sampler sampler = service != null ? _samplers.get(service) : null;
+        if (sampler == null) {
+            if (_defaultSampleRate == 1) {
+                return true;
+            } else if (service == null) {
+                return _defaultSampleRate > 0;
+            }
+            // one sampler per reference, so each is sampled at the configured rate
+            sampler = new Sampler(_defaultSampleRate);
+            Sampler existing = _samplers.putIfAbsent(service, sampler);
+            if (existing != null) {
+                sampler = existing;
+            }
+        }
+        return sampler.sample();
+    }
+
+    private void wakeDrainer() {
+        Thread drainer = _drainer;
+        if (drainer == null) {
+            synchronized (_lifecycle) {
+                drainer = _drainer;
+                if (drainer == null && !_closed) {
+                    drainer = new Thread(new Drainer(), "SwitchYard-FaultCapture");
+                    drainer.setDaemon(true);
+                    _drainer = drainer;
+                    drainer.start();
+                    return;
+                }
+            }
+        }
+        if (drainer != null && _idle) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    private void record(Pending pending) {
+        String content = pending._fault != null ? toText(pending._fault) : pending._content;
+        FaultRecord record = new FaultRecord(pending._timestamp, pending._service, pending._provider,
+                pending._operation, pending._messageId, pending._relatesTo, content);
+        RuntimeLogger.ROOT_LOGGER.faultGeneratedDuringExchange(record.getContent());
+        if (_historySize > 0) {
+            synchronized (_history) {
+                if (_history.size() == _historySize) {
+                    _history.removeFirst();
+                }
+                _history.addLast(record);
+            }
+        }
+        FaultJournal journal = _journal;
+        if (journal != null) {
+            try {
+                journal.append(record);
+            } catch (IOException ioEx) {
+                disableJournal(journal, ioEx);
+            }
+        }
+    }
+
+    private void flushJournal() {
+        FaultJournal journal = _journal;
+        if (journal != null) {
+            try {
+                journal.flush();
+            } catch (IOException ioEx) {
+                disableJournal(journal, ioEx);
+            }
+        }
+    }
+
+    private void disableJournal(FaultJournal journal, IOException cause) {
+        RuntimeLogger.ROOT_LOGGER.faultJournalFailed(journal.getDirectory().getPath(), cause);
+        _journal = null;
+        try {
+            journal.close();
+        } catch (IOException ioEx) {
+            _logger.debug("Failed to close fault journal", ioEx);
+        }
+    }
+
+    // takes faults off the queue until the capture is closed and the queue is empty
+    private final class Drainer implements Runnable {
+        @Override
+        public void run() {
+            while (true) {
+                Pending pending = _queue.poll();
+                if (pending != null) {
+                    try {
+                        record(pending);
+                    } catch (RuntimeException rtEx) {
+                        _logger.debug("Failed to record fault", rtEx);
+                    }
+                    _drained.incrementAndGet();
+                    continue;
+                }
+                flushJournal();
+                if (_closed) {
+                    _idle = true;
+                    return;
+                }
+                _idle = true;
+                // re-check after publishing the idle flag so a fault offered meanwhile is not missed
+                if (_queue.size() == 0 && !_closed) {
+                    LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+                }
+                _idle = false;
+            }
+        }
+    }
+
+    // takes one in every N faults for a service reference
+    private static final class Sampler {
+        private final int _rate;
+        private final AtomicLong _count = new AtomicLong();
+
+        Sampler(int rate) {
+            _rate = rate;
+        }
+
+        boolean sample() {
+            if (_rate <= 1) {
+                return _rate == 1;
+            }
+            return _count.getAndIncrement() % _rate == 0;
+        }
+    }
+
+    // a fault waiting for the drain thread, holding either its text content
+    // or the message whose content is still to be converted
+    private static final class Pending {
+        private final long _timestamp;
+        private final QName _service;
+        private final QName _provider;
+        private final String _operation;
+        private final String _messageId;
+        private final String _relatesTo;
+        private final Message _fault;
+        private final String _content;
+
+        Pending(long timestamp, QName service, QName provider, String operation,
+                String messageId, String relatesTo, Message fault, String content) {
+            _timestamp = timestamp;
+            _service = service;
+            _provider = provider;
+            _operation = operation;
+            _messageId = messageId;
+            _relatesTo = relatesTo;
+            _fault = fault;
+            _content = content;
+        }
+    }
+}
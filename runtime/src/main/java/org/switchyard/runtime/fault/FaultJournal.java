@@ -0,0 +1,215 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.fault;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Rolling, append-only journal of fault records.  Records are written to
+ * numbered files in a directory; once a file reaches the maximum size a new
+ * one is started and the oldest files beyond the maximum count are deleted.
+ * Existing files are never rewritten, and a journal opened on a directory
+ * which already holds files continues with the next number.
+ */
+public final class FaultJournal {
+
+    private static final String PREFIX = "faults-";
+    private static final String SUFFIX = ".journal";
+    private static final int MAGIC = 0x53594631;
+    private static final String UTF_8 = "UTF-8";
+
+    private final File _directory;
+    private final long _maxFileSize;
+    private final int _maxFiles;
+    private DataOutputStream _out;
+    private long _fileNumber;
+    private long _fileSize;
+
+    /**
+     * Create a new FaultJournal.
+     * @param directory directory holding the journal files, created if needed
+     * @param maxFileSize size in bytes after which a new file is started
+     * @param maxFiles number of files kept
+     */
+    public FaultJournal(File directory, long maxFileSize, int maxFiles) {
+        _directory = directory;
+        _maxFileSize = Math.max(1, maxFileSize);
+        _maxFiles = Math.max(1, maxFiles);
+    }
+
+    /**
+     * @return directory holding the journal files
+     */
+    public File getDirectory() {
+        return _directory;
+    }
+
+    /**
+     * Append a record to the current file, starting a new one if needed.
+     * Records are buffered until the next flush.
+     * @param record the record
+     * @throws IOException the record could not be written
+     */
+    public synchronized void append(FaultRecord record) throws IOException {
+        if (_out == null) {
+            open();
+        }
+        int before = _out.size();
+        _out.writeLong(record.getTimestamp());
+        writeString(record.getService() != null ? record.getService().toString() : null);
+        writeString(record.getProvider() != null ? record.getProvider().toString() : null);
+        writeString(record.getOperation());
+        writeString(record.getMessageId());
+        writeString(record.getRelatesTo());
+        writeString(record.getContent());
+        _fileSize += _out.size() - before;
+        if (_fileSize >= _maxFileSize) {
+            close();
+        }
+    }
+
+    /**
+     * Write buffered records to the current file.
+     * @throws IOException the records could not be written
+     */
+    public synchronized void flush() throws IOException {
+        if (_out != null) {
+            _out.flush();
+        }
+    }
+
+    /**
+     * Flush and close the current file.  The next append starts a new file.
+     * @throws IOException the file could not be closed
+     */
+    public synchronized void close() throws IOException {
+        if (_out != null) {
+            try {
+                _out.close();
+            } finally {
+                _out = null;
+            }
+        }
+    }
+
+    /**
+     * Read every record in the journal, oldest first.  A record cut short by
+     * a crash ends the file it is in.
+     * @return journal records
+     * @throws IOException the journal could not be read
+     */
+    public List<FaultRecord> read() throws IOException {
+        flush();
+        List<FaultRecord> records = new ArrayList<FaultRecord>();
+        for (File file : listFiles().values()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC) {
+                    continue;
+                }
+                while (true) {
+                    long timestamp = in.readLong();
+                    String service = readString(in);
+                    String provider = readString(in);
+                    records.add(new FaultRecord(timestamp,
+                            service != null ? QName.valueOf(service) : null,
+                            provider != null ? QName.valueOf(provider) : null,
+                            readString(in), readString(in), readString(in), readString(in)));
+                }
+            } catch (EOFException e) {
+                // end of file
+                continue;
+            } finally {
+                in.close();
+            }
+        }
+        return records;
+    }
+
+    private void open() throws IOException {
+        if (!_directory.isDirectory() && !_directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + _directory);
+        }
+        SortedMap<Long, File> files = listFiles();
+        _fileNumber = files.isEmpty() ? Math.max(1, _fileNumber + 1) : Math.max(files.lastKey() + 1, _fileNumber + 1);
+        File file = new File(_directory, PREFIX + _fileNumber + SUFFIX);
+        _out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        _out.writeInt(MAGIC);
+        _fileSize = _out.size();
+
+        // the new file counts towards the limit
+        files.put(_fileNumber, file);
+        while (files.size() > _maxFiles) {
+            File oldest = files.remove(files.firstKey());
+            if (!oldest.delete()) {
+                break;
+            }
+        }
+    }
+
+    private SortedMap<Long, File> listFiles() {
+        SortedMap<Long, File> files = new TreeMap<Long, File>();
+        File[] candidates = _directory.listFiles();
+        if (candidates == null) {
+            return files;
+        }
+        for (File file : candidates) {
+            String name = file.getName();
+            if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                try {
+                    files.put(Long.valueOf(name.substring(PREFIX.length(), name.length() - SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                    continue;
+                }
+            }
+        }
+        return files;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            _out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(UTF_8);
+            _out.writeInt(bytes.length);
+            _out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
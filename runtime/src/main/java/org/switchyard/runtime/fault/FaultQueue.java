@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.fault;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free FIFO queue.  Each slot of the ring carries a sequence
+ * number telling producers and consumers whether it is free or filled for
+ * the position they hold, so offer and poll are a compare-and-set on the
+ * tail or head plus two volatile writes, and a full queue rejects an element
+ * instead of blocking.  The capacity is rounded up to a power of two.
+ * @param <E> element type
+ */
+final class FaultQueue<E> {
+
+    private final AtomicReferenceArray<E> _elements;
+    private final AtomicLongArray _sequences;
+    private final int _mask;
+    private final AtomicLong _tail = new AtomicLong();
+    private final AtomicLong _head = new AtomicLong();
+
+    /**
+     * Create a new FaultQueue.
+     * @param capacity minimum number of elements the queue holds
+     */
+    FaultQueue(int capacity) {
+        // at least two slots, or a full slot would look free to the next producer
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        _elements = new AtomicReferenceArray<E>(size);
+        _sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            _sequences.set(i, i);
+        }
+        _mask = size - 1;
+    }
+
+    /**
+     * Add an element to the tail of the queue.
+     * @param element the element, not null
+     * @return false if the queue is full
+     */
+    boolean offer(E element) {
+        long position = _tail.get();
+        while (true) {
+            int index = (int)position & _mask;
+            long available = _sequences.get(index) - position;
+            if (available == 0) {
+                if (_tail.compareAndSet(position, position + 1)) {
+                    _elements.set(index, element);
+                    // publishes the element to the consumer of this position
+                    _sequences.set(index, position + 1);
+                    return true;
+                }
+                position = _tail.get();
+            } else if (available < 0) {
+                // the slot still holds the element from one lap ago
+                return false;
+            } else {
+                position = _tail.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the element at the head of the queue.
+     * @return the element, or null if the queue is empty
+     */
+    E poll() {
+        long position = _head.get();
+        while (true) {
+            int index = (int)position & _mask;
+            long filled = _sequences.get(index) - (position + 1);
+            if (filled == 0) {
+                if (_head.compareAndSet(position, position + 1)) {
+                    E element = _elements.get(index);
+                    _elements.set(index, null);
+                    // frees the slot for the producer one lap ahead
+                    _sequences.set(index, position + _mask + 1);
+                    return element;
+                }
+                position = _head.get();
+            } else if (filled < 0) {
+                return null;
+            } else {
+                position = _head.get();
+            }
+        }
+    }
+
+    /**
+     * @return approximate number of queued elements
+     */
+    int size() {
+        long size = _tail.get() - _head.get();
+        return (int)Math.max(0, Math.min(size, capacity()));
+    }
+
+    /**
+     * @return maximum number of queued elements
+     */
+    int capacity() {
+        return _mask + 1;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.fault;
+
+import java.io.Serializable;
+
+import javax.xml.namespace.QName;
+
+/**
+ * What was captured about a fault which had no reply handler to go to.
+ */
+public final class FaultRecord implements Serializable {
+
+    private static final long serialVersionUID = 2937451064937212651L;
+
+    private final long _timestamp;
+    private final QName _service;
+    private final QName _provider;
+    private final String _operation;
+    private final String _messageId;
+    private final String _relatesTo;
+    private final String _content;
+
+    /**
+     * Create a new FaultRecord.
+     * @param timestamp when the fault was sent, in milliseconds since the epoch
+     * @param service name of the service reference which sent the exchange
+     * @param provider name of the service which sent the fault, may be null
+     * @param operation name of the invoked operation, may be null
+     * @param messageId ID of the fault message, may be null
+     * @param relatesTo ID of the message the fault replies to, may be null
+     * @param content fault content as text, may be null
+     */
+    public FaultRecord(long timestamp, QName service, QName provider, String operation,
+            String messageId, String relatesTo, String content) {
+        _timestamp = timestamp;
+        _service = service;
+        _provider = provider;
+        _operation = operation;
+        _messageId = messageId;
+        _relatesTo = relatesTo;
+        _content = content;
+    }
+
+    /**
+     * @return when the fault was sent, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return _timestamp;
+    }
+
+    /**
+     * @return name of the service reference which sent the exchange
+     */
+    public QName getService() {
+        return _service;
+    }
+
+    /**
+     * @return name of the service which sent the fault, or null
+     */
+    public QName getProvider() {
+        return _provider;
+    }
+
+    /**
+     * @return name of the invoked operation, or null
+     */
+    public String getOperation() {
+        return _operation;
+    }
+
+    /**
+     * @return ID of the fault message, or null
+     */
+    public String getMessageId() {
+        return _messageId;
+    }
+
+    /**
+     * @return ID of the message the fault replies to, or null
+     */
+    public String getRelatesTo() {
+        return _relatesTo;
+    }
+
+    /**
+     * @return fault content as text, possibly truncated, or null
+     */
+    public String getContent() {
+        return _content;
+    }
+
+    @Override
+    public String toString() {
+        return "FaultRecord [timestamp=" + _timestamp + ", service=" + _service + ", provider=" + _provider
+                + ", operation=" + _operation + ", messageId=" + _messageId + ", content=" + _content + "]";
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of requests in flight to a value which follows the
+ * observed latency.
+ * <p/>
+ * Each completed request compares the lowest recent latency with its own.
+ * While they match, the limit grows by roughly its square root, so a provider
+ * which keeps up is given more work; as latency rises above the baseline the
+ * limit shrinks in proportion, down to half per adjustment.  Changes are
+ * smoothed, and the limit does not grow while fewer than half the permits are
+ * in use.  The baseline is re-measured every {@value #PROBE_INTERVAL}
+ * samples so it can follow a provider whose latency has changed for good.
+ * <p/>
+ * A request which finds the limit reached waits up to the configured time for
+ * a permit to be released, and is rejected after that.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    /** Limit used until latency has been observed, unless outside the bounds. */
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final int PROBE_INTERVAL = 500;
+
+    private final int _minLimit;
+    private final int _maxLimit;
+    private final long _maxWait;
+    private final AtomicInteger _inFlight = new AtomicInteger();
+    private final AtomicLong _rejected = new AtomicLong();
+    private volatile int _limit;
+
+    // guarded by this
+    private double _estimate;
+    private long _minRtt;
+    private long _windowMinRtt = Long.MAX_VALUE;
+    private int _windowSamples;
+
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Condition _released = _lock.newCondition();
+    private volatile int _waiting;
+
+    /**
+     * Create a new AdaptiveConcurrencyLimiter.
+     * @param minLimit lowest limit, at least 1
+     * @param maxLimit highest limit
+     * @param maxWait milliseconds a request waits for a permit, 0 to reject at once
+     */
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, long maxWait) {
+        _minLimit = Math.max(1, minLimit);
+        _maxLimit = Math.max(_minLimit, maxLimit);
+        _maxWait = Math.max(0, maxWait);
+        _limit = Math.min(_maxLimit, Math.max(_minLimit, DEFAULT_INITIAL_LIMIT));
+        _estimate = _limit;
+    }
+
+    /**
+     * Whether this limiter was created with the specified settings.
+     * @param minLimit lowest limit
+     * @param maxLimit highest limit
+     * @param maxWait milliseconds a request waits for a permit
+     * @return true if the settings match
+     */
+    public boolean hasSettings(int minLimit, int maxLimit, long maxWait) {
+        int min = Math.max(1, minLimit);
+        return _minLimit == min && _maxLimit == Math.max(min, maxLimit) && _maxWait == Math.max(0, maxWait);
+    }
+
+    /**
+     * Take a permit, waiting up to the configured time if the limit has been
+     * reached.  The permit must be released when the request completes.
+     * @return permit, or null if the request is rejected
+     */
+    public Permit acquire() {
+        int inFlight = tryAcquire();
+        if (inFlight < 0 && _maxWait > 0) {
+            inFlight = awaitAcquire();
+        }
+        if (inFlight < 0) {
+            _rejected.incrementAndGet();
+            return null;
+        }
+        return new Permit(inFlight);
+    }
+
+    /**
+     * @return current limit on requests in flight
+     */
+    public int getLimit() {
+        return _limit;
+    }
+
+    /**
+     * @return number of permits held
+     */
+    public int getInFlight() {
+        return _inFlight.get();
+    }
+
+    /**
+     * @return number of requests rejected
+     */
+    public long getRejectedCount() {
+        return _rejected.get();
+    }
+
+    /**
+     * @return lowest limit
+     */
+    public int getMinLimit() {
+        return _minLimit;
+    }
+
+    /**
+     * @return highest limit
+     */
+    public int getMaxLimit() {
+        return _maxLimit;
+    }
+
+    /**
+     * @return milliseconds a request waits for a permit
+     */
+    public long getMaxWait() {
+        return _maxWait;
+    }
+
+    // number in flight including the new permit, or -1 at the limit
+    private int tryAcquire() {
+        while (true) {
+            int current = _inFlight.get();
+            if (current >= _limit) {
+                return -1;
+            }
+            if (_inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    private int awaitAcquire() {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(_maxWait);
+        _lock.lock();
+        try {
+            // registered before trying again, so a release in between signals us
+            _waiting++;
+            while (true) {
+                int inFlight = tryAcquire();
+                if (inFlight >= 0 || remaining <= 0) {
+                    return inFlight;
+                }
+                remaining = _released.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            _waiting--;
+            _lock.unlock();
+        }
+    }
+
+    private void release(long rtt, int inFlight) {
+        _inFlight.decrementAndGet();
+        boolean raised = sample(rtt, inFlight);
+        if (_waiting > 0) {
+            _lock.lock();
+            try {
+                if (raised) {
+                    _released.signalAll();
+                } else {
+                    _released.signal();
+                }
+            } finally {
+                _lock.unlock();
+            }
+        }
+    }
+
+    // adjusts the limit for a completed request; true if it was raised
+    synchronized boolean sample(long rtt, int inFlight) {
+        rtt = Math.max(1, rtt);
+        if (_minRtt == 0 || rtt < _minRtt) {
+            _minRtt = rtt;
+        }
+        _windowMinRtt = Math.min(_windowMinRtt, rtt);
+        if (++_windowSamples >= PROBE_INTERVAL) {
+            _minRtt = _windowMinRtt;
+            _windowMinRtt = Long.MAX_VALUE;
+            _windowSamples = 0;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, (double)_minRtt / rtt));
+        double target = _estimate * gradient + Math.sqrt(_estimate);
+        if (target > _estimate && inFlight * 2 < _estimate) {
+            // not using what it has, so no evidence that more would help
+            target = _estimate;
+        }
+        _estimate = _estimate * (1 - SMOOTHING) + target * SMOOTHING;
+        _estimate = Math.max(_minLimit, Math.min(_maxLimit, _estimate));
+
+        int previous = _limit;
+        _limit = (int)_estimate;
+        return _limit > previous;
+    }
+
+    /**
+     * A request's claim on the limiter, released when the request completes.
+     */
+    public final class Permit {
+        private final long _start = System.nanoTime();
+        private final int _inFlight;
+        private final AtomicBoolean _done = new AtomicBoolean();
+
+        Permit(int inFlight) {
+            _inFlight = inFlight;
+        }
+
+        /**
+         * Return the permit and record the request's latency.  Only the first
+         * call has any effect.
+         */
+        public void release() {
+            if (_done.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimiter.this.release(System.nanoTime() - _start, _inFlight);
+            }
+        }
+    }
+}
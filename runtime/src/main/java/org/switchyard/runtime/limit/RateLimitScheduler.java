@@ -0,0 +1,203 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.limit;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.switchyard.ServiceDomain;
+import org.switchyard.runtime.RuntimeLogger;
+
+/**
+ * Hands requests delayed by a {@link RateLimiter} back to their dispatcher
+ * once their delay has passed.  Tasks only hand a request off to the
+ * dispatch threads of the bus; the request itself is never handled on the
+ * scheduler's threads.
+ * <p/>
+ * Each exchange bus owns a scheduler, created when the bus is initialized and
+ * shut down when it is stopped.  The number of threads is fixed by the
+ * {@link #THREADS} domain property, and the threads exit once they have been
+ * idle for a minute, or once the scheduler is shut down and the requests
+ * already delayed have been handed off.  At most {@link #MAX_DELAYED}
+ * requests are delayed at a time; beyond that the scheduler refuses them.
+ */
+public final class RateLimitScheduler {
+
+    /**
+     * Domain property specifying the number of threads handing off delayed requests.
+     */
+    public static final String THREADS = "org.switchyard.qos.throttling.threads";
+
+    /**
+     * Default number of threads handing off delayed requests.
+     */
+    public static final int DEFAULT_THREADS = 1;
+
+    /**
+     * Domain property specifying the maximum number of requests delayed at a time.
+     */
+    public static final String MAX_DELAYED = "org.switchyard.qos.throttling.maxDelayed";
+
+    /**
+     * Default maximum number of requests delayed at a time.
+     */
+    public static final int DEFAULT_MAX_DELAYED = 1000;
+
+    private final ScheduledThreadPoolExecutor _executor;
+    private final AtomicInteger _delayed = new AtomicInteger();
+    private final int _maxDelayed;
+
+    /**
+     * Create a new RateLimitScheduler which delays at most
+     * {@link #DEFAULT_MAX_DELAYED} requests at a time.
+     * @param name name used for the scheduler's threads
+     * @param threads number of threads handing off delayed requests
+     */
+    public RateLimitScheduler(String name, int threads) {
+        this(name, threads, DEFAULT_MAX_DELAYED);
+    }
+
+    /**
+     * Create a new RateLimitScheduler.
+     * @param name name used for the scheduler's threads
+     * @param threads number of threads handing off delayed requests
+     * @param maxDelayed maximum number of requests delayed at a time
+     */
+    public RateLimitScheduler(String name, int threads, int maxDelayed) {
+        _executor = new ScheduledThreadPoolExecutor(threads, new RateLimitThreadFactory(name));
+        _executor.setKeepAliveTime(60, TimeUnit.SECONDS);
+        _executor.allowCoreThreadTimeOut(true);
+        _maxDelayed = maxDelayed;
+    }
+
+    /**
+     * Create the scheduler for a domain, configured by its {@link #THREADS}
+     * and {@link #MAX_DELAYED} properties.
+     * @param domain service domain
+     * @return scheduler
+     */
+    public static RateLimitScheduler create(ServiceDomain domain) {
+        return new RateLimitScheduler(domain.getName().getLocalPart(),
+                getIntProperty(domain, THREADS, DEFAULT_THREADS),
+                getIntProperty(domain, MAX_DELAYED, DEFAULT_MAX_DELAYED));
+    }
+
+    private static int getIntProperty(ServiceDomain domain, String name, int defaultValue) {
+        Object value = domain.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        int result;
+        try {
+            result = Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException nfEx) {
+            result = 0;
+        }
+        if (result <= 0) {
+            RuntimeLogger.ROOT_LOGGER.invalidDomainProperty(name, value.toString(), String.valueOf(defaultValue));
+            result = defaultValue;
+        }
+        return result;
+    }
+
+    /**
+     * Hand off a delayed request once its delay has passed.  The task runs
+     * with the caller's context classloader, and must only pass the request
+     * on to the dispatch threads of the bus.
+     * @param task the task
+     * @param delay delay in nanoseconds
+     * @throws RejectedExecutionException the scheduler has been shut down, or
+     * already has the maximum number of requests delayed
+     */
+    public void schedule(Runnable task, long delay) {
+        if (_delayed.incrementAndGet() > _maxDelayed) {
+            _delayed.decrementAndGet();
+            throw new RejectedExecutionException();
+        }
+        try {
+            _executor.schedule(new ContextTask(task, Thread.currentThread().getContextClassLoader()),
+                    delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException reEx) {
+            _delayed.decrementAndGet();
+            throw reEx;
+        }
+    }
+
+    /**
+     * @return the number of requests currently delayed
+     */
+    public int getDelayedCount() {
+        return _delayed.get();
+    }
+
+    /**
+     * Refuse new requests.  Requests already delayed are still run when
+     * their delay has passed, after which the threads exit.
+     */
+    public void shutdown() {
+        _executor.shutdown();
+    }
+
+    /**
+     * @return true if the scheduler has been shut down
+     */
+    public boolean isShutdown() {
+        return _executor.isShutdown();
+    }
+
+    // runs a task with the context classloader of the thread which scheduled it
+    private final class ContextTask implements Runnable {
+        private final Runnable _task;
+        private final ClassLoader _loader;
+
+        ContextTask(Runnable task, ClassLoader loader) {
+            _task = task;
+            _loader = loader;
+        }
+
+        @Override
+        public void run() {
+            _delayed.decrementAndGet();
+            Thread thread = Thread.currentThread();
+            ClassLoader previous = thread.getContextClassLoader();
+            thread.setContextClassLoader(_loader);
+            try {
+                _task.run();
+            } finally {
+                thread.setContextClassLoader(previous);
+            }
+        }
+    }
+
+    // names rate limit threads after the domain and marks them as daemons
+    private static final class RateLimitThreadFactory implements ThreadFactory {
+        private final AtomicInteger _count = new AtomicInteger();
+        private final String _prefix;
+
+        RateLimitThreadFactory(String domainName) {
+            _prefix = "SwitchYard-RateLimit-" + domainName + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, _prefix + _count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
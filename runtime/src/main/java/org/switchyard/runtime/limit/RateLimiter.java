@@ -0,0 +1,169 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.limit;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.switchyard.metadata.qos.Throttling;
+import org.switchyard.metadata.qos.Throttling.LimitAction;
+
+/**
+ * Limits the rate of requests sent through a service reference, and through
+ * each of its operations, with token buckets built from a {@link Throttling}.
+ * <p/>
+ * A request must take a token from the bucket of its operation, if there is
+ * one, and from the bucket of the service.  When the action is
+ * {@link LimitAction#DELAY} a request which finds a bucket empty is given the
+ * time at which it may be sent instead, as long as that is within the
+ * maximum delay; delayed requests are started by the bus's
+ * {@link RateLimitScheduler} and do not hold a thread while they wait.
+ * Otherwise the request is refused.
+ */
+public final class RateLimiter {
+
+    private final Throttling _throttling;
+    private final TokenBucket _service;
+    private final Map<String, TokenBucket> _operations;
+    private final long _maxDelay;
+    private final AtomicLong _admitted = new AtomicLong();
+    private final AtomicLong _delayed = new AtomicLong();
+    private final AtomicLong _rejected = new AtomicLong();
+
+    /**
+     * Create a new RateLimiter.
+     * @param throttling rate limits; treated as immutable
+     */
+    public RateLimiter(Throttling throttling) {
+        _throttling = throttling;
+        _service = createBucket(throttling);
+        Map<String, TokenBucket> operations = new HashMap<String, TokenBucket>();
+        for (Map.Entry<String, Throttling> operation : throttling.getOperationThrottling().entrySet()) {
+            TokenBucket bucket = createBucket(operation.getValue());
+            if (bucket != null) {
+                operations.put(operation.getKey(), bucket);
+            }
+        }
+        _operations = operations.isEmpty() ? Collections.<String, TokenBucket>emptyMap() : operations;
+        if (throttling.getLimitAction() != LimitAction.DELAY) {
+            _maxDelay = 0;
+        } else if (throttling.getMaxDelay() >= TimeUnit.NANOSECONDS.toMillis(Long.MAX_VALUE)) {
+            _maxDelay = Long.MAX_VALUE;
+        } else {
+            _maxDelay = TimeUnit.MILLISECONDS.toNanos(Math.max(0, throttling.getMaxDelay()));
+        }
+    }
+
+    /**
+     * Whether the specified throttling sets any rate limit.
+     * @param throttling throttling, may be null
+     * @return true if a rate limiter is needed
+     */
+    public static boolean isRateLimited(Throttling throttling) {
+        if (throttling == null) {
+            return false;
+        }
+        if (throttling.getMaxRequests() > 0) {
+            return true;
+        }
+        for (Throttling operation : throttling.getOperationThrottling().values()) {
+            if (operation.getMaxRequests() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Take the tokens needed to send a request.
+     * @param operation name of the operation invoked, may be null
+     * @return 0 if the request may be sent now, the number of nanoseconds it
+     * must be delayed by, or -1 if it is over the limit
+     */
+    public long reserve(String operation) {
+        long now = System.nanoTime();
+        TokenBucket bucket = operation != null ? _operations.get(operation) : null;
+        long delay = 0;
+        if (bucket != null) {
+            delay = bucket.take(now, _maxDelay);
+            if (delay < 0) {
+                _rejected.incrementAndGet();
+                return -1;
+            }
+        }
+        if (_service != null) {
+            long serviceDelay = _service.take(now, _maxDelay);
+            if (serviceDelay < 0) {
+                if (bucket != null) {
+                    bucket.refund();
+                }
+                _rejected.incrementAndGet();
+                return -1;
+            }
+            delay = Math.max(delay, serviceDelay);
+        }
+        if (delay > 0) {
+            _delayed.incrementAndGet();
+        } else {
+            _admitted.incrementAndGet();
+        }
+        return delay;
+    }
+
+    /**
+     * @return the throttling this limiter was built from
+     */
+    public Throttling getThrottling() {
+        return _throttling;
+    }
+
+    /**
+     * @return what happens to a request which is over the limit
+     */
+    public LimitAction getLimitAction() {
+        return _throttling.getLimitAction();
+    }
+
+    /**
+     * @return number of requests sent without delay
+     */
+    public long getAdmittedCount() {
+        return _admitted.get();
+    }
+
+    /**
+     * @return number of requests delayed
+     */
+    public long getDelayedCount() {
+        return _delayed.get();
+    }
+
+    /**
+     * @return number of requests over the limit
+     */
+    public long getRejectedCount() {
+        return _rejected.get();
+    }
+
+    private static TokenBucket createBucket(Throttling throttling) {
+        if (throttling.getMaxRequests() <= 0) {
+            return null;
+        }
+        return new TokenBucket(throttling.getMaxRequests(), throttling.getTimePeriod(), throttling.getBurst());
+    }
+}
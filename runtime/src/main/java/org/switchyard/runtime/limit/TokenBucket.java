@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket holding up to a burst of requests and refilled at a fixed
+ * rate, kept as the theoretical arrival time of the next request (the
+ * generic cell rate algorithm) so a request is admitted with a single
+ * compare-and-set and no refill thread.
+ */
+final class TokenBucket {
+
+    private final long _interval;
+    private final long _tolerance;
+    private final AtomicLong _arrival;
+
+    /**
+     * Create a new TokenBucket.
+     * @param maxRequests requests allowed per time period, at least 1
+     * @param timePeriod time period in milliseconds
+     * @param burst requests which may be sent at once, at least 1
+     */
+    TokenBucket(int maxRequests, long timePeriod, int burst) {
+        _interval = Math.max(1, TimeUnit.MILLISECONDS.toNanos(Math.max(1, timePeriod)) / Math.max(1, maxRequests));
+        _tolerance = (Math.max(1, burst) - 1) * _interval;
+        _arrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Take a token, waiting for one if needed.
+     * @param now current value of System.nanoTime()
+     * @param maxDelay longest acceptable wait in nanoseconds, 0 if the request
+     * must not wait
+     * @return nanoseconds to wait before the request is sent, or -1 if the
+     * wait would be longer than maxDelay, in which case no token is taken
+     */
+    long take(long now, long maxDelay) {
+        for (;;) {
+            long arrival = _arrival.get();
+            long next = arrival - now > 0 ? arrival : now;
+            long delay = next - now - _tolerance;
+            if (delay < 0) {
+                delay = 0;
+            } else if (delay > maxDelay) {
+                return -1;
+            }
+            if (_arrival.compareAndSet(arrival, next + _interval)) {
+                return delay;
+            }
+        }
+    }
+
+    /**
+     * Return a token taken by a request which was not sent.
+     */
+    void refund() {
+        _arrival.addAndGet(-_interval);
+    }
+}
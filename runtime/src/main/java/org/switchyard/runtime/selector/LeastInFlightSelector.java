@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.selector;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.switchyard.Exchange;
+import org.switchyard.Property;
+import org.switchyard.Scope;
+import org.switchyard.Service;
+import org.switchyard.label.BehaviorLabel;
+import org.switchyard.spi.ProviderSelector;
+
+/**
+ * Sends each exchange to the provider with the fewest exchanges in flight
+ * through this reference, so a slow provider is sent less work.  Ties are
+ * broken in turn, which makes the selector behave like round robin while
+ * providers keep up.  An exchange stops counting against its provider once
+ * the request chain is done with it, so providers which fault, throw or
+ * never reply are not left busy.
+ */
+public class LeastInFlightSelector implements ProviderSelector {
+
+    /**
+     * Exchange property holding the in flight count raised for an exchange,
+     * which is lowered once by {@link #completed(Exchange)}.
+     */
+    public static final String IN_FLIGHT_PROVIDER = "org.switchyard.selector.inFlightProvider";
+
+    private final ConcurrentMap<Service, AtomicInteger> _inFlight = new ConcurrentHashMap<Service, AtomicInteger>();
+    private final AtomicInteger _next = new AtomicInteger();
+
+    @Override
+    public Service select(Exchange exchange, List<Service> providers) {
+        int count = providers.size();
+        if (_inFlight.size() > count) {
+            // forget providers which have been unregistered
+            _inFlight.keySet().retainAll(providers);
+        }
+
+        int start = (_next.getAndIncrement() & Integer.MAX_VALUE) % count;
+        Service selected = null;
+        AtomicInteger least = null;
+        for (int i = 0; i < count; i++) {
+            Service provider = providers.get((start + i) % count);
+            AtomicInteger inFlight = counter(provider);
+            if (least == null || inFlight.get() < least.get()) {
+                selected = provider;
+                least = inFlight;
+            }
+        }
+        least.incrementAndGet();
+        exchange.getContext().setProperty(IN_FLIGHT_PROVIDER, new InFlight(least), Scope.EXCHANGE)
+                .addLabels(BehaviorLabel.TRANSIENT.label());
+        return selected;
+    }
+
+    @Override
+    public void completed(Exchange exchange) {
+        Property property = exchange.getContext().getProperty(IN_FLIGHT_PROVIDER, Scope.EXCHANGE);
+        if (property != null && property.getValue() instanceof InFlight) {
+            exchange.getContext().removeProperty(property);
+            ((InFlight)property.getValue()).release();
+        }
+    }
+
+    /**
+     * Number of exchanges in flight to a provider.
+     * @param provider the provider
+     * @return exchanges sent to the provider which the request chain is not done with
+     */
+    public int getInFlight(Service provider) {
+        AtomicInteger inFlight = _inFlight.get(provider);
+        return inFlight != null ? inFlight.get() : 0;
+    }
+
+    // one exchange's share of a provider's in flight count, released at most
+    // once however often completed() is called for the exchange
+    private static final class InFlight {
+        private final AtomicInteger _count;
+        private final AtomicBoolean _released = new AtomicBoolean();
+
+        InFlight(AtomicInteger count) {
+            _count = count;
+        }
+
+        void release() {
+            if (_released.compareAndSet(false, true)) {
+                _count.decrementAndGet();
+            }
+        }
+    }
+
+    private AtomicInteger counter(Service provider) {
+        AtomicInteger inFlight = _inFlight.get(provider);
+        if (inFlight == null) {
+            AtomicInteger created = new AtomicInteger();
+            inFlight = _inFlight.putIfAbsent(provider, created);
+            if (inFlight == null) {
+                inFlight = created;
+            }
+        }
+        return inFlight;
+    }
+}
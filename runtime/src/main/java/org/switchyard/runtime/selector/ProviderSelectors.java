@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.selector;
+
+import org.jboss.logging.Logger;
+import org.switchyard.ServiceReference;
+import org.switchyard.common.type.Classes;
+import org.switchyard.metadata.qos.LoadBalancing;
+import org.switchyard.runtime.RuntimeLogger;
+import org.switchyard.spi.ProviderSelector;
+
+/**
+ * Creates the provider selector configured by the load balancing metadata
+ * of a service reference.
+ */
+public final class ProviderSelectors {
+
+    private static Logger _log = Logger.getLogger(ProviderSelectors.class);
+
+    private ProviderSelectors() {
+    }
+
+    /**
+     * Create the provider selector for a service reference.  The strategy is
+     * one of the names defined by {@link LoadBalancing} or the name of a class
+     * implementing {@link ProviderSelector}.
+     * @param reference the service reference
+     * @return a new selector, or null if the reference always uses the first
+     * provider
+     */
+    public static ProviderSelector create(ServiceReference reference) {
+        LoadBalancing loadBalancing = reference.getServiceMetadata().getLoadBalancing();
+        if (loadBalancing == null || loadBalancing.getStrategy() == null) {
+            return null;
+        }
+
+        String strategy = loadBalancing.getStrategy().trim();
+        if (LoadBalancing.ROUND_ROBIN.equals(strategy)) {
+            return new RoundRobinSelector();
+        } else if (LoadBalancing.WEIGHTED.equals(strategy)) {
+            return new WeightedSelector(loadBalancing.getWeights());
+        } else if (LoadBalancing.LEAST_IN_FLIGHT.equals(strategy)) {
+            return new LeastInFlightSelector();
+        } else if (LoadBalancing.STICKY.equals(strategy)) {
+            if (loadBalancing.getProperty() != null) {
+                return new StickySelector(loadBalancing.getProperty());
+            }
+        } else {
+            try {
+                Class<?> type = Classes.forName(strategy, ProviderSelectors.class);
+                if (type != null && ProviderSelector.class.isAssignableFrom(type)) {
+                    return (ProviderSelector)type.newInstance();
+                }
+            } catch (Exception e) {
+                _log.debug("Failed to create provider selector " + strategy, e);
+            }
+        }
+        RuntimeLogger.ROOT_LOGGER.invalidLoadBalancing(reference.getName().toString(), strategy);
+        return null;
+    }
+}
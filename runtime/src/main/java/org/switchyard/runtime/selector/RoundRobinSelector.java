@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.selector;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.switchyard.Exchange;
+import org.switchyard.Service;
+import org.switchyard.spi.ProviderSelector;
+
+/**
+ * Sends each exchange to the next provider in turn.
+ */
+public class RoundRobinSelector implements ProviderSelector {
+
+    private final AtomicInteger _next = new AtomicInteger();
+
+    @Override
+    public Service select(Exchange exchange, List<Service> providers) {
+        return providers.get((_next.getAndIncrement() & Integer.MAX_VALUE) % providers.size());
+    }
+
+    @Override
+    public void completed(Exchange exchange) {
+        // nothing to track
+    }
+}
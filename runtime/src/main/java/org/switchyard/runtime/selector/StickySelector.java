@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.selector;
+
+import java.util.List;
+
+import org.switchyard.Exchange;
+import org.switchyard.Service;
+import org.switchyard.spi.ProviderSelector;
+
+/**
+ * Sends exchanges carrying the same value of a context property to the same
+ * provider.  Uses rendezvous hashing, so registering or unregistering a
+ * provider only moves the values which map to that provider.  Exchanges
+ * without the property are sent to providers in turn.
+ */
+public class StickySelector implements ProviderSelector {
+
+    private final String _property;
+    private final RoundRobinSelector _unkeyed = new RoundRobinSelector();
+
+    /**
+     * Create a new StickySelector.
+     * @param property name of the context property holding the key
+     */
+    public StickySelector(String property) {
+        _property = property;
+    }
+
+    @Override
+    public Service select(Exchange exchange, List<Service> providers) {
+        Object key = exchange.getContext().getPropertyValue(_property);
+        if (key == null) {
+            return _unkeyed.select(exchange, providers);
+        }
+        int hash = key.hashCode();
+        Service selected = null;
+        long highest = -1;
+        for (Service provider : providers) {
+            // provider identity is only stable within a process, which is
+            // as far as local providers can be reached
+            long score = mix(hash * 31 + System.identityHashCode(provider)) & 0xFFFFFFFFL;
+            if (score > highest) {
+                selected = provider;
+                highest = score;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public void completed(Exchange exchange) {
+        // nothing to track
+    }
+
+    // MurmurHash3 finalizer, spreads nearby inputs over the whole int range
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.selector;
+
+import java.util.List;
+
+import org.switchyard.Exchange;
+import org.switchyard.Service;
+import org.switchyard.spi.ProviderSelector;
+
+/**
+ * Sends exchanges to providers in proportion to their weights, which are
+ * given in provider registration order.  Providers without a weight have a
+ * weight of 1, and a weight of 0 takes a provider out of rotation.  Uses
+ * smooth weighted round robin, so a heavily weighted provider is not sent
+ * a burst of consecutive exchanges.
+ */
+public class WeightedSelector implements ProviderSelector {
+
+    private final int[] _weights;
+    // running score of each provider, reset when the number of providers changes
+    private int[] _current = new int[0];
+
+    /**
+     * Create a new WeightedSelector.
+     * @param weights provider weights, in provider registration order
+     */
+    public WeightedSelector(List<Integer> weights) {
+        _weights = new int[weights.size()];
+        for (int i = 0; i < _weights.length; i++) {
+            _weights[i] = Math.max(0, weights.get(i));
+        }
+    }
+
+    @Override
+    public synchronized Service select(Exchange exchange, List<Service> providers) {
+        int count = providers.size();
+        if (_current.length != count) {
+            _current = new int[count];
+        }
+        int total = 0;
+        int selected = -1;
+        for (int i = 0; i < count; i++) {
+            int weight = i < _weights.length ? _weights[i] : 1;
+            total += weight;
+            _current[i] += weight;
+            if (weight > 0 && (selected < 0 || _current[i] > _current[selected])) {
+                selected = i;
+            }
+        }
+        if (selected < 0) {
+            return null;
+        }
+        _current[selected] -= total;
+        return providers.get(selected);
+    }
+
+    @Override
+    public void completed(Exchange exchange) {
+        // nothing to track
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps finished spans in memory, in the order they were finished, so that
+ * tests can inspect them.  Spans are kept until {@link #clear()} is called.
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final List<Span> _spans = new ArrayList<Span>();
+
+    @Override
+    public synchronized void export(Span span) {
+        _spans.add(span);
+    }
+
+    /**
+     * All spans exported so far.
+     * @return copy of the exported spans
+     */
+    public synchronized List<Span> getSpans() {
+        return new ArrayList<Span>(_spans);
+    }
+
+    /**
+     * Spans exported so far with the specified name.
+     * @param name span name
+     * @return copy of the matching spans
+     */
+    public synchronized List<Span> getSpans(String name) {
+        List<Span> spans = new ArrayList<Span>();
+        for (Span span : _spans) {
+            if (span.getName().equals(name)) {
+                spans.add(span);
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * Spans exported so far which belong to the specified trace.
+     * @param traceId trace ID
+     * @return copy of the matching spans
+     */
+    public synchronized List<Span> getTrace(long traceId) {
+        List<Span> spans = new ArrayList<Span>();
+        for (Span span : _spans) {
+            if (span.getTraceId() == traceId) {
+                spans.add(span);
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * Discard the spans exported so far.
+     */
+    public synchronized void clear() {
+        _spans.clear();
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.trace;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A timed unit of work within a trace: an exchange, or one handler or
+ * processor working on an exchange.  Spans of the same trace share a trace
+ * ID and are linked to their parent by its span ID.
+ * <p/>
+ * A span is started by its {@link Tracer} or by {@link #startChild(String)}
+ * and is handed to the tracer's exporter when it is finished.  Attributes
+ * and the fault flag may be set from any thread until then.
+ */
+public final class Span {
+
+    private final Tracer _tracer;
+    private final String _name;
+    private final long _traceId;
+    private final long _spanId;
+    private final long _parentId;
+    private final long _startTime;
+    private final long _startNanos;
+    private volatile long _duration = -1;
+    private volatile boolean _fault;
+    private Map<String, String> _attributes;
+
+    Span(Tracer tracer, String name, long traceId, long spanId, long parentId) {
+        _tracer = tracer;
+        _name = name;
+        _traceId = traceId;
+        _spanId = spanId;
+        _parentId = parentId;
+        _startTime = System.currentTimeMillis();
+        _startNanos = System.nanoTime();
+    }
+
+    /**
+     * Start a span which is a child of this one.
+     * @param name name of the child span
+     * @return the started child span
+     */
+    public Span startChild(String name) {
+        return new Span(_tracer, name, _traceId, Tracer.nextId(), _spanId);
+    }
+
+    /**
+     * Finish this span and export it.  Only the first call has any effect.
+     */
+    public void finish() {
+        synchronized (this) {
+            if (_duration >= 0) {
+                return;
+            }
+            _duration = System.nanoTime() - _startNanos;
+        }
+        _tracer.export(this);
+    }
+
+    /**
+     * Set an attribute describing the work done in this span.
+     * @param name attribute name
+     * @param value attribute value, converted with toString()
+     * @return this span
+     */
+    public synchronized Span setAttribute(String name, Object value) {
+        if (_attributes == null) {
+            _attributes = new LinkedHashMap<String, String>();
+        }
+        _attributes.put(name, String.valueOf(value));
+        return this;
+    }
+
+    /**
+     * Mark whether the work in this span ended in a fault.
+     * @param fault true if the span ended in a fault
+     * @return this span
+     */
+    public Span setFault(boolean fault) {
+        _fault = fault;
+        return this;
+    }
+
+    /**
+     * The span name.
+     * @return name
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * ID shared by all spans of the trace.
+     * @return trace ID
+     */
+    public long getTraceId() {
+        return _traceId;
+    }
+
+    /**
+     * ID of this span.
+     * @return span ID
+     */
+    public long getSpanId() {
+        return _spanId;
+    }
+
+    /**
+     * ID of the parent span, or 0 if this is the root span of the trace.
+     * @return parent span ID
+     */
+    public long getParentId() {
+        return _parentId;
+    }
+
+    /**
+     * Wall clock time the span started at.
+     * @return start time in milliseconds since the epoch
+     */
+    public long getStartTime() {
+        return _startTime;
+    }
+
+    /**
+     * Time taken by the span.
+     * @return duration in nanoseconds, or -1 if the span is not finished
+     */
+    public long getDuration() {
+        return _duration;
+    }
+
+    /**
+     * Whether the span has been finished.
+     * @return true if finished
+     */
+    public boolean isFinished() {
+        return _duration >= 0;
+    }
+
+    /**
+     * Whether the work in this span ended in a fault.
+     * @return true if the span ended in a fault
+     */
+    public boolean isFault() {
+        return _fault;
+    }
+
+    /**
+     * Attributes set on the span.
+     * @return unmodifiable copy of the attributes
+     */
+    public synchronized Map<String, String> getAttributes() {
+        if (_attributes == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(new LinkedHashMap<String, String>(_attributes));
+    }
+
+    /**
+     * The value of the {@link Tracer#TRACE_PARENT} property which makes a
+     * span started in another process a child of this one.
+     * @return trace ID and span ID in hex, separated by '-'
+     */
+    public String getTraceParent() {
+        return Tracer.toHex(_traceId) + '-' + Tracer.toHex(_spanId);
+    }
+
+    @Override
+    public String toString() {
+        return "Span '" + _name + "' trace=" + Tracer.toHex(_traceId) + " span=" + Tracer.toHex(_spanId)
+                + " parent=" + Tracer.toHex(_parentId) + " duration=" + _duration + "ns"
+                + (_fault ? " fault" : "") + (_attributes != null ? " " + getAttributes() : "");
+    }
+}
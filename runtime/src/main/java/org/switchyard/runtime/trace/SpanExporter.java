@@ -0,0 +1,31 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.trace;
+
+/**
+ * Receives spans as they are finished.  The exporter used by a domain is
+ * set with the {@link Tracer#EXPORTER} domain property.
+ */
+public interface SpanExporter {
+
+    /**
+     * Export a finished span.  This is called on the thread which finished
+     * the span, from any number of threads, so it should hand the span off
+     * rather than do any slow work itself.
+     * @param span the finished span
+     */
+    void export(Span span);
+
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.trace;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.logging.Logger;
+import org.switchyard.Exchange;
+import org.switchyard.ExchangeHandler;
+import org.switchyard.ExchangeState;
+import org.switchyard.HandlerException;
+import org.switchyard.Property;
+import org.switchyard.Scope;
+import org.switchyard.ServiceDomain;
+import org.switchyard.ServiceReference;
+import org.switchyard.common.type.Classes;
+import org.switchyard.internal.DomainImpl;
+import org.switchyard.label.BehaviorLabel;
+import org.switchyard.metadata.ServiceOperation;
+import org.switchyard.runtime.RuntimeLogger;
+
+/**
+ * Creates the spans which time exchanges in a domain, and the handlers and
+ * processors working on them, and hands finished spans to the domain's
+ * {@link SpanExporter}.
+ * <p/>
+ * Tracing is off unless the {@link #EXPORTER} domain property is set.  While
+ * no domain has tracing on, finding the span of an exchange is a read of a
+ * static count, so handler chains pay next to nothing for it.  A domain
+ * closes its tracer when the property changes or the domain is destroyed, so
+ * the count drops back once the last domain with tracing on is done.
+ * <p/>
+ * The span of an exchange is kept in the exchange context.  While a handler
+ * runs, its span is also the current span of the thread, so an exchange sent
+ * from within a provider becomes part of the same trace.  Across processes
+ * the trace is carried by the {@link #TRACE_PARENT} context property.
+ */
+public final class Tracer {
+
+    /**
+     * Domain property naming the exporter for finished spans: "log" to log
+     * them, the name of a class implementing {@link SpanExporter}, or a
+     * SpanExporter instance.  Tracing is off when it is not set or "none".
+     */
+    public static final String EXPORTER = "org.switchyard.trace.exporter";
+    /**
+     * Context property carrying the trace ID and span ID of the parent of an
+     * exchange's span, as returned by {@link Span#getTraceParent()}.
+     */
+    public static final String TRACE_PARENT = "org.switchyard.trace.parent";
+    /**
+     * Exchange property holding the span of an exchange.
+     */
+    public static final String SPAN = "org.switchyard.trace.span";
+    /**
+     * Name of the span created for each exchange.
+     */
+    public static final String EXCHANGE_SPAN = "exchange";
+
+    /** Tracer used while tracing is off. */
+    public static final Tracer DISABLED = new Tracer(null);
+
+    private static Logger _log = Logger.getLogger(Tracer.class);
+
+    // number of tracers with tracing on which have not been closed; checked before every span lookup
+    private static final AtomicInteger ENABLED = new AtomicInteger();
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<Span>();
+    private static final AtomicLong IDS = new AtomicLong(UUID.randomUUID().getLeastSignificantBits());
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final SpanExporter _exporter;
+    private final AtomicBoolean _closed = new AtomicBoolean();
+
+    private Tracer(SpanExporter exporter) {
+        _exporter = exporter;
+        if (exporter != null) {
+            ENABLED.incrementAndGet();
+        }
+    }
+
+    /**
+     * Create a tracer configured by the {@link #EXPORTER} property of the
+     * specified domain.
+     * @param domain service domain
+     * @return new tracer, or {@link #DISABLED} if tracing is off
+     */
+    public static Tracer create(ServiceDomain domain) {
+        Object value = domain.getProperty(EXPORTER);
+        if (value == null || "none".equals(value)) {
+            return DISABLED;
+        } else if (value instanceof SpanExporter) {
+            return new Tracer((SpanExporter)value);
+        } else if ("log".equals(value)) {
+            return new Tracer(new LoggingSpanExporter());
+        }
+        try {
+            Class<?> type = Classes.forName(value.toString().trim(), Tracer.class);
+            if (type != null && SpanExporter.class.isAssignableFrom(type)) {
+                return new Tracer((SpanExporter)type.newInstance());
+            }
+        } catch (Exception e) {
+            _log.debug("Failed to create span exporter " + value, e);
+        }
+        RuntimeLogger.ROOT_LOGGER.invalidDomainProperty(EXPORTER, value.toString(), "none");
+        return DISABLED;
+    }
+
+    /**
+     * The tracer of the specified domain.
+     * @param domain service domain
+     * @return the domain's tracer, or {@link #DISABLED} if it has none
+     */
+    public static Tracer forDomain(ServiceDomain domain) {
+        if (domain instanceof DomainImpl) {
+            return ((DomainImpl)domain).getTracer();
+        }
+        return DISABLED;
+    }
+
+    /**
+     * Whether this tracer creates spans.
+     * @return true if tracing is on
+     */
+    public boolean isEnabled() {
+        return _exporter != null;
+    }
+
+    /**
+     * Stop counting this tracer among those with tracing on.  Once every
+     * tracer with tracing on has been closed, span lookups no longer read the
+     * exchange context, so spans still open at that point are not finished.
+     */
+    public void close() {
+        if (_exporter != null && _closed.compareAndSet(false, true)) {
+            ENABLED.decrementAndGet();
+        }
+    }
+
+    /**
+     * Number of tracers with tracing on which have not been closed.
+     * @return open enabled tracers
+     */
+    static int getEnabledCount() {
+        return ENABLED.get();
+    }
+
+    /**
+     * Start the span of an exchange which is being sent for the first time.
+     * The span is the child of the current span of the thread, or else of
+     * the span named by the exchange's {@link #TRACE_PARENT} property, and
+     * otherwise starts a new trace.
+     * @param exchange the exchange
+     * @return the started span, or null if tracing is off
+     */
+    public Span startExchange(Exchange exchange) {
+        if (_exporter == null) {
+            return null;
+        }
+        Span span;
+        Span current = CURRENT.get();
+        if (current != null) {
+            span = current.startChild(EXCHANGE_SPAN);
+        } else {
+            span = startRemoteChild(exchange.getContext().getPropertyValue(TRACE_PARENT));
+        }
+        ServiceReference consumer = exchange.getConsumer();
+        if (consumer != null) {
+            span.setAttribute("service", consumer.getName());
+        }
+        ServiceOperation operation = exchange.getContract().getConsumerOperation();
+        if (operation != null) {
+            span.setAttribute("operation", operation.getName());
+        }
+        exchange.getContext().setProperty(SPAN, span, Scope.EXCHANGE)
+            .addLabels(BehaviorLabel.TRANSIENT.label());
+        return span;
+    }
+
+    /**
+     * Finish the span of a completed exchange.
+     * @param exchange the exchange
+     */
+    public static void finishExchange(Exchange exchange) {
+        Span span = getSpan(exchange);
+        if (span != null) {
+            span.setFault(exchange.getState() == ExchangeState.FAULT);
+            span.finish();
+        }
+    }
+
+    /**
+     * The span of the specified exchange.
+     * @param exchange the exchange
+     * @return the exchange's span, or null if it is not traced
+     */
+    public static Span getSpan(Exchange exchange) {
+        if (ENABLED.get() == 0) {
+            return null;
+        }
+        Property property = exchange.getContext().getProperty(SPAN, Scope.EXCHANGE);
+        return property != null ? (Span)property.getValue() : null;
+    }
+
+    /**
+     * The span of the handler running on the current thread.
+     * @return current span, or null if there is none
+     */
+    public static Span currentSpan() {
+        return ENABLED.get() != 0 ? CURRENT.get() : null;
+    }
+
+    /**
+     * Start a child of the current span of the thread, for work such as a
+     * remote invocation which is not an exchange.
+     * @param name name of the span
+     * @return the started span, or null if there is no current span
+     */
+    public static Span startChild(String name) {
+        Span current = currentSpan();
+        return current != null ? current.startChild(name) : null;
+    }
+
+    /**
+     * Pass a message to a handler inside a child span of the exchange span.
+     * @param name name of the handler
+     * @param handler the handler
+     * @param exchange the exchange
+     * @param parent the exchange span, or null to call the handler untraced
+     * @throws HandlerException thrown by the handler
+     */
+    public static void handleMessage(String name, ExchangeHandler handler, Exchange exchange, Span parent)
+            throws HandlerException {
+        if (parent == null) {
+            handler.handleMessage(exchange);
+            return;
+        }
+        Span span = parent.startChild(name);
+        Span previous = CURRENT.get();
+        CURRENT.set(span);
+        try {
+            handler.handleMessage(exchange);
+        } catch (HandlerException handlerEx) {
+            span.setFault(true).setAttribute("error", handlerEx.getClass().getName());
+            throw handlerEx;
+        } catch (RuntimeException rtEx) {
+            span.setFault(true).setAttribute("error", rtEx.getClass().getName());
+            throw rtEx;
+        } finally {
+            CURRENT.set(previous);
+            if (exchange.getState() == ExchangeState.FAULT) {
+                span.setFault(true);
+            }
+            span.finish();
+        }
+    }
+
+    /**
+     * Pass a fault to a handler inside a child span of the exchange span.
+     * @param name name of the handler
+     * @param handler the handler
+     * @param exchange the exchange
+     * @param parent the exchange span, or null to call the handler untraced
+     */
+    public static void handleFault(String name, ExchangeHandler handler, Exchange exchange, Span parent) {
+        if (parent == null) {
+            handler.handleFault(exchange);
+            return;
+        }
+        Span span = parent.startChild(name).setFault(true);
+        Span previous = CURRENT.get();
+        CURRENT.set(span);
+        try {
+            handler.handleFault(exchange);
+        } catch (RuntimeException rtEx) {
+            span.setAttribute("error", rtEx.getClass().getName());
+            throw rtEx;
+        } finally {
+            CURRENT.set(previous);
+            span.finish();
+        }
+    }
+
+    void export(Span span) {
+        try {
+            _exporter.export(span);
+        } catch (RuntimeException rtEx) {
+            RuntimeLogger.ROOT_LOGGER.spanExportFailed(span.getName(), rtEx);
+        }
+    }
+
+    // joins the trace named by a TRACE_PARENT value, or starts a new one
+    private Span startRemoteChild(Object traceParent) {
+        if (traceParent != null) {
+            String value = traceParent.toString();
+            int separator = value.indexOf('-');
+            if (separator > 0) {
+                try {
+                    long traceId = parseHex(value.substring(0, separator));
+                    long parentId = parseHex(value.substring(separator + 1));
+                    return new Span(this, EXCHANGE_SPAN, traceId, nextId(), parentId);
+                } catch (NumberFormatException nfEx) {
+                    _log.debug("Ignoring invalid " + TRACE_PARENT + " value " + value);
+                }
+            }
+        }
+        return new Span(this, EXCHANGE_SPAN, nextId(), nextId(), 0);
+    }
+
+    // unique, non-zero and spread over the whole range (SplitMix64 finalizer)
+    static long nextId() {
+        long id;
+        do {
+            id = IDS.incrementAndGet();
+            id = (id ^ (id >>> 30)) * 0xbf58476d1ce4e5b9L;
+            id = (id ^ (id >>> 27)) * 0x94d049bb133111ebL;
+            id = id ^ (id >>> 31);
+        } while (id == 0);
+        return id;
+    }
+
+    static String toHex(long value) {
+        char[] chars = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = HEX[(int)value & 0xf];
+            value >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    private static long parseHex(String value) {
+        if (value.length() == 0 || value.length() > 16) {
+            throw new NumberFormatException(value);
+        }
+        long result = 0;
+        for (int i = 0; i < value.length(); i++) {
+            int digit = Character.digit(value.charAt(i), 16);
+            if (digit < 0) {
+                throw new NumberFormatException(value);
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+}
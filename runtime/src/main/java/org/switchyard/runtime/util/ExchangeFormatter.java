@@ -14,9 +14,15 @@
 package org.switchyard.runtime.util;
 
 import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.PushbackReader;
 import java.io.Reader;
-import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Set;
 import java.util.TreeSet;
@@ -33,7 +39,16 @@ import org.switchyard.common.lang.Strings;
  * easier display/logging.
  */
 public final class ExchangeFormatter {
+
+    /**
+     * Body size which prints the whole body.
+     */
+    public static final int UNLIMITED = -1;
+
     private static final String INDENT = System.getProperty("line.separator");
+    private static final String TRUNCATED = " ... [truncated after %d %s]";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int READ_BUFFER_SIZE = 8192;
 
     /**
      * Format contents of an incoming exchange.
@@ -44,12 +59,30 @@ public final class ExchangeFormatter {
      * @return String containing formatted Exchange data.
      */    
     public static String format(Exchange exchange, boolean printBody) {
+        return format(exchange, printBody, UNLIMITED);
+    }
+
+    /**
+     * Format contents of an incoming exchange, printing no more than the
+     * specified amount of the message body.  Longer content is cut off and
+     * marked as truncated.  Stream and Reader content is only read as far as
+     * the limit, and replaced with a stream or reader which returns what was
+     * read followed by the rest of the original.
+     * 
+     * @param exchange Exchange instance.
+     * @param printBody boolean. 
+     * @param maxBodySize the most bytes, or characters for text content, of
+     * the body to print; {@link #UNLIMITED} to print it all.
+     * 
+     * @return String containing formatted Exchange data.
+     */    
+    public static String format(Exchange exchange, boolean printBody, int maxBodySize) {
         StringBuilder summary = new StringBuilder()
             .append(indent(0) + "------- Begin Message Trace -------");
 
         summary.append(formatHeaders(exchange));
         if (printBody) {
-            summary.append(formatBody(exchange));
+            summary.append(formatBody(exchange, maxBodySize));
         }
         summary.append(indent(0) + "------ End Message Trace -------");
 
@@ -76,34 +109,122 @@ public final class ExchangeFormatter {
         return headers.toString();
     }
 
-    private static String formatBody(Exchange exchange) {
-        StringBuilder body = new StringBuilder();
-        
-        // Add message content
-        String content = null;
+    private static String formatBody(Exchange exchange, int maxBodySize) {
+        StringBuilder body = new StringBuilder()
+            .append(indent(0) + "Message Content -> ")
+            .append(indent(0));
         try {
-            // try to convert the payload to a string
-            Message msg = exchange.getMessage();
-            content = msg.getContent(String.class);
-            
-            // check to see if we have to put content back into the message 
-            // after the conversion to string
-            if (InputStream.class.isAssignableFrom(msg.getContent().getClass())) {
-                msg.setContent(new ByteArrayInputStream(content.getBytes()));
-            } else if (Reader.class.isAssignableFrom(msg.getContent().getClass())) {
-                msg.setContent(new StringReader(content));
-            }
+            appendContent(body, exchange.getMessage(), maxBodySize);
         } catch (Exception ex) {
             // conversion failed, fall back on toString()
             if (exchange.getMessage().getContent() != null) {
-                content = exchange.getMessage().getContent().toString();
+                appendChars(body, exchange.getMessage().getContent().toString(), maxBodySize);
+            } else {
+                body.append((String)null);
             }
         }
-        body.append(indent(0) + "Message Content -> ")
-            .append(indent(0) + content);
-        
         return body.toString();
     }
+
+    // Streams and readers are only read as far as the limit and the part read
+    // is put back, so the consumer of the message still sees the whole content.
+    // Content which fits within the limit is replaced by an in-memory copy.
+    private static void appendContent(StringBuilder body, Message msg, int maxBodySize) throws IOException {
+        Object content = msg.getContent();
+        int limit = maxBodySize < 0 ? Integer.MAX_VALUE - 1 : maxBodySize;
+        if (content instanceof InputStream) {
+            InputStream stream = (InputStream)content;
+            byte[] prefix = readBytes(stream, limit + 1);
+            if (prefix.length <= limit) {
+                msg.setContent(new ByteArrayInputStream(prefix));
+            } else {
+                PushbackInputStream pushback = new PushbackInputStream(stream, prefix.length);
+                pushback.unread(prefix);
+                msg.setContent(pushback);
+            }
+            appendBytes(body, prefix, limit);
+        } else if (content instanceof Reader) {
+            Reader reader = (Reader)content;
+            char[] prefix = readChars(reader, limit + 1);
+            if (prefix.length <= limit) {
+                msg.setContent(new CharArrayReader(prefix));
+            } else {
+                PushbackReader pushback = new PushbackReader(reader, prefix.length);
+                pushback.unread(prefix);
+                msg.setContent(pushback);
+            }
+            appendChars(body, CharBuffer.wrap(prefix), limit);
+        } else if (content instanceof byte[]) {
+            appendBytes(body, (byte[])content, limit);
+        } else if (content instanceof CharSequence) {
+            appendChars(body, (CharSequence)content, limit);
+        } else {
+            // try to convert the payload to a string
+            appendChars(body, msg.getContent(String.class), limit);
+        }
+    }
+
+    private static void appendBytes(StringBuilder body, byte[] bytes, int limit) {
+        if (bytes.length > limit) {
+            // cut before a character whose UTF-8 bytes straddle the limit
+            int end = limit;
+            while (end > 0 && limit - end < 3 && (bytes[end] & 0xC0) == 0x80) {
+                end--;
+            }
+            if ((bytes[end] & 0xC0) == 0x80) {
+                end = limit;
+            }
+            body.append(new String(bytes, 0, end, UTF_8))
+                .append(String.format(TRUNCATED, limit, "bytes"));
+        } else {
+            body.append(new String(bytes, UTF_8));
+        }
+    }
+
+    private static void appendChars(StringBuilder body, CharSequence chars, int limit) {
+        if (chars == null) {
+            body.append((String)null);
+        } else if (chars.length() > limit) {
+            // keep surrogate pairs whole
+            int end = limit > 0 && Character.isHighSurrogate(chars.charAt(limit - 1)) ? limit - 1 : limit;
+            body.append(chars, 0, end)
+                .append(String.format(TRUNCATED, limit, "characters"));
+        } else {
+            body.append(chars);
+        }
+    }
+
+    private static byte[] readBytes(InputStream stream, int max) throws IOException {
+        byte[] buffer = new byte[Math.min(max, READ_BUFFER_SIZE)];
+        int length = 0;
+        while (length < max) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int)Math.min(max, buffer.length * 2L));
+            }
+            int read = stream.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+
+    private static char[] readChars(Reader reader, int max) throws IOException {
+        char[] buffer = new char[Math.min(max, READ_BUFFER_SIZE)];
+        int length = 0;
+        while (length < max) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int)Math.min(max, buffer.length * 2L));
+            }
+            int read = reader.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
     
     private static void dumpContext(StringBuilder summary, Set<Property> properties) {
         Set<Property> orderedProperties = new TreeSet<Property>(new Comparator<Property>() {
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.spi;
+
+/**
+ * Generates the IDs assigned to messages as they are sent on an exchange.
+ * The generator used by a domain is set with the
+ * {@link #MESSAGE_ID_GENERATOR} domain property.
+ */
+public interface MessageIdGenerator {
+
+    /**
+     * Domain property naming the generator to use: "uuid" for random UUIDs,
+     * "default" for the built-in generator, the name of a class implementing
+     * this interface, or a MessageIdGenerator instance.
+     */
+    String MESSAGE_ID_GENERATOR = "org.switchyard.messageIdGenerator";
+
+    /**
+     * Generate a new message ID.  IDs must be unique within the process and
+     * should be unique across processes.  This is called for every message
+     * sent, from any number of threads.
+     * @return the new ID
+     */
+    String generate();
+
+}
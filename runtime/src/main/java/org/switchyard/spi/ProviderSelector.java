@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.spi;
+
+import java.util.List;
+
+import org.switchyard.Exchange;
+import org.switchyard.Service;
+
+/**
+ * Chooses which of the local providers of a service handles an exchange.  A
+ * service reference uses the selector named by the strategy of its
+ * {@link org.switchyard.metadata.qos.LoadBalancing} metadata; each reference
+ * gets its own instance, which is called from any number of threads.
+ * Implementations named by class must have a public no-argument constructor.
+ */
+public interface ProviderSelector {
+
+    /**
+     * Select the provider for an exchange.
+     * @param exchange exchange being addressed, which has no provider yet
+     * @param providers registered providers of the target service, in
+     * registration order; always contains more than one service
+     * @return the selected provider, or null to use the first one
+     */
+    Service select(Exchange exchange, List<Service> providers);
+
+    /**
+     * Called when the request chain has finished with an exchange sent
+     * through this selector's reference, whether the provider replied,
+     * faulted, threw or sent nothing.  Also called for exchanges the
+     * selector did not select a provider for.
+     * @param exchange the exchange the provider is done with
+     */
+    void completed(Exchange exchange);
+
+}
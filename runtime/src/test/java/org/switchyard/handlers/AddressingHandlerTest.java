@@ -0,0 +1,272 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.handlers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.BaseHandler;
+import org.switchyard.Exchange;
+import org.switchyard.HandlerException;
+import org.switchyard.MockDomain;
+import org.switchyard.MockHandler;
+import org.switchyard.Scope;
+import org.switchyard.Service;
+import org.switchyard.ServiceReference;
+import org.switchyard.internal.ServiceReferenceImpl;
+import org.switchyard.metadata.InOutService;
+import org.switchyard.metadata.ServiceMetadataBuilder;
+import org.switchyard.metadata.qos.LoadBalancing;
+import org.switchyard.runtime.selector.LeastInFlightSelector;
+
+/**
+ * Tests for choosing between the providers of a service in AddressingHandler.
+ */
+public class AddressingHandlerTest {
+
+    private static final QName SERVICE = new QName("urn:test", "Balanced");
+
+    private MockDomain _domain;
+    private List<CountingHandler> _providers;
+
+    @Before
+    public void setUp() throws Exception {
+        _domain = new MockDomain();
+        _providers = new ArrayList<CountingHandler>();
+        for (int i = 0; i < 3; i++) {
+            _providers.add(new CountingHandler(0));
+            _domain.registerService(SERVICE, new InOutService(), _providers.get(i));
+        }
+    }
+
+    @Test
+    public void testFirstProviderByDefault() throws Exception {
+        ServiceReference reference = _domain.registerServiceReference(SERVICE, new InOutService());
+        send(reference, 9);
+        assertCounts(9, 0, 0);
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        send(register(new LoadBalancing().setStrategy(LoadBalancing.ROUND_ROBIN)), 9);
+        assertCounts(3, 3, 3);
+    }
+
+    @Test
+    public void testWeighted() throws Exception {
+        ServiceReference reference = register(new LoadBalancing()
+                .setStrategy(LoadBalancing.WEIGHTED).setWeights(Arrays.asList(3, 0)));
+        List<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < 8; i++) {
+            send(reference, 1);
+            order.add(lastProvider());
+        }
+        // the unlisted third provider has a weight of 1, and the heavy one is interleaved
+        Assert.assertEquals(Arrays.asList(0, 0, 2, 0, 0, 0, 2, 0), order);
+        assertCounts(6, 0, 2);
+    }
+
+    @Test
+    public void testSticky() throws Exception {
+        ServiceReference reference = register(new LoadBalancing()
+                .setStrategy(LoadBalancing.STICKY).setProperty("customer"));
+        for (int customer = 0; customer < 20; customer++) {
+            send(reference, "customer-" + customer);
+            int provider = lastProvider();
+            for (int i = 0; i < 3; i++) {
+                send(reference, "customer-" + customer);
+                Assert.assertEquals(provider, lastProvider());
+            }
+        }
+        // keys are spread over all providers
+        for (CountingHandler provider : _providers) {
+            Assert.assertTrue(provider.getCount() > 0);
+        }
+    }
+
+    @Test
+    public void testLeastInFlightWithSlowProvider() throws Exception {
+        _domain = new MockDomain();
+        CountingHandler slow = new CountingHandler(50);
+        CountingHandler fast = new CountingHandler(0);
+        _domain.registerService(SERVICE, new InOutService(), slow);
+        _domain.registerService(SERVICE, new InOutService(), fast);
+
+        ServiceReference roundRobin = register(new LoadBalancing().setStrategy(LoadBalancing.ROUND_ROBIN));
+        sendConcurrently(roundRobin, 8, 10);
+        // every other request queues behind the slow provider
+        Assert.assertEquals(40, slow.getCount());
+        Assert.assertEquals(40, fast.getCount());
+
+        slow.reset();
+        fast.reset();
+        ServiceReference leastInFlight = register(new LoadBalancing().setStrategy(LoadBalancing.LEAST_IN_FLIGHT));
+        sendConcurrently(leastInFlight, 8, 10);
+        Assert.assertEquals(80, slow.getCount() + fast.getCount());
+        Assert.assertTrue("slow provider handled " + slow.getCount(), slow.getCount() < 20);
+
+        // every request has been handled, so nothing is left in flight
+        LeastInFlightSelector selector = (LeastInFlightSelector)
+                ((ServiceReferenceImpl)leastInFlight).getProviderSelector();
+        for (Service provider : _domain.getServices(SERVICE)) {
+            Assert.assertEquals(0, selector.getInFlight(provider));
+        }
+    }
+
+    @Test
+    public void testLeastInFlightReleasedWithoutReply() throws Exception {
+        _domain = new MockDomain();
+        _domain.registerService(SERVICE, new InOutService(), new BaseHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                throw new IllegalStateException("provider failed");
+            }
+        });
+        _domain.registerService(SERVICE, new InOutService(), new BaseHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                exchange.sendFault(exchange.createMessage().setContent("provider faulted"));
+            }
+        });
+        _domain.registerService(SERVICE, new InOutService(), new BaseHandler());
+
+        ServiceReference reference = register(new LoadBalancing().setStrategy(LoadBalancing.LEAST_IN_FLIGHT));
+        LeastInFlightSelector selector = (LeastInFlightSelector)
+                ((ServiceReferenceImpl)reference).getProviderSelector();
+        for (int i = 0; i < 9; i++) {
+            Exchange exchange = reference.createExchange(new MockHandler());
+            try {
+                exchange.send(exchange.createMessage());
+            } catch (IllegalStateException ex) {
+                Assert.assertEquals("provider failed", ex.getMessage());
+            }
+            // throwing, faulting and silent providers are all done with the exchange
+            for (Service provider : _domain.getServices(SERVICE)) {
+                Assert.assertEquals(0, selector.getInFlight(provider));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidStrategy() throws Exception {
+        send(register(new LoadBalancing().setStrategy("org.example.NoSuchSelector")), 3);
+        assertCounts(3, 0, 0);
+    }
+
+    private ServiceReference register(LoadBalancing loadBalancing) {
+        return _domain.registerServiceReference(SERVICE, new InOutService(), null,
+                ServiceMetadataBuilder.create().loadBalancing(loadBalancing).build());
+    }
+
+    private void send(ServiceReference reference, int count) {
+        for (int i = 0; i < count; i++) {
+            send(reference, null);
+        }
+    }
+
+    private void send(ServiceReference reference, String customer) {
+        MockHandler replyHandler = new MockHandler();
+        Exchange exchange = reference.createExchange(replyHandler);
+        if (customer != null) {
+            exchange.getContext().setProperty("customer", customer, Scope.EXCHANGE);
+        }
+        exchange.send(exchange.createMessage());
+        replyHandler.waitForOKMessage();
+    }
+
+    private void sendConcurrently(final ServiceReference reference, int threads, final int count) 
+        throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> senders = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            Thread sender = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        send(reference, count);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            sender.start();
+            senders.add(sender);
+        }
+        start.countDown();
+        for (Thread sender : senders) {
+            sender.join();
+        }
+    }
+
+    private void assertCounts(int... counts) {
+        for (int i = 0; i < counts.length; i++) {
+            Assert.assertEquals("provider " + i, counts[i], _providers.get(i).getCount());
+        }
+    }
+
+    private int lastProvider() {
+        for (int i = 0; i < _providers.size(); i++) {
+            if (_providers.get(i).isLast()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static class CountingHandler extends BaseHandler {
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+        private final AtomicInteger _count = new AtomicInteger();
+        private final long _delay;
+        private volatile int _last;
+
+        CountingHandler(long delay) {
+            _delay = delay;
+        }
+
+        @Override
+        public void handleMessage(Exchange exchange) throws HandlerException {
+            _count.incrementAndGet();
+            _last = SEQUENCE.incrementAndGet();
+            if (_delay > 0) {
+                try {
+                    Thread.sleep(_delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.send(exchange.getMessage().copy());
+        }
+
+        int getCount() {
+            return _count.get();
+        }
+
+        boolean isLast() {
+            return _last == SEQUENCE.get();
+        }
+
+        void reset() {
+            _count.set(0);
+        }
+    }
+}
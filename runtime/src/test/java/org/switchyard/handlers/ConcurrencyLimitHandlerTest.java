@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.handlers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.BaseHandler;
+import org.switchyard.Exchange;
+import org.switchyard.HandlerException;
+import org.switchyard.MockDomain;
+import org.switchyard.MockHandler;
+import org.switchyard.Scope;
+import org.switchyard.internal.ServiceReferenceImpl;
+import org.switchyard.metadata.InOutService;
+import org.switchyard.metadata.ServiceMetadataBuilder;
+import org.switchyard.metadata.qos.Throttling;
+import org.switchyard.runtime.limit.AdaptiveConcurrencyLimiter;
+
+/**
+ * Tests for limiting the exchanges in flight through a reference in
+ * ConcurrencyLimitHandler.
+ */
+public class ConcurrencyLimitHandlerTest {
+
+    private static final QName SERVICE = new QName("urn:test", "Limited");
+
+    private MockDomain _domain;
+    private CountDownLatch _release;
+
+    @Before
+    public void setUp() throws Exception {
+        _domain = new MockDomain();
+        _release = new CountDownLatch(0);
+        _domain.registerService(SERVICE, new InOutService(), new BaseHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                try {
+                    _release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new HandlerException(e);
+                }
+                exchange.send(exchange.createMessage().setContent("done"));
+            }
+        });
+    }
+
+    @Test
+    public void testNoLimiterWithoutMaxConcurrency() throws Exception {
+        ServiceReferenceImpl reference = register(new Throttling().setMaxRequests(10));
+        Assert.assertNull(reference.getConcurrencyLimiter());
+        Assert.assertNull(register(null).getConcurrencyLimiter());
+    }
+
+    @Test
+    public void testPermitReleasedAfterDispatch() throws Exception {
+        ServiceReferenceImpl reference = register(new Throttling().setMaxConcurrency(1));
+        for (int i = 0; i < 10; i++) {
+            MockHandler replyHandler = new MockHandler();
+            Exchange exchange = reference.createExchange(replyHandler);
+            exchange.send(exchange.createMessage());
+            replyHandler.waitForOKMessage();
+            Assert.assertNull(exchange.getContext().getProperty(
+                    ConcurrencyLimitHandler.CONCURRENCY_PERMIT, Scope.EXCHANGE));
+        }
+        AdaptiveConcurrencyLimiter limiter = reference.getConcurrencyLimiter();
+        Assert.assertEquals(0, limiter.getInFlight());
+        Assert.assertEquals(0, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testRejectedOverLimit() throws Exception {
+        final ServiceReferenceImpl reference = register(new Throttling().setMaxConcurrency(1));
+        AdaptiveConcurrencyLimiter limiter = reference.getConcurrencyLimiter();
+        _release = new CountDownLatch(1);
+
+        // hold the only permit
+        final MockHandler heldReply = new MockHandler();
+        Thread holder = new Thread() {
+            public void run() {
+                Exchange exchange = reference.createExchange(heldReply);
+                exchange.send(exchange.createMessage());
+            }
+        };
+        holder.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (limiter.getInFlight() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(1, limiter.getInFlight());
+
+        MockHandler rejectedReply = new MockHandler();
+        Exchange rejected = reference.createExchange(rejectedReply);
+        rejected.send(rejected.createMessage());
+        rejectedReply.waitForFaultMessage();
+        Assert.assertTrue(rejected.getMessage().getContent().toString().contains("SWITCHYARD014039"));
+        Assert.assertEquals(1, limiter.getRejectedCount());
+
+        _release.countDown();
+        heldReply.waitForOKMessage();
+        holder.join();
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testPermitReleasedWhenProviderThrows() throws Exception {
+        QName failing = new QName("urn:test", "Failing");
+        _domain.registerService(failing, new InOutService(), new BaseHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                throw new IllegalStateException("provider failed");
+            }
+        });
+        ServiceReferenceImpl reference = register(failing, new Throttling().setMaxConcurrency(1));
+        AdaptiveConcurrencyLimiter limiter = reference.getConcurrencyLimiter();
+        for (int i = 0; i < 3; i++) {
+            Exchange exchange = reference.createExchange(new MockHandler());
+            try {
+                exchange.send(exchange.createMessage());
+                Assert.fail("Expected the provider's exception");
+            } catch (IllegalStateException ex) {
+                Assert.assertEquals("provider failed", ex.getMessage());
+            }
+            Assert.assertEquals(0, limiter.getInFlight());
+        }
+        Assert.assertEquals(0, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testPermitReleasedWithoutReply() throws Exception {
+        QName silent = new QName("urn:test", "Silent");
+        _domain.registerService(silent, new InOutService(), new BaseHandler());
+        ServiceReferenceImpl reference = register(silent, new Throttling().setMaxConcurrency(1));
+        AdaptiveConcurrencyLimiter limiter = reference.getConcurrencyLimiter();
+        for (int i = 0; i < 3; i++) {
+            MockHandler replyHandler = new MockHandler();
+            Exchange exchange = reference.createExchange(replyHandler);
+            exchange.send(exchange.createMessage());
+            // the in-out exchange never completes, yet its permit is returned
+            Assert.assertTrue(replyHandler.getMessages().isEmpty());
+            Assert.assertTrue(replyHandler.getFaults().isEmpty());
+            Assert.assertEquals(0, limiter.getInFlight());
+        }
+        Assert.assertEquals(0, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testLimiterFollowsMetadata() throws Exception {
+        ServiceReferenceImpl reference = register(new Throttling().setMaxConcurrency(5));
+        AdaptiveConcurrencyLimiter limiter = reference.getConcurrencyLimiter();
+        Assert.assertEquals(5, limiter.getMaxLimit());
+        Assert.assertSame(limiter, reference.getConcurrencyLimiter());
+
+        // the same settings keep the limiter and its state
+        ServiceMetadataBuilder.update(reference.getServiceMetadata())
+            .throttling(new Throttling().setMaxConcurrency(5));
+        Assert.assertSame(limiter, reference.getConcurrencyLimiter());
+
+        ServiceMetadataBuilder.update(reference.getServiceMetadata())
+            .throttling(new Throttling().setMaxConcurrency(8).setMaxWait(100));
+        Assert.assertEquals(8, reference.getConcurrencyLimiter().getMaxLimit());
+        Assert.assertEquals(100, reference.getConcurrencyLimiter().getMaxWait());
+
+        ServiceMetadataBuilder.update(reference.getServiceMetadata()).throttling(null);
+        Assert.assertNull(reference.getConcurrencyLimiter());
+    }
+
+    private ServiceReferenceImpl register(Throttling throttling) {
+        return register(SERVICE, throttling);
+    }
+
+    private ServiceReferenceImpl register(QName service, Throttling throttling) {
+        return (ServiceReferenceImpl)_domain.registerServiceReference(service, new InOutService(), null,
+                ServiceMetadataBuilder.create().throttling(throttling).build());
+    }
+}
@@ -14,17 +14,28 @@
 
 package org.switchyard.handlers;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.namespace.QName;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.switchyard.BaseHandler;
 import org.switchyard.Exchange;
+import org.switchyard.HandlerException;
 import org.switchyard.Message;
 import org.switchyard.MockDomain;
 import org.switchyard.MockHandler;
@@ -33,6 +44,12 @@ import org.switchyard.transform.BaseTransformer;
 
 public class MessageTraceTest {
 
+    // payloads several times the size of the forked JVM's heap
+    private static final long LARGE_STREAM_SIZE = 256L * 1024 * 1024;
+    private static final int LARGE_READER_SIZE = 128 * 1024 * 1024;
+    private static final String CONSTRAINED_HEAP = "-Xmx64m";
+    private static final String PASSED = "trace passed";
+
     private MockDomain _domain;
     
     @Before
@@ -97,6 +114,335 @@ public class MessageTraceTest {
         Message rcvdMsg = provider.getMessages().poll().getMessage();
         Assert.assertTrue(rcvdMsg.getContent(Reader.class).read() != -1);
     }
+
+    @Test
+    public void testEndlessStreamIsNotBuffered() throws Exception {
+        // content which could never fit in the heap, so tracing has to stop at the cap
+        _domain.setProperty(MessageTraceHandler.MAX_BODY_SIZE, "1024");
+        CapturingTraceHandler tracer = new CapturingTraceHandler(_domain);
+        Exchange exchange = trace("EndlessStream", tracer, new PatternStream(Long.MAX_VALUE));
+
+        String trace = tracer.getTraces().get(0);
+        Assert.assertTrue(trace.contains("[truncated after 1024 bytes]"));
+        Assert.assertTrue(trace.length() < 4096);
+        // the bytes read for the trace are returned to the consumer
+        InputStream content = exchange.getMessage().getContent(InputStream.class);
+        for (int i = 0; i < 4096; i++) {
+            Assert.assertEquals(PatternStream.byteAt(i), content.read());
+        }
+    }
+
+    @Test
+    public void testMultiMegabyteStream() throws Exception {
+        assertInConstrainedHeap("stream", LARGE_STREAM_SIZE);
+    }
+
+    @Test
+    public void testMultiMegabyteReader() throws Exception {
+        assertInConstrainedHeap("reader", LARGE_READER_SIZE);
+    }
+
+    /**
+     * Traces a generated payload larger than the heap; run in a separate JVM
+     * with a constrained heap by testMultiMegabyteStream and
+     * testMultiMegabyteReader.
+     * @param args "stream" or "reader", and the payload size
+     * @throws Exception the payload was not traced or passed on in full
+     */
+    public static void main(String[] args) throws Exception {
+        MessageTraceTest test = new MessageTraceTest();
+        test.setUp();
+        if ("stream".equals(args[0])) {
+            test.traceLargeStream(Long.parseLong(args[1]));
+        } else {
+            test.traceLargeReader(Integer.parseInt(args[1]));
+        }
+        System.out.println(PASSED);
+    }
+
+    private void traceLargeStream(long size) throws Exception {
+        _domain.setProperty(MessageTraceHandler.MAX_BODY_SIZE, 64 * 1024);
+        CapturingTraceHandler tracer = new CapturingTraceHandler(_domain);
+        Exchange exchange = trace("LargeStream", tracer, new PatternStream(size));
+
+        Assert.assertTrue(tracer.getTraces().get(0).contains("[truncated after 65536 bytes]"));
+        InputStream content = exchange.getMessage().getContent(InputStream.class);
+        byte[] buffer = new byte[16 * 1024];
+        long position = 0;
+        for (int read; (read = content.read(buffer)) > 0;) {
+            for (int i = 0; i < read; i++) {
+                Assert.assertEquals(PatternStream.byteAt(position + i), buffer[i] & 0xff);
+            }
+            position += read;
+        }
+        Assert.assertEquals(size, position);
+    }
+
+    private void traceLargeReader(final int size) throws Exception {
+        _domain.setProperty(MessageTraceHandler.MAX_BODY_SIZE, 100);
+        CapturingTraceHandler tracer = new CapturingTraceHandler(_domain);
+        Exchange exchange = trace("LargeReader", tracer, new Reader() {
+            private int _position;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                if (_position == size) {
+                    return -1;
+                }
+                int count = Math.min(len, size - _position);
+                for (int i = 0; i < count; i++) {
+                    cbuf[off + i] = (char)('a' + (_position++ % 26));
+                }
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        String trace = tracer.getTraces().get(0);
+        Assert.assertTrue(trace.contains("abcdefghijklmnopqrstuvwxyzabc"));
+        Assert.assertTrue(trace.contains("[truncated after 100 characters]"));
+        Reader content = exchange.getMessage().getContent(Reader.class);
+        char[] buffer = new char[16 * 1024];
+        int total = 0;
+        for (int read; (read = content.read(buffer)) > 0;) {
+            Assert.assertEquals((char)('a' + (total % 26)), buffer[0]);
+            total += read;
+        }
+        Assert.assertEquals(size, total);
+    }
+
+    private void assertInConstrainedHeap(String content, long size) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, CONSTRAINED_HEAP,
+                "-cp", System.getProperty("java.class.path"),
+                MessageTraceTest.class.getName(), content, String.valueOf(size));
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        StringBuilder output = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append('\n');
+            }
+        } finally {
+            reader.close();
+        }
+        Assert.assertEquals(output.toString(), 0, process.waitFor());
+        Assert.assertTrue(output.toString(), output.indexOf(PASSED) != -1);
+    }
+
+    @Test
+    public void testMultiMegabyteString() throws Exception {
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 2 * 1024 * 1024) {
+            content.append("0123456789");
+        }
+        CapturingTraceHandler tracer = new CapturingTraceHandler(_domain);
+        Exchange exchange = trace("LargeString", tracer, content.toString());
+
+        String trace = tracer.getTraces().get(0);
+        Assert.assertTrue(trace.contains("[truncated after " + MessageTraceHandler.DEFAULT_MAX_BODY_SIZE + " characters]"));
+        Assert.assertTrue(trace.length() < MessageTraceHandler.DEFAULT_MAX_BODY_SIZE + 4096);
+        Assert.assertEquals(content.toString(), exchange.getMessage().getContent());
+    }
+
+    @Test
+    public void testSmallContentNotTruncated() throws Exception {
+        CapturingTraceHandler tracer = new CapturingTraceHandler(_domain);
+        Exchange exchange = trace("SmallStream", tracer, new ByteArrayInputStream("hello".getBytes("UTF-8")));
+
+        String trace = tracer.getTraces().get(0);
+        Assert.assertTrue(trace.contains("hello"));
+        Assert.assertFalse(trace.contains("truncated"));
+        InputStream content = exchange.getMessage().getContent(InputStream.class);
+        byte[] buffer = new byte[16];
+        Assert.assertEquals("hello", new String(buffer, 0, content.read(buffer), "UTF-8"));
+    }
+
+    @Test
+    public void testMultiByteCharacterNotSplit() throws Exception {
+        // each character is two bytes in UTF-8, so an odd cap falls inside one
+        _domain.setProperty(MessageTraceHandler.MAX_BODY_SIZE, 5);
+        CapturingTraceHandler tracer = new CapturingTraceHandler(_domain);
+        trace("MultiByte", tracer, "\u00e9\u00e9\u00e9\u00e9".getBytes("UTF-8"));
+
+        String trace = tracer.getTraces().get(0);
+        Assert.assertTrue(trace, trace.contains("\u00e9\u00e9 ... [truncated after 5 bytes]"));
+        Assert.assertFalse(trace, trace.contains("\ufffd"));
+    }
+
+    @Test
+    public void testSampling() throws Exception {
+        _domain.setProperty(MessageTraceHandler.SAMPLE_RATE, 3);
+        final CapturingTraceHandler tracer = new CapturingTraceHandler(_domain);
+        ServiceReference service = _domain.createInOnlyService(new QName("Sampled"), new BaseHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                // two trace points for each exchange
+                tracer.handleMessage(exchange);
+                tracer.handleMessage(exchange);
+            }
+        });
+        for (int i = 0; i < 9; i++) {
+            Exchange exchange = service.createExchange();
+            exchange.send(exchange.createMessage().setContent("message " + i));
+        }
+        List<String> traces = tracer.getTraces();
+        Assert.assertEquals(6, traces.size());
+        Assert.assertTrue(traces.get(0).contains("message 0"));
+        Assert.assertTrue(traces.get(1).contains("message 0"));
+        Assert.assertTrue(traces.get(2).contains("message 3"));
+        Assert.assertTrue(traces.get(4).contains("message 6"));
+    }
+
+    @Test
+    public void testAsyncOutputDropsWhenFull() throws Exception {
+        _domain.setProperty(MessageTraceHandler.ASYNC, true);
+        _domain.setProperty(MessageTraceHandler.BUFFER_SIZE, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        CapturingTraceHandler tracer = new CapturingTraceHandler(_domain) {
+            @Override
+            protected void write(String trace) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(trace);
+            }
+        };
+        ServiceReference service = _domain.createInOnlyService(new QName("AsyncTrace"), tracer);
+        for (int i = 0; i < 5; i++) {
+            Exchange exchange = service.createExchange();
+            exchange.send(exchange.createMessage().setContent("message " + i));
+        }
+        // one trace being written, one buffered, the rest dropped
+        Assert.assertEquals(3, tracer.getDroppedCount());
+        Assert.assertTrue(tracer.getTraces().isEmpty());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (tracer.getTraces().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, tracer.getTraces().size());
+        Assert.assertTrue(tracer.getTraces().get(0).contains("message 0"));
+        Assert.assertTrue(tracer.getTraces().get(1).contains("message 1"));
+    }
+
+    @Test
+    public void testHandlerSharedByDomain() throws Exception {
+        MessageTraceHandler shared = MessageTraceHandler.forDomain(_domain);
+        Assert.assertSame(shared, MessageTraceHandler.forDomain(_domain));
+        Assert.assertNotSame(shared, MessageTraceHandler.forDomain(new MockDomain()));
+    }
+
+    @Test
+    public void testCloseWritesBufferedTraces() throws Exception {
+        _domain.setProperty(MessageTraceHandler.ASYNC, true);
+        final CountDownLatch release = new CountDownLatch(1);
+        CapturingTraceHandler tracer = new CapturingTraceHandler(_domain) {
+            @Override
+            protected void write(String trace) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(trace);
+            }
+        };
+        ServiceReference service = _domain.createInOnlyService(new QName("ClosedTrace"), tracer);
+        for (int i = 0; i < 2; i++) {
+            Exchange exchange = service.createExchange();
+            exchange.send(exchange.createMessage().setContent("message " + i));
+        }
+        tracer.close();
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (tracer.getTraces().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, tracer.getTraces().size());
+
+        // once closed, traces are written by the exchange's own thread
+        Exchange exchange = service.createExchange();
+        exchange.send(exchange.createMessage().setContent("message 2"));
+        Assert.assertEquals(3, tracer.getTraces().size());
+        Assert.assertTrue(tracer.getTraces().get(2).contains("message 2"));
+    }
+
+    private Exchange trace(String name, final CapturingTraceHandler tracer, Object content) {
+        final List<Exchange> received = new ArrayList<Exchange>();
+        ServiceReference service = _domain.createInOnlyService(new QName(name), new BaseHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                tracer.handleMessage(exchange);
+                received.add(exchange);
+            }
+        });
+        Exchange exchange = service.createExchange();
+        exchange.send(exchange.createMessage().setContent(content));
+        Assert.assertEquals(1, received.size());
+        return received.get(0);
+    }
+
+    private static class CapturingTraceHandler extends MessageTraceHandler {
+        private final List<String> _traces = Collections.synchronizedList(new ArrayList<String>());
+
+        CapturingTraceHandler(MockDomain domain) {
+            super(domain);
+        }
+
+        List<String> getTraces() {
+            return _traces;
+        }
+
+        @Override
+        protected boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        protected void write(String trace) {
+            _traces.add(trace);
+        }
+    }
+
+    // generates its content as it is read, so any size can be streamed
+    private static class PatternStream extends InputStream {
+        private final long _size;
+        private long _position;
+
+        PatternStream(long size) {
+            _size = size;
+        }
+
+        static int byteAt(long position) {
+            return (int)('A' + position % 26);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return _position < _size ? byteAt(_position++) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (_position >= _size) {
+                return -1;
+            }
+            int count = (int)Math.min(len, _size - _position);
+            for (int i = 0; i < count; i++) {
+                b[off + i] = (byte)byteAt(_position++);
+            }
+            return count;
+        }
+    }
 }
 
 class StreamTransformer extends BaseTransformer<InputStream, String> {
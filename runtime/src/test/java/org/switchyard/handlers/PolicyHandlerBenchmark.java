@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.handlers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.switchyard.ExchangePhase;
+import org.switchyard.MockExchange;
+import org.switchyard.Scope;
+import org.switchyard.policy.PolicyUtil;
+import org.switchyard.policy.SecurityPolicy;
+import org.switchyard.policy.TransactionPolicy;
+
+/**
+ * Microbenchmark of the policy checks made for an exchange: the policies a
+ * reference and service require are set, then TransactionHandler and
+ * PolicyHandler process the request and TransactionHandler the reply.  This
+ * is not run as part of the build; run it from the IDE or with 'java'
+ * against the test classpath.
+ * <p/>
+ * Usage: PolicyHandlerBenchmark [iterations]
+ */
+public final class PolicyHandlerBenchmark {
+
+    private PolicyHandlerBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional iteration count
+     * @throws Exception benchmark failed
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        MockExchange exchange = new MockExchange();
+        TransactionHandler transactionHandler = new TransactionHandler();
+        transactionHandler.setTransactionManager(new MockTransactionManager());
+        PolicyHandler policyHandler = new PolicyHandler();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean)threads : null;
+        long id = Thread.currentThread().getId();
+        for (int round = 0; round < 5; round++) {
+            long bytes = allocations != null ? allocations.getThreadAllocatedBytes(id) : 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                exchange.getContext().removeProperties(Scope.EXCHANGE);
+                // reference and service requirements, as set by ServiceReferenceImpl and AddressingHandler
+                PolicyUtil.require(exchange, TransactionPolicy.PROPAGATES_TRANSACTION);
+                PolicyUtil.require(exchange, TransactionPolicy.MANAGED_TRANSACTION_GLOBAL);
+                PolicyUtil.provide(exchange, SecurityPolicy.CONFIDENTIALITY);
+                exchange.setPhase(ExchangePhase.IN);
+                transactionHandler.handleMessage(exchange);
+                policyHandler.handleMessage(exchange);
+                exchange.setPhase(ExchangePhase.OUT);
+                transactionHandler.handleMessage(exchange);
+            }
+            long time = (System.nanoTime() - start) / iterations;
+            String allocated = allocations != null
+                    ? " " + (allocations.getThreadAllocatedBytes(id) - bytes) / iterations + " bytes/exchange" : "";
+            System.out.println(time + " ns/exchange" + allocated);
+        }
+    }
+}
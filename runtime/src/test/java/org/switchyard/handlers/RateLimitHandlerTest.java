@@ -0,0 +1,281 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.handlers;
+
+import java.util.EventObject;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.Exchange;
+import org.switchyard.HandlerException;
+import org.switchyard.MockDomain;
+import org.switchyard.MockHandler;
+import org.switchyard.Scope;
+import org.switchyard.SwitchYardException;
+import org.switchyard.event.EventObserver;
+import org.switchyard.internal.DefaultServiceRegistry;
+import org.switchyard.internal.LocalExchangeBus;
+import org.switchyard.internal.ServiceReferenceImpl;
+import org.switchyard.metadata.InOnlyService;
+import org.switchyard.metadata.InOutService;
+import org.switchyard.metadata.ServiceInterface;
+import org.switchyard.metadata.ServiceMetadataBuilder;
+import org.switchyard.metadata.qos.Throttling;
+import org.switchyard.metadata.qos.Throttling.LimitAction;
+import org.switchyard.policy.PolicyUtil;
+import org.switchyard.policy.TransactionPolicy;
+import org.switchyard.runtime.event.ExchangeCompletionEvent;
+import org.switchyard.runtime.limit.RateLimiter;
+
+/**
+ * Tests for applying the rate limit of a reference in the local dispatcher
+ * and RateLimitHandler.
+ */
+public class RateLimitHandlerTest {
+
+    private static final QName SERVICE = new QName("urn:test", "RateLimited");
+
+    private MockDomain _domain;
+    private MockHandler _provider;
+
+    @Before
+    public void setUp() throws Exception {
+        _domain = new MockDomain();
+        _provider = new MockHandler().forwardInToOut();
+        _domain.registerService(SERVICE, new InOutService(), _provider);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _domain.destroy();
+    }
+
+    @Test
+    public void testNoLimiterWithoutMaxRequests() throws Exception {
+        Assert.assertNull(register(new Throttling().setMaxConcurrency(10)).getRateLimiter());
+        Assert.assertNull(register(null).getRateLimiter());
+    }
+
+    @Test
+    public void testDelayedOverLimit() throws Exception {
+        ServiceReferenceImpl reference = register(new Throttling().setMaxRequests(10).setBurst(1));
+        long start = System.currentTimeMillis();
+        MockHandler[] replies = new MockHandler[3];
+        for (int i = 0; i < replies.length; i++) {
+            replies[i] = new MockHandler();
+            Exchange exchange = reference.createExchange(replies[i]);
+            exchange.send(exchange.createMessage());
+        }
+        for (MockHandler reply : replies) {
+            reply.waitForOKMessage();
+        }
+        // the second and third requests wait 100ms and 200ms for a token
+        Assert.assertTrue(System.currentTimeMillis() - start >= 150);
+        Assert.assertEquals(2, reference.getRateLimiter().getDelayedCount());
+    }
+
+    @Test
+    public void testDelayedHandledOnDispatchThread() throws Exception {
+        useAsyncDispatch();
+        QName async = new QName("urn:test", "RateLimitedAsync");
+        final AtomicReference<Thread> providerThread = new AtomicReference<Thread>();
+        _domain.registerService(async, new InOutService(), new MockHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                providerThread.set(Thread.currentThread());
+                super.handleMessage(exchange);
+            }
+        }.forwardInToOut());
+        ServiceReferenceImpl reference = (ServiceReferenceImpl)_domain.registerServiceReference(async, 
+                new InOutService(), null, ServiceMetadataBuilder.create()
+                    .throttling(new Throttling().setMaxRequests(10).setBurst(1)).build());
+        sendRequest(reference).waitForOKMessage();
+
+        MockHandler reply = new MockHandler();
+        Exchange exchange = reference.createExchange(reply);
+        exchange.send(exchange.createMessage());
+        // the caller is not held up by the delay
+        Assert.assertEquals(0, reply.getMessages().size());
+        reply.waitForOKMessage();
+        Assert.assertEquals(1, reference.getRateLimiter().getDelayedCount());
+        // the scheduler only handed the request to the dispatch threads
+        Assert.assertTrue(providerThread.get().getName().startsWith("SwitchYard-LocalExchangeBus-"));
+    }
+
+    @Test
+    public void testDelayedOnCallerWithoutDispatchThreads() throws Exception {
+        ServiceReferenceImpl reference = register(new Throttling().setMaxRequests(10).setBurst(1));
+        sendRequest(reference).waitForOKMessage();
+
+        long start = System.nanoTime();
+        MockHandler reply = sendRequest(reference);
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertEquals(1, reply.getMessages().size());
+    }
+
+    @Test
+    public void testDelayedInOnlyCompletesAfterProvider() throws Exception {
+        useAsyncDispatch();
+        QName inOnly = new QName("urn:test", "RateLimitedInOnly");
+        final MockHandler provider = new MockHandler();
+        _domain.registerService(inOnly, new InOnlyService(), provider);
+        ServiceReferenceImpl reference = (ServiceReferenceImpl)_domain.registerServiceReference(inOnly, 
+                new InOnlyService(), null, ServiceMetadataBuilder.create()
+                    .throttling(new Throttling().setMaxRequests(10).setBurst(1)).build());
+
+        final CountDownLatch completed = new CountDownLatch(2);
+        final AtomicInteger completions = new AtomicInteger();
+        final AtomicInteger early = new AtomicInteger();
+        _domain.addEventObserver(new EventObserver() {
+            @Override
+            public void notify(EventObject event) {
+                // each exchange completes only once the provider has handled it
+                if (provider.getMessages().size() < completions.incrementAndGet()) {
+                    early.incrementAndGet();
+                }
+                completed.countDown();
+            }
+        }, ExchangeCompletionEvent.class);
+
+        for (int i = 0; i < 2; i++) {
+            Exchange exchange = reference.createExchange();
+            exchange.send(exchange.createMessage());
+        }
+        // the second request is still waiting for its token
+        Assert.assertTrue(completed.getCount() >= 1);
+        Assert.assertTrue(completed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, early.get());
+        Assert.assertEquals(2, provider.getMessages().size());
+    }
+
+    @Test
+    public void testTransactionalDelayedOnCaller() throws Exception {
+        QName transactional = new QName("urn:test", "RateLimitedTx");
+        final AtomicReference<Thread> providerThread = new AtomicReference<Thread>();
+        _domain.registerService(transactional, new InOutService(), new MockHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                providerThread.set(Thread.currentThread());
+                super.handleMessage(exchange);
+            }
+        }.forwardInToOut());
+        ServiceReferenceImpl reference = (ServiceReferenceImpl)_domain.registerServiceReference(transactional, 
+                new InOutService(), null, ServiceMetadataBuilder.create()
+                    .throttling(new Throttling().setMaxRequests(10).setBurst(1)).build());
+        sendRequest(reference).waitForOKMessage();
+
+        MockHandler reply = new MockHandler();
+        Exchange exchange = reference.createExchange(reply);
+        PolicyUtil.provide(exchange, TransactionPolicy.PROPAGATES_TRANSACTION);
+        long start = System.nanoTime();
+        exchange.send(exchange.createMessage());
+        // the caller waited for the token and the provider ran on its thread
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertEquals(1, reply.getMessages().size());
+        Assert.assertSame(Thread.currentThread(), providerThread.get());
+    }
+
+    @Test
+    public void testRejectedOverLimit() throws Exception {
+        ServiceReferenceImpl reference = register(new Throttling()
+            .setMaxRequests(1).setTimePeriod(60000).setLimitAction(LimitAction.REJECT));
+        sendRequest(reference).waitForOKMessage();
+        Exchange rejected = reference.createExchange(new MockHandler());
+        try {
+            rejected.send(rejected.createMessage());
+            Assert.fail("expected the send to be rejected");
+        } catch (SwitchYardException syEx) {
+            Assert.assertTrue(syEx.getMessage().contains("SWITCHYARD014041"));
+        }
+        Assert.assertEquals(1, _provider.getMessages().size());
+        Assert.assertEquals(1, reference.getRateLimiter().getRejectedCount());
+    }
+
+    @Test
+    public void testFaultOverLimit() throws Exception {
+        ServiceReferenceImpl reference = register(new Throttling()
+            .setMaxRequests(1).setTimePeriod(60000).setLimitAction(LimitAction.FAULT));
+        sendRequest(reference).waitForOKMessage();
+        MockHandler reply = sendRequest(reference);
+        reply.waitForFaultMessage();
+        Exchange faulted = reply.getFaults().peek();
+        Assert.assertTrue(faulted.getMessage().getContent().toString().contains("SWITCHYARD014040"));
+        Assert.assertNull(faulted.getContext().getProperty(RateLimitHandler.RATE_LIMITED, Scope.EXCHANGE));
+        Assert.assertEquals(1, _provider.getMessages().size());
+    }
+
+    @Test
+    public void testFaultBeyondMaxDelay() throws Exception {
+        ServiceReferenceImpl reference = register(new Throttling()
+            .setMaxRequests(1).setTimePeriod(60000).setMaxDelay(100));
+        sendRequest(reference).waitForOKMessage();
+        sendRequest(reference).waitForFaultMessage();
+        Assert.assertEquals(1, _provider.getMessages().size());
+    }
+
+    @Test
+    public void testOperationLimit() throws Exception {
+        Throttling throttling = new Throttling().setLimitAction(LimitAction.FAULT)
+            .setOperationThrottling(ServiceInterface.DEFAULT_OPERATION, 
+                    new Throttling().setMaxRequests(1).setTimePeriod(60000));
+        ServiceReferenceImpl reference = register(throttling);
+        sendRequest(reference).waitForOKMessage();
+        sendRequest(reference).waitForFaultMessage();
+    }
+
+    @Test
+    public void testLimiterFollowsMetadata() throws Exception {
+        Throttling throttling = new Throttling().setMaxRequests(5);
+        ServiceReferenceImpl reference = register(throttling);
+        RateLimiter limiter = reference.getRateLimiter();
+        Assert.assertSame(throttling, limiter.getThrottling());
+        Assert.assertSame(limiter, reference.getRateLimiter());
+
+        Throttling replaced = new Throttling().setMaxRequests(8);
+        ServiceMetadataBuilder.update(reference.getServiceMetadata()).throttling(replaced);
+        Assert.assertSame(replaced, reference.getRateLimiter().getThrottling());
+
+        ServiceMetadataBuilder.update(reference.getServiceMetadata()).throttling(null);
+        Assert.assertNull(reference.getRateLimiter());
+    }
+
+    // replaces the domain with one which dispatches requests on worker threads
+    private void useAsyncDispatch() {
+        _domain.destroy();
+        _domain = new MockDomain(new DefaultServiceRegistry());
+        _domain.setProperty(LocalExchangeBus.ASYNC_ENABLED, "true");
+        _domain.init();
+    }
+
+    private MockHandler sendRequest(ServiceReferenceImpl reference) {
+        MockHandler reply = new MockHandler();
+        Exchange exchange = reference.createExchange(reply);
+        exchange.send(exchange.createMessage());
+        return reply;
+    }
+
+    private ServiceReferenceImpl register(Throttling throttling) {
+        return (ServiceReferenceImpl)_domain.registerServiceReference(SERVICE, new InOutService(), null,
+                ServiceMetadataBuilder.create().throttling(throttling).build());
+    }
+}
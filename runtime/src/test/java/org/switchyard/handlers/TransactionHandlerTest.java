@@ -14,6 +14,7 @@
 
 package org.switchyard.handlers;
 
+import java.util.Collections;
 import java.util.UUID;
 
 import javax.transaction.HeuristicMixedException;
@@ -27,14 +28,23 @@ import javax.transaction.SystemException;
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
 import javax.transaction.xa.XAResource;
+import javax.xml.namespace.QName;
 
 import junit.framework.Assert;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.switchyard.Exchange;
 import org.switchyard.ExchangePhase;
 import org.switchyard.HandlerException;
+import org.switchyard.MockDomain;
 import org.switchyard.MockExchange;
+import org.switchyard.MockHandler;
+import org.switchyard.Service;
+import org.switchyard.ServiceReference;
+import org.switchyard.metadata.InOutService;
+import org.switchyard.metadata.ServiceMetadataBuilder;
+import org.switchyard.policy.Policy;
 import org.switchyard.policy.PolicyUtil;
 import org.switchyard.policy.TransactionPolicy;
 
@@ -410,6 +420,30 @@ public class TransactionHandlerTest {
         suspendRequiredButNoTransaction();
         Assert.assertTrue(PolicyUtil.isProvided(exchange, TransactionPolicy.NO_MANAGED_TRANSACTION));
     }
+
+    /* dispatch thread */
+
+    @Test
+    public void transactionalTargetFollowsRegisteredServices() throws Exception {
+        QName name = new QName("TransactionalTarget");
+        MockDomain domain = new MockDomain();
+        try {
+            domain.registerService(name, new InOutService(), new MockHandler());
+            ServiceReference reference = domain.registerServiceReference(name, new InOutService());
+            Exchange ex = reference.createExchange(new MockHandler());
+            Assert.assertFalse(handler.isTransactional(ex));
+
+            // the cached answer is dropped once the target's providers change
+            Service transactional = domain.registerService(name, new InOutService(), new MockHandler(),
+                    ServiceMetadataBuilder.create().requiredPolicies(
+                            Collections.<Policy>singletonList(TransactionPolicy.MANAGED_TRANSACTION_GLOBAL)).build());
+            Assert.assertTrue(handler.isTransactional(ex));
+            transactional.unregister();
+            Assert.assertFalse(handler.isTransactional(reference.createExchange(new MockHandler())));
+        } finally {
+            domain.destroy();
+        }
+    }
 }
 
 class MockTransactionManager implements TransactionManager {
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+
+import org.switchyard.Context;
+import org.switchyard.Exchange;
+import org.switchyard.Property;
+import org.switchyard.Scope;
+import org.switchyard.label.BehaviorLabel;
+
+/**
+ * Microbenchmark of the context work done for a typical exchange: setting
+ * and reading a handful of labelled properties, querying them by label and
+ * copying them to another scope.  It compares the default, table-backed
+ * context with one backed by a HashMap, reporting time and, where the JVM
+ * can measure it, bytes allocated per exchange.  This is not run as part of
+ * the build; run it from the IDE or with 'java' against the test classpath.
+ * <p/>
+ * Usage: ContextBenchmark [iterations]
+ */
+public final class ContextBenchmark {
+
+    private static final String TRANSIENT = BehaviorLabel.TRANSIENT.label();
+    private static final String HEADER = "org.switchyard.label.header";
+    private static final String[] NAMES = {
+        Exchange.MESSAGE_ID, Exchange.RELATES_TO, Exchange.CONTENT_TYPE, Exchange.OPERATION_NAME,
+        "org.switchyard.bus.camel.consumer", "org.switchyard.bus.camel.dispatcher",
+        "org.switchyard.transaction.propagated", "CamelFileName", "JMSCorrelationID", "soapAction"
+    };
+
+    private ContextBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional iteration count
+     */
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        for (int round = 0; round < 3; round++) {
+            report("table  ", new Run(false), iterations);
+            report("hashmap", new Run(true), iterations);
+        }
+    }
+
+    private static void report(String name, Run run, int iterations) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean)threads : null;
+        long id = Thread.currentThread().getId();
+        for (int i = 0; i < iterations / 10; i++) {
+            run.exchange();
+        }
+        long bytes = allocations != null ? allocations.getThreadAllocatedBytes(id) : 0;
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < iterations; i++) {
+            found += run.exchange();
+        }
+        long time = (System.nanoTime() - start) / iterations;
+        if (found == 0) {
+            throw new IllegalStateException();
+        }
+        String allocated = allocations != null
+                ? " " + (allocations.getThreadAllocatedBytes(id) - bytes) / iterations + " bytes/exchange" : "";
+        System.out.println(name + ": " + time + " ns/exchange" + allocated);
+    }
+
+    private static final class Run {
+        private final boolean _hashMap;
+
+        Run(boolean hashMap) {
+            _hashMap = hashMap;
+        }
+
+        int exchange() {
+            Context exchange = newContext(Scope.EXCHANGE);
+            Context message = newContext(Scope.MESSAGE);
+            for (int i = 0; i < NAMES.length; i++) {
+                Property property = (i < 4 ? exchange : message).setProperty(NAMES[i], NAMES[i]);
+                if (i >= 7) {
+                    property.addLabels(HEADER);
+                } else if (i == 1) {
+                    property.addLabels(TRANSIENT);
+                }
+            }
+            int found = 0;
+            for (String name : NAMES) {
+                if (exchange.getProperty(name) != null || message.getProperty(name) != null) {
+                    found++;
+                }
+            }
+            // label queries, as made by handlers and bindings on every exchange
+            found += message.getProperties(HEADER).size();
+            found += exchange.getProperties(TRANSIENT).size();
+            found += message.getProperties(TRANSIENT).size();
+            // a reply message carries over the headers of the request
+            Context reply = newContext(Scope.MESSAGE);
+            message.mergeInto(reply);
+            return found + reply.getProperties(HEADER).size();
+        }
+
+        private Context newContext(Scope scope) {
+            return _hashMap ? new DefaultContext(scope, new HashMap<String, Property>()) : new DefaultContext(scope);
+        }
+    }
+}
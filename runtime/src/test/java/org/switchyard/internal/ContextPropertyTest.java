@@ -14,6 +14,8 @@
 
 package org.switchyard.internal;
 
+import java.util.Set;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.switchyard.Scope;
@@ -59,5 +61,22 @@ public class ContextPropertyTest {
         Assert.assertFalse(propRef.equals(propDiffName));
         Assert.assertFalse(propRef.equals(propDiffValue));
     }
-    
+
+    @Test
+    public void testCopyLabels() {
+        ContextProperty source = new ContextProperty("foo", Scope.MESSAGE, "bar");
+        source.addLabels("one", "two");
+        ContextProperty copy = new ContextProperty("foo", Scope.EXCHANGE, "bar");
+        copy.copyLabels(source);
+        Set<String> labels = copy.getLabels();
+        Assert.assertEquals(2, labels.size());
+        // relabelling either property leaves the other alone
+        source.removeLabels("one");
+        copy.addLabels("three");
+        Assert.assertTrue(copy.hasLabel("one"));
+        Assert.assertFalse(source.hasLabel("three"));
+        // the label view follows changes
+        Assert.assertEquals(3, labels.size());
+    }
+
 }
@@ -14,7 +14,10 @@
 
 package org.switchyard.internal;
 
+import java.util.HashMap;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -160,5 +163,119 @@ public class DefaultContextTest {
         Assert.assertNull(_context.getProperty("exchange"));
         Assert.assertNotNull(ctx.getProperty("exchange"));
     }
-    
+
+    @Test
+    public void testLabelIndexFollowsRelabelling() {
+        _context.setProperty("a", "a").addLabels("foo");
+        Assert.assertEquals(1, _context.getProperties("foo").size());
+        // labels changed after the index is built
+        Property b = _context.setProperty("b", "b").addLabels(" FOO ");
+        _context.getProperty("a").removeLabels("foo");
+        Set<Property> props = _context.getProperties("foo");
+        Assert.assertEquals(1, props.size());
+        Assert.assertSame(b, props.iterator().next());
+        // replaced and removed properties drop out of the index
+        _context.setProperty("b", "c");
+        Assert.assertEquals(0, _context.getProperties("foo").size());
+        b.addLabels("bar");
+        Assert.assertEquals(0, _context.getProperties("bar").size());
+    }
+
+    @Test
+    public void testLabelIndexAboveThreshold() {
+        // more properties than PropertyTable indexes by label
+        for (int i = 0; i < 40; i++) {
+            Property property = _context.setProperty("p" + i, i);
+            if (i % 2 == 0) {
+                property.addLabels("even");
+            }
+        }
+        Assert.assertEquals(20, _context.getProperties("even").size());
+        _context.getProperty("p0").removeLabels("even");
+        _context.getProperty("p1").addLabels(" EVEN ");
+        _context.removeProperty(_context.getProperty("p2"));
+        _context.setProperty("p4", "replaced");
+        Set<Property> even = _context.getProperties("even");
+        Assert.assertEquals(18, even.size());
+        Assert.assertTrue(even.contains(_context.getProperty("p1")));
+        Assert.assertFalse(even.contains(_context.getProperty("p0")));
+        Assert.assertFalse(even.contains(_context.getProperty("p4")));
+        _context.removeProperties("even");
+        Assert.assertEquals(21, _context.getProperties().size());
+        Assert.assertTrue(_context.getProperties("even").isEmpty());
+    }
+
+    @Test
+    public void testConcurrentLabelQueries() throws Exception {
+        for (int i = 0; i < 40; i++) {
+            _context.setProperty("p" + i, i).addLabels(i % 4 == 0 ? "quarter" : "rest");
+        }
+        // label queries only read the context, so they may run side by side
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] readers = new Thread[8];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 1000; i++) {
+                            if (_context.getProperties("quarter").size() != 10
+                                    || _context.getProperties("rest").size() != 30) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+            readers[t].start();
+        }
+        start.countDown();
+        for (Thread reader : readers) {
+            reader.join(10000);
+        }
+        Assert.assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void testLabelsOfSharedProperties() {
+        Property shared = _context.setProperty("a", "a");
+        DefaultContext ctx = new DefaultContext(Scope.EXCHANGE);
+        ctx.getProperties(TRANSIENT);
+        ctx.setProperties(_context.getProperties());
+        // label added through the context which does not own the property
+        shared.addLabels("foo");
+        Assert.assertEquals(1, ctx.getProperties("foo").size());
+        Assert.assertEquals(1, _context.getProperties("foo").size());
+        ctx.removeProperties("foo");
+        Assert.assertNull(ctx.getProperty("a"));
+    }
+
+    @Test
+    public void testCopyLabelsAreIndependent() {
+        _context.setProperty("a", "a").addLabels("foo");
+        Context ctx = new DefaultContext(Scope.EXCHANGE);
+        _context.mergeInto(ctx);
+        Assert.assertTrue(ctx.getProperty("a").hasLabel("foo"));
+        ctx.getProperty("a").addLabels("bar");
+        _context.getProperty("a").removeLabels("foo");
+        Assert.assertEquals(1, ctx.getProperties("foo").size());
+        Assert.assertEquals(1, ctx.getProperties("bar").size());
+        Assert.assertEquals(0, _context.getProperties("foo").size());
+        Assert.assertEquals(0, _context.getProperties("bar").size());
+    }
+
+    @Test
+    public void testSuppliedPropertyMap() {
+        DefaultContext ctx = new DefaultContext(Scope.EXCHANGE, new HashMap<String, Property>());
+        ctx.setProperty("a", "a").addLabels("foo");
+        ctx.setProperty("b", "b");
+        Assert.assertEquals(1, ctx.getProperties("foo").size());
+        ctx.removeProperties("foo");
+        Assert.assertNull(ctx.getProperty("a"));
+        Assert.assertNotNull(ctx.getProperty("b"));
+    }
+
 }
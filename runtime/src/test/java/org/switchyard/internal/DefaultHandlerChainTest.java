@@ -87,7 +87,43 @@ public class DefaultHandlerChainTest {
         
         Assert.assertEquals(m4, _chain.getHandlers().get(1));
     }
-}
-
 
+    @Test
+    public void testCopyIsIndependent() {
+        MockHandler m1 = new MockHandler();
+        MockHandler m2 = new MockHandler();
+        
+        _chain.addLast("1", m1);
+        HandlerChain copy = _chain.copy();
+        copy.addLast("2", m2);
+        copy.remove("1");
+        
+        Assert.assertEquals(1, _chain.getHandlers().size());
+        Assert.assertEquals(m1, _chain.getHandlers().get(0));
+        Assert.assertEquals(1, copy.getHandlers().size());
+        Assert.assertEquals(m2, copy.getHandlers().get(0));
+    }
+    
+    @Test
+    public void testSnapshotDuringModification() throws Exception {
+        final MockHandler m1 = new MockHandler();
+        // adds a handler to the chain while the chain is being walked
+        ExchangeHandler adder = new BaseHandler() {
+            @Override
+            public void handleFault(Exchange exchange) {
+                _chain.addLast("late", new MockHandler());
+            }
+        };
+        _chain.addLast("adder", adder);
+        _chain.addLast("1", m1);
 
+        MockDomain domain = new MockDomain();
+        ServiceReference reference = domain.createInOnlyService(new QName("bar"));
+        Dispatcher dispatch = domain.getBus().createDispatcher(reference);
+        Exchange ex = new ExchangeImpl(domain, dispatch).consumer(reference, new InOnlyOperation("foo"));
+        _chain.handleFault(ex);
+        
+        Assert.assertEquals(1, m1.getFaults().size());
+        Assert.assertEquals(3, _chain.getHandlers().size());
+    }
+}
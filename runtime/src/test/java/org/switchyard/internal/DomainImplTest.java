@@ -32,11 +32,14 @@ import org.switchyard.ServiceReference;
 import org.switchyard.event.EventObserver;
 import org.switchyard.event.ReferenceRegistrationEvent;
 import org.switchyard.extensions.java.JavaService;
+import org.switchyard.internal.transform.BaseTransformerRegistry;
+import org.switchyard.internal.validate.BaseValidatorRegistry;
 import org.switchyard.metadata.InOnlyOperation;
 import org.switchyard.metadata.InOnlyService;
 import org.switchyard.metadata.InOutOperation;
 import org.switchyard.metadata.InOutService;
 import org.switchyard.metadata.ServiceInterface;
+import org.switchyard.security.service.DefaultServiceDomainSecurity;
 
 /**
  *  Unit tests for the DomainImpl class.
@@ -111,6 +114,36 @@ public class DomainImplTest {
         Assert.assertNotNull(_domain.getEventPublisher());
     }
     
+    @Test
+    public void testSharedEventManagerOutlivesDomain() throws Exception {
+        EventManager shared = new EventManager();
+        CountingEventObserver async = new CountingEventObserver();
+        shared.addAsyncObserver(async, ReferenceRegistrationEvent.class);
+        DomainImpl first = createDomain(shared);
+        first.setProperty(EventManager.CAPACITY, "32");
+        first.setProperty(EventManager.OVERFLOW, "block");
+        first.init();
+        Assert.assertEquals(32, shared.getCapacity());
+        Assert.assertEquals(EventManager.OverflowPolicy.BLOCK, shared.getOverflowPolicy());
+        first.destroy();
+
+        // the other domains sharing the manager still have events delivered
+        DomainImpl second = createDomain(shared);
+        second.setProperty(EventManager.CAPACITY, "none");
+        second.init();
+        Assert.assertEquals(32, shared.getCapacity());
+        shared.publish(new ReferenceRegistrationEvent(_inOnlyReference));
+        shared.shutdown(5000);
+        Assert.assertEquals(1, async.count);
+        Assert.assertEquals(0, shared.getDroppedEventCount());
+    }
+
+    private DomainImpl createDomain(EventManager eventManager) {
+        return new DomainImpl(new QName("shared"), new DefaultServiceRegistry(), new LocalExchangeBus(),
+                new BaseTransformerRegistry(), new BaseValidatorRegistry(), eventManager,
+                new DefaultServiceDomainSecurity());
+    }
+
     @Test
     public void testAddObserver() {
         CountingEventObserver obs = new CountingEventObserver();
@@ -14,10 +14,19 @@
 
 package org.switchyard.internal;
 
+import java.util.EventObject;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import junit.framework.Assert;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.switchyard.event.EventObserver;
+import org.switchyard.internal.EventManager.OverflowPolicy;
 
 /**
  *  Unit tests for the EventManager class.
@@ -31,7 +40,219 @@ public class EventManagerTest {
         _manager = new EventManager();
     }
     
+    @After
+    public void tearDown() throws Exception {
+        _manager.shutdown(1000);
+    }
+    
     @Test
     public void testSomething() {
     }
+
+    @Test
+    public void testSupertypeObservers() {
+        RecordingObserver base = new RecordingObserver(null);
+        RecordingObserver sub = new RecordingObserver(null);
+        _manager.addObserver(base, BaseEvent.class)
+            .addObserver(sub, SubEvent.class)
+            // registered twice through the hierarchy, notified once
+            .addObserver(base, SubEvent.class);
+        
+        _manager.publish(new SubEvent(this));
+        _manager.publish(new BaseEvent(this));
+        Assert.assertEquals(2, base._events.size());
+        Assert.assertEquals(1, sub._events.size());
+        Assert.assertEquals(2, _manager.getObserversForEvent(SubEvent.class).size());
+        
+        // dispatch tables are rebuilt when registrations change
+        _manager.removeObserverForEvent(base, BaseEvent.class);
+        _manager.publish(new BaseEvent(this));
+        Assert.assertEquals(2, base._events.size());
+    }
+
+    @Test
+    public void testAsyncObserver() throws Exception {
+        CountDownLatch latch = new CountDownLatch(10);
+        RecordingObserver async = new RecordingObserver(latch);
+        _manager.addAsyncObserver(async, BaseEvent.class);
+        for (int i = 0; i < 10; i++) {
+            _manager.publish(new BaseEvent(this));
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(10, async._events.size());
+        Assert.assertNotSame(Thread.currentThread(), async._thread);
+    }
+
+    @Test
+    public void testPublishAfterShutdownCounted() throws Exception {
+        CountDownLatch first = new CountDownLatch(1);
+        RecordingObserver async = new RecordingObserver(first);
+        _manager.addAsyncObserver(async, BaseEvent.class);
+        _manager.publish(new BaseEvent(this));
+        _manager.shutdown(5000);
+        Assert.assertEquals(0, first.getCount());
+        
+        // nothing would deliver these, so they are rejected and counted
+        _manager.publish(new BaseEvent(this));
+        _manager.publish(new BaseEvent(this));
+        Assert.assertEquals(1, async._events.size());
+        Assert.assertEquals(0, _manager.getPendingEventCount());
+        Assert.assertEquals(2, _manager.getDroppedEventCount());
+    }
+
+    @Test
+    public void testShutdownBeforeAsyncDelivery() throws Exception {
+        _manager.shutdown(1000);
+        RecordingObserver async = new RecordingObserver(null);
+        _manager.addAsyncObserver(async, BaseEvent.class);
+        _manager.publish(new BaseEvent(this));
+        Assert.assertEquals(0, async._events.size());
+        Assert.assertEquals(1, _manager.getDroppedEventCount());
+    }
+
+    @Test
+    public void testChangeAsyncDelivery() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+        RecordingObserver async = new RecordingObserver(latch);
+        _manager.addAsyncObserver(async, BaseEvent.class);
+        _manager.publish(new BaseEvent(this));
+        _manager.setAsyncDelivery(16, OverflowPolicy.BLOCK, 5000);
+        Assert.assertEquals(16, _manager.getCapacity());
+        Assert.assertEquals(OverflowPolicy.BLOCK, _manager.getOverflowPolicy());
+        
+        // events pending in the old buffer and published to the new one both arrive
+        _manager.publish(new BaseEvent(this));
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, _manager.getDroppedEventCount());
+    }
+
+    @Test
+    public void testDropOnOverflow() throws Exception {
+        _manager = new EventManager(2, OverflowPolicy.DROP);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingObserver blocker = new BlockingObserver(release);
+        _manager.addAsyncObserver(blocker, BaseEvent.class);
+        
+        // first event occupies the dispatch thread, the next two fill the buffer
+        _manager.publish(new BaseEvent(this));
+        blocker._started.await(5, TimeUnit.SECONDS);
+        _manager.publish(new BaseEvent(this));
+        _manager.publish(new BaseEvent(this));
+        _manager.publish(new BaseEvent(this));
+        Assert.assertEquals(1, _manager.getDroppedEventCount());
+        Assert.assertEquals(2, _manager.getPendingEventCount());
+        
+        release.countDown();
+        _manager.shutdown(5000);
+        Assert.assertEquals(3, blocker._count);
+        // drops are still counted once the dispatcher has stopped
+        Assert.assertEquals(1, _manager.getDroppedEventCount());
+    }
+
+    @Test
+    public void testCoalesceOnOverflow() throws Exception {
+        _manager = new EventManager(2, OverflowPolicy.COALESCE);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingObserver blocker = new BlockingObserver(release);
+        _manager.addAsyncObserver(blocker, BaseEvent.class);
+        
+        Object source = new Object();
+        _manager.publish(new BaseEvent(this));
+        blocker._started.await(5, TimeUnit.SECONDS);
+        _manager.publish(new BaseEvent(source));
+        _manager.publish(new SubEvent(this));
+        // replaces the pending event from the same source
+        _manager.publish(new BaseEvent(source));
+        // nothing to coalesce with, so it's dropped
+        _manager.publish(new BaseEvent(new Object()));
+        Assert.assertEquals(1, _manager.getDroppedEventCount());
+        
+        release.countDown();
+        _manager.shutdown(5000);
+        Assert.assertEquals(3, blocker._count);
+    }
+
+    @Test
+    public void testBlockOnOverflow() throws Exception {
+        _manager = new EventManager(1, OverflowPolicy.BLOCK);
+        final CountDownLatch release = new CountDownLatch(1);
+        BlockingObserver blocker = new BlockingObserver(release);
+        _manager.addAsyncObserver(blocker, BaseEvent.class);
+        
+        _manager.publish(new BaseEvent(this));
+        blocker._started.await(5, TimeUnit.SECONDS);
+        _manager.publish(new BaseEvent(this));
+        
+        // buffer is full, so this publisher waits until the observer catches up
+        final CountDownLatch published = new CountDownLatch(1);
+        Thread publisher = new Thread() {
+            public void run() {
+                _manager.publish(new BaseEvent(EventManagerTest.this));
+                published.countDown();
+            }
+        };
+        publisher.start();
+        Assert.assertFalse(published.await(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        Assert.assertTrue(published.await(5, TimeUnit.SECONDS));
+        
+        _manager.shutdown(5000);
+        Assert.assertEquals(0, _manager.getDroppedEventCount());
+        Assert.assertEquals(3, blocker._count);
+    }
+
+    private static class BaseEvent extends EventObject {
+        private static final long serialVersionUID = 1L;
+        BaseEvent(Object source) {
+            super(source);
+        }
+    }
+
+    private static class SubEvent extends BaseEvent {
+        private static final long serialVersionUID = 1L;
+        SubEvent(Object source) {
+            super(source);
+        }
+    }
+
+    private static class RecordingObserver implements EventObserver {
+        private final List<EventObject> _events = new CopyOnWriteArrayList<EventObject>();
+        private final CountDownLatch _latch;
+        private volatile Thread _thread;
+
+        RecordingObserver(CountDownLatch latch) {
+            _latch = latch;
+        }
+
+        @Override
+        public void notify(EventObject event) {
+            _thread = Thread.currentThread();
+            _events.add(event);
+            if (_latch != null) {
+                _latch.countDown();
+            }
+        }
+    }
+
+    // holds up the dispatch thread until released
+    private static class BlockingObserver implements EventObserver {
+        private final CountDownLatch _started = new CountDownLatch(1);
+        private final CountDownLatch _release;
+        private volatile int _count;
+
+        BlockingObserver(CountDownLatch release) {
+            _release = release;
+        }
+
+        @Override
+        public void notify(EventObject event) {
+            _started.countDown();
+            try {
+                _release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException iEx) {
+                Thread.currentThread().interrupt();
+            }
+            _count++;
+        }
+    }
 }
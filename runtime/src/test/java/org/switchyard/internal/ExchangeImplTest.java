@@ -15,6 +15,7 @@
 package org.switchyard.internal;
 
 import java.util.EventObject;
+import java.util.List;
 
 import javax.xml.namespace.QName;
 
@@ -38,6 +39,8 @@ import org.switchyard.metadata.InOutService;
 import org.switchyard.metadata.JavaTypes;
 import org.switchyard.runtime.event.ExchangeCompletionEvent;
 import org.switchyard.runtime.event.ExchangeInitiatedEvent;
+import org.switchyard.runtime.fault.FaultCapture;
+import org.switchyard.runtime.fault.FaultRecord;
 import org.switchyard.spi.Dispatcher;
 import org.switchyard.transform.BaseTransformer;
 
@@ -152,6 +155,22 @@ public class ExchangeImplTest {
         }
     }
     
+    @Test
+    public void testUnhandledFaultIsCaptured() throws Exception {
+        QName name = new QName("UnhandledFault");
+        ServiceReference service = _domain.createInOnlyService(name, new MockHandler().forwardInToFault());
+        Exchange exchange = service.createExchange();
+        exchange.send(exchange.createMessage().setContent("oops"));
+
+        FaultCapture capture = _domain.getFaultCapture();
+        Assert.assertTrue(capture.awaitDrained(5000));
+        List<FaultRecord> faults = capture.getRecentFaults(name);
+        Assert.assertEquals(1, faults.size());
+        Assert.assertEquals(name, faults.get(0).getService());
+        Assert.assertEquals(exchange.getMessage().getContext().getPropertyValue(Exchange.MESSAGE_ID),
+                faults.get(0).getMessageId());
+    }
+
     @Test
     public void testExchangeInitiatedEvent() {
         EventCounter counter = new EventCounter();
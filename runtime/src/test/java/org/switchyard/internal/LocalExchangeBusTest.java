@@ -0,0 +1,273 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.internal;
+
+import java.util.EventObject;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Test;
+import org.switchyard.BaseHandler;
+import org.switchyard.Exchange;
+import org.switchyard.ExchangePattern;
+import org.switchyard.HandlerException;
+import org.switchyard.MockHandler;
+import org.switchyard.ServiceReference;
+import org.switchyard.event.EventObserver;
+import org.switchyard.internal.transform.BaseTransformerRegistry;
+import org.switchyard.internal.validate.BaseValidatorRegistry;
+import org.switchyard.metadata.InOnlyService;
+import org.switchyard.metadata.InOutService;
+import org.switchyard.policy.PolicyUtil;
+import org.switchyard.policy.TransactionPolicy;
+import org.switchyard.runtime.event.ExchangeCompletionEvent;
+import org.switchyard.security.service.DefaultServiceDomainSecurity;
+
+/**
+ *  Unit tests for the LocalExchangeBus class.
+ */
+public class LocalExchangeBusTest {
+
+    private static final QName SERVICE = new QName("LocalBusService");
+
+    private DomainImpl _domain;
+    private ExecutorService _executor;
+
+    @After
+    public void tearDown() throws Exception {
+        if (_domain != null) {
+            _domain.destroy();
+        }
+        if (_executor != null) {
+            _executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSyncByDefault() throws Exception {
+        LocalExchangeBus bus = new LocalExchangeBus();
+        _domain = createDomain(bus);
+        _domain.init();
+        Assert.assertFalse(bus.isAsync());
+
+        ThreadRecorder provider = new ThreadRecorder(null);
+        _domain.registerService(SERVICE, new InOutService(), provider);
+        ServiceReference reference = _domain.registerServiceReference(SERVICE, new InOutService());
+
+        MockHandler consumer = new MockHandler();
+        Exchange exchange = reference.createExchange(consumer);
+        exchange.send(exchange.createMessage());
+
+        // the reply has already been delivered by the time send() returns
+        Assert.assertEquals(1, consumer.getMessages().size());
+        Assert.assertSame(Thread.currentThread(), provider._thread);
+    }
+
+    @Test
+    public void testAsyncDispatchDoesNotBlockCaller() throws Exception {
+        _executor = Executors.newFixedThreadPool(2);
+        LocalExchangeBus bus = new LocalExchangeBus(_executor);
+        _domain = createDomain(bus);
+        _domain.init();
+        Assert.assertTrue(bus.isAsync());
+
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadRecorder provider = new ThreadRecorder(release);
+        _domain.registerService(SERVICE, new InOutService(), provider);
+        ServiceReference reference = _domain.registerServiceReference(SERVICE, new InOutService());
+
+        MockHandler consumer = new MockHandler();
+        Exchange exchange = reference.createExchange(consumer);
+        exchange.send(exchange.createMessage());
+
+        // provider is still blocked, so the caller must have been released
+        Assert.assertEquals(0, consumer.getMessages().size());
+        release.countDown();
+        consumer.waitForOKMessage();
+        Assert.assertNotSame(Thread.currentThread(), provider._thread);
+    }
+
+    @Test
+    public void testAsyncEnabledByDomainProperty() throws Exception {
+        LocalExchangeBus bus = new LocalExchangeBus();
+        _domain = createDomain(bus);
+        _domain.setProperty(LocalExchangeBus.ASYNC_ENABLED, "true");
+        _domain.setProperty(LocalExchangeBus.ASYNC_THREADS, "2");
+        _domain.setProperty(LocalExchangeBus.ASYNC_QUEUE_SIZE, "4");
+        _domain.init();
+        Assert.assertTrue(bus.isAsync());
+
+        ThreadRecorder provider = new ThreadRecorder(null);
+        _domain.registerService(SERVICE, new InOutService(), provider);
+        ServiceReference reference = _domain.registerServiceReference(SERVICE, new InOutService());
+
+        MockHandler consumer = new MockHandler();
+        for (int i = 0; i < 10; i++) {
+            Exchange exchange = reference.createExchange(consumer);
+            exchange.send(exchange.createMessage());
+        }
+        consumer.waitForOKMessage();
+        long end = System.currentTimeMillis() + consumer.getWaitTimeout();
+        while (consumer.getMessages().size() < 10 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(10, consumer.getMessages().size());
+
+        _domain.destroy();
+        _domain = null;
+        Assert.assertFalse(bus.isAsync());
+    }
+
+    @Test
+    public void testRepliesRoutedToEachConsumer() throws Exception {
+        _executor = Executors.newFixedThreadPool(4);
+        _domain = createDomain(new LocalExchangeBus(_executor));
+        _domain.init();
+
+        _domain.registerService(SERVICE, new InOutService(), new ThreadRecorder(null));
+        ServiceReference reference = _domain.registerServiceReference(SERVICE, new InOutService());
+
+        // all exchanges share a dispatcher, but each reply must reach its own consumer
+        MockHandler[] consumers = new MockHandler[20];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new MockHandler();
+            Exchange exchange = reference.createExchange(consumers[i]);
+            exchange.send(exchange.createMessage());
+        }
+        for (MockHandler consumer : consumers) {
+            consumer.waitForOKMessage();
+            Assert.assertEquals(1, consumer.getMessages().size());
+        }
+    }
+
+    @Test
+    public void testAsyncRuntimeExceptionReturnedAsFault() throws Exception {
+        _executor = Executors.newSingleThreadExecutor();
+        _domain = createDomain(new LocalExchangeBus(_executor));
+        _domain.init();
+
+        _domain.registerService(SERVICE, new InOutService(), new BaseHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                throw new IllegalStateException("provider blew up");
+            }
+        });
+        ServiceReference reference = _domain.registerServiceReference(SERVICE, new InOutService());
+
+        MockHandler consumer = new MockHandler();
+        Exchange exchange = reference.createExchange(consumer);
+        exchange.send(exchange.createMessage());
+        consumer.waitForFaultMessage();
+    }
+
+    @Test
+    public void testAsyncInOnlyCompletesAfterProvider() throws Exception {
+        _executor = Executors.newSingleThreadExecutor();
+        _domain = createDomain(new LocalExchangeBus(_executor));
+        _domain.init();
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final ThreadRecorder provider = new ThreadRecorder(release);
+        _domain.registerService(SERVICE, new InOnlyService(), provider);
+        ServiceReference reference = _domain.registerServiceReference(SERVICE, new InOnlyService());
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        final Thread[] completionThread = new Thread[1];
+        final boolean[] providerDone = new boolean[1];
+        _domain.addEventObserver(new EventObserver() {
+            @Override
+            public void notify(EventObject event) {
+                completionThread[0] = Thread.currentThread();
+                providerDone[0] = provider._done;
+                completed.countDown();
+            }
+        }, ExchangeCompletionEvent.class);
+
+        Exchange exchange = reference.createExchange();
+        exchange.send(exchange.createMessage());
+
+        // the provider is still running, so the exchange must not be complete
+        Assert.assertEquals(1, completed.getCount());
+        release.countDown();
+        Assert.assertTrue(completed.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(providerDone[0]);
+        Assert.assertSame(provider._thread, completionThread[0]);
+        Assert.assertNotSame(Thread.currentThread(), completionThread[0]);
+    }
+
+    @Test
+    public void testTransactionalExchangeDispatchedOnCaller() throws Exception {
+        _executor = Executors.newSingleThreadExecutor();
+        _domain = createDomain(new LocalExchangeBus(_executor));
+        _domain.init();
+
+        ThreadRecorder provider = new ThreadRecorder(null);
+        _domain.registerService(SERVICE, new InOutService(), provider);
+        ServiceReference reference = _domain.registerServiceReference(SERVICE, new InOutService());
+
+        MockHandler consumer = new MockHandler();
+        Exchange exchange = reference.createExchange(consumer);
+        PolicyUtil.provide(exchange, TransactionPolicy.PROPAGATES_TRANSACTION);
+        exchange.send(exchange.createMessage());
+
+        // the transaction is bound to the caller, so the request stays on it
+        Assert.assertEquals(1, consumer.getMessages().size());
+        Assert.assertSame(Thread.currentThread(), provider._thread);
+    }
+
+    private DomainImpl createDomain(LocalExchangeBus bus) {
+        return new DomainImpl(new QName("test"),
+                new DefaultServiceRegistry(),
+                bus,
+                new BaseTransformerRegistry(),
+                new BaseValidatorRegistry(),
+                new EventManager(),
+                new DefaultServiceDomainSecurity());
+    }
+
+    // replies to every request, recording the thread the provider ran on
+    private static class ThreadRecorder extends BaseHandler {
+        private final CountDownLatch _release;
+        private volatile Thread _thread;
+        private volatile boolean _done;
+
+        ThreadRecorder(CountDownLatch release) {
+            _release = release;
+        }
+
+        @Override
+        public void handleMessage(Exchange exchange) throws HandlerException {
+            _thread = Thread.currentThread();
+            if (_release != null) {
+                try {
+                    _release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException iEx) {
+                    throw new HandlerException(iEx);
+                }
+            }
+            if (ExchangePattern.IN_OUT.equals(exchange.getPattern())) {
+                exchange.send(exchange.getMessage().copy());
+            }
+            _done = true;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.switchyard.spi.MessageIdGenerator;
+
+/**
+ * Microbenchmark comparing the default message ID generator with random
+ * UUIDs, from one and from several threads.  This is not run as part of
+ * the build; run it from the IDE or with 'java' against the test classpath.
+ * <p/>
+ * Usage: MessageIdGeneratorBenchmark [iterations per thread]
+ */
+public final class MessageIdGeneratorBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+
+    private MessageIdGeneratorBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional iteration count per thread
+     * @throws Exception on failure
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        MessageIdGenerator defaultGenerator = new DefaultMessageIdGenerator();
+        MessageIdGenerator uuidGenerator = new UUIDMessageIdGenerator();
+        for (int round = 0; round < 3; round++) {
+            for (int threads : THREAD_COUNTS) {
+                System.out.println(threads + " thread(s): default=" + run(defaultGenerator, threads, iterations)
+                        + " ns/id uuid=" + run(uuidGenerator, threads, iterations) + " ns/id");
+            }
+        }
+    }
+
+    // average wall-clock time per ID across all threads
+    private static long run(final MessageIdGenerator generator, int threadCount, final int iterations)
+            throws InterruptedException {
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            threads.add(new Thread() {
+                public void run() {
+                    int length = 0;
+                    for (int i = 0; i < iterations; i++) {
+                        length += generator.generate().length();
+                    }
+                    if (length == 0) {
+                        throw new IllegalStateException();
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return (System.nanoTime() - start) / ((long)iterations * threadCount);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.Exchange;
+import org.switchyard.MockDomain;
+import org.switchyard.ServiceReference;
+import org.switchyard.spi.MessageIdGenerator;
+
+/**
+ *  Unit tests for the MessageIdGenerator implementations.
+ */
+public class MessageIdGeneratorTest {
+
+    @Test
+    public void testDefaultIdsAreUnique() throws Exception {
+        final MessageIdGenerator generator = new DefaultMessageIdGenerator();
+        final Set<String> ids = Collections.synchronizedSet(new HashSet<String>());
+        final List<String> failures = new ArrayList<String>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread() {
+                public void run() {
+                    String previous = "";
+                    for (int i = 0; i < 5000; i++) {
+                        String id = generator.generate();
+                        // fixed width, increasing within a thread
+                        if (id.length() != 33 || id.compareTo(previous) <= 0) {
+                            synchronized (failures) {
+                                failures.add(previous + " -> " + id);
+                            }
+                        }
+                        ids.add(id);
+                        previous = id;
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(failures.toString(), 0, failures.size());
+        Assert.assertEquals(20000, ids.size());
+    }
+
+    @Test
+    public void testDefaultIdFormat() {
+        MessageIdGenerator generator = new DefaultMessageIdGenerator(0xfedcba9876543210L);
+        Assert.assertEquals("fedcba9876543210-0000000000000000", generator.generate());
+        Assert.assertEquals("fedcba9876543210-0000000000000001", generator.generate());
+    }
+
+    @Test
+    public void testDomainConfiguration() {
+        MockDomain domain = new MockDomain();
+        Assert.assertTrue(domain.getMessageIdGenerator() instanceof DefaultMessageIdGenerator);
+
+        domain.setProperty(MessageIdGenerator.MESSAGE_ID_GENERATOR, "uuid");
+        Assert.assertTrue(domain.getMessageIdGenerator() instanceof UUIDMessageIdGenerator);
+        UUID.fromString(domain.getMessageIdGenerator().generate());
+
+        domain.setProperty(MessageIdGenerator.MESSAGE_ID_GENERATOR, UUIDMessageIdGenerator.class.getName());
+        Assert.assertTrue(domain.getMessageIdGenerator() instanceof UUIDMessageIdGenerator);
+
+        domain.setProperty(MessageIdGenerator.MESSAGE_ID_GENERATOR, "org.example.NoSuchGenerator");
+        Assert.assertTrue(domain.getMessageIdGenerator() instanceof DefaultMessageIdGenerator);
+
+        domain.setProperty(MessageIdGenerator.MESSAGE_ID_GENERATOR, null);
+        Assert.assertTrue(domain.getMessageIdGenerator() instanceof DefaultMessageIdGenerator);
+    }
+
+    @Test
+    public void testExchangeUsesDomainGenerator() {
+        MockDomain domain = new MockDomain();
+        domain.setProperty(MessageIdGenerator.MESSAGE_ID_GENERATOR, new MessageIdGenerator() {
+            public String generate() {
+                return "fixed-id";
+            }
+        });
+        ServiceReference service = domain.createInOnlyService(new QName("IdGeneratorTest"));
+        Exchange exchange = service.createExchange();
+        exchange.send(exchange.createMessage());
+        Assert.assertEquals("fixed-id", exchange.getMessage().getContext().getPropertyValue(Exchange.MESSAGE_ID));
+    }
+}
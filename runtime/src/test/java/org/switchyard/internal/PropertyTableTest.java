@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.internal;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.Property;
+import org.switchyard.Scope;
+
+public class PropertyTableTest {
+
+    @Test
+    public void testGrowAndRemove() {
+        PropertyTable table = new PropertyTable();
+        Map<String, Property> expected = new HashMap<String, Property>();
+        for (int i = 0; i < 500; i++) {
+            String name = "property" + i;
+            Property property = new ContextProperty(name, Scope.EXCHANGE, i);
+            table.put(name, property);
+            expected.put(name, property);
+        }
+        // remove every third property, which shifts colliding entries back
+        for (int i = 0; i < 500; i += 3) {
+            Assert.assertNotNull(table.remove("property" + i));
+            expected.remove("property" + i);
+        }
+        Assert.assertEquals(expected.size(), table.size());
+        for (int i = 0; i < 500; i++) {
+            String name = new String("property" + i);
+            Assert.assertSame(expected.get(name), table.get(name));
+        }
+        Assert.assertEquals(expected, table);
+        Assert.assertEquals(new HashSet<Property>(expected.values()), new HashSet<Property>(table.values()));
+    }
+
+    @Test
+    public void testReplace() {
+        PropertyTable table = new PropertyTable();
+        Property first = new ContextProperty("a", Scope.EXCHANGE, "1");
+        Property second = new ContextProperty("a", Scope.EXCHANGE, "2");
+        Assert.assertNull(table.put("a", first));
+        Assert.assertSame(first, table.put("a", second));
+        Assert.assertEquals(1, table.size());
+        Assert.assertSame(second, table.get("a"));
+        Assert.assertNull(table.remove("b"));
+        table.clear();
+        Assert.assertTrue(table.isEmpty());
+        Assert.assertNull(table.get("a"));
+    }
+
+    @Test
+    public void testLabelIndex() {
+        PropertyTable table = new PropertyTable();
+        // enough unlabelled properties for label queries to use the index
+        for (int i = 0; i < 20; i++) {
+            table.put("property" + i, new ContextProperty("property" + i, Scope.EXCHANGE, i));
+        }
+        ContextProperty a = new ContextProperty("a", Scope.EXCHANGE, "a");
+        ContextProperty b = new ContextProperty("b", Scope.EXCHANGE, "b");
+        a.addLabels("foo", "bar");
+        table.put("a", a);
+        Assert.assertEquals(1, table.getProperties("FOO").size());
+        table.put("b", b);
+        b.addLabels("foo");
+        Set<Property> labelled = table.getProperties("foo");
+        Assert.assertEquals(2, labelled.size());
+        Assert.assertTrue(labelled.contains(a));
+        Assert.assertTrue(labelled.contains(b));
+        table.remove("a");
+        Assert.assertEquals(1, table.getProperties("foo").size());
+        Assert.assertEquals(0, table.getProperties("bar").size());
+        // a property already held by another table is not indexed, but still found
+        PropertyTable other = new PropertyTable();
+        other.put("b", b);
+        b.addLabels("baz");
+        Assert.assertEquals(1, other.getProperties("baz").size());
+        other.remove("b");
+        b.addLabels("qux");
+        Assert.assertEquals(1, table.getProperties("qux").size());
+    }
+}
@@ -114,6 +114,114 @@ public class BaseTransformerRegistryTest {
         Assert.assertEquals(C, message.getContent());      
     }
 
+    @Test
+    public void testTransformSequenceCached() {
+        final QName A = new QName("a");
+        final QName B = new QName("b");
+        final QName C = new QName("c");
+        
+        BaseTransformerRegistry registry = new BaseTransformerRegistry();
+        CountingResolver resolver = new CountingResolver(registry);
+        registry.setTransfomResolver(resolver);
+        registry.addTransformer(new TestTransformer2(A, B));
+        registry.addTransformer(new TestTransformer2(B, C));
+        
+        TransformSequence first = registry.getTransformSequence(A, C);
+        TransformSequence second = registry.getTransformSequence(A, C);
+        Assert.assertEquals(1, resolver._count);
+        // each caller gets its own sequence since apply() consumes it
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first.getTypes(), second.getTypes());
+        
+        DefaultMessage message = new DefaultMessage().setContent(A);
+        second.apply(message, registry);
+        Assert.assertEquals(C, message.getContent());
+        Assert.assertEquals(3, registry.getTransformSequence(A, C).getTypes().size());
+    }
+
+    @Test
+    public void testTransformSequenceCacheInvalidation() {
+        final QName A = new QName("a");
+        final QName B = new QName("b");
+        final QName C = new QName("c");
+        
+        BaseTransformerRegistry registry = new BaseTransformerRegistry();
+        CountingResolver resolver = new CountingResolver(registry);
+        registry.setTransfomResolver(resolver);
+        registry.addTransformer(new TestTransformer2(A, B));
+        
+        // negative results are cached too
+        Assert.assertNull(registry.getTransformSequence(A, C));
+        Assert.assertNull(registry.getTransformSequence(A, C));
+        Assert.assertEquals(1, resolver._count);
+        
+        // adding an edge makes the path resolvable
+        TestTransformer2 bToC = new TestTransformer2(B, C);
+        registry.addTransformer(bToC);
+        Assert.assertNotNull(registry.getTransformSequence(A, C));
+        Assert.assertEquals(2, resolver._count);
+        
+        // removing it breaks the path again
+        registry.removeTransformer(bToC);
+        Assert.assertNull(registry.getTransformSequence(A, C));
+        Assert.assertEquals(3, resolver._count);
+    }
+
+    @Test
+    public void testUnresolvedSequencesBounded() {
+        final QName A = new QName("a");
+        
+        BaseTransformerRegistry registry = new BaseTransformerRegistry();
+        CountingResolver resolver = new CountingResolver(registry);
+        registry.setTransfomResolver(resolver);
+        
+        Assert.assertNull(registry.getTransformSequence(A, new QName("unresolved0")));
+        for (int i = 1; i < BaseTransformerRegistry.MAX_UNRESOLVED_SEQUENCES; i++) {
+            Assert.assertNull(registry.getTransformSequence(A, new QName("unresolved" + i)));
+        }
+        Assert.assertEquals(BaseTransformerRegistry.MAX_UNRESOLVED_SEQUENCES, resolver._count);
+        
+        // using the first pair again keeps it over the next least recently used
+        Assert.assertNull(registry.getTransformSequence(A, new QName("unresolved0")));
+        Assert.assertNull(registry.getTransformSequence(A, new QName("unresolved-new")));
+        Assert.assertEquals(BaseTransformerRegistry.MAX_UNRESOLVED_SEQUENCES + 1, resolver._count);
+        Assert.assertNull(registry.getTransformSequence(A, new QName("unresolved0")));
+        Assert.assertEquals(BaseTransformerRegistry.MAX_UNRESOLVED_SEQUENCES + 1, resolver._count);
+        
+        // the least recently used pair has been dropped, so it is resolved again
+        Assert.assertNull(registry.getTransformSequence(A, new QName("unresolved1")));
+        Assert.assertEquals(BaseTransformerRegistry.MAX_UNRESOLVED_SEQUENCES + 2, resolver._count);
+    }
+
+    @Test
+    public void testTransformersFromAndTo() {
+        final QName A = new QName("a");
+        final QName B = new QName("b");
+        final QName C = new QName("c");
+        
+        TestTransformer2 aToB = new TestTransformer2(A, B);
+        TestTransformer2 aToC = new TestTransformer2(A, C);
+        TestTransformer2 bToC = new TestTransformer2(B, C);
+        _registry.addTransformer(aToB);
+        _registry.addTransformer(aToC);
+        _registry.addTransformer(bToC);
+        
+        Assert.assertEquals(2, _registry.getTransformersFrom(A).size());
+        Assert.assertEquals(2, _registry.getTransformersTo(C).size());
+        Assert.assertTrue(_registry.getTransformersTo(C).contains(bToC));
+        Assert.assertEquals(0, _registry.getTransformersFrom(C).size());
+        
+        _registry.removeTransformer(aToC);
+        Assert.assertEquals(1, _registry.getTransformersFrom(A).size());
+        Assert.assertEquals(1, _registry.getTransformersTo(C).size());
+        
+        // replacing a transformer for the same types replaces the index entry
+        TestTransformer2 newAToB = new TestTransformer2(A, B);
+        _registry.addTransformer(newAToB);
+        Assert.assertEquals(1, _registry.getTransformersFrom(A).size());
+        Assert.assertSame(newAToB, _registry.getTransformersFrom(A).get(0));
+    }
+
     private void addTransformer(Class<?> type) {
         QName fromType = getType(type);
         QName toType = new QName("target1");
@@ -142,6 +250,20 @@ public class BaseTransformerRegistryTest {
         }
     }
     
+    private static class CountingResolver extends BaseTransformResolver {
+        private int _count;
+
+        CountingResolver(TransformerRegistry registry) {
+            super(registry);
+        }
+
+        @Override
+        public TransformSequence resolveSequence(QName from, QName to) {
+            _count++;
+            return super.resolveSequence(from, to);
+        }
+    }
+    
     private class TestTransformer2 extends BaseTransformer {
 
         private QName from;
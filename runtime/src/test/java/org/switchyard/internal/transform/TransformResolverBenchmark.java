@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.internal.transform;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.transform.BaseTransformer;
+import org.switchyard.transform.TransformResolver;
+import org.switchyard.transform.TransformSequence;
+
+/**
+ * Microbenchmark comparing uncached transform path resolution with the cached
+ * lookup in BaseTransformerRegistry.  This is not run as part of the build;
+ * run it from the IDE or with 'java' against the test classpath.
+ * <p/>
+ * Usage: TransformResolverBenchmark [types] [edgesPerType] [iterations]
+ */
+public final class TransformResolverBenchmark {
+
+    private TransformResolverBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional type count, fan-out and iteration count
+     */
+    public static void main(String[] args) {
+        int types = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int fanOut = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+
+        QName[] names = new QName[types];
+        for (int i = 0; i < types; i++) {
+            names[i] = new QName("urn:benchmark", "type" + i);
+        }
+        BaseTransformerRegistry registry = new BaseTransformerRegistry();
+        for (int i = 0; i < types; i++) {
+            for (int j = 1; j <= fanOut; j++) {
+                registry.addTransformer(new NoOpTransformer(names[i], names[(i + j * 7) % types]));
+            }
+        }
+        TransformResolver uncached = new BaseTransformResolver(registry);
+
+        System.out.println("Registry with " + registry.getRegisteredTransformers().size() + " transformers");
+        for (int round = 0; round < 3; round++) {
+            System.out.println("uncached: " + run(uncached, null, names, iterations) + " ns/lookup");
+            System.out.println("cached:   " + run(null, registry, names, iterations) + " ns/lookup");
+        }
+    }
+
+    private static long run(TransformResolver resolver, BaseTransformerRegistry registry, QName[] names, int iterations) {
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            QName from = names[i % names.length];
+            QName to = names[(i * 31 + 17) % names.length];
+            TransformSequence sequence = resolver != null
+                    ? resolver.resolveSequence(from, to) : registry.getTransformSequence(from, to);
+            if (sequence != null) {
+                found++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found < 0) {
+            System.out.println(found);
+        }
+        return elapsed / iterations;
+    }
+
+    private static class NoOpTransformer extends BaseTransformer<Object, Object> {
+        NoOpTransformer(QName from, QName to) {
+            super(from, to);
+        }
+
+        @Override
+        public Object transform(Object from) {
+            return from;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.fault;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.Message;
+import org.switchyard.internal.DefaultMessage;
+import org.switchyard.runtime.fault.FaultCapture.OverflowPolicy;
+
+public class FaultCaptureTest {
+
+    private static final QName SERVICE = new QName("urn:test", "Consumer");
+    private static final QName PROVIDER = new QName("urn:test", "Provider");
+
+    private FaultCapture _capture;
+    private File _directory;
+
+    @After
+    public void tearDown() throws Exception {
+        if (_capture != null) {
+            _capture.close();
+        }
+        if (_directory != null) {
+            File[] files = _directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            _directory.delete();
+        }
+    }
+
+    @Test
+    public void testFaultsAreRecorded() throws Exception {
+        _capture = new FaultCapture(16, OverflowPolicy.DROP, 1, 16, null);
+        Assert.assertTrue(_capture.capture(SERVICE, PROVIDER, "op", "id-1", "id-0", fault("boom")));
+        Assert.assertTrue(_capture.capture(new QName("other"), null, null, "id-2", null, fault("bang")));
+        Assert.assertTrue(_capture.awaitDrained(5000));
+
+        List<FaultRecord> faults = _capture.getRecentFaults();
+        Assert.assertEquals(2, faults.size());
+        FaultRecord record = faults.get(0);
+        Assert.assertEquals(SERVICE, record.getService());
+        Assert.assertEquals(PROVIDER, record.getProvider());
+        Assert.assertEquals("op", record.getOperation());
+        Assert.assertEquals("id-1", record.getMessageId());
+        Assert.assertEquals("id-0", record.getRelatesTo());
+        Assert.assertEquals("boom", record.getContent());
+        Assert.assertEquals(1, _capture.getRecentFaults(PROVIDER).size());
+        Assert.assertEquals(2, _capture.getRecordedCount());
+    }
+
+    @Test
+    public void testContentCopiedOnCapture() throws Exception {
+        _capture = new FaultCapture(16, OverflowPolicy.DROP, 1, 16, null);
+        StringBuilder content = new StringBuilder("original");
+        Message fault = fault(content);
+        StringBuilder large = new StringBuilder();
+        while (large.length() <= FaultCapture.MAX_CONTENT_LENGTH) {
+            large.append("0123456789");
+        }
+        Assert.assertTrue(_capture.capture(SERVICE, PROVIDER, null, null, null, fault));
+        Assert.assertTrue(_capture.capture(SERVICE, PROVIDER, null, null, null, fault(large)));
+        // the exchange moves on and changes the message
+        content.append(" changed");
+        fault.setContent("replaced");
+        Assert.assertTrue(_capture.awaitDrained(5000));
+
+        List<FaultRecord> faults = _capture.getRecentFaults();
+        Assert.assertEquals("original", faults.get(0).getContent());
+        Assert.assertEquals(FaultCapture.MAX_CONTENT_LENGTH, faults.get(1).getContent().length());
+    }
+
+    @Test
+    public void testContentConvertedOnDrainThread() throws Exception {
+        _capture = new FaultCapture(16, OverflowPolicy.DROP, 1, 16, null);
+        final AtomicReference<Thread> converted = new AtomicReference<Thread>();
+        Object content = new Object() {
+            @Override
+            public String toString() {
+                converted.set(Thread.currentThread());
+                return "converted";
+            }
+        };
+        Assert.assertTrue(_capture.capture(SERVICE, PROVIDER, null, null, null, fault(content)));
+        Assert.assertTrue(_capture.awaitDrained(5000));
+
+        Assert.assertEquals("converted", _capture.getRecentFaults().get(0).getContent());
+        Assert.assertNotNull(converted.get());
+        Assert.assertNotSame(Thread.currentThread(), converted.get());
+    }
+
+    @Test
+    public void testOverflowDrop() throws Exception {
+        assertOverflow(OverflowPolicy.DROP);
+    }
+
+    @Test
+    public void testOverflowLog() throws Exception {
+        assertOverflow(OverflowPolicy.LOG);
+    }
+
+    @Test
+    public void testHistoryIsBounded() throws Exception {
+        _capture = new FaultCapture(64, OverflowPolicy.DROP, 1, 3, null);
+        for (int i = 0; i < 10; i++) {
+            _capture.capture(SERVICE, PROVIDER, null, "id-" + i, null, fault("fault " + i));
+        }
+        Assert.assertTrue(_capture.awaitDrained(5000));
+        List<FaultRecord> faults = _capture.getRecentFaults();
+        Assert.assertEquals(3, faults.size());
+        Assert.assertEquals("fault 7", faults.get(0).getContent());
+        Assert.assertEquals("fault 9", faults.get(2).getContent());
+    }
+
+    @Test
+    public void testSampling() throws Exception {
+        QName sampled = new QName("sampled");
+        QName disabled = new QName("disabled");
+        _capture = new FaultCapture(64, OverflowPolicy.DROP, 1, 64, null);
+        _capture.setSampleRate(sampled, 3);
+        _capture.setSampleRate(disabled, 0);
+        for (int i = 0; i < 9; i++) {
+            _capture.capture(sampled, null, null, null, null, fault("s"));
+            _capture.capture(disabled, null, null, null, null, fault("d"));
+            _capture.capture(SERVICE, null, null, null, null, fault("c"));
+        }
+        Assert.assertTrue(_capture.awaitDrained(5000));
+        Assert.assertEquals(3, _capture.getRecentFaults(sampled).size());
+        Assert.assertEquals(0, _capture.getRecentFaults(disabled).size());
+        Assert.assertEquals(9, _capture.getRecentFaults(SERVICE).size());
+        Assert.assertEquals(27, _capture.getCapturedCount());
+        Assert.assertEquals(15, _capture.getSampledOutCount());
+    }
+
+    @Test
+    public void testDefaultSampleRateAppliesPerService() throws Exception {
+        _capture = new FaultCapture(64, OverflowPolicy.DROP, 2, 64, null);
+        for (int i = 0; i < 4; i++) {
+            _capture.capture(SERVICE, null, null, null, null, fault("a"));
+            _capture.capture(PROVIDER, null, null, null, null, fault("b"));
+        }
+        Assert.assertTrue(_capture.awaitDrained(5000));
+        Assert.assertEquals(2, _capture.getRecentFaults(SERVICE).size());
+        Assert.assertEquals(2, _capture.getRecentFaults(PROVIDER).size());
+    }
+
+    @Test
+    public void testJournalRolls() throws Exception {
+        _directory = File.createTempFile("faults", "");
+        _directory.delete();
+        // a record is well over 100 bytes, so each file holds one
+        _capture = new FaultCapture(64, OverflowPolicy.DROP, 1, 0,
+                new FaultJournal(_directory, 100, 3));
+        for (int i = 0; i < 5; i++) {
+            _capture.capture(SERVICE, PROVIDER, "op", "id-" + i, null,
+                    fault("a fault with content long enough to fill a journal file " + i));
+        }
+        Assert.assertTrue(_capture.awaitDrained(5000));
+        Assert.assertTrue(_capture.getRecentFaults().isEmpty());
+
+        List<FaultRecord> journaled = _capture.readJournal();
+        Assert.assertEquals(3, _directory.listFiles().length);
+        Assert.assertEquals(3, journaled.size());
+        Assert.assertEquals("id-2", journaled.get(0).getMessageId());
+        Assert.assertEquals("id-4", journaled.get(2).getMessageId());
+        Assert.assertEquals(PROVIDER, journaled.get(2).getProvider());
+        Assert.assertNull(journaled.get(2).getRelatesTo());
+        _capture.close();
+
+        // a new journal carries on after the existing files
+        FaultJournal journal = new FaultJournal(_directory, 100, 3);
+        journal.append(new FaultRecord(1L, SERVICE, null, null, "id-5", null, "after restart \u00e9"));
+        journal.close();
+        journaled = journal.read();
+        Assert.assertEquals(3, journaled.size());
+        Assert.assertEquals("id-5", journaled.get(2).getMessageId());
+        Assert.assertEquals("after restart \u00e9", journaled.get(2).getContent());
+    }
+
+    // fills the queue while the drain thread is stuck writing to the journal
+    // and checks that further faults are refused without blocking the caller
+    private void assertOverflow(OverflowPolicy policy) throws Exception {
+        _directory = File.createTempFile("faults", "");
+        _directory.delete();
+        FaultJournal journal = new FaultJournal(_directory, FaultCapture.DEFAULT_JOURNAL_FILE_SIZE, 1);
+        _capture = new FaultCapture(2, policy, 1, 16, journal);
+        // journal writes lock the journal, so holding it stops the drain thread
+        synchronized (journal) {
+            Assert.assertTrue(_capture.capture(SERVICE, PROVIDER, null, null, null, fault("blocked")));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (_capture.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertEquals(0, _capture.getPendingCount());
+
+            Assert.assertTrue(_capture.capture(SERVICE, PROVIDER, null, null, null, fault("1")));
+            Assert.assertTrue(_capture.capture(SERVICE, PROVIDER, null, null, null, fault("2")));
+            long start = System.nanoTime();
+            Assert.assertFalse(_capture.capture(SERVICE, PROVIDER, null, null, null, fault("3")));
+            Assert.assertFalse(_capture.capture(SERVICE, PROVIDER, null, null, null, fault("4")));
+            Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+            Assert.assertEquals(2, _capture.getOverflowCount());
+        }
+
+        Assert.assertTrue(_capture.awaitDrained(5000));
+        Assert.assertEquals(3, _capture.getRecordedCount());
+        List<FaultRecord> faults = _capture.getRecentFaults();
+        Assert.assertEquals(3, faults.size());
+        Assert.assertEquals("blocked", faults.get(0).getContent());
+        Assert.assertEquals("2", faults.get(2).getContent());
+    }
+
+    private static Message fault(Object content) {
+        return new DefaultMessage().setContent(content);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.fault;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FaultQueueTest {
+
+    @Test
+    public void testCapacityRoundedUp() {
+        Assert.assertEquals(8, new FaultQueue<Integer>(5).capacity());
+        Assert.assertEquals(8, new FaultQueue<Integer>(8).capacity());
+        Assert.assertEquals(2, new FaultQueue<Integer>(0).capacity());
+    }
+
+    @Test
+    public void testOfferFailsWhenFull() {
+        FaultQueue<Integer> queue = new FaultQueue<Integer>(4);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertFalse(queue.offer(4));
+        Assert.assertEquals(4, queue.size());
+
+        // FIFO, and space is reusable once taken
+        Assert.assertEquals(Integer.valueOf(0), queue.poll());
+        Assert.assertTrue(queue.offer(5));
+        for (int expected : new int[] {1, 2, 3, 5}) {
+            Assert.assertEquals(Integer.valueOf(expected), queue.poll());
+        }
+        Assert.assertNull(queue.poll());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final FaultQueue<Integer> queue = new FaultQueue<Integer>(64);
+        final int producers = 4;
+        final int perProducer = 10000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < producers; t++) {
+            final int base = t * perProducer;
+            threads.add(new Thread() {
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!queue.offer(base + i)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Set<Integer> seen = new HashSet<Integer>();
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        while (seen.size() < producers * perProducer) {
+            Integer value = queue.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            Assert.assertTrue("duplicate " + value, seen.add(value));
+            // each producer's elements come out in the order they went in
+            int producer = value / perProducer;
+            Assert.assertTrue(value % perProducer > last[producer]);
+            last[producer] = value % perProducer;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(queue.poll());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.runtime.limit.AdaptiveConcurrencyLimiter.Permit;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void testInitialLimitWithinBounds() {
+        Assert.assertEquals(AdaptiveConcurrencyLimiter.DEFAULT_INITIAL_LIMIT,
+                new AdaptiveConcurrencyLimiter(1, 100, 0).getLimit());
+        Assert.assertEquals(5, new AdaptiveConcurrencyLimiter(1, 5, 0).getLimit());
+        Assert.assertEquals(30, new AdaptiveConcurrencyLimiter(30, 50, 0).getLimit());
+    }
+
+    @Test
+    public void testLimitGrowsWhileLatencyHolds() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 100, 0);
+        for (int i = 0; i < 100; i++) {
+            limiter.sample(1000, limiter.getLimit());
+        }
+        Assert.assertEquals(100, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitShrinksWhenLatencyRises() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 100, 0);
+        for (int i = 0; i < 100; i++) {
+            limiter.sample(1000, limiter.getLimit());
+        }
+        int previous = limiter.getLimit();
+        for (int i = 0; i < 10; i++) {
+            limiter.sample(4000, limiter.getLimit());
+            Assert.assertTrue(limiter.getLimit() <= previous);
+            previous = limiter.getLimit();
+        }
+        for (int i = 0; i < 100; i++) {
+            limiter.sample(4000, limiter.getLimit());
+        }
+        Assert.assertTrue("limit " + limiter.getLimit(), limiter.getLimit() < 10);
+        Assert.assertTrue(limiter.getLimit() >= 2);
+    }
+
+    @Test
+    public void testLimitHoldsWhenUnderused() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 100, 0);
+        for (int i = 0; i < 100; i++) {
+            limiter.sample(1000, 1);
+        }
+        Assert.assertEquals(AdaptiveConcurrencyLimiter.DEFAULT_INITIAL_LIMIT, limiter.getLimit());
+    }
+
+    @Test
+    public void testRejectsAtLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 2, 0);
+        Permit first = limiter.acquire();
+        Assert.assertNotNull(first);
+        Assert.assertNotNull(limiter.acquire());
+        Assert.assertNull(limiter.acquire());
+        Assert.assertEquals(2, limiter.getInFlight());
+        Assert.assertEquals(1, limiter.getRejectedCount());
+
+        first.release();
+        // releasing twice has no effect
+        first.release();
+        Assert.assertEquals(1, limiter.getInFlight());
+        Assert.assertNotNull(limiter.acquire());
+        Assert.assertNull(limiter.acquire());
+        Assert.assertEquals(2, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testWaitsForRelease() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10000);
+        final Permit held = limiter.acquire();
+        Thread releaser = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                held.release();
+            }
+        };
+        releaser.start();
+        Assert.assertNotNull(limiter.acquire());
+        releaser.join();
+        Assert.assertEquals(0, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testWaitIsBounded() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 50);
+        Assert.assertNotNull(limiter.acquire());
+        long start = System.currentTimeMillis();
+        Assert.assertNull(limiter.acquire());
+        Assert.assertTrue(System.currentTimeMillis() - start >= 45);
+        Assert.assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testHasSettings() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(0, 10, -1);
+        Assert.assertTrue(limiter.hasSettings(1, 10, 0));
+        Assert.assertFalse(limiter.hasSettings(1, 20, 0));
+        Assert.assertFalse(limiter.hasSettings(1, 10, 100));
+    }
+}
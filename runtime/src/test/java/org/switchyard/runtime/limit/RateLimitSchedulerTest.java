@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.limit;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for RateLimitScheduler.
+ */
+public class RateLimitSchedulerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private RateLimitScheduler _scheduler = new RateLimitScheduler("test", 1);
+
+    @After
+    public void tearDown() {
+        _scheduler.shutdown();
+    }
+
+    @Test
+    public void testSchedule() throws Exception {
+        final ClassLoader loader = new URLClassLoader(new URL[0]);
+        final AtomicReference<ClassLoader> seen = new AtomicReference<ClassLoader>();
+        final CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+        ClassLoader previous = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            _scheduler.schedule(new Runnable() {
+                public void run() {
+                    seen.set(Thread.currentThread().getContextClassLoader());
+                    ran.countDown();
+                }
+            }, 50 * MILLIS);
+        } finally {
+            Thread.currentThread().setContextClassLoader(previous);
+        }
+        Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= 50 * MILLIS);
+        Assert.assertSame(loader, seen.get());
+    }
+
+    @Test
+    public void testShutdownRunsDelayedRequests() throws Exception {
+        final CountDownLatch ran = new CountDownLatch(1);
+        _scheduler.schedule(new Runnable() {
+            public void run() {
+                ran.countDown();
+            }
+        }, 50 * MILLIS);
+        _scheduler.shutdown();
+        Assert.assertTrue(_scheduler.isShutdown());
+        Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        try {
+            _scheduler.schedule(new Runnable() {
+                public void run() {
+                }
+            }, 0);
+            Assert.fail("scheduler accepted a request after shutdown");
+        } catch (RejectedExecutionException reEx) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRejectedOverMaxDelayed() throws Exception {
+        RateLimitScheduler scheduler = new RateLimitScheduler("test", 1, 2);
+        try {
+            final CountDownLatch ran = new CountDownLatch(2);
+            Runnable task = new Runnable() {
+                public void run() {
+                    ran.countDown();
+                }
+            };
+            scheduler.schedule(task, 50 * MILLIS);
+            scheduler.schedule(task, 50 * MILLIS);
+            Assert.assertEquals(2, scheduler.getDelayedCount());
+            try {
+                scheduler.schedule(task, 50 * MILLIS);
+                Assert.fail("scheduler accepted more requests than it may delay");
+            } catch (RejectedExecutionException reEx) {
+                // expected
+            }
+            Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, scheduler.getDelayedCount());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
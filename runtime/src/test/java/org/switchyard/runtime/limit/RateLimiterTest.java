@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.limit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.metadata.qos.Throttling;
+import org.switchyard.metadata.qos.Throttling.LimitAction;
+
+/**
+ * Tests for RateLimiter and its token buckets.
+ */
+public class RateLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testIsRateLimited() {
+        Assert.assertFalse(RateLimiter.isRateLimited(null));
+        Assert.assertFalse(RateLimiter.isRateLimited(new Throttling().setMaxConcurrency(5)));
+        Assert.assertTrue(RateLimiter.isRateLimited(new Throttling().setMaxRequests(5)));
+        Assert.assertTrue(RateLimiter.isRateLimited(new Throttling()
+                .setOperationThrottling("op", new Throttling().setMaxRequests(1))));
+    }
+
+    @Test
+    public void testBurstThenDelay() {
+        RateLimiter limiter = new RateLimiter(new Throttling().setMaxRequests(10).setBurst(3));
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(0, limiter.reserve(null));
+        }
+        // one token every 100ms once the burst is spent
+        long delay = limiter.reserve(null);
+        Assert.assertTrue(delay > 50 * MILLIS && delay <= 100 * MILLIS);
+        long next = limiter.reserve(null);
+        Assert.assertTrue(next > delay + 50 * MILLIS && next <= 200 * MILLIS);
+        Assert.assertEquals(3, limiter.getAdmittedCount());
+        Assert.assertEquals(2, limiter.getDelayedCount());
+        Assert.assertEquals(0, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testBurstDefaultsToMaxRequests() {
+        RateLimiter limiter = new RateLimiter(new Throttling().setMaxRequests(5).setTimePeriod(60000));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(0, limiter.reserve(null));
+        }
+        Assert.assertTrue(limiter.reserve(null) > 0);
+    }
+
+    @Test
+    public void testRejectTakesNoToken() throws Exception {
+        RateLimiter limiter = new RateLimiter(new Throttling()
+            .setMaxRequests(20).setBurst(1).setLimitAction(LimitAction.REJECT));
+        Assert.assertEquals(0, limiter.reserve(null));
+        Assert.assertEquals(-1, limiter.reserve(null));
+        Assert.assertEquals(-1, limiter.reserve(null));
+        Assert.assertEquals(2, limiter.getRejectedCount());
+        // refused requests do not push the next token further out
+        Thread.sleep(60);
+        Assert.assertEquals(0, limiter.reserve(null));
+    }
+
+    @Test
+    public void testMaxDelay() {
+        RateLimiter limiter = new RateLimiter(new Throttling()
+            .setMaxRequests(10).setBurst(1).setMaxDelay(150));
+        Assert.assertEquals(0, limiter.reserve(null));
+        Assert.assertTrue(limiter.reserve(null) > 0);
+        // a third request would wait about 200ms
+        Assert.assertEquals(-1, limiter.reserve(null));
+        Assert.assertEquals(1, limiter.getDelayedCount());
+        Assert.assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void testOperationLimit() {
+        RateLimiter limiter = new RateLimiter(new Throttling()
+            .setMaxRequests(1000).setLimitAction(LimitAction.FAULT)
+            .setOperationThrottling("slow", new Throttling().setMaxRequests(1).setTimePeriod(60000)));
+        Assert.assertEquals(0, limiter.reserve("slow"));
+        Assert.assertEquals(-1, limiter.reserve("slow"));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(0, limiter.reserve("fast"));
+            Assert.assertEquals(0, limiter.reserve(null));
+        }
+    }
+
+    @Test
+    public void testOperationTokenReturnedWhenServiceRefuses() throws Exception {
+        RateLimiter limiter = new RateLimiter(new Throttling()
+            .setMaxRequests(1).setTimePeriod(100).setLimitAction(LimitAction.REJECT)
+            .setOperationThrottling("op", new Throttling().setMaxRequests(2).setTimePeriod(60000)));
+        // the service bucket is empty after this
+        Assert.assertEquals(0, limiter.reserve(null));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(-1, limiter.reserve("op"));
+        }
+        // so the operation still has both of its tokens
+        for (int i = 0; i < 2; i++) {
+            Thread.sleep(120);
+            Assert.assertEquals(0, limiter.reserve("op"));
+        }
+        Thread.sleep(120);
+        Assert.assertEquals(-1, limiter.reserve("op"));
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.trace;
+
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.BaseHandler;
+import org.switchyard.Exchange;
+import org.switchyard.HandlerException;
+import org.switchyard.Message;
+import org.switchyard.MockDomain;
+import org.switchyard.MockHandler;
+import org.switchyard.ServiceReference;
+
+public class TracerTest {
+
+    private static final QName SERVICE = new QName("urn:test", "Traced");
+    private static final QName NESTED = new QName("urn:test", "Nested");
+
+    private MockDomain _domain;
+    private InMemorySpanExporter _exporter;
+
+    @Before
+    public void setUp() throws Exception {
+        _domain = new MockDomain();
+        _exporter = new InMemorySpanExporter();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _domain.destroy();
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        Assert.assertFalse(_domain.getTracer().isEnabled());
+        ServiceReference service = _domain.createInOutService(SERVICE, new MockHandler().forwardInToOut());
+        MockHandler consumer = new MockHandler();
+        Exchange exchange = service.createExchange(consumer);
+        exchange.send(exchange.createMessage().setContent("hello"));
+
+        Assert.assertNull(Tracer.getSpan(consumer.waitForOKMessage().getMessages().poll()));
+        Assert.assertNull(exchange.getContext().getProperty(Tracer.SPAN));
+    }
+
+    @Test
+    public void testDisabledChecksCreateNoSpans() throws Exception {
+        ServiceReference service = _domain.createInOutService(SERVICE, new MockHandler().forwardInToOut());
+        // fails if any of the checks an exchange makes creates a span
+        TracingBenchmark.runDisabledChecks(_domain, service, 100);
+    }
+
+    @Test
+    public void testClosedTracersStopCounting() throws Exception {
+        int enabled = Tracer.getEnabledCount();
+        _domain.setProperty(Tracer.EXPORTER, _exporter);
+        Tracer tracer = _domain.getTracer();
+        Assert.assertEquals(enabled + 1, Tracer.getEnabledCount());
+        Assert.assertSame(tracer, _domain.getTracer());
+
+        // replacing the exporter closes the old tracer
+        _domain.setProperty(Tracer.EXPORTER, "log");
+        Assert.assertNotSame(tracer, _domain.getTracer());
+        Assert.assertEquals(enabled + 1, Tracer.getEnabledCount());
+        tracer.close();
+        Assert.assertEquals(enabled + 1, Tracer.getEnabledCount());
+
+        _domain.setProperty(Tracer.EXPORTER, "none");
+        Assert.assertFalse(_domain.getTracer().isEnabled());
+        Assert.assertEquals(enabled, Tracer.getEnabledCount());
+
+        // so does destroying the domain
+        _domain.setProperty(Tracer.EXPORTER, _exporter);
+        _domain.getTracer();
+        Assert.assertEquals(enabled + 1, Tracer.getEnabledCount());
+        _domain.destroy();
+        Assert.assertEquals(enabled, Tracer.getEnabledCount());
+        _domain = new MockDomain();
+    }
+
+    @Test
+    public void testHandlerSpans() throws Exception {
+        _domain.setProperty(Tracer.EXPORTER, _exporter);
+        ServiceReference service = _domain.createInOutService(SERVICE, new MockHandler().forwardInToOut());
+        MockHandler consumer = new MockHandler();
+        Exchange exchange = service.createExchange(consumer);
+        exchange.send(exchange.createMessage().setContent("hello"));
+        consumer.waitForOKMessage();
+
+        Span root = single(Tracer.EXCHANGE_SPAN);
+        Assert.assertTrue(root.isFinished());
+        Assert.assertFalse(root.isFault());
+        Assert.assertEquals(0, root.getParentId());
+        Assert.assertEquals(SERVICE.toString(), root.getAttributes().get("service"));
+        for (String name : new String[] {"addressing", "security-process", "transaction-pre-invoke",
+                "transformation", "provider", "transaction-post-invoke"}) {
+            List<Span> spans = _exporter.getSpans(name);
+            Assert.assertFalse(name, spans.isEmpty());
+            for (Span span : spans) {
+                Assert.assertEquals(root.getTraceId(), span.getTraceId());
+                Assert.assertEquals(root.getSpanId(), span.getParentId());
+                Assert.assertTrue(span.getDuration() >= 0);
+            }
+        }
+        // the reply runs through the reply chain under the same exchange span
+        Assert.assertEquals(2, _exporter.getSpans("transformation").size());
+    }
+
+    @Test
+    public void testNestedExchangeJoinsTrace() throws Exception {
+        _domain.setProperty(Tracer.EXPORTER, _exporter);
+        final ServiceReference nested = _domain.createInOnlyService(NESTED);
+        ServiceReference service = _domain.createInOnlyService(SERVICE, new BaseHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                Exchange call = nested.createExchange();
+                call.send(call.createMessage().setContent("nested"));
+            }
+        });
+        Exchange exchange = service.createExchange();
+        exchange.send(exchange.createMessage().setContent("hello"));
+
+        List<Span> exchanges = _exporter.getSpans(Tracer.EXCHANGE_SPAN);
+        Assert.assertEquals(2, exchanges.size());
+        Span outer = exchanges.get(0).getParentId() == 0 ? exchanges.get(0) : exchanges.get(1);
+        Span inner = exchanges.get(0) == outer ? exchanges.get(1) : exchanges.get(0);
+        Assert.assertEquals(NESTED.toString(), inner.getAttributes().get("service"));
+        Assert.assertEquals(outer.getTraceId(), inner.getTraceId());
+
+        // the nested exchange is a child of the provider span which sent it
+        Span provider = null;
+        for (Span span : _exporter.getSpans("provider")) {
+            if (span.getParentId() == outer.getSpanId()) {
+                provider = span;
+            }
+        }
+        Assert.assertNotNull(provider);
+        Assert.assertEquals(provider.getSpanId(), inner.getParentId());
+        Assert.assertNull(Tracer.currentSpan());
+    }
+
+    @Test
+    public void testTraceParentProperty() throws Exception {
+        _domain.setProperty(Tracer.EXPORTER, _exporter);
+        ServiceReference service = _domain.createInOnlyService(SERVICE);
+        Exchange exchange = service.createExchange();
+        Message message = exchange.createMessage().setContent("hello");
+        exchange.getContext().setProperty(Tracer.TRACE_PARENT, "00000000000000ab-00000000000000cd");
+        exchange.send(message);
+
+        Span root = single(Tracer.EXCHANGE_SPAN);
+        Assert.assertEquals(0xab, root.getTraceId());
+        Assert.assertEquals(0xcd, root.getParentId());
+        Assert.assertEquals(0xab, _exporter.getSpans("provider").get(0).getTraceId());
+    }
+
+    @Test
+    public void testInvalidTraceParentStartsNewTrace() throws Exception {
+        _domain.setProperty(Tracer.EXPORTER, _exporter);
+        ServiceReference service = _domain.createInOnlyService(SERVICE);
+        Exchange exchange = service.createExchange();
+        Message message = exchange.createMessage().setContent("hello");
+        exchange.getContext().setProperty(Tracer.TRACE_PARENT, "not-a-parent");
+        exchange.send(message);
+
+        Span root = single(Tracer.EXCHANGE_SPAN);
+        Assert.assertEquals(0, root.getParentId());
+        Assert.assertTrue(root.getTraceId() != 0);
+    }
+
+    @Test
+    public void testFaultMarksSpans() throws Exception {
+        _domain.setProperty(Tracer.EXPORTER, _exporter);
+        ServiceReference service = _domain.createInOutService(SERVICE, new BaseHandler() {
+            @Override
+            public void handleMessage(Exchange exchange) throws HandlerException {
+                throw new HandlerException("broken");
+            }
+        });
+        MockHandler consumer = new MockHandler();
+        Exchange exchange = service.createExchange(consumer);
+        exchange.send(exchange.createMessage().setContent("hello"));
+        consumer.waitForFaultMessage();
+
+        Span provider = _exporter.getSpans("provider").get(0);
+        Assert.assertTrue(provider.isFault());
+        Assert.assertEquals(HandlerException.class.getName(), provider.getAttributes().get("error"));
+        Assert.assertTrue(single(Tracer.EXCHANGE_SPAN).isFault());
+    }
+
+    @Test
+    public void testExporterProperty() throws Exception {
+        _domain.setProperty(Tracer.EXPORTER, "log");
+        Assert.assertTrue(_domain.getTracer().isEnabled());
+        _domain.setProperty(Tracer.EXPORTER, InMemorySpanExporter.class.getName());
+        Assert.assertTrue(_domain.getTracer().isEnabled());
+        _domain.setProperty(Tracer.EXPORTER, "none");
+        Assert.assertFalse(_domain.getTracer().isEnabled());
+        _domain.setProperty(Tracer.EXPORTER, "org.example.NoSuchExporter");
+        Assert.assertFalse(_domain.getTracer().isEnabled());
+        _domain.setProperty(Tracer.EXPORTER, null);
+        Assert.assertSame(Tracer.DISABLED, _domain.getTracer());
+    }
+
+    @Test
+    public void testFailingExporterDoesNotBreakExchange() throws Exception {
+        _domain.setProperty(Tracer.EXPORTER, new SpanExporter() {
+            @Override
+            public void export(Span span) {
+                throw new IllegalStateException("exporter down");
+            }
+        });
+        ServiceReference service = _domain.createInOutService(SERVICE, new MockHandler().forwardInToOut());
+        MockHandler consumer = new MockHandler();
+        Exchange exchange = service.createExchange(consumer);
+        exchange.send(exchange.createMessage().setContent("hello"));
+        consumer.waitForOKMessage();
+    }
+
+    private Span single(String name) {
+        List<Span> spans = _exporter.getSpans(name);
+        Assert.assertEquals(1, spans.size());
+        return spans.get(0);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.runtime.trace;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.Exchange;
+import org.switchyard.MockDomain;
+import org.switchyard.MockHandler;
+import org.switchyard.ServiceReference;
+
+/**
+ * Microbenchmark for the cost of tracing on the local bus.  It reports the
+ * time per in-out exchange with tracing off and on, and the time taken by
+ * the tracing checks an exchange makes while tracing is off.  The benchmark
+ * itself is not run as part of the build; run it from the IDE or with 'java'
+ * against the test classpath.  Tracing off is measured first, because while
+ * any domain has tracing on, span lookups go on to read the exchange context.
+ * The disabled checks should stay well under a tenth of an exchange.
+ * <p/>
+ * Usage: TracingBenchmark [iterations]
+ */
+public final class TracingBenchmark {
+
+    private static final QName SERVICE = new QName("urn:test", "Benchmark");
+
+    private TracingBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional iteration count
+     * @throws Exception on failure
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        MockDomain domain = new MockDomain();
+        ServiceReference service = domain.createInOutService(SERVICE, new MockHandler().forwardInToOut());
+        for (int round = 0; round < 3; round++) {
+            long exchange = runExchanges(service, iterations);
+            long checks = runDisabledChecks(domain, service, iterations * 10);
+            System.out.println("off: exchange=" + exchange + " ns/exchange checks=" + checks
+                    + " ns/exchange (" + (100 * checks / Math.max(1, exchange)) + "% of an exchange)");
+        }
+        domain.setProperty(Tracer.EXPORTER, new SpanExporter() {
+            @Override
+            public void export(Span span) {
+            }
+        });
+        for (int round = 0; round < 3; round++) {
+            System.out.println("on:  exchange=" + runExchanges(service, iterations) + " ns/exchange");
+        }
+    }
+
+    // average wall-clock time per exchange, including the reply
+    static long runExchanges(ServiceReference service, int iterations) {
+        MockHandler consumer = new MockHandler();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Exchange exchange = service.createExchange(consumer);
+            exchange.send(exchange.createMessage().setContent("benchmark"));
+            consumer.getMessages().clear();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    // what ExchangeImpl and the request and reply chains do for tracing on each exchange
+    static long runDisabledChecks(MockDomain domain, ServiceReference service, int iterations) {
+        Exchange exchange = service.createExchange(new MockHandler());
+        int spans = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (Tracer.forDomain(domain).startExchange(exchange) != null) {
+                spans++;
+            }
+            if (Tracer.getSpan(exchange) != null) {
+                spans++;
+            }
+            if (Tracer.getSpan(exchange) != null) {
+                spans++;
+            }
+            Tracer.finishExchange(exchange);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (spans != 0) {
+            throw new IllegalStateException("tracing is on");
+        }
+        return elapsed / iterations;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.security.context;
+
+import java.util.Collections;
+
+import javax.xml.namespace.QName;
+
+import org.switchyard.Exchange;
+import org.switchyard.ServiceSecurity;
+import org.switchyard.internal.DefaultServiceRegistry;
+import org.switchyard.internal.DomainImpl;
+import org.switchyard.internal.EventManager;
+import org.switchyard.internal.ExchangeImpl;
+import org.switchyard.internal.LocalExchangeBus;
+import org.switchyard.internal.transform.BaseTransformerRegistry;
+import org.switchyard.internal.validate.BaseValidatorRegistry;
+import org.switchyard.security.credential.NameCredential;
+import org.switchyard.security.credential.PasswordCredential;
+import org.switchyard.security.crypto.PrivateCrypto;
+import org.switchyard.security.principal.GroupPrincipal;
+import org.switchyard.security.principal.RolePrincipal;
+import org.switchyard.security.principal.UserPrincipal;
+import org.switchyard.security.service.DefaultServiceDomainSecurity;
+import org.switchyard.security.system.DefaultSystemSecurity;
+
+/**
+ * Microbenchmark for the security context handling done by the security and
+ * provider handlers on each hop of an invocation chain: getting the context
+ * from one exchange and setting it on the next.  This is not run as part of
+ * the build; run it from the IDE or with 'java' against the test classpath.
+ * <p/>
+ * Usage: SecurityContextBenchmark [iterations]
+ */
+public final class SecurityContextBenchmark {
+
+    private SecurityContextBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional iteration count
+     */
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        DefaultSystemSecurity systemSecurity = new DefaultSystemSecurity(null, new PrivateCrypto("AES", 128), null);
+        DomainImpl domain = new DomainImpl(new QName("urn:benchmark", "SecurityContextBenchmark"),
+                new DefaultServiceRegistry(),
+                new LocalExchangeBus(),
+                new BaseTransformerRegistry(),
+                new BaseValidatorRegistry(),
+                new EventManager(),
+                new DefaultServiceDomainSecurity(Collections.<String, ServiceSecurity>emptyMap(), systemSecurity));
+        SecurityContextManager manager = new SecurityContextManager(domain);
+        SecurityContext context = new DefaultSecurityContext(systemSecurity.getUUID(), null);
+        context.getCredentials().add(new NameCredential("user"));
+        context.getCredentials().add(new PasswordCredential("password"));
+        context.getSubject("benchmark").getPrincipals().add(new UserPrincipal("user"));
+        GroupPrincipal roles = new GroupPrincipal("Roles");
+        roles.addMember(new RolePrincipal("role"));
+        context.getSubject("benchmark").getPrincipals().add(roles);
+        Exchange first = new ExchangeImpl(domain, null);
+        manager.setContext(first, context);
+
+        for (int round = 0; round < 3; round++) {
+            System.out.println("propagate: " + propagate(domain, manager, first, iterations) + " ns/hop");
+            System.out.println("get/set:   " + getSet(manager, first, iterations) + " ns/hop");
+        }
+    }
+
+    // consumer side: copy the context from the current exchange to a new one
+    private static long propagate(DomainImpl domain, SecurityContextManager manager, Exchange from, int iterations) {
+        Exchange[] exchanges = new Exchange[iterations];
+        for (int i = 0; i < iterations; i++) {
+            exchanges[i] = new ExchangeImpl(domain, null);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            manager.propagateContext(from, exchanges[i]);
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    // provider side: get the context, check it, and set it back
+    private static long getSet(SecurityContextManager manager, Exchange exchange, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            SecurityContext context = manager.getContext(exchange);
+            if (!context.isCallerInRole("role", "benchmark")) {
+                throw new IllegalStateException();
+            }
+            manager.setContext(exchange, context);
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+}
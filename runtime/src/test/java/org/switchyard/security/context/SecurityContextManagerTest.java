@@ -0,0 +1,185 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.security.context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+
+import javax.crypto.SealedObject;
+import javax.xml.namespace.QName;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.switchyard.Exchange;
+import org.switchyard.Scope;
+import org.switchyard.ServiceSecurity;
+import org.switchyard.internal.DefaultServiceRegistry;
+import org.switchyard.internal.DomainImpl;
+import org.switchyard.internal.EventManager;
+import org.switchyard.internal.ExchangeImpl;
+import org.switchyard.internal.LocalExchangeBus;
+import org.switchyard.internal.transform.BaseTransformerRegistry;
+import org.switchyard.internal.validate.BaseValidatorRegistry;
+import org.switchyard.security.credential.Credential;
+import org.switchyard.security.credential.NameCredential;
+import org.switchyard.security.credential.PasswordCredential;
+import org.switchyard.security.crypto.PrivateCrypto;
+import org.switchyard.security.principal.UserPrincipal;
+import org.switchyard.security.service.DefaultServiceDomainSecurity;
+import org.switchyard.security.system.DefaultSystemSecurity;
+
+/**
+ * Tests for sealing and unsealing in SecurityContextManager.
+ */
+public class SecurityContextManagerTest {
+
+    private static final String EXCHANGE_PROPERTY = SecurityContext.class.getName();
+
+    private DomainImpl _domain;
+    private SecurityContextManager _manager;
+
+    @Before
+    public void setUp() {
+        DefaultSystemSecurity systemSecurity = new DefaultSystemSecurity(null, new PrivateCrypto("AES", 128), null);
+        _domain = new DomainImpl(new QName("urn:switchyard:test", "SecurityContextManagerTest"),
+                new DefaultServiceRegistry(),
+                new LocalExchangeBus(),
+                new BaseTransformerRegistry(),
+                new BaseValidatorRegistry(),
+                new EventManager(),
+                new DefaultServiceDomainSecurity(Collections.<String, ServiceSecurity>emptyMap(), systemSecurity));
+        _manager = new SecurityContextManager(_domain);
+    }
+
+    @Test
+    public void roundTrip() {
+        Exchange exchange = newExchange();
+        SecurityContext expected = newContext();
+        _manager.setContext(exchange, expected);
+        Assert.assertTrue(getSealedObject(exchange) instanceof SealedObject);
+        SecurityContext actual = _manager.getContext(exchange, false);
+        Assert.assertEquals(expected, actual);
+        // unsealed to a fresh context on another exchange
+        Exchange other = newExchange();
+        other.getContext().setProperty(EXCHANGE_PROPERTY, plain(getSealedObject(exchange)), Scope.EXCHANGE);
+        Assert.assertEquals(expected, _manager.getContext(other, false));
+    }
+
+    @Test
+    public void unchangedContextIsNotSealedAgain() {
+        Exchange exchange = newExchange();
+        SecurityContext context = newContext();
+        _manager.setContext(exchange, context);
+        Object sealed = getSealedObject(exchange);
+
+        Exchange propagated = newExchange();
+        _manager.propagateContext(exchange, propagated);
+        Assert.assertSame(sealed, getSealedObject(propagated));
+        Assert.assertEquals(context, _manager.getContext(propagated, false));
+        _manager.setContext(propagated, context);
+        Assert.assertSame(sealed, getSealedObject(propagated));
+    }
+
+    @Test
+    public void unsealedContextIsKeptPerExchange() {
+        Exchange exchange = newExchange();
+        _manager.setContext(exchange, newContext());
+        SecurityContext context = _manager.getContext(exchange, false);
+        Assert.assertSame(context, _manager.getContext(exchange, false));
+
+        // propagated exchanges share the sealed context, but not the unsealed one
+        Exchange propagated = newExchange();
+        _manager.propagateContext(exchange, propagated);
+        Assert.assertSame(getSealedObject(exchange), getSealedObject(propagated));
+        SecurityContext propagatedContext = _manager.getContext(propagated, false);
+        Assert.assertNotSame(context, propagatedContext);
+        Assert.assertEquals(context, propagatedContext);
+
+        _manager.addCredentials(propagated, Collections.<Credential>singleton(new NameCredential("propagated")));
+        Assert.assertSame(propagatedContext, _manager.getContext(propagated, false));
+        Assert.assertTrue(propagatedContext.getCredentials().contains(new NameCredential("propagated")));
+        Assert.assertNotSame(getSealedObject(exchange), getSealedObject(propagated));
+        Assert.assertFalse(_manager.getContext(exchange, false).getCredentials().contains(new NameCredential("propagated")));
+        Assert.assertEquals(newContext(), _manager.getContext(exchange, false));
+    }
+
+    @Test
+    public void changedContextIsSealedAgain() {
+        Exchange exchange = newExchange();
+        SecurityContext context = newContext();
+        _manager.setContext(exchange, context);
+        Object sealed = getSealedObject(exchange);
+
+        // changed through a reference held on to from earlier
+        context.getSubject("test").getPrincipals().add(new UserPrincipal("other"));
+        Exchange propagated = newExchange();
+        _manager.setContext(propagated, context);
+        Object resealed = getSealedObject(propagated);
+        Assert.assertNotSame(sealed, resealed);
+
+        Exchange other = newExchange();
+        other.getContext().setProperty(EXCHANGE_PROPERTY, plain((SealedObject)resealed), Scope.EXCHANGE);
+        Assert.assertEquals(context, _manager.getContext(other, false));
+    }
+
+    @Test
+    public void changesAreNotVisibleUntilSet() {
+        Exchange exchange = newExchange();
+        SecurityContext context = newContext();
+        _manager.setContext(exchange, context);
+        SecurityContext expected = _manager.getContext(exchange, false);
+        Assert.assertEquals(context, expected);
+
+        context.getCredentials().add(new NameCredential("changed"));
+        SecurityContext actual = _manager.getContext(exchange, false);
+        Assert.assertNotSame(context, actual);
+        Assert.assertFalse(actual.getCredentials().contains(new NameCredential("changed")));
+        Assert.assertEquals(newContext(), actual);
+    }
+
+    @Test
+    public void sealedContextIsWrittenAsSealedObject() throws Exception {
+        Exchange exchange = newExchange();
+        _manager.setContext(exchange, newContext());
+        SealedObject sealed = getSealedObject(exchange);
+        Assert.assertTrue(sealed instanceof SealedSecurityContext);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(sealed);
+        oos.close();
+        Assert.assertEquals(-1, baos.toString("ISO-8859-1").indexOf(SealedSecurityContext.class.getName()));
+    }
+
+    private Exchange newExchange() {
+        return new ExchangeImpl(_domain, null);
+    }
+
+    private SecurityContext newContext() {
+        DefaultSecurityContext context = new DefaultSecurityContext(_domain.getServiceDomainSecurity().getSystemSecurity().getUUID(), null);
+        context.getCredentials().add(new NameCredential("user"));
+        context.getCredentials().add(new PasswordCredential("password"));
+        context.getSubject("test").getPrincipals().add(new UserPrincipal("user"));
+        return context;
+    }
+
+    private SealedObject getSealedObject(Exchange exchange) {
+        return (SealedObject)exchange.getContext().getPropertyValue(EXCHANGE_PROPERTY);
+    }
+
+    private SealedObject plain(SealedObject sealed) {
+        return ((SealedSecurityContext)sealed).getSealedObject();
+    }
+}
@@ -47,6 +47,7 @@ public final class DefaultSecurityContext implements SecurityContext {
     private final long _expirationMillis; // this is not included in equals() and hashCode()
     private final Set<Credential> _credentials = Collections.synchronizedSet(new LinkedHashSet<Credential>());
     private final Map<String, Subject> _securityDomainsToSubjects = Collections.synchronizedMap(new TreeMap<String, Subject>());
+    private transient volatile SealedSecurityContext _sealed; // the last sealed form of this context
 
     /**
      * Constructs a new DefaultSecurityContext with no timeout.
@@ -197,6 +198,22 @@ public final class DefaultSecurityContext implements SecurityContext {
         return false;
     }
 
+    /**
+     * Gets the last sealed form of this context, which may no longer match its contents.
+     * @return the sealed context, or null if this context has not been sealed
+     */
+    SealedSecurityContext getSealed() {
+        return _sealed;
+    }
+
+    /**
+     * Sets the last sealed form of this context.
+     * @param sealed the sealed context
+     */
+    void setSealed(SealedSecurityContext sealed) {
+        _sealed = sealed;
+    }
+
     /**
      * {@inheritDoc}
      */
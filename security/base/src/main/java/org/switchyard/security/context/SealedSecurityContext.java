@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.security.context;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.util.Arrays;
+
+import javax.crypto.SealedObject;
+
+import org.switchyard.SwitchYardException;
+import org.switchyard.security.crypto.PrivateCrypto;
+
+/**
+ * A sealed security context which remembers the serialized form of the context it was sealed from,
+ * so the context only has to be sealed again when its contents have actually changed, and copies
+ * of it can be made without unsealing.
+ * <p/>
+ * The serialized form is compared rather than relying on change tracking in the context itself,
+ * since a context hands out its live credentials and Subjects, which callers are free to hold on
+ * to and modify. Serializing a context costs a fraction of sealing or unsealing it.
+ * <p/>
+ * Instances never hold on to a live context, so one can safely be shared by several exchanges.
+ * <p/>
+ * Instances are written out as the plain SealedObject they were created from.
+ *
+ * @author David Ward &lt;<a href="mailto:dward@jboss.org">dward@jboss.org</a>&gt; &copy; 2013 Red Hat Inc.
+ */
+final class SealedSecurityContext extends SealedObject {
+
+    private static final long serialVersionUID = 6514837352081637293L;
+
+    private final transient SealedObject _sealedObject;
+    private final transient PrivateCrypto _privateCrypto;
+    private final transient int _contentHashCode;
+    private final transient byte[] _content;
+
+    private SealedSecurityContext(SealedObject sealedObject, PrivateCrypto privateCrypto, int contentHashCode, byte[] content) {
+        super(sealedObject);
+        _sealedObject = sealedObject;
+        _privateCrypto = privateCrypto;
+        _contentHashCode = contentHashCode;
+        _content = content;
+    }
+
+    /**
+     * Seals the specified security context.
+     * @param privateCrypto the private crypto
+     * @param securityContext the security context
+     * @return the sealed security context
+     */
+    static SealedSecurityContext seal(PrivateCrypto privateCrypto, SecurityContext securityContext) {
+        // the content is captured before sealing, so a concurrent change can only cause an extra seal later
+        int contentHashCode = securityContext.hashCode();
+        byte[] content = toBytes(securityContext);
+        SealedObject sealedObject = privateCrypto.seal(securityContext);
+        return new SealedSecurityContext(sealedObject, privateCrypto, contentHashCode, content);
+    }
+
+    /**
+     * Gets the plain SealedObject this was created from.
+     * @return the sealed object
+     */
+    SealedObject getSealedObject() {
+        return _sealedObject;
+    }
+
+    /**
+     * Whether this was sealed by the specified private crypto.
+     * @param privateCrypto the private crypto
+     * @return true if this was sealed by the private crypto
+     */
+    boolean isSealedBy(PrivateCrypto privateCrypto) {
+        return _privateCrypto == privateCrypto;
+    }
+
+    /**
+     * Creates a new copy of the sealed security context from its serialized form, without unsealing.
+     * @return the security context
+     */
+    SecurityContext copy() {
+        try {
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(_content));
+            try {
+                return (SecurityContext)ois.readObject();
+            } finally {
+                ois.close();
+            }
+        } catch (IOException ioe) {
+            throw new SwitchYardException(ioe);
+        } catch (ClassNotFoundException cnfe) {
+            throw new SwitchYardException(cnfe);
+        }
+    }
+
+    /**
+     * Whether the contents of the specified security context are still the sealed contents.
+     * @param securityContext the security context
+     * @return true if the sealed contents match
+     */
+    boolean matches(SecurityContext securityContext) {
+        return securityContext.hashCode() == _contentHashCode && Arrays.equals(toBytes(securityContext), _content);
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return _sealedObject;
+    }
+
+    private static byte[] toBytes(SecurityContext securityContext) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            oos.writeObject(securityContext);
+            oos.flush();
+            return baos.toByteArray();
+        } catch (IOException ioe) {
+            throw new SwitchYardException(ioe);
+        }
+    }
+
+}
@@ -39,6 +39,7 @@ public final class SecurityContextManager {
 
     private static final String FORMAT = SecurityContextManager.class.getSimpleName() + "@%s[systemSecurity=%s]";
     private static final String EXCHANGE_PROPERTY = SecurityContext.class.getName();
+    private static final String UNSEALED_EXCHANGE_PROPERTY = EXCHANGE_PROPERTY + ".unsealed";
     private static final ThreadLocal<SecurityContext> THREAD_LOCAL = new InheritableThreadLocal<SecurityContext>();
 
     private SystemSecurity _systemSecurity = null;
@@ -86,7 +87,7 @@ public final class SecurityContextManager {
                 if (privateCrypto == null) {
                     throw new IllegalStateException("privateCrypto == null");
                 }
-                securityContext = (SecurityContext)privateCrypto.unseal((SealedObject)object);
+                securityContext = unseal(exchange, privateCrypto, (SealedObject)object);
             } else if (object != null) {
                 throw new IllegalArgumentException(object.getClass().getName() + " != " + EXCHANGE_PROPERTY);
             }
@@ -110,13 +111,72 @@ public final class SecurityContextManager {
         if (object != null) {
             PrivateCrypto privateCrypto = _systemSecurity.getPrivateCrypto();
             if (privateCrypto != null) {
-                object = privateCrypto.seal(object);
+                object = seal(privateCrypto, securityContext);
             }
         }
         Property property = exchange.getContext().setProperty(EXCHANGE_PROPERTY, object, Scope.EXCHANGE);
         if (property != null) {
             property.addLabels(BehaviorLabel.TRANSIENT.label());
         }
+        // the context keeps being this exchange's own only if it was unsealed for this exchange
+        if (object instanceof SealedObject) {
+            UnsealedSecurityContext unsealed = getUnsealed(exchange);
+            if (unsealed != null && unsealed.getSecurityContext() == securityContext) {
+                setUnsealed(exchange, new UnsealedSecurityContext((SealedObject)object, securityContext));
+            }
+        }
+    }
+
+    // each exchange unseals its own copy of the context, which is kept until a different sealed context is set
+    private SecurityContext unseal(Exchange exchange, PrivateCrypto privateCrypto, SealedObject sealedObject) {
+        UnsealedSecurityContext unsealed = getUnsealed(exchange);
+        if (unsealed != null && unsealed.getSealedObject() == sealedObject) {
+            return unsealed.getSecurityContext();
+        }
+        SecurityContext securityContext;
+        if (sealedObject instanceof SealedSecurityContext && ((SealedSecurityContext)sealedObject).isSealedBy(privateCrypto)) {
+            SealedSecurityContext sealedSecurityContext = (SealedSecurityContext)sealedObject;
+            securityContext = sealedSecurityContext.copy();
+            if (securityContext instanceof DefaultSecurityContext) {
+                ((DefaultSecurityContext)securityContext).setSealed(sealedSecurityContext);
+            }
+        } else {
+            securityContext = (SecurityContext)privateCrypto.unseal(sealedObject);
+        }
+        setUnsealed(exchange, new UnsealedSecurityContext(sealedObject, securityContext));
+        return securityContext;
+    }
+
+    private UnsealedSecurityContext getUnsealed(Exchange exchange) {
+        Property property = exchange.getContext().getProperty(UNSEALED_EXCHANGE_PROPERTY, Scope.EXCHANGE);
+        if (property != null && property.getValue() instanceof UnsealedSecurityContext) {
+            return (UnsealedSecurityContext)property.getValue();
+        }
+        return null;
+    }
+
+    private void setUnsealed(Exchange exchange, UnsealedSecurityContext unsealed) {
+        Property property = exchange.getContext().setProperty(UNSEALED_EXCHANGE_PROPERTY, unsealed, Scope.EXCHANGE);
+        if (property != null) {
+            property.addLabels(BehaviorLabel.TRANSIENT.label());
+        }
+    }
+
+    // only seals again if the context has been changed since it was last sealed or unsealed
+    private SealedObject seal(PrivateCrypto privateCrypto, SecurityContext securityContext) {
+        DefaultSecurityContext defaultSecurityContext = null;
+        if (securityContext instanceof DefaultSecurityContext) {
+            defaultSecurityContext = (DefaultSecurityContext)securityContext;
+            SealedSecurityContext sealedSecurityContext = defaultSecurityContext.getSealed();
+            if (sealedSecurityContext != null && sealedSecurityContext.isSealedBy(privateCrypto) && sealedSecurityContext.matches(securityContext)) {
+                return sealedSecurityContext;
+            }
+        }
+        SealedSecurityContext sealedSecurityContext = SealedSecurityContext.seal(privateCrypto, securityContext);
+        if (defaultSecurityContext != null) {
+            defaultSecurityContext.setSealed(sealedSecurityContext);
+        }
+        return sealedSecurityContext;
     }
 
     /**
@@ -158,4 +218,25 @@ public final class SecurityContextManager {
         return String.format(FORMAT, System.identityHashCode(this), _systemSecurity);
     }
 
+    // an exchange's own unsealed context, along with the sealed context it was unsealed from
+    private static final class UnsealedSecurityContext {
+
+        private final SealedObject _sealedObject;
+        private final SecurityContext _securityContext;
+
+        private UnsealedSecurityContext(SealedObject sealedObject, SecurityContext securityContext) {
+            _sealedObject = sealedObject;
+            _securityContext = securityContext;
+        }
+
+        private SealedObject getSealedObject() {
+            return _sealedObject;
+        }
+
+        private SecurityContext getSecurityContext() {
+            return _securityContext;
+        }
+
+    }
+
 }
@@ -14,6 +14,7 @@
 package org.switchyard.security.crypto;
 
 import java.io.Serializable;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 import java.util.Properties;
@@ -44,6 +45,8 @@ public final class PrivateCrypto {
 
     private String _sealAlgorithm = null;
     private SecretKey _secretKey = null;
+    // Cipher.getInstance is a provider lookup, and Ciphers are not thread-safe
+    private final ThreadLocal<Cipher> _cipher = new ThreadLocal<Cipher>();
 
     /**
      * Creates a new PrivateCrypto with the specified properties.
@@ -101,7 +104,7 @@ public final class PrivateCrypto {
      */
     public SealedObject seal(Serializable object) {
         try {
-            Cipher cipher = Cipher.getInstance(_sealAlgorithm);
+            Cipher cipher = getCipher();
             cipher.init(Cipher.ENCRYPT_MODE, _secretKey);
             return new SealedObject(object, cipher);
         } catch (Exception e) {
@@ -116,7 +119,7 @@ public final class PrivateCrypto {
      */
     public Serializable unseal(SealedObject object) {
         try {
-            Cipher cipher = Cipher.getInstance(_sealAlgorithm);
+            Cipher cipher = getCipher();
             cipher.init(Cipher.DECRYPT_MODE, _secretKey);
             return (Serializable)object.getObject(cipher);
         } catch (Exception e) {
@@ -124,6 +127,15 @@ public final class PrivateCrypto {
         }
     }
 
+    private Cipher getCipher() throws GeneralSecurityException {
+        Cipher cipher = _cipher.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(_sealAlgorithm);
+            _cipher.set(cipher);
+        }
+        return cipher;
+    }
+
     /**
      * {@inheritDoc}
      */
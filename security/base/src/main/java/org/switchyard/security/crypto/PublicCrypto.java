@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -61,6 +62,8 @@ public final class PublicCrypto {
     private Key _key = null;
     private PublicKey _publicKey = null;
     private String _keyTransformation = null;
+    // Cipher.getInstance is a provider lookup, and Ciphers are not thread-safe
+    private final ThreadLocal<Cipher> _cipher = new ThreadLocal<Cipher>();
 
     /**
      * Creates a new PublicCrypto with the specified properties.
@@ -125,7 +128,7 @@ public final class PublicCrypto {
             ByteArrayInputStream objIn = new ByteArrayInputStream(toBytes(object));
             byte[] buf = Buffers.newDefaultBuffer();
             int bufLength;
-            Cipher cipher = Cipher.getInstance(_keyTransformation);
+            Cipher cipher = getCipher();
             cipher.init(Cipher.ENCRYPT_MODE, _publicKey);
             while ((bufLength = objIn.read(buf)) != -1) {
                 byte[] encBytes = cipher.doFinal(copyBytes(buf, bufLength));
@@ -149,7 +152,7 @@ public final class PublicCrypto {
             ByteArrayOutputStream decOut = new ByteArrayOutputStream();
             byte[] buf = Buffers.newDefaultBuffer();
             int bufLength;
-            Cipher cipher = Cipher.getInstance(_keyTransformation);
+            Cipher cipher = getCipher();
             cipher.init(Cipher.DECRYPT_MODE, _key);
             while ((bufLength = encIn.read(buf)) != -1) {
                 byte[] decBytes = cipher.doFinal(copyBytes(buf, bufLength));
@@ -162,6 +165,15 @@ public final class PublicCrypto {
         }
     }
 
+    private Cipher getCipher() throws GeneralSecurityException {
+        Cipher cipher = _cipher.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(_keyTransformation);
+            _cipher.set(cipher);
+        }
+        return cipher;
+    }
+
     private byte[] copyBytes(byte[] src, int length) {
         if (src.length == length) {
             return src;
@@ -0,0 +1,471 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.serial.graph;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+import javax.activation.DataSource;
+import javax.xml.namespace.QName;
+
+import org.switchyard.common.type.reflect.Access;
+import org.switchyard.common.type.reflect.FieldAccess;
+import org.switchyard.common.type.reflect.MethodAccess;
+
+/**
+ * Introspection results for a class, computed once and shared by every graph.
+ * <p/>
+ * Metadata is cached per ClassLoader.  The cache holds class loaders and classes
+ * weakly and the metadata itself softly.  Since metadata refers to its class,
+ * a loader's entries are only released under memory pressure unless they are
+ * dropped with {@link #evict(ClassLoader)}, which deployments do when they are
+ * destroyed.
+ */
+public final class ClassMetadata {
+
+    /**
+     * How objects of a class are represented in a graph.
+     */
+    public enum Kind {
+        /** Stored as-is. */
+        SIMPLE,
+        /** Array of simple values, stored as-is. */
+        SIMPLE_ARRAY,
+        /** Array of other values. */
+        ARRAY,
+        /** A Class. */
+        CLASS,
+        /** A Collection. */
+        COLLECTION,
+        /** A Map. */
+        MAP,
+        /** A DOM node. */
+        DOM,
+        /** A QName. */
+        QNAME,
+        /** A DataSource. */
+        DATA_SOURCE,
+        /** An InputStream. */
+        INPUT_STREAM,
+        /** A UUID. */
+        UUID,
+        /** A StackTraceElement. */
+        STACK_TRACE_ELEMENT,
+        /** A Throwable which can be created by its factory. */
+        THROWABLE,
+        /** Any other object which can be created by its factory. */
+        ACCESS,
+        /** Not serialized. */
+        NOOP
+    }
+
+    private static final Class<?>[] SIMPLE_TYPES = new Class<?>[] {
+        Boolean.class,
+        Calendar.class,
+        Character.class,
+        CharSequence.class,
+        Date.class,
+        Number.class
+    };
+
+    private static final Set<String> IGNORED_ACCESS_NAMES;
+    private static final Set<String> THROWABLE_IGNORED_ACCESS_NAMES;
+    static {
+        Set<String> ignoredAccessNames = new HashSet<String>();
+        ignoredAccessNames.add("class");
+        ignoredAccessNames.add("ignoredAccessNames");
+        IGNORED_ACCESS_NAMES = Collections.unmodifiableSet(ignoredAccessNames);
+        Set<String> throwableIgnoredAccessNames = new HashSet<String>(ignoredAccessNames);
+        throwableIgnoredAccessNames.add("message");
+        throwableIgnoredAccessNames.add("cause");
+        throwableIgnoredAccessNames.add("stackTrace");
+        THROWABLE_IGNORED_ACCESS_NAMES = Collections.unmodifiableSet(throwableIgnoredAccessNames);
+    }
+
+    private static final Access<?>[] NO_ACCESSES = new Access<?>[0];
+
+    private static final Map<ClassLoader, Map<Class<?>, SoftReference<ClassMetadata>>> CACHE =
+            new WeakHashMap<ClassLoader, Map<Class<?>, SoftReference<ClassMetadata>>>();
+
+    private final Class<?> _clazz;
+    private final Kind _kind;
+    private final Factory<?> _factory;
+    private final boolean _supported;
+    private volatile Access<?>[] _accesses;
+    private volatile Access<?>[] _composeAccesses;
+    private volatile Constructor<?> _constructor;
+
+    private ClassMetadata(Class<?> clazz) {
+        _clazz = clazz;
+        _factory = Factory.getFactory(clazz);
+        _supported = _factory.supports(clazz);
+        Kind kind = kindOf(clazz);
+        if (kind == null) {
+            if (_supported) {
+                kind = Throwable.class.isAssignableFrom(clazz) ? Kind.THROWABLE : Kind.ACCESS;
+            } else {
+                kind = Kind.NOOP;
+            }
+        }
+        _kind = kind;
+    }
+
+    /**
+     * Gets the metadata for the specified class.
+     * @param clazz the class
+     * @return the metadata
+     */
+    public static ClassMetadata forClass(Class<?> clazz) {
+        Map<Class<?>, SoftReference<ClassMetadata>> loaderCache;
+        synchronized (CACHE) {
+            ClassLoader loader = clazz.getClassLoader();
+            loaderCache = CACHE.get(loader);
+            if (loaderCache == null) {
+                loaderCache = new WeakHashMap<Class<?>, SoftReference<ClassMetadata>>();
+                CACHE.put(loader, loaderCache);
+            }
+        }
+        SoftReference<ClassMetadata> ref;
+        synchronized (loaderCache) {
+            ref = loaderCache.get(clazz);
+        }
+        ClassMetadata metadata = ref != null ? ref.get() : null;
+        if (metadata == null) {
+            // introspect outside the lock, since factories may look up other classes
+            metadata = new ClassMetadata(clazz);
+            synchronized (loaderCache) {
+                // threads which raced to introspect all get the metadata cached first
+                ref = loaderCache.get(clazz);
+                ClassMetadata cached = ref != null ? ref.get() : null;
+                if (cached != null) {
+                    return cached;
+                }
+                loaderCache.put(clazz, new SoftReference<ClassMetadata>(metadata));
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Drops the metadata cached for the classes of a class loader, so the
+     * loader can be collected as soon as its application is undeployed.
+     * @param loader the class loader
+     */
+    public static void evict(ClassLoader loader) {
+        synchronized (CACHE) {
+            CACHE.remove(loader);
+        }
+    }
+
+    /**
+     * Gets the kind of node used for objects of the class.
+     * @return the kind
+     */
+    public Kind getKind() {
+        return _kind;
+    }
+
+    /**
+     * Gets the factory used to create objects of the class.
+     * @return the factory
+     */
+    public Factory<?> getFactory() {
+        return _factory;
+    }
+
+    /**
+     * Whether the factory supports the class.
+     * @return if the class is supported
+     */
+    public boolean isSupported() {
+        return _supported;
+    }
+
+    /**
+     * Gets every access for the class, in the order they are serialized.
+     * @return the accesses
+     */
+    public Access<?>[] getAccesses() {
+        Access<?>[] accesses = _accesses;
+        if (accesses == null) {
+            accesses = buildAccesses(_clazz);
+            _accesses = accesses;
+        }
+        return accesses;
+    }
+
+    /**
+     * Gets the accesses whose values are serialized: fields, and bean properties which can be written back.
+     * @return the accesses
+     */
+    public Access<?>[] getComposeAccesses() {
+        Access<?>[] composeAccesses = _composeAccesses;
+        if (composeAccesses == null) {
+            List<Access<?>> accessList = new ArrayList<Access<?>>();
+            for (Access<?> access : getAccesses()) {
+                if (access instanceof FieldAccess || access.isWriteable()) {
+                    accessList.add(access);
+                }
+            }
+            composeAccesses = accessList.toArray(NO_ACCESSES);
+            _composeAccesses = composeAccesses;
+        }
+        return composeAccesses;
+    }
+
+    /**
+     * Creates a new instance of the class using its no-argument constructor.
+     * @return the new instance
+     */
+    public Object newInstance() {
+        Constructor<?> constructor = _constructor;
+        if (constructor == null) {
+            try {
+                constructor = _clazz.getDeclaredConstructor();
+            } catch (NoSuchMethodException nsme1) {
+                try {
+                    constructor = _clazz.getConstructor();
+                } catch (NoSuchMethodException nsme2) {
+                    throw new RuntimeException(nsme1);
+                }
+            }
+            if (!constructor.isAccessible()) {
+                constructor.setAccessible(true);
+            }
+            _constructor = constructor;
+        }
+        try {
+            return constructor.newInstance();
+        } catch (InvocationTargetException ite) {
+            throw new RuntimeException(ite);
+        } catch (IllegalAccessException iae) {
+            throw new RuntimeException(iae);
+        } catch (InstantiationException ie) {
+            throw new RuntimeException(ie);
+        }
+    }
+
+    // the kinds which do not depend on a factory, checked in the order nodes have always been chosen
+    private static Kind kindOf(Class<?> clazz) {
+        if (isSimple(clazz)) {
+            return Kind.SIMPLE;
+        } else if (clazz.isArray()) {
+            return forClass(clazz.getComponentType()).getKind() == Kind.SIMPLE ? Kind.SIMPLE_ARRAY : Kind.ARRAY;
+        } else if (Class.class.isAssignableFrom(clazz)) {
+            return Kind.CLASS;
+        } else if (Collection.class.isAssignableFrom(clazz)) {
+            return Kind.COLLECTION;
+        } else if (Map.class.isAssignableFrom(clazz)) {
+            return Kind.MAP;
+        } else if (org.w3c.dom.Node.class.isAssignableFrom(clazz)) {
+            return Kind.DOM;
+        } else if (QName.class.isAssignableFrom(clazz)) {
+            return Kind.QNAME;
+        } else if (DataSource.class.isAssignableFrom(clazz)) {
+            return Kind.DATA_SOURCE;
+        } else if (InputStream.class.isAssignableFrom(clazz)) {
+            return Kind.INPUT_STREAM;
+        } else if (UUID.class.isAssignableFrom(clazz)) {
+            return Kind.UUID;
+        } else if (StackTraceElement.class.isAssignableFrom(clazz)) {
+            return Kind.STACK_TRACE_ELEMENT;
+        }
+        return null;
+    }
+
+    private static boolean isSimple(Class<?> clazz) {
+        if (clazz.isPrimitive() || clazz.isEnum()) {
+            return true;
+        }
+        for (Class<?> st : SIMPLE_TYPES) {
+            if (st.isAssignableFrom(clazz)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Access<?>[] buildAccesses(Class<?> clazz) {
+        List<Access<?>> accessList = new ArrayList<Access<?>>();
+        if (clazz.getAnnotation(Deprecated.class) != null) {
+            return NO_ACCESSES;
+        }
+        Set<String> ignoredAccessNames = Throwable.class.isAssignableFrom(clazz)
+                ? THROWABLE_IGNORED_ACCESS_NAMES : IGNORED_ACCESS_NAMES;
+        Strategy strategy = clazz.getAnnotation(Strategy.class);
+        AccessType accessType = strategy != null ? strategy.access() : AccessType.BEAN;
+        CoverageType coverageType = strategy != null ? strategy.coverage() : CoverageType.INCLUSIVE;
+        switch (accessType) {
+            case BEAN:
+                BeanInfo info;
+                try {
+                    info = Introspector.getBeanInfo(clazz);
+                } catch (IntrospectionException ie) {
+                    throw new RuntimeException(ie);
+                }
+                for (PropertyDescriptor desc : info.getPropertyDescriptors()) {
+                    Method readMethod = desc.getReadMethod();
+                    if (((CoverageType.INCLUSIVE.equals(coverageType)
+                            && readMethod.getAnnotation(Exclude.class) == null)
+                            || (CoverageType.EXCLUSIVE.equals(coverageType)
+                                    && readMethod.getAnnotation(Include.class) != null))
+                                    && readMethod.getAnnotation(Deprecated.class) == null) {
+                        Access access = null;
+                        Method writeMethod = desc.getWriteMethod();
+                        if (writeMethod == null) {
+                            String readName = readMethod.getName();
+                            if (readName.startsWith("get") || readName.startsWith("is")) {
+                                String writeName = "set" + (readName.startsWith("get") ? readName.substring(3) : readName.substring(2));
+                                Class<?> declaringClass = readMethod.getDeclaringClass();
+                                try {
+                                    writeMethod = declaringClass.getDeclaredMethod(writeName, desc.getPropertyType());
+                                } catch (NoSuchMethodException nsme1) {
+                                    try {
+                                        writeMethod = declaringClass.getMethod(writeName, desc.getPropertyType());
+                                    } catch (NoSuchMethodException nsme2) {
+                                        writeMethod = null;
+                                    }
+                                }
+                                if (writeMethod != null) {
+                                    Class<?> returnClass = writeMethod.getReturnType();
+                                    if (returnClass == null || returnClass.isAssignableFrom(declaringClass)) {
+                                        access = new MethodAccess(readMethod, writeMethod);
+                                    }
+                                }
+                            }
+                        }
+                        if (access == null) {
+                            access = new PropertyAccess(desc);
+                        }
+                        if (access.isReadable() && !ignoredAccessNames.contains(access.getName())) {
+                            accessList.add(access);
+                        }
+                    }
+                }
+                break;
+            case FIELD:
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (((CoverageType.INCLUSIVE.equals(coverageType)
+                            && field.getAnnotation(Exclude.class) == null)
+                            || (CoverageType.EXCLUSIVE.equals(coverageType)
+                                    && field.getAnnotation(Include.class) != null))
+                                    && field.getAnnotation(Deprecated.class) == null
+                                    && !Modifier.isTransient(field.getModifiers())) {
+                        Access access = new FieldAccess(field);
+                        if (access.isReadable()) {
+                            accessList.add(access);
+                        }
+                    }
+                }
+                break;
+        }
+        return accessList.toArray(NO_ACCESSES);
+    }
+
+    /**
+     * Bean property access which holds on to the property's methods, rather than
+     * looking them up from the PropertyDescriptor on every call.
+     */
+    private static final class PropertyAccess implements Access<Object> {
+
+        private final String _name;
+        private final Class<Object> _type;
+        private final Method _readMethod;
+        private final Method _writeMethod;
+
+        @SuppressWarnings("unchecked")
+        PropertyAccess(PropertyDescriptor desc) {
+            _name = desc.getName();
+            _type = (Class<Object>)desc.getPropertyType();
+            _readMethod = desc.getReadMethod();
+            _writeMethod = desc.getWriteMethod();
+        }
+
+        @Override
+        public String getName() {
+            return _name;
+        }
+
+        @Override
+        public Class<Object> getType() {
+            return _type;
+        }
+
+        @Override
+        public boolean isReadable() {
+            return _readMethod != null;
+        }
+
+        @Override
+        public boolean isWriteable() {
+            return _writeMethod != null;
+        }
+
+        @Override
+        public Object read(Object target) {
+            if (_readMethod != null) {
+                try {
+                    return _readMethod.invoke(target);
+                } catch (IllegalAccessException iae) {
+                    throw new RuntimeException(iae);
+                } catch (InvocationTargetException ite) {
+                    throw new RuntimeException(ite);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void write(Object target, Object value) {
+            if (_writeMethod != null) {
+                try {
+                    _writeMethod.invoke(target, value);
+                } catch (IllegalAccessException iae) {
+                    throw new RuntimeException(iae);
+                } catch (InvocationTargetException ite) {
+                    throw new RuntimeException(ite);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            String type = _type != null ? _type.getSimpleName() : null;
+            return String.format("PropertyAccess(name=%s, type=%s, readable=%b, writeable=%b)",
+                    _name, type, isReadable(), isWriteable());
+        }
+    }
+
+}
@@ -13,7 +13,6 @@
  */
 package org.switchyard.serial.graph;
 
-import org.switchyard.common.type.reflect.Construction;
 import org.switchyard.serial.graph.node.Node;
 
 /**
@@ -57,7 +56,7 @@ public class DefaultFactory<T> extends BaseFactory<T> {
     @Override
     public T create(Class<T> type, Node node) {
         if (type != null) {
-            return Construction.construct(type);
+            return type.cast(ClassMetadata.forClass(type).newInstance());
         }
         return null;
     }
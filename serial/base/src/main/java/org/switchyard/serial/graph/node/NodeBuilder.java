@@ -13,17 +13,10 @@
  */
 package org.switchyard.serial.graph.node;
 
-import java.io.InputStream;
-import java.util.Calendar;
 import java.util.Collection;
-import java.util.Date;
 import java.util.Map;
-import java.util.UUID;
 
-import javax.activation.DataSource;
-import javax.xml.namespace.QName;
-
-import org.switchyard.serial.graph.Factory;
+import org.switchyard.serial.graph.ClassMetadata;
 import org.switchyard.serial.graph.Graph;
 
 /**
@@ -33,15 +26,6 @@ import org.switchyard.serial.graph.Graph;
  */
 public final class NodeBuilder {
 
-    private static final Class<?>[] SIMPLE_TYPES = new Class<?>[] {
-        Boolean.class,
-        Calendar.class,
-        Character.class,
-        CharSequence.class,
-        Date.class,
-        Number.class
-    };
-
     /**
      * Builds a node representing the specified object and adds it to the graph.
      * @param obj the specified object
@@ -53,65 +37,54 @@ public final class NodeBuilder {
         if (id == 0 || graph.getReference(id) != null) {
             return id;
         }
-        Class<?> clazz = obj.getClass();
-        if (isSimple(clazz)) {
-            graph.putReference(id, obj);
-        } else if (isArray(clazz)) {
-            if (isSimple(clazz.getComponentType())) {
+        Node node;
+        switch (ClassMetadata.forClass(obj.getClass()).getKind()) {
+            case SIMPLE:
+            case SIMPLE_ARRAY:
                 graph.putReference(id, obj);
-            } else {
-                Node node = new ArrayNode();
-                graph.putReference(id, node);
-                node.compose(obj, graph);
-            }
-        } else if (isClass(clazz)) {
-            Node node = new ClassNode();
-            graph.putReference(id, node);
-            node.compose(obj, graph);
-        } else if (isCollection(clazz)) {
-            Node node = new CollectionNode();
-            graph.putReference(id, node);
-            node.compose(obj, graph);
-        } else if (isMap(clazz)) {
-            Node node = new MapNode();
-            graph.putReference(id, node);
-            node.compose(obj, graph);
-        } else if (isDOM(clazz)) {
-            Node node = new DOMNode();
-            graph.putReference(id, node);
-            node.compose(obj, graph);
-        } else if (isQName(clazz)) {
-            Node node = new QNameNode();
-            graph.putReference(id, node);
-            node.compose(obj, graph);
-        } else if (isDataSource(clazz)) {
-            Node node = new DataSourceNode();
-            graph.putReference(id, node);
-            node.compose(obj, graph);
-        } else if (isInputStream(clazz)) {
-            Node node = new InputStreamNode();
-            graph.putReference(id, node);
-            node.compose(obj, graph);
-        } else if (isUUID(clazz)) {
-            Node node = new UUIDNode();
-            graph.putReference(id, node);
-            node.compose(obj, graph);
-        } else if (isStackTraceElement(clazz)) {
-            Node node = new StackTraceElementNode();
-            graph.putReference(id, node);
-            node.compose(obj, graph);
-        } else if (isAccessible(clazz)) {
-            Node node;
-            if (isThrowable(clazz)) {
+                return id;
+            case ARRAY:
+                node = new ArrayNode();
+                break;
+            case CLASS:
+                node = new ClassNode();
+                break;
+            case COLLECTION:
+                node = new CollectionNode();
+                break;
+            case MAP:
+                node = new MapNode();
+                break;
+            case DOM:
+                node = new DOMNode();
+                break;
+            case QNAME:
+                node = new QNameNode();
+                break;
+            case DATA_SOURCE:
+                node = new DataSourceNode();
+                break;
+            case INPUT_STREAM:
+                node = new InputStreamNode();
+                break;
+            case UUID:
+                node = new UUIDNode();
+                break;
+            case STACK_TRACE_ELEMENT:
+                node = new StackTraceElementNode();
+                break;
+            case THROWABLE:
                 node = new ThrowableAccessNode();
-            } else {
+                break;
+            case ACCESS:
                 node = new DefaultAccessNode();
-            }
-            graph.putReference(id, node);
-            node.compose(obj, graph);
-        } else {
-            graph.putReference(id, NoopNode.INSTANCE);
+                break;
+            default:
+                graph.putReference(id, NoopNode.INSTANCE);
+                return id;
         }
+        graph.putReference(id, node);
+        node.compose(obj, graph);
         return id;
     }
 
@@ -119,62 +92,14 @@ public final class NodeBuilder {
         return clazz.isArray();
     }
 
-    static boolean isClass(Class<?> clazz) {
-        return Class.class.isAssignableFrom(clazz);
-    }
-
     static boolean isCollection(Class<?> clazz) {
         return Collection.class.isAssignableFrom(clazz);
     }
 
-    static boolean isDataSource(Class<?> clazz) {
-        return DataSource.class.isAssignableFrom(clazz);
-    }
-
-    static boolean isDOM(Class<?> clazz) {
-        return org.w3c.dom.Node.class.isAssignableFrom(clazz);
-    }
-
-    static boolean isInputStream(Class<?> clazz) {
-        return InputStream.class.isAssignableFrom(clazz);
-    }
-
     static boolean isMap(Class<?> clazz) {
         return Map.class.isAssignableFrom(clazz);
     }
 
-    static boolean isQName(Class<?> clazz) {
-        return QName.class.isAssignableFrom(clazz);
-    }
-
-    static boolean isSimple(Class<?> clazz) {
-        if (clazz.isPrimitive() || clazz.isEnum()) {
-            return true;
-        }
-        for (Class<?> st : SIMPLE_TYPES) {
-            if (st.isAssignableFrom(clazz)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    static boolean isStackTraceElement(Class<?> clazz) {
-        return StackTraceElement.class.isAssignableFrom(clazz);
-    }
-
-    static boolean isThrowable(Class<?> clazz) {
-        return Throwable.class.isAssignableFrom(clazz);
-    }
-
-    static boolean isUUID(Class<?> clazz) {
-        return UUID.class.isAssignableFrom(clazz);
-    }
-
-    static boolean isAccessible(Class<?> clazz) {
-        return Factory.getFactory(clazz).supports(clazz);
-    }
-
     private NodeBuilder() {}
 
 }
@@ -13,10 +13,7 @@
  */
 package org.switchyard.serial.graph.node;
 
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 import org.switchyard.HandlerException;
 import org.switchyard.common.type.reflect.FieldAccess;
@@ -30,16 +27,6 @@ import org.switchyard.serial.graph.Graph;
 @SuppressWarnings("serial")
 public final class ThrowableAccessNode extends AccessNode {
 
-    static final Set<String> THROWABLE_IGNORED_ACCESS_NAMES;
-    static {
-        Set<String> throwableIgnoredAccessNames = new HashSet<String>();
-        throwableIgnoredAccessNames.addAll(AccessNode.IGNORED_ACCESS_NAMES);
-        throwableIgnoredAccessNames.add("message");
-        throwableIgnoredAccessNames.add("cause");
-        throwableIgnoredAccessNames.add("stackTrace");
-        THROWABLE_IGNORED_ACCESS_NAMES = Collections.unmodifiableSet(throwableIgnoredAccessNames);
-    }
-
     private Integer _clazz;
     private Map<String, Integer> _ids;
     private String _message;
@@ -52,14 +39,6 @@ public final class ThrowableAccessNode extends AccessNode {
      */
     public ThrowableAccessNode() {}
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    Set<String> getIgnoredAccessNames() {
-        return THROWABLE_IGNORED_ACCESS_NAMES;
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.switchyard.serial.graph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the ClassMetadata cache.
+ */
+public class ClassMetadataTest {
+
+    @Test
+    public void testCacheHit() throws Exception {
+        ClassMetadata metadata = ClassMetadata.forClass(MetadataBean.class);
+        Assert.assertSame(metadata, ClassMetadata.forClass(MetadataBean.class));
+        Assert.assertEquals(ClassMetadata.Kind.ACCESS, metadata.getKind());
+        Assert.assertSame(metadata.getAccesses(), ClassMetadata.forClass(MetadataBean.class).getAccesses());
+    }
+
+    @Test
+    public void testClassLoadersAreIsolated() throws Exception {
+        Class<?> first = new IsolatingClassLoader().loadClass(MetadataBean.class.getName());
+        Class<?> second = new IsolatingClassLoader().loadClass(MetadataBean.class.getName());
+        Assert.assertNotSame(first, second);
+
+        ClassMetadata firstMetadata = ClassMetadata.forClass(first);
+        ClassMetadata secondMetadata = ClassMetadata.forClass(second);
+        Assert.assertNotSame(firstMetadata, secondMetadata);
+        Assert.assertNotSame(firstMetadata, ClassMetadata.forClass(MetadataBean.class));
+        // each instance is created from its own class
+        Assert.assertSame(first, firstMetadata.newInstance().getClass());
+        Assert.assertSame(second, secondMetadata.newInstance().getClass());
+    }
+
+    @Test
+    public void testEvictedOnRedeploy() throws Exception {
+        WeakReference<ClassLoader> undeployed = deployAndEvict();
+        Assert.assertTrue("class loader of an evicted application was not collected", collected(undeployed));
+
+        // the application deployed again gets new metadata for its new classes
+        Class<?> redeployed = new IsolatingClassLoader().loadClass(MetadataBean.class.getName());
+        ClassMetadata metadata = ClassMetadata.forClass(redeployed);
+        Assert.assertSame(redeployed, metadata.newInstance().getClass());
+        Assert.assertSame(metadata, ClassMetadata.forClass(redeployed));
+    }
+
+    @Test
+    public void testConcurrentFirstAccess() throws Exception {
+        final Class<?> clazz = new IsolatingClassLoader().loadClass(MetadataBean.class.getName());
+        int threads = 8;
+        final CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            @SuppressWarnings("unchecked")
+            Future<ClassMetadata>[] results = new Future[threads];
+            for (int i = 0; i < threads; i++) {
+                results[i] = executor.submit(new Callable<ClassMetadata>() {
+                    public ClassMetadata call() throws Exception {
+                        start.await(10, TimeUnit.SECONDS);
+                        return ClassMetadata.forClass(clazz);
+                    }
+                });
+            }
+            ClassMetadata cached = ClassMetadata.forClass(clazz);
+            for (Future<ClassMetadata> result : results) {
+                Assert.assertSame(cached, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // caches metadata for a class of an application, then undeploys it
+    private static WeakReference<ClassLoader> deployAndEvict() throws Exception {
+        ClassLoader loader = new IsolatingClassLoader();
+        ClassMetadata metadata = ClassMetadata.forClass(loader.loadClass(MetadataBean.class.getName()));
+        Assert.assertNotNull(metadata.newInstance());
+        ClassMetadata.evict(loader);
+        return new WeakReference<ClassLoader>(loader);
+    }
+
+    private static boolean collected(WeakReference<?> ref) throws InterruptedException {
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return ref.get() == null;
+    }
+
+    // defines its own copy of MetadataBean, as an application class loader would
+    private static final class IsolatingClassLoader extends ClassLoader {
+        IsolatingClassLoader() {
+            super(ClassMetadataTest.class.getClassLoader());
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!MetadataBean.class.getName().equals(name)) {
+                return super.loadClass(name, resolve);
+            }
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null) {
+                byte[] bytes = readClass(name);
+                clazz = defineClass(name, bytes, 0, bytes.length);
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+
+        private byte[] readClass(String name) throws ClassNotFoundException {
+            InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+            if (in == null) {
+                throw new ClassNotFoundException(name);
+            }
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, read);
+                }
+                return bytes.toByteArray();
+            } catch (IOException ioEx) {
+                throw new ClassNotFoundException(name, ioEx);
+            } finally {
+                try {
+                    in.close();
+                } catch (IOException ioEx) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
+
+/**
+ * A bean loaded by several class loaders in ClassMetadataTest.
+ */
+class MetadataBean {
+    private String _name;
+
+    public String getName() {
+        return _name;
+    }
+
+    public void setName(String name) {
+        _name = name;
+    }
+}
@@ -28,6 +28,9 @@ public interface JAXBTransformModel extends TransformModel {
 
     /** The "contextPath" name. */
     public static final String CONTEXT_PATH = "contextPath";
+
+    /** The "streaming" name. */
+    public static final String STREAMING = "streaming";
     
     /**
      * Gets the contextPath attribute.
@@ -42,4 +45,19 @@ public interface JAXBTransformModel extends TransformModel {
      */
     public JAXBTransformModel setContextPath(String contextPath);
 
+    /**
+     * Gets the streaming attribute.  If true, XML is marshalled to a Reader
+     * rather than a String, and unmarshalled directly from stream, reader or
+     * StAX content rather than a Source.
+     * @return the streaming attribute
+     */
+    public boolean isStreaming();
+
+    /**
+     * Sets the streaming attribute.
+     * @param streaming the streaming attribute
+     * @return this JAXBTransformModel (useful for chaining)
+     */
+    public JAXBTransformModel setStreaming(boolean streaming);
+
 }
@@ -29,6 +29,9 @@ public interface XsltTransformModel extends TransformModel {
 
     /**  whether a warning should be reported as an Exception.   */
     String FAIL_ON_WARNING = "failOnWarning";
+
+    /**  whether message content should be streamed rather than read into a DOM.   */
+    String STREAMING = "streaming";
     
     /**
      * @return xslt identifier
@@ -55,4 +58,18 @@ public interface XsltTransformModel extends TransformModel {
      * @return model representation
      */
     XsltTransformModel setFailOnWarning(boolean failOnWarning);
+
+    /** Return whether message content should be streamed through the transformation.
+     * If the streaming attribute is "true", the message content is read directly
+     * from a stream, reader, String, or Source and the result is set on the message
+     * as a Reader; otherwise the content is read into and written as a DOM.
+     * @return whether message content should be streamed
+     */
+    boolean isStreaming();
+
+    /** Set whether message content should be streamed through the transformation.
+     * @param streaming whether message content should be streamed
+     * @return model representation
+     */
+    XsltTransformModel setStreaming(boolean streaming);
 }
@@ -65,4 +65,21 @@ public class V1JAXBTransformModel extends V1BaseTransformModel implements JAXBTr
         setModelAttribute(CONTEXT_PATH, contextPath);
         return this;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStreaming() {
+        return Boolean.parseBoolean(getModelAttribute(STREAMING));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JAXBTransformModel setStreaming(boolean streaming) {
+        setModelAttribute(STREAMING, Boolean.toString(streaming));
+        return this;
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.transform.internal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Character buffer used to hold the output of a streaming transformation.
+ * Output is written to a list of fixed size chunks, so the buffer never copies
+ * what has already been written as it grows, and is read back through a
+ * {@link Reader} which walks the same chunks.
+ */
+public final class CharChunkBuffer extends Writer {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final List<char[]> _chunks = new ArrayList<char[]>();
+    private char[] _current;
+    private int _position = CHUNK_SIZE;
+    private long _length;
+
+    @Override
+    public void write(int c) {
+        if (_position == CHUNK_SIZE) {
+            nextChunk();
+        }
+        _current[_position++] = (char)c;
+        _length++;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        while (len > 0) {
+            if (_position == CHUNK_SIZE) {
+                nextChunk();
+            }
+            int count = Math.min(len, CHUNK_SIZE - _position);
+            System.arraycopy(cbuf, off, _current, _position, count);
+            _position += count;
+            off += count;
+            len -= count;
+            _length += count;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        while (len > 0) {
+            if (_position == CHUNK_SIZE) {
+                nextChunk();
+            }
+            int count = Math.min(len, CHUNK_SIZE - _position);
+            str.getChars(off, off + count, _current, _position);
+            _position += count;
+            off += count;
+            len -= count;
+            _length += count;
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Number of characters written.
+     * @return length in characters
+     */
+    public long length() {
+        return _length;
+    }
+
+    /**
+     * Creates a reader over the characters written so far.  Chunks are
+     * released as the reader moves past them.
+     * @return reader
+     */
+    public Reader newReader() {
+        return new ChunkReader(new ArrayList<char[]>(_chunks), _chunks.isEmpty() ? 0 : _position);
+    }
+
+    private void nextChunk() {
+        _current = new char[CHUNK_SIZE];
+        _chunks.add(_current);
+        _position = 0;
+    }
+
+    private static final class ChunkReader extends Reader {
+        private final List<char[]> _chunks;
+        private final int _lastLength;
+        private int _chunk;
+        private int _position;
+
+        ChunkReader(List<char[]> chunks, int lastLength) {
+            _chunks = chunks;
+            _lastLength = lastLength;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int read = 0;
+            while (read < len && _chunk < _chunks.size()) {
+                int chunkLength = _chunk == _chunks.size() - 1 ? _lastLength : CHUNK_SIZE;
+                int count = Math.min(len - read, chunkLength - _position);
+                System.arraycopy(_chunks.get(_chunk), _position, cbuf, off + read, count);
+                _position += count;
+                read += count;
+                if (_position == chunkLength) {
+                    _chunks.set(_chunk, null);
+                    _chunk++;
+                    _position = 0;
+                }
+            }
+            return read > 0 ? read : -1;
+        }
+
+        @Override
+        public void close() {
+            for (int i = _chunk; i < _chunks.size(); i++) {
+                _chunks.set(i, null);
+            }
+            _chunk = _chunks.size();
+        }
+    }
+}
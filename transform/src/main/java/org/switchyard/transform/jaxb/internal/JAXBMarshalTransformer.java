@@ -26,6 +26,7 @@ import org.switchyard.SwitchYardException;
 import org.switchyard.common.xml.QNameUtil;
 import org.switchyard.config.model.Scannable;
 import org.switchyard.transform.BaseTransformer;
+import org.switchyard.transform.internal.CharChunkBuffer;
 import org.switchyard.transform.internal.TransformMessages;
 
 /**
@@ -40,6 +41,8 @@ import org.switchyard.transform.internal.TransformMessages;
 public class JAXBMarshalTransformer<F, T> extends BaseTransformer<Message, Message> {
 
     private JAXBContext _jaxbContext;
+    private JAXBPool _pool;
+    private boolean _streaming;
 
     /**
      * Public constructor.
@@ -49,7 +52,23 @@ public class JAXBMarshalTransformer<F, T> extends BaseTransformer<Message, Messa
      * @throws SwitchYardException Failed to create JAXBContext.
      */
     public JAXBMarshalTransformer(QName from, QName to, String contextPath) throws SwitchYardException {
+        this(from, to, contextPath, JAXBTransformerFactory.DEFAULT_MAX_POOL_SIZE, false, false);
+    }
+
+    /**
+     * Public constructor.
+     * @param from From type.
+     * @param to To type.
+     * @param contextPath JAXB context path (Java package).
+     * @param maxPoolSize maximum number of idle Marshallers kept, pooling is disabled if less than 1
+     * @param formattedOutput whether the XML should be formatted
+     * @param streaming whether the XML should be set on the message as a Reader instead of a String
+     * @throws SwitchYardException Failed to create JAXBContext.
+     */
+    public JAXBMarshalTransformer(QName from, QName to, String contextPath,
+            int maxPoolSize, boolean formattedOutput, boolean streaming) throws SwitchYardException {
         super(from, to);
+        _streaming = streaming;
         try {
             if (contextPath != null) {
                 _jaxbContext = JAXBContext.newInstance(contextPath);
@@ -59,6 +78,7 @@ public class JAXBMarshalTransformer<F, T> extends BaseTransformer<Message, Messa
         } catch (JAXBException e) {
             throw TransformMessages.MESSAGES.failedToCreateJAXBContext(from.toString(), e);
         }
+        _pool = new JAXBPool(_jaxbContext, maxPoolSize, formattedOutput);
     }
 
     @Override
@@ -66,24 +86,38 @@ public class JAXBMarshalTransformer<F, T> extends BaseTransformer<Message, Messa
         Marshaller marshaller;
 
         try {
-            marshaller = _jaxbContext.createMarshaller();
+            marshaller = _pool.takeMarshaller();
         } catch (JAXBException e) {
             throw TransformMessages.MESSAGES.failedToCreateMarshaller(getFrom().toString(), e);
         }
 
         try {
-            StringWriter resultWriter = new StringWriter();
             Object javaObject = message.getContent();
             //JAXBElement jaxbElement = new JAXBElement(getTo(), QNameUtil.toJavaMessageType(getFrom()), javaObject);
 
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            marshaller.marshal(javaObject, resultWriter);
-
-            message.setContent(resultWriter.toString());
+            if (_streaming) {
+                CharChunkBuffer output = new CharChunkBuffer();
+                marshaller.marshal(javaObject, output);
+                message.setContent(output.newReader());
+            } else {
+                StringWriter resultWriter = new StringWriter();
+                marshaller.marshal(javaObject, resultWriter);
+                message.setContent(resultWriter.toString());
+            }
         } catch (JAXBException e) {
             throw TransformMessages.MESSAGES.failedToMarshallForType(getFrom().toString(), e);
         }
+        // only returned to the pool when it completed normally
+        _pool.giveMarshaller(marshaller);
 
         return message;
     }
+
+    JAXBPool getPool() {
+        return _pool;
+    }
+
+    boolean isStreaming() {
+        return _streaming;
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.transform.jaxb.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * Bounded pool of the Marshaller and Unmarshaller instances of a JAXBContext.
+ * Instances are created on demand when the pool is empty rather than waiting
+ * for one to be returned, and instances returned to a full pool are dropped,
+ * so the pool bounds how many idle instances are kept, not how many are in use.
+ * Marshallers and Unmarshallers are not thread-safe, so an instance must only be
+ * returned once the caller is done with it, and should not be returned if it
+ * failed part way through.
+ */
+final class JAXBPool {
+
+    private final JAXBContext _jaxbContext;
+    private final boolean _formattedOutput;
+    private final BlockingQueue<Marshaller> _marshallers;
+    private final BlockingQueue<Unmarshaller> _unmarshallers;
+
+    /**
+     * Create a new pool.
+     * @param jaxbContext context used to create instances
+     * @param maxSize maximum number of idle instances of each kind kept, pooling is disabled if less than 1
+     * @param formattedOutput whether marshalled output should be formatted
+     */
+    JAXBPool(JAXBContext jaxbContext, int maxSize, boolean formattedOutput) {
+        _jaxbContext = jaxbContext;
+        _formattedOutput = formattedOutput;
+        if (maxSize > 0) {
+            _marshallers = new ArrayBlockingQueue<Marshaller>(maxSize);
+            _unmarshallers = new ArrayBlockingQueue<Unmarshaller>(maxSize);
+        } else {
+            _marshallers = null;
+            _unmarshallers = null;
+        }
+    }
+
+    /**
+     * Takes a Marshaller from the pool, creating one if none are available.
+     * @return marshaller
+     * @throws JAXBException failed to create a marshaller
+     */
+    Marshaller takeMarshaller() throws JAXBException {
+        Marshaller marshaller = _marshallers != null ? _marshallers.poll() : null;
+        if (marshaller == null) {
+            marshaller = _jaxbContext.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.valueOf(_formattedOutput));
+        }
+        return marshaller;
+    }
+
+    /**
+     * Returns a Marshaller to the pool.
+     * @param marshaller marshaller taken from this pool
+     */
+    void giveMarshaller(Marshaller marshaller) {
+        if (_marshallers != null) {
+            _marshallers.offer(marshaller);
+        }
+    }
+
+    /**
+     * Takes an Unmarshaller from the pool, creating one if none are available.
+     * @return unmarshaller
+     * @throws JAXBException failed to create an unmarshaller
+     */
+    Unmarshaller takeUnmarshaller() throws JAXBException {
+        Unmarshaller unmarshaller = _unmarshallers != null ? _unmarshallers.poll() : null;
+        if (unmarshaller == null) {
+            unmarshaller = _jaxbContext.createUnmarshaller();
+        }
+        return unmarshaller;
+    }
+
+    /**
+     * Returns an Unmarshaller to the pool.
+     * @param unmarshaller unmarshaller taken from this pool
+     */
+    void giveUnmarshaller(Unmarshaller unmarshaller) {
+        if (_unmarshallers != null) {
+            _unmarshallers.offer(unmarshaller);
+        }
+    }
+
+    /**
+     * Number of idle Marshallers in the pool.
+     * @return idle marshallers
+     */
+    int getIdleMarshallers() {
+        return _marshallers != null ? _marshallers.size() : 0;
+    }
+
+    /**
+     * Number of idle Unmarshallers in the pool.
+     * @return idle unmarshallers
+     */
+    int getIdleUnmarshallers() {
+        return _unmarshallers != null ? _unmarshallers.size() : 0;
+    }
+}
@@ -29,6 +29,9 @@ import org.switchyard.ServiceDomain;
 import org.switchyard.SwitchYardException;
 import org.switchyard.common.type.Classes;
 import org.switchyard.common.xml.QNameUtil;
+import org.switchyard.config.model.Model;
+import org.switchyard.config.model.property.PropertyModel;
+import org.switchyard.config.model.switchyard.SwitchYardModel;
 import org.switchyard.metadata.JavaTypes;
 import org.switchyard.transform.Transformer;
 import org.switchyard.transform.config.model.JAXBTransformModel;
@@ -43,6 +46,19 @@ import org.switchyard.transform.internal.TransformerFactory;
  */
 public class JAXBTransformerFactory implements TransformerFactory<JAXBTransformModel> {
 
+    /**
+     * Property used in a domain property to configure the max number of idle Marshallers and Unmarshallers kept.
+     */
+    public static final String MAX_POOL_SIZE = "org.switchyard.transform.jaxb.maxPoolSize";
+    /**
+     * Default max number of idle Marshallers and Unmarshallers kept by a transformer.
+     */
+    public static final int DEFAULT_MAX_POOL_SIZE = 16;
+    /**
+     * Property used in a domain property to turn on formatted output when marshalling.
+     */
+    public static final String FORMATTED_OUTPUT = "org.switchyard.transform.jaxb.formattedOutput";
+
     /**
      * Logger.
      */
@@ -53,13 +69,35 @@ public class JAXBTransformerFactory implements TransformerFactory<JAXBTransformM
         QName fromType = model.getFrom();
         QName toType = model.getTo();
 
+        int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+        String maxPoolSizeProperty = getDomainProperty(model, MAX_POOL_SIZE);
+        if (maxPoolSizeProperty != null) {
+            maxPoolSize = Integer.parseInt(maxPoolSizeProperty);
+        }
+
         if (toJavaTransformType(fromType, toType) == JavaTransformType.JAVA2XML) {
-            return new JAXBMarshalTransformer(fromType, toType, model.getContextPath());
+            boolean formattedOutput = Boolean.parseBoolean(getDomainProperty(model, FORMATTED_OUTPUT));
+            return new JAXBMarshalTransformer(fromType, toType, model.getContextPath(), maxPoolSize, formattedOutput, model.isStreaming());
         } else {
-            return new JAXBUnmarshalTransformer(fromType, toType, model.getContextPath());
+            return new JAXBUnmarshalTransformer(fromType, toType, model.getContextPath(), maxPoolSize, model.isStreaming());
         }
     }
 
+    // This method looks for a property within the domain section of switchyard.xml
+    private static String getDomainProperty(JAXBTransformModel model, String name) {
+        Model root = model.getModelRoot();
+        if (root instanceof SwitchYardModel) {
+            SwitchYardModel syModel = (SwitchYardModel)root;
+            if (syModel.getDomain() != null && syModel.getDomain().getProperties() != null) {
+                PropertyModel property = syModel.getDomain().getProperties().getProperty(name);
+                if (property != null) {
+                    return property.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Factory method for auto-adding JAXB Transformers for a Service interface.
      * @param serviceClass The Service class.
@@ -14,19 +14,30 @@
 
 package org.switchyard.transform.jaxb.internal;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Source;
 
+import org.jboss.logging.Logger;
 import org.switchyard.Message;
 import org.switchyard.SwitchYardException;
 import org.switchyard.common.xml.QNameUtil;
 import org.switchyard.config.model.Scannable;
 import org.switchyard.transform.BaseTransformer;
 import org.switchyard.transform.internal.TransformMessages;
+import org.w3c.dom.Node;
 
 /**
  * JAXB Unmarshalling transformer.
@@ -39,7 +50,14 @@ import org.switchyard.transform.internal.TransformMessages;
 @Scannable(false)
 public class JAXBUnmarshalTransformer<F, T> extends BaseTransformer<Message, Message> {
 
+    private static final Logger LOGGER = Logger.getLogger(JAXBUnmarshalTransformer.class);
+
+    // XMLInputFactory instances are thread-safe once configured
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
     private JAXBContext _jaxbContext;
+    private JAXBPool _pool;
+    private boolean _streaming;
 
     /**
      * Public constructor.
@@ -49,7 +67,21 @@ public class JAXBUnmarshalTransformer<F, T> extends BaseTransformer<Message, Mes
      * @throws SwitchYardException Failed to create JAXBContext.
      */
     public JAXBUnmarshalTransformer(QName from, QName to, String contextPath) throws SwitchYardException {
+        this(from, to, contextPath, JAXBTransformerFactory.DEFAULT_MAX_POOL_SIZE, false);
+    }
+
+    /**
+     * Public constructor.
+     * @param from From type.
+     * @param to To type.
+     * @param contextPath JAXB context path (Java package).
+     * @param maxPoolSize maximum number of idle Unmarshallers kept, pooling is disabled if less than 1
+     * @param streaming whether the XML should be read directly from stream, reader or StAX content
+     * @throws SwitchYardException Failed to create JAXBContext.
+     */
+    public JAXBUnmarshalTransformer(QName from, QName to, String contextPath, int maxPoolSize, boolean streaming) throws SwitchYardException {
         super(from, to);
+        _streaming = streaming;
         try {
             if (contextPath != null) {
                 _jaxbContext = JAXBContext.newInstance(contextPath);
@@ -59,6 +91,7 @@ public class JAXBUnmarshalTransformer<F, T> extends BaseTransformer<Message, Mes
         } catch (JAXBException e) {
             throw TransformMessages.MESSAGES.failedToCreateJAXBContext(to.toString(), e);
         }
+        _pool = new JAXBPool(_jaxbContext, maxPoolSize, false);
     }
 
     @Override
@@ -66,13 +99,14 @@ public class JAXBUnmarshalTransformer<F, T> extends BaseTransformer<Message, Mes
         Unmarshaller unmarshaller;
 
         try {
-            unmarshaller = _jaxbContext.createUnmarshaller();
+            unmarshaller = _pool.takeUnmarshaller();
         } catch (JAXBException e) {
             throw TransformMessages.MESSAGES.failedToCreateMarshaller(getTo().toString(), e);
         }
 
         try {
-            Object unmarshalledObject = unmarshaller.unmarshal(message.getContent(Source.class));
+            Object unmarshalledObject = _streaming
+                    ? unmarshalStreaming(unmarshaller, message) : unmarshaller.unmarshal(message.getContent(Source.class));
 
             if (unmarshalledObject instanceof JAXBElement) {
                 message.setContent(((JAXBElement)unmarshalledObject).getValue());
@@ -82,7 +116,59 @@ public class JAXBUnmarshalTransformer<F, T> extends BaseTransformer<Message, Mes
         } catch (JAXBException e) {
             throw TransformMessages.MESSAGES.failedToUnmarshallForType(getTo().toString(), e);
         }
+        // only returned to the pool when it completed normally
+        _pool.giveUnmarshaller(unmarshaller);
 
         return message;
     }
+
+    JAXBPool getPool() {
+        return _pool;
+    }
+
+    boolean isStreaming() {
+        return _streaming;
+    }
+
+    // read the message content as it is wherever it can be read directly,
+    // parsing streamed content with StAX rather than converting it to a Source
+    private Object unmarshalStreaming(Unmarshaller unmarshaller, Message message) throws JAXBException {
+        Object content = message.getContent();
+        if (content instanceof XMLStreamReader) {
+            return unmarshaller.unmarshal((XMLStreamReader)content);
+        } else if (content instanceof XMLEventReader) {
+            return unmarshaller.unmarshal((XMLEventReader)content);
+        } else if (content instanceof Source) {
+            return unmarshaller.unmarshal((Source)content);
+        } else if (content instanceof Node) {
+            return unmarshaller.unmarshal((Node)content);
+        }
+
+        XMLStreamReader reader = null;
+        try {
+            if (content instanceof InputStream) {
+                reader = INPUT_FACTORY.createXMLStreamReader((InputStream)content);
+            } else if (content instanceof Reader) {
+                reader = INPUT_FACTORY.createXMLStreamReader((Reader)content);
+            } else if (content instanceof String) {
+                reader = INPUT_FACTORY.createXMLStreamReader(new StringReader((String)content));
+            } else if (content instanceof byte[]) {
+                reader = INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream((byte[])content));
+            } else {
+                return unmarshaller.unmarshal(message.getContent(Source.class));
+            }
+            return unmarshaller.unmarshal(reader);
+        } catch (XMLStreamException e) {
+            throw new JAXBException(e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // the content has already been unmarshalled, or failed to be
+                    LOGGER.debug("Failed to close XMLStreamReader.", e);
+                }
+            }
+        }
+    }
 }
@@ -76,7 +76,7 @@ public final class XsltTransformFactory implements TransformerFactory<XsltTransf
             tFactory.setURIResolver(new XsltUriResolver());
             Templates templates = tFactory.newTemplates(new StreamSource(stylesheetStream));
             
-            return new XsltTransformer(from, to, templates, failOnWarning, getTransformPoolSize(model));
+            return new XsltTransformer(from, to, templates, failOnWarning, getTransformPoolSize(model), model.isStreaming());
         } catch (TransformerConfigurationException e) {
             throw TransformMessages.MESSAGES.unexpectedErrorOcurred(e);
         } catch (IOException e) {
@@ -14,20 +14,35 @@
 
 package org.switchyard.transform.xslt.internal;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.ErrorListener;
+import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
 
 import org.jboss.logging.Logger;
 import org.switchyard.Message;
 import org.switchyard.config.model.Scannable;
 import org.switchyard.transform.BaseTransformer;
+import org.switchyard.transform.internal.CharChunkBuffer;
 import org.switchyard.transform.internal.TransformLogger;
 import org.switchyard.transform.internal.TransformMessages;
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
 
 /**
  * XSLT Transformer {@link org.switchyard.transform.Transformer}.
@@ -43,6 +58,7 @@ public class XsltTransformer<F, T> extends BaseTransformer<Message, Message> {
     private Templates _templates;
     private TransformerPool _transformerPool;
     private boolean  _failOnWarning;
+    private boolean _streaming;
     
     /**
      * Public constructor.
@@ -54,9 +70,24 @@ public class XsltTransformer<F, T> extends BaseTransformer<Message, Message> {
      * @param maxPoolSize maximum size for the transformer pool
      */
     public XsltTransformer(QName from, QName to, Templates templates, boolean failOnWarning, int maxPoolSize) {
+        this(from, to, templates, failOnWarning, maxPoolSize, false);
+    }
+
+    /**
+     * Public constructor.
+     * 
+     * @param from From type.
+     * @param to To type.
+     * @param templates XSL Template instance
+     * @param failOnWarning whether a warning should be reported as an SwitchYardException or just log
+     * @param maxPoolSize maximum size for the transformer pool
+     * @param streaming whether message content should be read and written as a stream instead of a DOM
+     */
+    public XsltTransformer(QName from, QName to, Templates templates, boolean failOnWarning, int maxPoolSize, boolean streaming) {
         super(from, to);
         this._templates = templates;
         this._failOnWarning = failOnWarning;
+        this._streaming = streaming;
         // max pool size < 0 indicates that pooling should be disabled
         if (maxPoolSize > 0) {
             _transformerPool = new TransformerPool(
@@ -69,9 +100,6 @@ public class XsltTransformer<F, T> extends BaseTransformer<Message, Message> {
         javax.xml.transform.Transformer transformer = null;
         
         try {
-            DOMSource source = message.getContent(DOMSource.class);
-            DOMResult result = new DOMResult();
-            
             if (_transformerPool != null) {
                 transformer = _transformerPool.take();
             } else {
@@ -80,8 +108,18 @@ public class XsltTransformer<F, T> extends BaseTransformer<Message, Message> {
                 transformer.setErrorListener(new XsltTransformerErrorListener(_failOnWarning));
             }
             
-            transformer.transform(source, result);
-            message.setContent(((Document)result.getNode()).getDocumentElement());
+            if (_streaming) {
+                // the result is held as characters rather than a DOM, and read
+                // back by whatever consumes the message next
+                CharChunkBuffer output = new CharChunkBuffer();
+                transformer.transform(getStreamingSource(message), new StreamResult(output));
+                message.setContent(output.newReader());
+            } else {
+                DOMSource source = message.getContent(DOMSource.class);
+                DOMResult result = new DOMResult();
+                transformer.transform(source, result);
+                message.setContent(((Document)result.getNode()).getDocumentElement());
+            }
 
         } catch (Exception e) {
             throw TransformMessages.MESSAGES.errorDuringXsltTransformation(e);
@@ -97,6 +135,36 @@ public class XsltTransformer<F, T> extends BaseTransformer<Message, Message> {
         return _transformerPool;
     }
 
+    boolean isStreaming() {
+        return _streaming;
+    }
+
+    // use the message content as it is wherever it can be read directly,
+    // only falling back to a DOM for content types the processor can't read
+    private Source getStreamingSource(Message message) throws Exception {
+        Object content = message.getContent();
+        if (content instanceof Source) {
+            return (Source)content;
+        } else if (content instanceof InputStream) {
+            return new StreamSource((InputStream)content);
+        } else if (content instanceof Reader) {
+            return new StreamSource((Reader)content);
+        } else if (content instanceof String) {
+            return new StreamSource(new StringReader((String)content));
+        } else if (content instanceof byte[]) {
+            return new StreamSource(new ByteArrayInputStream((byte[])content));
+        } else if (content instanceof InputSource) {
+            return new SAXSource((InputSource)content);
+        } else if (content instanceof XMLStreamReader) {
+            return new StAXSource((XMLStreamReader)content);
+        } else if (content instanceof XMLEventReader) {
+            return new StAXSource((XMLEventReader)content);
+        } else if (content instanceof Node) {
+            return new DOMSource((Node)content);
+        }
+        return message.getContent(DOMSource.class);
+    }
+
     private class XsltTransformerErrorListener implements ErrorListener {
         private boolean _failOnWarning;
 
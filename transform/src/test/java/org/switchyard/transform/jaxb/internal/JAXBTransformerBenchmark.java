@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.transform.jaxb.internal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+
+import org.switchyard.internal.DefaultMessage;
+import org.switchyard.metadata.JavaTypes;
+
+/**
+ * Throughput benchmark for unmarshalling and marshalling a purchase order
+ * with the JAXB transformers, for a small payload and a ~1MB payload.  It
+ * compares a new, formatting Marshaller per message (the old behaviour) with
+ * pooled instances, and pooled instances with streaming I/O.  This is not run
+ * as part of the build; run it from the IDE or with 'java' against the test
+ * classpath.
+ * <p/>
+ * Usage: JAXBTransformerBenchmark [seconds per run]
+ */
+public final class JAXBTransformerBenchmark {
+
+    private static final int LARGE_PAYLOAD = 1024 * 1024;
+
+    private JAXBTransformerBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional number of seconds per run
+     * @throws Exception benchmark failed
+     */
+    public static void main(String[] args) throws Exception {
+        long millis = (args.length > 0 ? Integer.parseInt(args[0]) : 5) * 1000L;
+        String small = JAXBTransformerTest.PO_XML;
+        String large = largePurchaseOrder();
+        System.out.println("small payload: " + small.length() + " chars, large payload: " + large.length() + " chars");
+        for (int round = 0; round < 2; round++) {
+            for (String xml : new String[] {small, large}) {
+                String size = xml == small ? "small" : "large";
+                System.out.println(size + " per-message, formatted: " + run(xml, 0, true, false, millis) + " ops/s");
+                System.out.println(size + " pooled:                 " + run(xml, JAXBTransformerFactory.DEFAULT_MAX_POOL_SIZE, false, false, millis) + " ops/s");
+                System.out.println(size + " pooled, streaming:      " + run(xml, JAXBTransformerFactory.DEFAULT_MAX_POOL_SIZE, false, true, millis) + " ops/s");
+            }
+        }
+    }
+
+    // round trips XML to a POType and back, for the specified time
+    private static long run(String xml, int maxPoolSize, boolean formattedOutput, boolean streaming, long millis) throws IOException {
+        QName xmlType = new QName("purchaseOrder");
+        QName javaType = JavaTypes.toMessageType(POType.class);
+        JAXBUnmarshalTransformer<?, ?> unmarshalTransformer = new JAXBUnmarshalTransformer<Object, Object>(
+                xmlType, javaType, null, maxPoolSize, streaming);
+        JAXBMarshalTransformer<?, ?> marshalTransformer = new JAXBMarshalTransformer<Object, Object>(
+                javaType, xmlType, null, maxPoolSize, formattedOutput, streaming);
+
+        char[] buffer = new char[8192];
+        long count = 0;
+        long start = System.currentTimeMillis();
+        long end = start + millis;
+        while (System.currentTimeMillis() < end) {
+            DefaultMessage message = new DefaultMessage();
+            message.setContent(streaming ? new StringReader(xml) : new StreamSource(new StringReader(xml)));
+            unmarshalTransformer.transform(message);
+            marshalTransformer.transform(message);
+            if (streaming) {
+                Reader reader = (Reader)message.getContent();
+                while (reader.read(buffer) != -1) {
+                    continue;
+                }
+            }
+            count++;
+        }
+        return count * 1000 / (System.currentTimeMillis() - start);
+    }
+
+    private static String largePurchaseOrder() {
+        String po = JAXBTransformerTest.PO_XML;
+        int itemsStart = po.indexOf("<items>") + "<items>".length();
+        int itemsEnd = po.indexOf("</items>");
+        String items = po.substring(itemsStart, itemsEnd);
+        StringBuilder builder = new StringBuilder(LARGE_PAYLOAD + po.length());
+        builder.append(po, 0, itemsStart);
+        while (builder.length() < LARGE_PAYLOAD) {
+            builder.append(items);
+        }
+        builder.append(po, itemsEnd, po.length());
+        return builder.toString();
+    }
+}
@@ -14,7 +14,9 @@
 
 package org.switchyard.transform.jaxb.internal;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 
 import javax.xml.namespace.QName;
@@ -25,6 +27,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.switchyard.config.model.ModelPuller;
 import org.switchyard.config.model.switchyard.SwitchYardModel;
+import org.switchyard.SwitchYardException;
 import org.switchyard.config.model.transform.TransformModel;
 import org.switchyard.internal.DefaultMessage;
 import org.switchyard.metadata.JavaTypes;
@@ -59,6 +62,71 @@ public class JAXBTransformerTest extends AbstractTransformerTestCase {
         XMLUnit.compareXML(PO_XML, resultXML);
     }
 
+    @Test
+    public void test_pooling() throws Exception {
+        JAXBUnmarshalTransformer unmarshalTransformer = new JAXBUnmarshalTransformer(
+                new QName("purchaseOrder"), JavaTypes.toMessageType(POType.class), null);
+        JAXBMarshalTransformer marshalTransformer = new JAXBMarshalTransformer(
+                JavaTypes.toMessageType(POType.class), new QName("purchaseOrder"), null);
+
+        for (int i = 0; i < 3; i++) {
+            DefaultMessage message = new DefaultMessage();
+            message.setContent(new StreamSource(new StringReader(PO_XML)));
+            unmarshalTransformer.transform(message);
+            marshalTransformer.transform(message);
+            // not formatted by default
+            Assert.assertFalse(message.getContent(String.class).contains("\n    <"));
+        }
+        Assert.assertEquals(1, unmarshalTransformer.getPool().getIdleUnmarshallers());
+        Assert.assertEquals(1, marshalTransformer.getPool().getIdleMarshallers());
+
+        // an unmarshaller which failed is not returned to the pool
+        DefaultMessage message = new DefaultMessage();
+        message.setContent(new StreamSource(new StringReader("<purchaseOrder>")));
+        try {
+            unmarshalTransformer.transform(message);
+            Assert.fail("Expected a SwitchYardException");
+        } catch (SwitchYardException e) {
+            Assert.assertEquals(0, unmarshalTransformer.getPool().getIdleUnmarshallers());
+        }
+    }
+
+    @Test
+    public void test_streaming() throws Exception {
+        JAXBUnmarshalTransformer unmarshalTransformer = new JAXBUnmarshalTransformer(
+                new QName("purchaseOrder"), JavaTypes.toMessageType(POType.class), null, 1, true);
+        JAXBMarshalTransformer marshalTransformer = new JAXBMarshalTransformer(
+                JavaTypes.toMessageType(POType.class), new QName("purchaseOrder"), null, 1, true, true);
+
+        Object[] contents = {
+            PO_XML,
+            PO_XML.getBytes("UTF-8"),
+            new ByteArrayInputStream(PO_XML.getBytes("UTF-8")),
+            new StringReader(PO_XML),
+            new StreamSource(new StringReader(PO_XML))
+        };
+        for (Object content : contents) {
+            DefaultMessage message = new DefaultMessage();
+            message.setContent(content);
+            unmarshalTransformer.transform(message);
+            Assert.assertTrue(message.getContent() instanceof POType);
+            marshalTransformer.transform(message);
+            Assert.assertTrue(message.getContent() instanceof Reader);
+
+            // Check the round trip...
+            String resultXML = toString((Reader)message.getContent());
+            Assert.assertTrue(resultXML, resultXML.contains("Nosferatu - Special Edition (1929)"));
+            Assert.assertTrue(resultXML, resultXML.contains("<city>Cambridge</city>"));
+        }
+    }
+
+    @Test
+    public void test_configStreaming() throws IOException {
+        JAXBUnmarshalTransformer unmarshalTransformer = (JAXBUnmarshalTransformer)getTransformer("switchyard-config-04.xml");
+        Assert.assertTrue(unmarshalTransformer.isStreaming());
+        Assert.assertFalse(((JAXBUnmarshalTransformer)getTransformer("switchyard-config-01.xml")).isStreaming());
+    }
+
     @Test
     public void test_configRead() throws IOException {
         Transformer unmarshalingTransformer = getTransformer("switchyard-config-01.xml");
@@ -88,7 +156,17 @@ public class JAXBTransformerTest extends AbstractTransformerTestCase {
         Assert.assertTrue(messageContains);
     }
 
-    private static final String PO_XML = "<?xml version=\"1.0\"?>\n" +
+    private static String toString(Reader reader) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[1024];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            builder.append(buffer, 0, read);
+        }
+        return builder.toString();
+    }
+
+    static final String PO_XML = "<?xml version=\"1.0\"?>\n" +
             "<purchaseOrder orderDate=\"1999-10-20\">\n" +
             "    <shipTo country=\"US\">\n" +
             "        <name>Alice Smith</name>\n" +
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,  
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.switchyard.transform.xslt.internal;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.transform.stream.StreamSource;
+
+import org.custommonkey.xmlunit.Diff;
+import org.custommonkey.xmlunit.XMLUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.switchyard.common.type.Classes;
+import org.switchyard.internal.DefaultMessage;
+import org.switchyard.internal.transform.BaseTransformerRegistry;
+import org.switchyard.transform.AbstractTransformerTestCase;
+import org.switchyard.transform.TransformerRegistry;
+import org.switchyard.transform.internal.TransformerRegistryLoader;
+import org.xml.sax.InputSource;
+
+/**
+ * Tests for XsltTransformer in streaming mode.
+ */
+public class XsltStreamingTest extends AbstractTransformerTestCase {
+
+    private static final String INITIAL = "<?xml version=\"1.0\"?><project><topic><title>Switchyard</title><url>http://www.jboss.org/switchyard</url>"
+            + "</topic><topic><title>Arquillian</title><url>http://www.jboss.org/arquillian</url></topic></project>";
+
+    private static final String EXPECTED = "<?xml version=\"1.0\"?><index><head>"
+            + "<title>JBoss Project's'</title></head><body><table border=\"1\"><tr><th>Title</th><th>URL</th></tr><tr>"
+            + "<td>Switchyard</td><td>http://www.jboss.org/switchyard</td></tr><tr><td>Arquillian</td><td>http://www.jboss.org/arquillian</td>"
+            + "</tr></table></body></index>";
+
+    // ~7MB of XML, which does not fit in the constrained heap as a DOM
+    private static final int LARGE_ITEM_COUNT = 100000;
+    private static final String CONSTRAINED_HEAP = "-Xmx64m";
+
+    private TransformerRegistry _xformReg;
+
+    public XsltStreamingTest() {
+        _xformReg = new BaseTransformerRegistry();
+        new TransformerRegistryLoader(_xformReg).loadOOTBTransforms();
+    }
+
+    @Test
+    public void testStreamingConfiguration() throws Exception {
+        XsltTransformer<?, ?> transformer = (XsltTransformer<?, ?>)getTransformer("xslt-config-streaming.xml");
+        Assert.assertTrue(transformer.isStreaming());
+        Assert.assertFalse(((XsltTransformer<?, ?>)getTransformer("xslt-config-03.xml")).isStreaming());
+        assertTransformed(transformer, INITIAL);
+    }
+
+    @Test
+    public void testStreamingContentTypes() throws Exception {
+        XsltTransformer<?, ?> transformer = newTransformer("topics.xslt");
+        assertTransformed(transformer, INITIAL);
+        assertTransformed(transformer, INITIAL.getBytes("UTF-8"));
+        assertTransformed(transformer, new ByteArrayInputStream(INITIAL.getBytes("UTF-8")));
+        assertTransformed(transformer, new StringReader(INITIAL));
+        assertTransformed(transformer, new InputSource(new StringReader(INITIAL)));
+        assertTransformed(transformer, new StreamSource(new StringReader(INITIAL)));
+        assertTransformed(transformer, new SAXSource(new InputSource(new StringReader(INITIAL))));
+        assertTransformed(transformer, new StAXSource(XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(INITIAL))));
+        assertTransformed(transformer, DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
+                new InputSource(new StringReader(INITIAL))).getDocumentElement());
+    }
+
+    @Test
+    public void testLargeDocumentInConstrainedHeap() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, CONSTRAINED_HEAP,
+                "-cp", System.getProperty("java.class.path"),
+                XsltStreamingTest.class.getName(), String.valueOf(LARGE_ITEM_COUNT));
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        StringBuilder output = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append('\n');
+            }
+        } finally {
+            reader.close();
+        }
+        Assert.assertEquals(output.toString(), 0, process.waitFor());
+        Assert.assertTrue(output.toString(), output.indexOf("count=\"" + LARGE_ITEM_COUNT + "\"") != -1);
+    }
+
+    /**
+     * Streams a generated document through the summary stylesheet; run in a
+     * separate JVM with a constrained heap by testLargeDocumentInConstrainedHeap.
+     * @param args the number of items to generate
+     * @throws Exception the transformation failed
+     */
+    public static void main(String[] args) throws Exception {
+        DefaultMessage message = new DefaultMessage().setContent(new ItemsInputStream(Integer.parseInt(args[0])));
+        newTransformer("summary.xslt").transform(message);
+        Reader result = (Reader)message.getContent();
+        char[] buffer = new char[1024];
+        int read;
+        while ((read = result.read(buffer)) != -1) {
+            System.out.print(new String(buffer, 0, read));
+        }
+        System.out.println();
+    }
+
+    private void assertTransformed(XsltTransformer<?, ?> transformer, Object content) throws Exception {
+        DefaultMessage message = new DefaultMessage().setContent(content);
+        message.setTransformerRegistry(_xformReg);
+        transformer.transform(message);
+        Assert.assertTrue(message.getContent() instanceof Reader);
+        XMLUnit.setIgnoreWhitespace(true);
+        Diff diff = new Diff(EXPECTED, message.getContent(String.class));
+        Assert.assertTrue(diff.toString(), diff.identical());
+    }
+
+    private static XsltTransformer<?, ?> newTransformer(String xslt) throws Exception {
+        InputStream stylesheet = Classes.getResourceAsStream("org/switchyard/transform/xslt/internal/" + xslt);
+        try {
+            Templates templates = TransformerFactory.newInstance().newTemplates(new StreamSource(stylesheet));
+            return new XsltTransformer<Object, Object>(new QName("A"), new QName("B"), templates, false, 1, true);
+        } finally {
+            stylesheet.close();
+        }
+    }
+
+    // generates <items><item id="n"><name/><price/></item>...</items> as it is read
+    private static final class ItemsInputStream extends InputStream {
+        private final int _items;
+        private int _item = -1;
+        private byte[] _current = "<?xml version=\"1.0\"?><items>".getBytes();
+        private int _position;
+
+        ItemsInputStream(int items) {
+            _items = items;
+        }
+
+        @Override
+        public int read() {
+            if (_position == _current.length && !next()) {
+                return -1;
+            }
+            return _current[_position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (_position == _current.length && !next()) {
+                return -1;
+            }
+            int count = Math.min(len, _current.length - _position);
+            System.arraycopy(_current, _position, b, off, count);
+            _position += count;
+            return count;
+        }
+
+        private boolean next() {
+            _item++;
+            if (_item > _items) {
+                return false;
+            }
+            _current = (_item == _items ? "</items>"
+                    : "<item id=\"" + _item + "\"><name>Item number " + _item + "</name><price>" + (_item % 100) + "</price></item>").getBytes();
+            _position = 0;
+            return true;
+        }
+    }
+}
@@ -15,6 +15,9 @@
 package org.switchyard.validate.xml.internal;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,12 +27,24 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stax.StAXResult;
+import javax.xml.transform.stax.StAXSource;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
@@ -48,6 +63,7 @@ import org.switchyard.validate.ValidationResult;
 import org.switchyard.validate.config.model.FileEntryModel;
 import org.switchyard.validate.config.model.XmlSchemaType;
 import org.switchyard.validate.config.model.XmlValidateModel;
+import org.w3c.dom.Node;
 import org.w3c.dom.ls.LSInput;
 import org.w3c.dom.ls.LSResourceResolver;
 import org.xml.sax.InputSource;
@@ -65,6 +81,12 @@ import org.xml.sax.helpers.DefaultHandler;
 public class XmlValidator extends BaseValidator<Message> {
 
     private static final Logger LOGGER = Logger.getLogger(XmlValidator.class);
+    // maximum number of idle parsers and validators kept
+    private static final int MAX_POOL_SIZE = 16;
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    // set on idle parsers, so they do not hold on to the last message's errors
+    private static final DefaultHandler NO_ERROR_HANDLER = new DefaultHandler();
     private XmlSchemaType _schemaType;
     private String _schemaTypeUri;
     private boolean _failOnWarning;
@@ -75,6 +97,10 @@ public class XmlValidator extends BaseValidator<Message> {
     private XmlValidatorCatalogResolver _catalogResolver;
     private List<String> _schemaFileNames = new ArrayList<String>();
     private List<String> _catalogFileNames = new ArrayList<String>();
+    private Schema _schema;
+    private BlockingQueue<XMLReader> _parsers = new ArrayBlockingQueue<XMLReader>(MAX_POOL_SIZE);
+    private BlockingQueue<javax.xml.validation.Validator> _validators =
+            new ArrayBlockingQueue<javax.xml.validation.Validator>(MAX_POOL_SIZE);
     
     /**
      * constructor.
@@ -196,8 +222,8 @@ public class XmlValidator extends BaseValidator<Message> {
             }
             
             try {
-                Schema schema = schemaFactory.newSchema(foundSchemas.toArray(new Source[0]));
-                _parserFactory.setSchema(schema);
+                _schema = schemaFactory.newSchema(foundSchemas.toArray(new Source[0]));
+                _parserFactory.setSchema(_schema);
             } catch (SAXException e) {
                 throw new SwitchYardException(e);
             }
@@ -212,16 +238,8 @@ public class XmlValidator extends BaseValidator<Message> {
         }
         
         try {
-            XMLReader validatingParser = createValidatingParser();
             XmlValidationErrorHandler errorHandler = new XmlValidationErrorHandler(_failOnWarning);
-            validatingParser.setErrorHandler(errorHandler);
-            String input = msg.getContent(String.class);
-            if (InputStream.class.isAssignableFrom(msg.getContent().getClass())) {
-                msg.setContent(new ByteArrayInputStream(input.getBytes()));
-            } else if (Reader.class.isAssignableFrom(msg.getContent().getClass())) {
-                msg.setContent(new StringReader(input));
-            }
-            validatingParser.parse(new InputSource(new StringReader(input)));
+            validate(msg, errorHandler);
             if (errorHandler.validationFailed()) {
                 return invalidResult(formatErrorMessage(errorHandler.getErrors()).toString());
             }
@@ -231,10 +249,111 @@ public class XmlValidator extends BaseValidator<Message> {
             throw new SwitchYardException(pce);
         } catch (IOException ioe) {
             throw new SwitchYardException(ioe);
+        } catch (XMLStreamException xse) {
+            throw new SwitchYardException(xse);
         }
         return validResult();
     }
 
+    // validates the content without converting it to a String, replacing
+    // content which can only be read once with a buffered copy
+    private void validate(Message msg, XmlValidationErrorHandler errorHandler)
+            throws SAXException, ParserConfigurationException, IOException, XMLStreamException {
+        Object content = msg.getContent();
+        if (content instanceof String) {
+            parse(new InputSource(new StringReader((String)content)), errorHandler);
+        } else if (content instanceof byte[]) {
+            parse(new InputSource(new ByteArrayInputStream((byte[])content)), errorHandler);
+        } else if (content instanceof InputStream) {
+            // keep the bytes, so the parser and downstream handlers see the document's own encoding
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            copy((InputStream)content, bytes);
+            byte[] input = bytes.toByteArray();
+            msg.setContent(new ByteArrayInputStream(input));
+            parse(new InputSource(new ByteArrayInputStream(input)), errorHandler);
+        } else if (content instanceof Reader) {
+            CharArrayWriter chars = new CharArrayWriter();
+            copy((Reader)content, chars);
+            char[] input = chars.toCharArray();
+            msg.setContent(new CharArrayReader(input));
+            parse(new InputSource(new CharArrayReader(input)), errorHandler);
+        } else if (_schema != null && _isNamespaceAware && (content instanceof Node || content instanceof DOMSource)) {
+            // a DOM can be read any number of times
+            Source source = content instanceof Node ? new DOMSource((Node)content) : (DOMSource)content;
+            validate(source, null, errorHandler);
+        } else if (_schema != null && _isNamespaceAware && content instanceof XMLStreamReader) {
+            CharArrayWriter chars = new CharArrayWriter();
+            XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(chars);
+            validate(new StAXSource((XMLStreamReader)content), new StAXResult(writer), errorHandler);
+            writer.flush();
+            msg.setContent(INPUT_FACTORY.createXMLStreamReader(new CharArrayReader(chars.toCharArray())));
+        } else if (_schema != null && _isNamespaceAware && content instanceof XMLEventReader) {
+            CharArrayWriter chars = new CharArrayWriter();
+            XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(chars);
+            validate(new StAXSource((XMLEventReader)content), new StAXResult(writer), errorHandler);
+            writer.flush();
+            msg.setContent(INPUT_FACTORY.createXMLEventReader(new CharArrayReader(chars.toCharArray())));
+        } else {
+            parse(new InputSource(new StringReader(msg.getContent(String.class))), errorHandler);
+        }
+    }
+
+    private void parse(InputSource input, XmlValidationErrorHandler errorHandler)
+            throws SAXException, ParserConfigurationException, IOException {
+        XMLReader validatingParser = _parsers.poll();
+        if (validatingParser == null) {
+            validatingParser = createValidatingParser();
+        }
+        validatingParser.setErrorHandler(errorHandler);
+        try {
+            validatingParser.parse(input);
+        } finally {
+            validatingParser.setErrorHandler(NO_ERROR_HANDLER);
+            _parsers.offer(validatingParser);
+        }
+    }
+
+    private void validate(Source source, StAXResult result, XmlValidationErrorHandler errorHandler)
+            throws SAXException, IOException {
+        javax.xml.validation.Validator validator = _validators.poll();
+        if (validator == null) {
+            validator = _schema.newValidator();
+        }
+        if (_catalogResolver != null) {
+            validator.setResourceResolver(_catalogResolver);
+        }
+        validator.setErrorHandler(errorHandler);
+        try {
+            validator.validate(source, result);
+        } finally {
+            validator.reset();
+            _validators.offer(validator);
+        }
+    }
+
+    private static void copy(InputStream in, ByteArrayOutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private static void copy(Reader in, CharArrayWriter out) throws IOException {
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Creates a validating parser.  Parsers are pooled and reused for many
+     * messages, with only their error handler replaced for each one.
+     * @return validating parser
+     * @throws SAXException the parser could not be created
+     * @throws ParserConfigurationException the parser could not be created
+     */
     protected XMLReader createValidatingParser() throws SAXException, ParserConfigurationException {
         XMLReader validatingParser = _parserFactory.newSAXParser().getXMLReader();
         if (XMLConstants.XML_DTD_NS_URI.equals(_schemaTypeUri) && _catalogResolver != null) {
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013 Red Hat Inc. and/or its affiliates and other contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.switchyard.validate.internal.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+
+import org.switchyard.internal.DefaultMessage;
+import org.switchyard.validate.AbstractValidatorTestCase;
+import org.switchyard.validate.Validator;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Microbenchmark for XmlValidator over String, InputStream, Reader, DOM and
+ * StAX content at several document sizes.  This is not run as part of the
+ * build; run it from the IDE or with 'java' against the test classpath.
+ * <p/>
+ * Usage: XmlValidatorBenchmark [iterations]
+ */
+public final class XmlValidatorBenchmark extends AbstractValidatorTestCase {
+
+    private static final int[] PERSON_COUNTS = {1, 100, 10000, 100000};
+
+    private XmlValidatorBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args optional iteration count for the smallest document
+     * @throws Exception on failure
+     */
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Validator validator = new XmlValidatorBenchmark().getValidator("sw-config-xmlv-people.xml");
+        DocumentBuilderFactory documentFactory = DocumentBuilderFactory.newInstance();
+        documentFactory.setNamespaceAware(true);
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        for (int round = 0; round < 3; round++) {
+            for (int count : PERSON_COUNTS) {
+                String xml = createDocument(count);
+                byte[] bytes = xml.getBytes("UTF-8");
+                Document document = documentFactory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+                // keep the total amount of work roughly the same for each size
+                int runs = Math.max(10, iterations / count);
+                long string = 0;
+                long stream = 0;
+                long reader = 0;
+                long dom = 0;
+                long stax = 0;
+                for (int i = 0; i < runs; i++) {
+                    long start = System.nanoTime();
+                    validate(validator, xml);
+                    string += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    validate(validator, new ByteArrayInputStream(bytes));
+                    stream += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    validate(validator, new StringReader(xml));
+                    reader += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    validate(validator, document);
+                    dom += System.nanoTime() - start;
+                    start = System.nanoTime();
+                    validate(validator, inputFactory.createXMLStreamReader(new StringReader(xml)));
+                    stax += System.nanoTime() - start;
+                }
+                System.out.println(bytes.length + " bytes: string=" + string / runs / 1000
+                        + "us stream=" + stream / runs / 1000 + "us reader=" + reader / runs / 1000
+                        + "us dom=" + dom / runs / 1000 + "us stax=" + stax / runs / 1000 + "us");
+            }
+        }
+    }
+
+    private static void validate(Validator validator, Object content) {
+        if (!validator.validate(new DefaultMessage().setContent(content)).isValid()) {
+            throw new IllegalStateException("benchmark document is not valid");
+        }
+    }
+
+    private static String createDocument(int count) {
+        StringBuilder xml = new StringBuilder("<people>");
+        for (int i = 0; i < count; i++) {
+            xml.append("<person name='person").append(i).append("' age='").append(i % 100).append("'/>");
+        }
+        return xml.append("</people>").toString();
+    }
+}
@@ -14,7 +14,15 @@
 
 package org.switchyard.validate.internal.xml;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
 
 import org.jboss.logging.Logger;
 import org.junit.Assert;
@@ -25,6 +33,8 @@ import org.switchyard.validate.ValidationResult;
 import org.switchyard.validate.Validator;
 import org.switchyard.validate.AbstractValidatorTestCase;
 import org.switchyard.validate.xml.internal.XmlValidator;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 /**
@@ -118,6 +128,94 @@ public class XmlValidatorTest extends AbstractValidatorTestCase {
         Assert.assertNull(result.getDetail());
     }
     
+    @Test
+    public void test_inputstream_content() throws Exception {
+        Validator validator = getValidator("sw-config-xmlv-01.xml");
+        // non-ASCII content must reach the parser in the document's own encoding
+        byte[] source = "<?xml version='1.0' encoding='UTF-8'?><person2 firstName='\uFF80\uFF9B\uFF73' lastName='bar' age='50' />"
+                .getBytes("UTF-8");
+        DefaultMessage message = new DefaultMessage().setContent(new ByteArrayInputStream(source));
+        ValidationResult result = validator.validate(message);
+        if (!result.isValid()) {
+            Assert.fail(result.getDetail());
+        }
+        // the content is still readable downstream
+        InputStream content = (InputStream)message.getContent();
+        byte[] preserved = new byte[source.length];
+        Assert.assertEquals(source.length, content.read(preserved));
+        Assert.assertArrayEquals(source, preserved);
+
+        result = validator.validate(new DefaultMessage().setContent(
+                new ByteArrayInputStream("<person name='foo'/>".getBytes("UTF-8"))));
+        Assert.assertFalse(result.isValid());
+    }
+
+    @Test
+    public void test_reader_content() throws Exception {
+        Validator validator = getValidator("sw-config-xmlv-01.xml");
+        String source = "<person name='foo' age='50' />";
+        DefaultMessage message = new DefaultMessage().setContent(new StringReader(source));
+        ValidationResult result = validator.validate(message);
+        if (!result.isValid()) {
+            Assert.fail(result.getDetail());
+        }
+        // the content is still readable downstream
+        Reader content = (Reader)message.getContent();
+        char[] preserved = new char[source.length()];
+        Assert.assertEquals(source.length(), content.read(preserved));
+        Assert.assertEquals(source, new String(preserved));
+
+        result = validator.validate(new DefaultMessage().setContent(new StringReader("<person name='foo'/>")));
+        Assert.assertFalse(result.isValid());
+    }
+
+    @Test
+    public void test_dom_content() throws Exception {
+        Validator validator = getValidator("sw-config-xmlv-namespace.xml");
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(
+                "<import:person.2 xmlns:import=\"switchyard-validate-test:import:1.0\" firstName='foo' lastName='bar' name='foo bar' age='50' />")));
+        DefaultMessage message = new DefaultMessage().setContent(document);
+        ValidationResult result = validator.validate(message);
+        if (!result.isValid()) {
+            Assert.fail(result.getDetail());
+        }
+        Assert.assertSame(document, message.getContent());
+
+        document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(
+                "<import:person.2 xmlns:import=\"switchyard-validate-test:import:1.0\" firstName='foo' />")));
+        result = validator.validate(new DefaultMessage().setContent(document));
+        Assert.assertFalse(result.isValid());
+    }
+
+    @Test
+    public void test_stax_content() throws Exception {
+        Validator validator = getValidator("sw-config-xmlv-namespace.xml");
+        String source = "<import:person.2 xmlns:import=\"switchyard-validate-test:import:1.0\" firstName='foo' lastName='bar' name='foo bar' age='50' />";
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(source));
+        DefaultMessage message = new DefaultMessage().setContent(reader);
+        ValidationResult result = validator.validate(message);
+        if (!result.isValid()) {
+            Assert.fail(result.getDetail());
+        }
+        // the validated events are buffered for the next handler
+        XMLStreamReader preserved = (XMLStreamReader)message.getContent();
+        Assert.assertEquals(XMLStreamReader.START_ELEMENT, preserved.nextTag());
+        Assert.assertEquals("person.2", preserved.getLocalName());
+        Assert.assertEquals("bar", preserved.getAttributeValue(null, "lastName"));
+    }
+
+    @Test
+    public void test_repeated_validation() throws Exception {
+        // pooled parsers must not carry errors from one message to the next
+        Validator validator = getValidator("sw-config-xmlv-01.xml");
+        for (int i = 0; i < 5; i++) {
+            Assert.assertFalse(validator.validate(new DefaultMessage().setContent("<person name='foo'/>")).isValid());
+            Assert.assertTrue(validator.validate(new DefaultMessage().setContent("<person name='foo' age='50' />")).isValid());
+        }
+    }
+
     protected Validator getValidator(String config) throws IOException {
         Validator validator = super.getValidator(config);
 